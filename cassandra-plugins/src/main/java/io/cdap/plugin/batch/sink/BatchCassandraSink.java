@@ -30,11 +30,14 @@ import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.common.RecordAccessor;
 import io.cdap.plugin.common.ReferenceBatchSink;
 import io.cdap.plugin.common.ReferencePluginConfig;
+import io.cdap.plugin.common.SchemaPlanCache;
 import org.apache.cassandra.hadoop.cql3.CqlOutputFormat;
 import org.apache.cassandra.utils.ByteBufferUtil;
 
@@ -60,6 +63,9 @@ import javax.annotation.Nullable;
 public class BatchCassandraSink
   extends ReferenceBatchSink<StructuredRecord, Map<String, ByteBuffer>, List<ByteBuffer>> {
   private final CassandraBatchConfig config;
+  private List<String> primaryKeys;
+  private List<String> columns;
+  private SchemaPlanCache<RecordAccessor> accessors;
 
   public BatchCassandraSink(CassandraBatchConfig config) {
     super(config);
@@ -80,32 +86,50 @@ public class BatchCassandraSink
     context.addOutput(Output.of(config.referenceName, new CassandraOutputFormatProvider(config)));
   }
 
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    primaryKeys = Arrays.asList(CharMatcher.WHITESPACE.removeFrom(config.primaryKey).split(","));
+    // Cassandra allows multiple primary keys, so the columns that are part of the primary key are not written
+    // as regular columns
+    columns = new ArrayList<>();
+    for (String columnName : CharMatcher.WHITESPACE.removeFrom(config.columns).split(",")) {
+      if (!primaryKeys.contains(columnName)) {
+        columns.add(columnName);
+      }
+    }
+    accessors = RecordAccessor.newCache();
+  }
+
   @Override
   public void transform(StructuredRecord record,
                         Emitter<KeyValue<Map<String, ByteBuffer>, List<ByteBuffer>>> emitter) throws Exception {
+    RecordAccessor accessor = accessors.get(record.getSchema());
     Map<String, ByteBuffer> keys = new LinkedHashMap<>();
-    for (String key : CharMatcher.WHITESPACE.removeFrom(config.primaryKey).split(",")) {
-      Preconditions.checkNotNull(record.get(key), String.format("Primary key %s is not present in this record: %s",
-                                                                key, StructuredRecordStringConverter
-                                                                       .toDelimitedString(record, ";")));
-      keys.put(key, encodeObject(record.get(key), record.getSchema().getField(key).getSchema()));
+    for (String key : primaryKeys) {
+      int index = accessor.indexOf(key);
+      Preconditions.checkNotNull(index < 0 ? null : accessor.get(record, index),
+                                 String.format("Primary key %s is not present in this record: %s",
+                                               key, StructuredRecordStringConverter.toDelimitedString(record, ";")));
+      keys.put(key, encodeField(record, accessor, index));
     }
-    emitter.emit(new KeyValue<>(keys, getColumns(record)));
+    emitter.emit(new KeyValue<>(keys, getColumns(record, accessor)));
   }
 
-  private List<ByteBuffer> getColumns(StructuredRecord record) throws Exception {
-    List<ByteBuffer> columns = new ArrayList<>();
-    List<String> primaryKeys = Arrays.asList(CharMatcher.WHITESPACE.removeFrom(config.primaryKey).split(","));
-    for (String columnName : CharMatcher.WHITESPACE.removeFrom(config.columns).split(",")) {
+  private List<ByteBuffer> getColumns(StructuredRecord record, RecordAccessor accessor) throws Exception {
+    List<ByteBuffer> encoded = new ArrayList<>(columns.size());
+    for (String columnName : columns) {
+      encoded.add(encodeField(record, accessor, accessor.requireIndex(columnName)));
+    }
+    return encoded;
+  }
 
-      //Cassandra allows multiple primary keys, so splitting that list on a comma
-      // and checking that the current column isn't a primary key
-      if (!primaryKeys.contains(columnName)) {
-        columns.add(encodeObject(record.get(columnName),
-                                 record.getSchema().getField(columnName).getSchema()));
-      }
+  private ByteBuffer encodeField(StructuredRecord record, RecordAccessor accessor, int index) throws IOException {
+    Object value = accessor.get(record, index);
+    if (value == null && accessor.isNullable(index)) {
+      return ByteBufferUtil.EMPTY_BYTE_BUFFER;
     }
-    return columns;
+    return encodeObject(value, accessor.getFieldSchema(index));
   }
 
   private ByteBuffer encodeObject(Object object, Schema schema) throws IOException {
@@ -30,9 +30,10 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.plugin.common.BatchReadableWritableConfig;
 import io.cdap.plugin.common.Properties;
+import io.cdap.plugin.common.RecordAccessor;
+import io.cdap.plugin.common.SchemaPlanCache;
 import io.cdap.plugin.common.SchemaValidator;
 
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -76,6 +77,7 @@ public class KVTableSink extends BatchWritableSink<StructuredRecord, byte[], byt
   }
 
   private final KVTableConfig kvTableConfig;
+  private SchemaPlanCache<RecordAccessor> accessors;
 
   public KVTableSink(KVTableConfig kvTableConfig) {
     super(kvTableConfig);
@@ -124,41 +126,41 @@ public class KVTableSink extends BatchWritableSink<StructuredRecord, byte[], byt
   public void transform(StructuredRecord input, Emitter<KeyValue<byte[], byte[]>> emitter) throws Exception {
     Object key = input.get(kvTableConfig.keyField);
     Preconditions.checkArgument(key != null, "Key cannot be null.");
-    byte[] keyBytes;
-
-    Schema keyFieldSchema = input.getSchema().getField(kvTableConfig.keyField).getSchema();
-    if (keyFieldSchema.getType().equals(Schema.Type.STRING)) {
-      keyBytes = Bytes.toBytes((String) key);
-    } else if (keyFieldSchema.getType().equals(Schema.Type.BYTES)) {
-      keyBytes = key instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) key) : (byte[]) key;
-    } else if (keyFieldSchema.isNullable()) {
-      throw new Exception(
-        String.format("Key field %s cannot have nullable schema %s", kvTableConfig.keyField, keyFieldSchema));
-    } else {
+    if (accessors == null) {
+      accessors = RecordAccessor.newCache();
+    }
+    RecordAccessor accessor = accessors.get(input.getSchema());
+
+    int keyIndex = accessor.requireIndex(kvTableConfig.keyField);
+    Schema.Type keyType = accessor.getType(keyIndex);
+    if (accessor.isNullable(keyIndex)) {
+      throw new Exception(String.format("Key field %s cannot have nullable schema %s", kvTableConfig.keyField,
+                                        input.getSchema().getField(kvTableConfig.keyField).getSchema()));
+    } else if (keyType != Schema.Type.STRING && keyType != Schema.Type.BYTES) {
       throw new Exception(
         String.format("Key field %s cannot have schema %s. It must of either String or Bytes",
-                      kvTableConfig.keyField, keyFieldSchema));
+                      kvTableConfig.keyField, accessor.getFieldSchema(keyIndex)));
     }
+    byte[] keyBytes = keyType == Schema.Type.STRING ?
+      Bytes.toBytes((String) key) : accessor.getBytes(input, keyIndex);
 
-    Schema.Field valueFieldSchema = input.getSchema().getField(kvTableConfig.valueField);
-    if (valueFieldSchema == null) {
+    int valueIndex = accessor.indexOf(kvTableConfig.valueField);
+    if (valueIndex < 0) {
       throw new Exception("Value Field " + kvTableConfig.valueField + " is missing in the input record");
     }
 
     byte[] valBytes = null;
-    Object val = input.get(kvTableConfig.valueField);
+    Object val = accessor.get(input, valueIndex);
     if (val != null) {
-      Schema.Type valueFieldType =
-        valueFieldSchema.getSchema().isNullable() ? valueFieldSchema.getSchema().getNonNullable().getType() :
-          valueFieldSchema.getSchema().getType();
-      if (valueFieldType.equals(Schema.Type.STRING)) {
+      Schema.Type valueFieldType = accessor.getType(valueIndex);
+      if (valueFieldType == Schema.Type.STRING) {
         valBytes = Bytes.toBytes((String) val);
-      } else if (valueFieldType.equals(Schema.Type.BYTES)) {
-        valBytes = val instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) val) : (byte[]) val;
+      } else if (valueFieldType == Schema.Type.BYTES) {
+        valBytes = accessor.getBytes(input, valueIndex);
       } else {
         throw new Exception(
           String.format("Value field %s cannot have schema %s. It must of either String or Bytes",
-                        kvTableConfig.valueField, valueFieldSchema));
+                        kvTableConfig.valueField, input.getSchema().getField(kvTableConfig.valueField)));
       }
     }
     emitter.emit(new KeyValue<>(keyBytes, valBytes));
@@ -39,7 +39,14 @@ import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
 import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.junit.Assert;
@@ -53,6 +60,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -160,6 +168,30 @@ public class FileSinkTestRun extends ETLBatchTestBase {
     validateDatasetSchema(FileFormat.AVRO);
   }
 
+  @Test
+  public void testOrcFileSink() throws Exception {
+    Map<Integer, String> output = new HashMap<>();
+    runPipeline(FileFormat.ORC, file -> {
+      Reader reader = OrcFile.createReader(new Path(file.toString()), OrcFile.readerOptions(new Configuration()));
+      VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+      RecordReader rows = reader.rows();
+      try {
+        while (rows.nextBatch(batch)) {
+          LongColumnVector iColumn = (LongColumnVector) batch.cols[0];
+          BytesColumnVector sColumn = (BytesColumnVector) batch.cols[1];
+          for (int row = 0; row < batch.size; row++) {
+            output.put((int) iColumn.vector[row], new String(sColumn.vector[row], sColumn.start[row],
+                                                             sColumn.length[row], StandardCharsets.UTF_8));
+          }
+        }
+      } finally {
+        rows.close();
+      }
+    });
+    Assert.assertEquals(ImmutableMap.of(0, "abc", 1, "def", 2, "ghi"), output);
+    validateDatasetSchema(FileFormat.ORC);
+  }
+
   @Test
   public void testParquetFileSink() throws Exception {
     testParquetFileSink(SchemaState.VALID);
@@ -53,7 +53,14 @@ import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
 import org.apache.parquet.avro.AvroParquetWriter;
 import org.apache.parquet.hadoop.ParquetWriter;
 import org.junit.Assert;
@@ -69,6 +76,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -562,6 +570,52 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertArrayEquals(byteContent2, contents.get(file2.toURI().toString()));
   }
 
+  @Test
+  public void testReadBlobChunks() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    File file = new File(testFolder, "test");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema schema = Schema.recordOf("blob",
+                                    Schema.Field.of("body", Schema.of(Schema.Type.BYTES)),
+                                    Schema.Field.of("offset", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("sequence", Schema.of(Schema.Type.LONG)));
+
+    String appName = UUID.randomUUID().toString();
+    // splits don't line up with chunks, which should only be read by the split they start in
+    ImmutableMap.Builder<String, String> sourceProperties = ImmutableMap.<String, String>builder()
+      .put(Constants.Reference.REFERENCE_NAME, appName + "TestFile")
+      .put(Properties.File.PATH, testFolder.getAbsolutePath())
+      .put(Properties.File.FORMAT, FileFormat.BLOB.name().toLowerCase())
+      .put(Properties.File.IGNORE_NON_EXISTING_FOLDERS, "false")
+      .put(Properties.File.SCHEMA, schema.toString())
+      .put("chunkSize", "4")
+      .put("maxSplitSize", "3");
+
+    ApplicationManager appManager = createSourceAndDeployApp(appName, outputDatasetName, sourceProperties.build());
+
+    FileUtils.writeStringToFile(file, "0123456789");
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> output = MockSink.readOutput(outputManager);
+    Assert.assertEquals(3, output.size());
+
+    Map<Long, String> chunks = new HashMap<>();
+    for (StructuredRecord outputRecord : output) {
+      long offset = outputRecord.get("offset");
+      Assert.assertEquals(offset / 4, (long) outputRecord.get("sequence"));
+      chunks.put(offset, Bytes.toString(Bytes.toBytes((ByteBuffer) outputRecord.get("body"))));
+    }
+    Map<Long, String> expected = new HashMap<>();
+    expected.put(0L, "0123");
+    expected.put(4L, "4567");
+    expected.put(8L, "89");
+    Assert.assertEquals(expected, chunks);
+  }
+
   @Test
   public void testReadJson() throws Exception {
     File fileText = new File(temporaryFolder.newFolder(), "test.json");
@@ -601,6 +655,66 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testReadJsonArray() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "test.json");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema addressSchema = Schema.recordOf("address",
+                                           Schema.Field.of("city", Schema.of(Schema.Type.STRING)));
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+                                    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("address", Schema.nullableOf(addressSchema)));
+
+    Map<String, String> properties = ImmutableMap.<String, String>builder()
+      .put(Constants.Reference.REFERENCE_NAME, "JsonArrayTestFile")
+      .put(Properties.File.PATH, fileText.getAbsolutePath())
+      .put(Properties.File.FORMAT, FileFormat.JSON.name())
+      .put(Properties.File.IGNORE_NON_EXISTING_FOLDERS, "false")
+      .put(Properties.File.SCHEMA, schema.toString())
+      .put("jsonArray", "true")
+      .build();
+    ApplicationManager appManager = createSourceAndDeployApp(UUID.randomUUID().toString(), outputDatasetName,
+                                                             properties);
+
+    // fields that are not in the schema are skipped
+    String inputStr = "[\n" +
+      "  {\n" +
+      "    \"id\": 0,\n" +
+      "    \"unknown\": { \"nested\": [1, 2, { \"a\": null }] },\n" +
+      "    \"score\": 1.5,\n" +
+      "    \"tags\": [\"a\", \"b\"],\n" +
+      "    \"address\": { \"city\": \"Palo Alto\", \"zip\": \"94306\" }\n" +
+      "  },\n" +
+      "  {\n" +
+      "    \"id\": 1,\n" +
+      "    \"score\": null,\n" +
+      "    \"tags\": []\n" +
+      "  }\n" +
+      "]\n";
+    FileUtils.writeStringToFile(fileText, inputStr);
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(schema)
+        .set("id", 0L)
+        .set("score", 1.5d)
+        .set("tags", ImmutableList.of("a", "b"))
+        .set("address", StructuredRecord.builder(addressSchema).set("city", "Palo Alto").build())
+        .build(),
+      StructuredRecord.builder(schema).set("id", 1L).set("tags", ImmutableList.of()).build()
+    );
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(outputManager));
+
+    Assert.assertEquals(expected, output);
+  }
+
   @Test
   public void testReadCSV() throws Exception {
     testReadDelimitedText(FileFormat.CSV.name(), ",");
@@ -650,6 +764,52 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testReadQuotedCSV() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "test.csv");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+
+    Map<String, String> properties = ImmutableMap.<String, String>builder()
+      .put(Constants.Reference.REFERENCE_NAME, "QuotedCSVTestFile")
+      .put(Properties.File.PATH, fileText.getAbsolutePath())
+      .put(Properties.File.FORMAT, FileFormat.CSV.name())
+      .put(Properties.File.IGNORE_NON_EXISTING_FOLDERS, "false")
+      .put(Properties.File.SCHEMA, schema.toString())
+      .put("skipHeader", "true")
+      .put("enableQuotedValues", "true")
+      .build();
+    ApplicationManager appManager = createSourceAndDeployApp(UUID.randomUUID().toString(), outputDatasetName,
+                                                             properties);
+
+    // quoted values can contain the delimiter, doubled quotes and line breaks
+    String inputStr = "id,name,score\n" +
+      "1,\"smith, sam\",-7\n" +
+      "2,\"sam \"\"the man\"\"\",\n" +
+      "3,\"first line\nsecond line\",\"42\"\n" +
+      "4,sam\"s,0\n";
+    FileUtils.writeStringToFile(fileText, inputStr);
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(schema).set("id", 1L).set("name", "smith, sam").set("score", -7).build(),
+      StructuredRecord.builder(schema).set("id", 2L).set("name", "sam \"the man\"").build(),
+      StructuredRecord.builder(schema).set("id", 3L).set("name", "first line\nsecond line").set("score", 42).build(),
+      StructuredRecord.builder(schema).set("id", 4L).set("name", "sam\"s").set("score", 0).build()
+    );
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(outputManager));
+
+    Assert.assertEquals(expected, output);
+  }
+
   @Test
   public void testTextFormatWithoutOffset() throws Exception {
     File fileText = new File(temporaryFolder.newFolder(), "test.txt");
@@ -982,6 +1142,211 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testFileBatchInputFormatParquetProjection() throws Exception {
+    File fileParquet = new File(temporaryFolder.newFolder(), "test.parquet");
+    String outputDatasetName = "test-filesource-parquet-projection";
+
+    // 'l' is not read from the file, and 'extra' is not in the file
+    Schema projectedSchema = Schema.recordOf("record",
+                                             Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                             Schema.Field.of("extra", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                             Schema.Field.of("file", Schema.of(Schema.Type.STRING)));
+
+    String appName = "FileSourceParquetProjection";
+    ApplicationManager appManager = createSourceAndDeployApp(appName, fileParquet, "parquet", outputDatasetName,
+                                                             projectedSchema);
+
+    Schema fileSchema = Schema.recordOf("record",
+                                        Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                        Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
+                                        Schema.Field.of("s", Schema.of(Schema.Type.STRING)));
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(fileSchema.toString());
+    ParquetWriter<GenericRecord> parquetWriter = new AvroParquetWriter<>(new Path(fileParquet.getAbsolutePath()),
+                                                                         avroSchema);
+    for (int i = 0; i < 3; i++) {
+      parquetWriter.write(new GenericRecordBuilder(avroSchema)
+                            .set("i", i)
+                            .set("l", (long) i)
+                            .set("s", "s" + i)
+                            .build());
+    }
+    parquetWriter.close();
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Set<StructuredRecord> expected = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      expected.add(StructuredRecord.builder(projectedSchema)
+                     .set("i", i)
+                     .set("file", fileParquet.toURI().toString())
+                     .build());
+    }
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(outputManager));
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testFileBatchInputFormatParquetNested() throws Exception {
+    File fileParquet = new File(temporaryFolder.newFolder(), "test.parquet");
+    String outputDatasetName = "test-filesource-parquet-nested";
+
+    Schema innerSchema = Schema.recordOf("inner",
+                                         Schema.Field.of("x", Schema.of(Schema.Type.LONG)),
+                                         Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema fileSchema = Schema.recordOf(
+      "record",
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("inner", Schema.nullableOf(innerSchema)),
+      Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("counts", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))));
+    List<Schema.Field> fields = new ArrayList<>(fileSchema.getFields());
+    fields.add(Schema.Field.of("file", Schema.of(Schema.Type.STRING)));
+    Schema schema = Schema.recordOf("record", fields);
+
+    String appName = "FileSourceParquetNested";
+    ApplicationManager appManager = createSourceAndDeployApp(appName, fileParquet, "parquet", outputDatasetName,
+                                                             schema);
+
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(fileSchema.toString());
+    org.apache.avro.Schema avroInnerSchema = new org.apache.avro.Schema.Parser().parse(innerSchema.toString());
+    ParquetWriter<GenericRecord> parquetWriter = new AvroParquetWriter<>(new Path(fileParquet.getAbsolutePath()),
+                                                                         avroSchema);
+    Set<StructuredRecord> expected = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      GenericRecord inner = i == 0 ? null : new GenericRecordBuilder(avroInnerSchema)
+        .set("x", (long) i)
+        .set("y", i == 1 ? null : "y" + i)
+        .build();
+      List<String> tags = new ArrayList<>();
+      Map<String, Integer> counts = new HashMap<>();
+      for (int j = 0; j < i; j++) {
+        tags.add("t" + j);
+        counts.put("c" + j, j);
+      }
+      parquetWriter.write(new GenericRecordBuilder(avroSchema)
+                            .set("i", i)
+                            .set("inner", inner)
+                            .set("tags", tags)
+                            .set("counts", counts)
+                            .build());
+      expected.add(StructuredRecord.builder(schema)
+                     .set("i", i)
+                     .set("inner", inner == null ? null : StructuredRecord.builder(innerSchema)
+                       .set("x", (long) i)
+                       .set("y", i == 1 ? null : "y" + i)
+                       .build())
+                     .set("tags", tags)
+                     .set("counts", counts)
+                     .set("file", fileParquet.toURI().toString())
+                     .build());
+    }
+    parquetWriter.close();
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(outputManager));
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testFileBatchInputFormatOrc() throws Exception {
+    File fileOrc = new File(temporaryFolder.newFolder(), "test.orc");
+    String outputDatasetName = "test-filesource-orc";
+
+    // 'l' is not read from the file, and 'extra' is not in the file
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("extra", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("file", Schema.of(Schema.Type.STRING)));
+
+    String appName = "FileSourceOrc";
+    ApplicationManager appManager = createSourceAndDeployApp(appName, fileOrc, "orc", outputDatasetName, schema);
+
+    TypeDescription orcSchema = TypeDescription.fromString("struct<i:int,l:bigint,s:string>");
+    Writer writer = OrcFile.createWriter(new Path(fileOrc.getAbsolutePath()),
+                                         OrcFile.writerOptions(new Configuration()).setSchema(orcSchema));
+    VectorizedRowBatch batch = orcSchema.createRowBatch();
+    LongColumnVector iColumn = (LongColumnVector) batch.cols[0];
+    LongColumnVector lColumn = (LongColumnVector) batch.cols[1];
+    BytesColumnVector sColumn = (BytesColumnVector) batch.cols[2];
+    Set<StructuredRecord> expected = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      int row = batch.size++;
+      iColumn.vector[row] = i;
+      lColumn.vector[row] = i;
+      if (i % 2 == 0) {
+        sColumn.noNulls = false;
+        sColumn.isNull[row] = true;
+      } else {
+        byte[] s = ("s" + i).getBytes(StandardCharsets.UTF_8);
+        sColumn.setRef(row, s, 0, s.length);
+      }
+      expected.add(StructuredRecord.builder(schema)
+                     .set("i", i)
+                     .set("s", i % 2 == 0 ? null : "s" + i)
+                     .set("file", fileOrc.toURI().toString())
+                     .build());
+    }
+    writer.addRowBatch(batch);
+    writer.close();
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(outputManager));
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testFileBatchInputFormatParquetFilter() throws Exception {
+    File fileParquet = new File(temporaryFolder.newFolder(), "test.parquet");
+    String outputDatasetName = "test-filesource-parquet-filter";
+
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(schema.toString());
+    ParquetWriter<GenericRecord> parquetWriter = new AvroParquetWriter<>(new Path(fileParquet.getAbsolutePath()),
+                                                                         avroSchema);
+    for (int i = 0; i < 10; i++) {
+      parquetWriter.write(new GenericRecordBuilder(avroSchema)
+                            .set("i", i)
+                            .set("s", i % 4 == 0 ? null : "s" + i)
+                            .build());
+    }
+    parquetWriter.close();
+
+    Map<String, String> properties = ImmutableMap.<String, String>builder()
+      .put(Constants.Reference.REFERENCE_NAME, "ParquetFilterTestFile")
+      .put(Properties.File.PATH, fileParquet.getAbsolutePath())
+      .put(Properties.File.FORMAT, "parquet")
+      .put(Properties.File.IGNORE_NON_EXISTING_FOLDERS, "false")
+      .put(Properties.File.SCHEMA, schema.toString())
+      .put("filter", "(i >= 2 AND i < 8 AND s IS NOT NULL) or s in ('s9', 'it''s')")
+      .build();
+    ApplicationManager appManager = createSourceAndDeployApp(UUID.randomUUID().toString(), outputDatasetName,
+                                                             properties);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Set<StructuredRecord> expected = new HashSet<>();
+    for (int i : new int[] { 2, 3, 5, 6, 7, 9 }) {
+      expected.add(StructuredRecord.builder(schema).set("i", i).set("s", "s" + i).build());
+    }
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(outputManager));
+    Assert.assertEquals(expected, output);
+  }
+
   private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
                                                       String outputDatasetName, Schema schema) throws Exception {
     return createSourceAndDeployApp(appName, file, format, outputDatasetName, schema, null, false, true);
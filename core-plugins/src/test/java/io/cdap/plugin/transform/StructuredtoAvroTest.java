@@ -137,4 +137,30 @@ public class StructuredtoAvroTest {
     Assert.assertNull(result.get("byteBuffer"));
     Assert.assertNull(result.get("byteArray"));
   }
+
+  @Test
+  public void testUnionBranchResolution() throws Exception {
+    Schema aSchema = Schema.recordOf("a", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema bSchema = Schema.recordOf("b", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema unionSchema = Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.LONG),
+                                        Schema.of(Schema.Type.STRING), aSchema, bSchema);
+    Schema schema = Schema.recordOf("output", Schema.Field.of("u", unionSchema));
+    StructuredToAvroTransformer avroTransformer = new StructuredToAvroTransformer(schema);
+
+    GenericRecord result = avroTransformer.transform(StructuredRecord.builder(schema).set("u", 5L).build());
+    Assert.assertEquals(5L, result.get("u"));
+
+    result = avroTransformer.transform(StructuredRecord.builder(schema).set("u", "abc").build());
+    Assert.assertEquals("abc", result.get("u"));
+
+    // records with the same fields should be converted with the branch of the same name
+    StructuredRecord b = StructuredRecord.builder(bSchema).set("x", 1).build();
+    result = avroTransformer.transform(StructuredRecord.builder(schema).set("u", b).build());
+    GenericRecord union = (GenericRecord) result.get("u");
+    Assert.assertEquals("b", union.getSchema().getName());
+    Assert.assertEquals(1, union.get("x"));
+
+    result = avroTransformer.transform(StructuredRecord.builder(schema).build());
+    Assert.assertNull(result.get("u"));
+  }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan for reading the rows of a {@link ResultSet} into {@link StructuredRecord StructuredRecords}.
+ *
+ * The output schema, the column of each output field and the way each column is converted only depend on the
+ * result set metadata and the configuration, so they are resolved once for a result set. Reading a row then only
+ * needs the indexed getters of the result set. The conversions are the same as the ones done by
+ * {@link DBUtils#transformValue(int, int, int, ResultSet, String, Schema)}.
+ */
+final class DBReadPlan {
+  private static final ZoneId UTC = ZoneId.ofOffset("UTC", ZoneOffset.UTC);
+
+  private final ResultSet resultSet;
+  private final Schema schema;
+  private final String[] fieldNames;
+  private final int[] columns;
+  private final ColumnReader[] readers;
+
+  private DBReadPlan(ResultSet resultSet, Schema schema, String[] fieldNames, int[] columns, ColumnReader[] readers) {
+    this.resultSet = resultSet;
+    this.schema = schema;
+    this.fieldNames = fieldNames;
+    this.columns = columns;
+    this.readers = readers;
+  }
+
+  /**
+   * Creates the plan for reading the given result set.
+   *
+   * @param resultSet the result set to read
+   * @param conf configuration containing the override schema and the column name replacement pattern, if any
+   * @return the plan for the result set
+   * @throws SQLException if the result set metadata could not be read or contains an unsupported type
+   */
+  static DBReadPlan create(ResultSet resultSet, Configuration conf) throws SQLException {
+    ResultSetMetaData metadata = resultSet.getMetaData();
+    String outputSchemaString = conf.get(DBUtils.OVERRIDE_SCHEMA, null);
+    Schema outputSchema = null;
+
+    if (!Strings.isNullOrEmpty(outputSchemaString)) {
+      try {
+        outputSchema = Schema.parseJson(outputSchemaString);
+      } catch (IOException e) {
+        throw new IllegalArgumentException(String.format("Unable to parse schema string '%s'.", outputSchemaString), e);
+      }
+    }
+
+    List<Schema.Field> originalSchema = DBUtils.getOriginalSchema(resultSet, outputSchema);
+    String patternToReplace = conf.get(DBUtils.PATTERN_TO_REPLACE);
+    String replaceWith = conf.get(DBUtils.REPLACE_WITH);
+
+    // map of new name -> column index. Columns are numbered starting with 1
+    Map<String, Integer> columnMap = new HashMap<>();
+    List<Schema.Field> newSchema = new ArrayList<>();
+    for (int i = 0; i < originalSchema.size(); i++) {
+      Schema.Field field = originalSchema.get(i);
+      String newName = field.getName();
+      if (patternToReplace != null) {
+        newName = newName.replaceAll(patternToReplace, replaceWith == null ? "" : replaceWith);
+      }
+      // like ResultSet#getObject(String), the first column with a name wins
+      columnMap.putIfAbsent(newName, i + 1);
+      newSchema.add(Schema.Field.of(newName, field.getSchema()));
+    }
+
+    List<Schema.Field> schemaFields = DBUtils.getSchemaFields(Schema.recordOf("resultSet", newSchema),
+                                                              outputSchemaString);
+    Schema schema = Schema.recordOf("dbRecord", schemaFields);
+    String[] fieldNames = new String[schemaFields.size()];
+    int[] columns = new int[schemaFields.size()];
+    ColumnReader[] readers = new ColumnReader[schemaFields.size()];
+    for (int i = 0; i < schemaFields.size(); i++) {
+      Schema.Field field = schemaFields.get(i);
+      // getSchemaFields makes sure that every field of the override schema is in the result set
+      int column = columnMap.get(field.getName());
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      fieldNames[i] = field.getName();
+      columns[i] = column;
+      readers[i] = getReader(metadata.getColumnType(column), metadata.getPrecision(column),
+                             metadata.getScale(column), fieldSchema);
+    }
+    return new DBReadPlan(resultSet, schema, fieldNames, columns, readers);
+  }
+
+  /**
+   * @return whether this plan was created for the given result set
+   */
+  boolean isFor(ResultSet resultSet) {
+    return this.resultSet == resultSet;
+  }
+
+  /**
+   * Reads the current row of the result set this plan was created for.
+   */
+  StructuredRecord read() throws SQLException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < readers.length; i++) {
+      readers[i].read(resultSet, columns[i], builder, fieldNames[i]);
+    }
+    return builder.build();
+  }
+
+  private static ColumnReader getReader(int sqlType, int precision, int scale, Schema outputFieldSchema) {
+    switch (sqlType) {
+      case Types.SMALLINT:
+      case Types.TINYINT:
+        return (resultSet, column, builder, name) -> {
+          Object value = resultSet.getObject(column);
+          builder.set(name, value == null ? null : ((Number) value).intValue());
+        };
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+        if (Schema.LogicalType.DECIMAL == outputFieldSchema.getLogicalType()) {
+          return (resultSet, column, builder, name) -> {
+            BigDecimal decimal = resultSet.getBigDecimal(column);
+            if (decimal == null) {
+              builder.set(name, null);
+            } else {
+              builder.setDecimal(name, decimal);
+            }
+          };
+        }
+        // if there are digits after the point, use double types
+        // with 10 digits we can represent 2^32 and LONG is required
+        return (resultSet, column, builder, name) -> {
+          BigDecimal decimal = resultSet.getBigDecimal(column);
+          if (decimal == null) {
+            builder.set(name, null);
+          } else if (scale != 0) {
+            builder.set(name, decimal.doubleValue());
+          } else if (precision > 9) {
+            builder.set(name, decimal.longValue());
+          } else {
+            builder.set(name, decimal.intValue());
+          }
+        };
+      case Types.DATE:
+        return (resultSet, column, builder, name) -> {
+          Date date = resultSet.getDate(column);
+          if (date == null) {
+            builder.set(name, null);
+          } else {
+            builder.setDate(name, date.toLocalDate());
+          }
+        };
+      case Types.TIME:
+        return (resultSet, column, builder, name) -> {
+          Time time = resultSet.getTime(column);
+          if (time == null) {
+            builder.set(name, null);
+          } else {
+            builder.setTime(name, time.toLocalTime());
+          }
+        };
+      case Types.TIMESTAMP:
+        return (resultSet, column, builder, name) -> {
+          Timestamp timestamp = resultSet.getTimestamp(column);
+          if (timestamp == null) {
+            builder.set(name, null);
+          } else {
+            builder.setTimestamp(name, timestamp.toInstant().atZone(UTC));
+          }
+        };
+      case Types.ROWID:
+        return (resultSet, column, builder, name) -> builder.set(name, resultSet.getString(column));
+      case Types.BLOB:
+        return (resultSet, column, builder, name) -> {
+          Blob blob = resultSet.getBlob(column);
+          if (blob == null) {
+            builder.set(name, null);
+            return;
+          }
+          try {
+            builder.set(name, blob.getBytes(1, (int) blob.length()));
+          } finally {
+            blob.free();
+          }
+        };
+      case Types.CLOB:
+        return (resultSet, column, builder, name) -> {
+          Clob clob = resultSet.getClob(column);
+          if (clob == null) {
+            builder.set(name, null);
+            return;
+          }
+          try {
+            builder.set(name, clob.getSubString(1, (int) clob.length()));
+          } finally {
+            clob.free();
+          }
+        };
+      default:
+        return DBReadPlan::readObject;
+    }
+  }
+
+  /**
+   * Reads a column whose value is used as returned by the driver, converting date and time values that the driver
+   * may return for other SQL types.
+   */
+  private static void readObject(ResultSet resultSet, int column, StructuredRecord.Builder builder,
+                                 String name) throws SQLException {
+    Object value = resultSet.getObject(column);
+    if (value instanceof Date) {
+      builder.setDate(name, ((Date) value).toLocalDate());
+    } else if (value instanceof Time) {
+      builder.setTime(name, ((Time) value).toLocalTime());
+    } else if (value instanceof Timestamp) {
+      builder.setTimestamp(name, ((Timestamp) value).toInstant().atZone(UTC));
+    } else if (value instanceof BigDecimal) {
+      builder.setDecimal(name, (BigDecimal) value);
+    } else {
+      builder.set(name, value);
+    }
+  }
+
+  /**
+   * Reads a column of the current row and sets the corresponding field of a record.
+   */
+  private interface ColumnReader {
+    void read(ResultSet resultSet, int column, StructuredRecord.Builder builder, String name) throws SQLException;
+  }
+}
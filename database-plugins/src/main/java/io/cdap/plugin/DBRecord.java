@@ -17,10 +17,7 @@
 package io.cdap.plugin;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Strings;
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
@@ -29,24 +26,10 @@ import org.apache.hadoop.mapreduce.lib.db.DBWritable;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.nio.ByteBuffer;
-import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Time;
-import java.sql.Timestamp;
-import java.sql.Types;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZoneOffset;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import javax.sql.rowset.serial.SerialBlob;
 
 /**
  * Writable class for DB Source/Sink
@@ -67,6 +50,16 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    */
   private int [] columnTypes;
 
+  /**
+   * Plan for the result set that is being read, which is created when the first row is read.
+   */
+  private DBReadPlan readPlan;
+
+  /**
+   * Plan for writing the record, which is shared by the records of a sink if they are created with a plan.
+   */
+  private DBWritePlan writePlan;
+
   /**
    * Used to construct a DBRecord from a StructuredRecord in the ETL Pipeline
    *
@@ -77,6 +70,30 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
     this.columnTypes = columnTypes;
   }
 
+  /**
+   * Used to construct a DBRecord for a StructuredRecord that has been read from a database.
+   *
+   * @param record the {@link StructuredRecord} to construct the {@link DBRecord} from
+   */
+  public DBRecord(StructuredRecord record) {
+    this.record = record;
+  }
+
+  /**
+   * Used to construct a DBRecord from a StructuredRecord in the ETL Pipeline, with a plan that can be shared by
+   * all the records with the same schema.
+   *
+   * @param record the {@link StructuredRecord} to construct the {@link DBRecord} from
+   * @param writePlan the plan for writing the record, which must have been created for the schema of the record
+   */
+  public DBRecord(StructuredRecord record, DBWritePlan writePlan) {
+    Preconditions.checkArgument(writePlan.isFor(record.getSchema()),
+                                "Write plan for schema %s cannot write a record with schema %s.",
+                                writePlan.getSchema(), record.getSchema());
+    this.record = record;
+    this.writePlan = writePlan;
+  }
+
   /**
    * Used in map-reduce. Do not remove.
    */
@@ -108,80 +125,15 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    * @param resultSet the {@link ResultSet} to build the {@link StructuredRecord} from
    */
   public void readFields(ResultSet resultSet) throws SQLException {
-    ResultSetMetaData metadata = resultSet.getMetaData();
-    String outputSchemaString = conf.get(DBUtils.OVERRIDE_SCHEMA, null);
-    Schema outputSchema = null;
-
-    if (!Strings.isNullOrEmpty(outputSchemaString)) {
-      try {
-        outputSchema = Schema.parseJson(outputSchemaString);
-      } catch (IOException e) {
-        throw new IllegalArgumentException(String.format("Unable to parse schema string '%s'.", outputSchemaString), e);
-      }
-    }
-
-    List<Schema.Field> originalSchema = DBUtils.getOriginalSchema(resultSet, outputSchema);
-    String patternToReplace = conf.get(DBUtils.PATTERN_TO_REPLACE);
-    String replaceWith = conf.get(DBUtils.REPLACE_WITH);
-
-    // map of new name -> original name
-    Map<String, String> nameMap = new HashMap<>();
-    List<Schema.Field> newSchema = new ArrayList<>();
-    for (Schema.Field field : originalSchema) {
-      String newName = field.getName();
-      if (patternToReplace != null) {
-        newName = newName.replaceAll(patternToReplace, replaceWith == null ? "" : replaceWith);
-      }
-      nameMap.put(newName, field.getName());
-      newSchema.add(Schema.Field.of(newName, field.getSchema()));
-    }
-
-    List<Schema.Field> schemaFields = DBUtils.getSchemaFields(Schema.recordOf("resultSet", newSchema),
-                                                              conf.get(DBUtils.OVERRIDE_SCHEMA));
-    Schema schema = Schema.recordOf("dbRecord", schemaFields);
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (int i = 0; i < schemaFields.size(); i++) {
-      Schema.Field field = schemaFields.get(i);
-      int sqlType = metadata.getColumnType(i + 1);
-      int sqlPrecision = metadata.getPrecision(i + 1);
-      int sqlScale = metadata.getScale(i + 1);
-
-      Schema outputFieldSchema = field.getSchema();
-      outputFieldSchema = outputFieldSchema.isNullable() ? outputFieldSchema.getNonNullable() : outputFieldSchema;
-      setField(resultSet, recordBuilder, field, sqlType, sqlPrecision, sqlScale, nameMap.getOrDefault(field.getName(),
-                                                                                                      field.getName()),
-               outputFieldSchema);
-    }
-    record = recordBuilder.build();
-  }
-
-  private void setField(ResultSet resultSet, StructuredRecord.Builder recordBuilder, Schema.Field field, int sqlType,
-                        int sqlPrecision, int sqlScale, String originalName, Schema outputFieldSchema)
-    throws SQLException {
-    // original name has to be used to get result from result set
-    Object o = DBUtils.transformValue(sqlType, sqlPrecision, sqlScale, resultSet, originalName,
-                                      outputFieldSchema);
-    if (o instanceof Date) {
-      recordBuilder.setDate(field.getName(), ((Date) o).toLocalDate());
-    } else if (o instanceof Time) {
-      recordBuilder.setTime(field.getName(), ((Time) o).toLocalTime());
-    } else if (o instanceof Timestamp) {
-      Instant instant = ((Timestamp) o).toInstant();
-      recordBuilder.setTimestamp(field.getName(), instant.atZone(ZoneId.ofOffset("UTC", ZoneOffset.UTC)));
-    } else if (o instanceof BigDecimal) {
-      BigDecimal decimal = ((BigDecimal) o);
-      recordBuilder.setDecimal(field.getName(), decimal);
-    } else {
-      recordBuilder.set(field.getName(), o);
+    // a record reader reuses the same DBRecord for all the rows of its result set
+    if (readPlan == null || !readPlan.isFor(resultSet)) {
+      readPlan = DBReadPlan.create(resultSet, conf);
     }
+    record = readPlan.read();
   }
 
   public void write(DataOutput out) throws IOException {
-    Schema recordSchema = record.getSchema();
-    List<Schema.Field> schemaFields = recordSchema.getFields();
-    for (Schema.Field field : schemaFields) {
-      writeToDataOut(out, field);
-    }
+    getWritePlan().write(record, out);
   }
 
   /**
@@ -190,165 +142,25 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    * @param stmt the {@link PreparedStatement} to write the {@link StructuredRecord} to
    */
   public void write(PreparedStatement stmt) throws SQLException {
-    Schema recordSchema = record.getSchema();
-    List<Schema.Field> schemaFields = recordSchema.getFields();
-    for (int i = 0; i < schemaFields.size(); i++) {
-      writeToDB(stmt, schemaFields.get(i), i);
-    }
-  }
-
-  private Schema getNonNullableSchema(Schema.Field field) {
-    Schema schema = field.getSchema();
-    if (field.getSchema().isNullable()) {
-      schema = field.getSchema().getNonNullable();
-    }
-    Preconditions.checkArgument(schema.getType().isSimpleType(),
-                                "Only simple types are supported (boolean, int, long, float, double, string, bytes) " +
-                                  "for writing a DBRecord, but found '%s' as the type for column '%s'. Please " +
-                                  "remove this column or transform it to a simple type.", schema.getType(),
-                                field.getName());
-    return schema;
-  }
-
-  private void writeToDataOut(DataOutput out, Schema.Field field) throws IOException {
-    Schema fieldSchema = getNonNullableSchema(field);
-    Schema.Type fieldType = fieldSchema.getType();
-    Object fieldValue = record.get(field.getName());
-
-    if (fieldValue == null) {
-      return;
-    }
-
-    switch (fieldType) {
-      case NULL:
-        break;
-      case STRING:
-        // write string appropriately
-        out.writeUTF((String) fieldValue);
-        break;
-      case BOOLEAN:
-        out.writeBoolean((Boolean) fieldValue);
-        break;
-      case INT:
-        // write short or int appropriately
-        out.writeInt((Integer) fieldValue);
-        break;
-      case LONG:
-        // write date, timestamp or long appropriately
-        out.writeLong((Long) fieldValue);
-        break;
-      case FLOAT:
-        // both real and float are set with the same method on prepared statement
-        out.writeFloat((Float) fieldValue);
-        break;
-      case DOUBLE:
-        out.writeDouble((Double) fieldValue);
-        break;
-      case BYTES:
-        out.write((byte[]) fieldValue);
-        break;
-      default:
-        throw new IOException(String.format("Column %s with value %s has an unsupported datatype %s",
-          field.getName(), fieldValue, fieldType));
-    }
+    write(stmt, 0);
   }
 
-  private void writeToDB(PreparedStatement stmt, Schema.Field field, int fieldIndex) throws SQLException {
-    String fieldName = field.getName();
-    Schema fieldSchema = getNonNullableSchema(field);
-    Schema.Type fieldType = fieldSchema.getType();
-    Schema.LogicalType fieldLogicalType = fieldSchema.getLogicalType();
-    Object fieldValue = record.get(fieldName);
-    int sqlIndex = fieldIndex + 1;
-
-    if (fieldValue == null) {
-      stmt.setNull(sqlIndex, columnTypes[fieldIndex]);
-      return;
-    }
-
-    if (fieldLogicalType != null) {
-      switch (fieldLogicalType) {
-        case DATE:
-          stmt.setDate(sqlIndex, Date.valueOf(record.getDate(fieldName)));
-          bytesWritten += Long.BYTES;
-          break;
-        case TIME_MILLIS:
-          stmt.setTime(sqlIndex, Time.valueOf(record.getTime(fieldName)));
-          bytesWritten += Integer.BYTES;
-          break;
-        case TIME_MICROS:
-          stmt.setTime(sqlIndex, Time.valueOf(record.getTime(fieldName)));
-          bytesWritten += Long.BYTES;
-          break;
-        case TIMESTAMP_MILLIS:
-        case TIMESTAMP_MICROS:
-          stmt.setTimestamp(sqlIndex, Timestamp.from(record.getTimestamp(fieldName).toInstant()));
-          bytesWritten += Long.BYTES;
-          break;
-      }
-      return;
-    }
-
-    switch (fieldType) {
-      case NULL:
-        stmt.setNull(sqlIndex, columnTypes[fieldIndex]);
-        break;
-      case STRING:
-        // clob can also be written to as setString
-        stmt.setString(sqlIndex, (String) fieldValue);
-        bytesWritten += ((String) fieldValue).length();
-        break;
-      case BOOLEAN:
-        stmt.setBoolean(sqlIndex, (Boolean) fieldValue);
-        bytesWritten += Integer.BYTES;
-        break;
-      case INT:
-        // write short or int appropriately
-        writeInt(stmt, fieldIndex, sqlIndex, fieldValue);
-        bytesWritten += Integer.BYTES;
-        break;
-      case LONG:
-        stmt.setLong(sqlIndex, (Long) fieldValue);
-        bytesWritten += Long.BYTES;
-        break;
-      case FLOAT:
-        // both real and float are set with the same method on prepared statement
-        stmt.setFloat(sqlIndex, (Float) fieldValue);
-        bytesWritten += Float.BYTES;
-        break;
-      case DOUBLE:
-        stmt.setDouble(sqlIndex, (Double) fieldValue);
-        bytesWritten += Double.BYTES;
-        break;
-      case BYTES:
-        bytesWritten += writeBytes(stmt, fieldIndex, sqlIndex, fieldValue);
-        break;
-      default:
-        throw new SQLException(String.format("Column %s with value %s has an unsupported datatype %s",
-          field.getName(), fieldValue, fieldType));
-    }
-  }
-
-  private int writeBytes(PreparedStatement stmt, int fieldIndex, int sqlIndex, Object fieldValue) throws SQLException {
-    byte[] byteValue = fieldValue instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) fieldValue) : (byte[]) fieldValue;
-    int parameterType = columnTypes[fieldIndex];
-    if (Types.BLOB == parameterType) {
-      stmt.setBlob(sqlIndex, new SerialBlob(byteValue));
-      return byteValue.length;
-    }
-    // handles BINARY, VARBINARY and LOGVARBINARY
-    stmt.setBytes(sqlIndex, byteValue);
-    return byteValue.length;
+  /**
+   * Writes the {@link #record} to the specified {@link PreparedStatement}, starting after the given number of
+   * parameters. This is used to write several records with a single statement.
+   *
+   * @param stmt the {@link PreparedStatement} to write the {@link StructuredRecord} to
+   * @param parameterOffset the number of parameters of the statement before the ones for this record
+   */
+  public void write(PreparedStatement stmt, int parameterOffset) throws SQLException {
+    bytesWritten += getWritePlan().write(record, stmt, parameterOffset);
   }
 
-  private void writeInt(PreparedStatement stmt, int fieldIndex, int sqlIndex, Object fieldValue) throws SQLException {
-    Integer intValue = (Integer) fieldValue;
-    int parameterType = columnTypes[fieldIndex];
-    if (Types.TINYINT == parameterType || Types.SMALLINT == parameterType) {
-      stmt.setShort(sqlIndex, intValue.shortValue());
-      return;
+  private DBWritePlan getWritePlan() {
+    if (writePlan == null || !writePlan.isFor(record.getSchema())) {
+      writePlan = DBWritePlan.create(record.getSchema(), columnTypes);
     }
-    stmt.setInt(sqlIndex, intValue);
+    return writePlan;
   }
 
   @Override
@@ -0,0 +1,319 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.google.common.base.Preconditions;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.sql.rowset.serial.SerialBlob;
+
+/**
+ * Plan for writing {@link StructuredRecord StructuredRecords} of a schema to a {@link PreparedStatement} or a
+ * {@link DataOutput}.
+ *
+ * The setter used for each field only depends on the field schema and the SQL type of its column, so it is resolved
+ * once for a schema. Writing a record then only gets the value of each field and calls the setter of its column.
+ */
+public final class DBWritePlan {
+  private final Schema schema;
+  private final String[] fieldNames;
+  @Nullable
+  private final int[] columnTypes;
+  @Nullable
+  private final ParameterBinder[] binders;
+  private final FieldWriter[] writers;
+
+  private DBWritePlan(Schema schema, String[] fieldNames, @Nullable int[] columnTypes,
+                      @Nullable ParameterBinder[] binders, FieldWriter[] writers) {
+    this.schema = schema;
+    this.fieldNames = fieldNames;
+    this.columnTypes = columnTypes;
+    this.binders = binders;
+    this.writers = writers;
+  }
+
+  /**
+   * Creates the plan for writing records of the given schema.
+   *
+   * @param schema the schema of the records to write
+   * @param columnTypes the SQL types of the columns the fields are written to, in the order of the fields,
+   *                    or {@code null} if the records are only written to a {@link DataOutput}
+   * @return the plan for the schema
+   * @throws IllegalArgumentException if a field of the schema is not of a simple type
+   */
+  public static DBWritePlan create(Schema schema, @Nullable int[] columnTypes) {
+    List<Schema.Field> fields = schema.getFields();
+    String[] fieldNames = new String[fields.size()];
+    ParameterBinder[] binders = columnTypes == null ? null : new ParameterBinder[fields.size()];
+    FieldWriter[] writers = new FieldWriter[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = getNonNullableSchema(field);
+      fieldNames[i] = field.getName();
+      if (binders != null) {
+        binders[i] = getBinder(field.getName(), fieldSchema, columnTypes[i]);
+      }
+      writers[i] = getWriter(field.getName(), fieldSchema);
+    }
+    return new DBWritePlan(schema, fieldNames, columnTypes, binders, writers);
+  }
+
+  /**
+   * @return the schema of the records written with this plan
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * @return whether this plan was created for the given schema
+   */
+  public boolean isFor(Schema schema) {
+    return this.schema == schema || this.schema.equals(schema);
+  }
+
+  /**
+   * Sets the parameters of the statement to the fields of a record.
+   *
+   * @param record the record to write, which must have the schema of this plan
+   * @param stmt the statement to set the parameters of
+   * @param parameterOffset the number of parameters of the statement before the ones for this record
+   * @return the number of bytes written
+   */
+  long write(StructuredRecord record, PreparedStatement stmt, int parameterOffset) throws SQLException {
+    Preconditions.checkState(binders != null, "Column types are required to write records to a statement.");
+    long bytesWritten = 0;
+    for (int i = 0; i < binders.length; i++) {
+      Object value = record.get(fieldNames[i]);
+      int sqlIndex = parameterOffset + i + 1;
+      if (value == null) {
+        stmt.setNull(sqlIndex, columnTypes[i]);
+      } else {
+        bytesWritten += binders[i].bind(stmt, sqlIndex, value);
+      }
+    }
+    return bytesWritten;
+  }
+
+  /**
+   * Writes the non-null fields of a record to the output.
+   *
+   * @param record the record to write, which must have the schema of this plan
+   * @param out the output to write to
+   */
+  void write(StructuredRecord record, DataOutput out) throws IOException {
+    for (int i = 0; i < writers.length; i++) {
+      Object value = record.get(fieldNames[i]);
+      if (value != null) {
+        writers[i].write(out, value);
+      }
+    }
+  }
+
+  private static Schema getNonNullableSchema(Schema.Field field) {
+    Schema schema = field.getSchema();
+    if (field.getSchema().isNullable()) {
+      schema = field.getSchema().getNonNullable();
+    }
+    Preconditions.checkArgument(schema.getType().isSimpleType(),
+                                "Only simple types are supported (boolean, int, long, float, double, string, bytes) " +
+                                  "for writing a DBRecord, but found '%s' as the type for column '%s'. Please " +
+                                  "remove this column or transform it to a simple type.", schema.getType(),
+                                field.getName());
+    return schema;
+  }
+
+  private static ParameterBinder getBinder(String fieldName, Schema fieldSchema, int sqlType) {
+    Schema.LogicalType logicalType = fieldSchema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return (stmt, index, value) -> {
+            stmt.setDate(index, Date.valueOf(LocalDate.ofEpochDay((Integer) value)));
+            return Long.BYTES;
+          };
+        case TIME_MILLIS:
+          return (stmt, index, value) -> {
+            stmt.setTime(index, Time.valueOf(LocalTime.ofNanoOfDay(TimeUnit.MILLISECONDS.toNanos((Integer) value))));
+            return Integer.BYTES;
+          };
+        case TIME_MICROS:
+          return (stmt, index, value) -> {
+            stmt.setTime(index, Time.valueOf(LocalTime.ofNanoOfDay(TimeUnit.MICROSECONDS.toNanos((Long) value))));
+            return Long.BYTES;
+          };
+        case TIMESTAMP_MILLIS:
+          return (stmt, index, value) -> {
+            stmt.setTimestamp(index, new Timestamp((Long) value));
+            return Long.BYTES;
+          };
+        case TIMESTAMP_MICROS:
+          return (stmt, index, value) -> {
+            long micros = (Long) value;
+            long seconds = Math.floorDiv(micros, TimeUnit.SECONDS.toMicros(1));
+            long nanos = TimeUnit.MICROSECONDS.toNanos(Math.floorMod(micros, TimeUnit.SECONDS.toMicros(1)));
+            stmt.setTimestamp(index, Timestamp.from(Instant.ofEpochSecond(seconds, nanos)));
+            return Long.BYTES;
+          };
+        case DECIMAL:
+          int scale = fieldSchema.getScale();
+          return (stmt, index, value) -> {
+            byte[] unscaled = toBytes(value);
+            stmt.setBigDecimal(index, new BigDecimal(new BigInteger(unscaled), scale));
+            return unscaled.length;
+          };
+      }
+    }
+
+    Schema.Type fieldType = fieldSchema.getType();
+    switch (fieldType) {
+      case NULL:
+        return (stmt, index, value) -> {
+          stmt.setNull(index, sqlType);
+          return 0;
+        };
+      case STRING:
+        // clob can also be written to as setString
+        return (stmt, index, value) -> {
+          stmt.setString(index, (String) value);
+          return ((String) value).length();
+        };
+      case BOOLEAN:
+        return (stmt, index, value) -> {
+          stmt.setBoolean(index, (Boolean) value);
+          return Integer.BYTES;
+        };
+      case INT:
+        // write short or int appropriately
+        if (Types.TINYINT == sqlType || Types.SMALLINT == sqlType) {
+          return (stmt, index, value) -> {
+            stmt.setShort(index, ((Integer) value).shortValue());
+            return Integer.BYTES;
+          };
+        }
+        return (stmt, index, value) -> {
+          stmt.setInt(index, (Integer) value);
+          return Integer.BYTES;
+        };
+      case LONG:
+        return (stmt, index, value) -> {
+          stmt.setLong(index, (Long) value);
+          return Long.BYTES;
+        };
+      case FLOAT:
+        // both real and float are set with the same method on prepared statement
+        return (stmt, index, value) -> {
+          stmt.setFloat(index, (Float) value);
+          return Float.BYTES;
+        };
+      case DOUBLE:
+        return (stmt, index, value) -> {
+          stmt.setDouble(index, (Double) value);
+          return Double.BYTES;
+        };
+      case BYTES:
+        if (Types.BLOB == sqlType) {
+          return (stmt, index, value) -> {
+            byte[] bytes = toBytes(value);
+            stmt.setBlob(index, new SerialBlob(bytes));
+            return bytes.length;
+          };
+        }
+        // handles BINARY, VARBINARY and LOGVARBINARY
+        return (stmt, index, value) -> {
+          byte[] bytes = toBytes(value);
+          stmt.setBytes(index, bytes);
+          return bytes.length;
+        };
+      default:
+        return (stmt, index, value) -> {
+          throw new SQLException(String.format("Column %s with value %s has an unsupported datatype %s",
+                                               fieldName, value, fieldType));
+        };
+    }
+  }
+
+  private static FieldWriter getWriter(String fieldName, Schema fieldSchema) {
+    Schema.Type fieldType = fieldSchema.getType();
+    switch (fieldType) {
+      case NULL:
+        return (out, value) -> { };
+      case STRING:
+        return (out, value) -> out.writeUTF((String) value);
+      case BOOLEAN:
+        return (out, value) -> out.writeBoolean((Boolean) value);
+      case INT:
+        // write short or int appropriately
+        return (out, value) -> out.writeInt((Integer) value);
+      case LONG:
+        // write date, timestamp or long appropriately
+        return (out, value) -> out.writeLong((Long) value);
+      case FLOAT:
+        // both real and float are set with the same method on prepared statement
+        return (out, value) -> out.writeFloat((Float) value);
+      case DOUBLE:
+        return (out, value) -> out.writeDouble((Double) value);
+      case BYTES:
+        return (out, value) -> out.write(toBytes(value));
+      default:
+        return (out, value) -> {
+          throw new IOException(String.format("Column %s with value %s has an unsupported datatype %s",
+                                              fieldName, value, fieldType));
+        };
+    }
+  }
+
+  private static byte[] toBytes(Object value) {
+    return value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : (byte[]) value;
+  }
+
+  /**
+   * Sets a statement parameter to the non-null value of a field.
+   */
+  private interface ParameterBinder {
+    /**
+     * @return the number of bytes written
+     */
+    long bind(PreparedStatement stmt, int index, Object value) throws SQLException;
+  }
+
+  /**
+   * Writes the non-null value of a field to an output.
+   */
+  private interface FieldWriter {
+    void write(DataOutput out, Object value) throws IOException;
+  }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.plugin.ConnectionConfig;
+import io.cdap.plugin.DBUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of JDBC connections shared by the splits and tasks that run in the same JVM, so that each of them doesn't
+ * load the driver and open a new connection to the database.
+ *
+ * There is one pool per JDBC driver, connection string and connection arguments. Connections are opened with a
+ * driver instance that is created once per pool, instead of registering a {@link io.cdap.plugin.JDBCDriverShim}
+ * with the {@link DriverManager} for every connection. Closing a connection returns it to the pool, which keeps up to
+ * {@link #MAX_IDLE} idle connections and closes connections that stay idle longer than {@link #IDLE_TIMEOUT_SECONDS}.
+ * Uncommitted changes are rolled back when a connection is returned, so users of the pool have to commit their
+ * changes before closing the connection. The auto-commit, read-only, catalog, schema and transaction isolation
+ * settings changed through the connection are restored when it is returned, and the connection is closed instead of
+ * being reused if they cannot be restored. Settings changed with SQL statements are not restored.
+ */
+public final class ConnectionPool {
+  public static final String MAX_IDLE = "io.cdap.hydrator.db.pool.max.idle";
+  public static final String IDLE_TIMEOUT_SECONDS = "io.cdap.hydrator.db.pool.idle.timeout.seconds";
+  public static final int DEFAULT_MAX_IDLE = 8;
+  public static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+  private static final long EVICTION_INTERVAL_SECONDS = 5;
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+  // pools by driver class loader, driver class name, connection string and connection arguments
+  private static final Map<List<Object>, ConnectionPool> POOLS = new HashMap<>();
+  private static ScheduledExecutorService evictor;
+
+  private final Driver driver;
+  private final String url;
+  private final Properties properties;
+  private final int maxIdle;
+  private final long idleTimeoutNanos;
+  // idle connections, with the most recently returned connection last
+  private final Deque<IdleConnection> idle;
+  private int borrowed;
+  // set once the pool has been removed, after which returned connections are closed instead of kept
+  private boolean removed;
+
+  private ConnectionPool(Driver driver, String url, Properties properties, int maxIdle, long idleTimeoutNanos) {
+    this.driver = driver;
+    this.url = url;
+    this.properties = properties;
+    this.maxIdle = maxIdle;
+    this.idleTimeoutNanos = idleTimeoutNanos;
+    this.idle = new ArrayDeque<>();
+  }
+
+  /**
+   * Returns the pool for the JDBC driver, connection string and connection arguments of the given configuration.
+   */
+  public static ConnectionPool get(Configuration conf) throws SQLException {
+    String url = conf.get(DBConfiguration.URL_PROPERTY);
+    String driverClassName = conf.get(DBConfiguration.DRIVER_CLASS_PROPERTY);
+    ClassLoader classLoader = conf.getClassLoader();
+    Properties properties = ConnectionConfig.getConnectionArguments(conf.get(DBUtils.CONNECTION_ARGUMENTS),
+                                                                    conf.get(DBConfiguration.USERNAME_PROPERTY),
+                                                                    conf.get(DBConfiguration.PASSWORD_PROPERTY));
+    List<Object> key = Arrays.asList(classLoader, driverClassName, url, properties);
+    synchronized (POOLS) {
+      ConnectionPool pool = POOLS.get(key);
+      if (pool == null) {
+        pool = new ConnectionPool(createDriver(classLoader, driverClassName), url, properties,
+                                  conf.getInt(MAX_IDLE, DEFAULT_MAX_IDLE),
+                                  TimeUnit.SECONDS.toNanos(conf.getInt(IDLE_TIMEOUT_SECONDS,
+                                                                       DEFAULT_IDLE_TIMEOUT_SECONDS)));
+        POOLS.put(key, pool);
+        if (evictor == null) {
+          evictor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("db-connection-pool-evictor").build());
+          evictor.scheduleWithFixedDelay(() -> evictIdleConnections(System.nanoTime()),
+                                         EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        LOG.debug("Created connection pool for {} with driver {}.", url, driverClassName);
+      }
+      return pool;
+    }
+  }
+
+  /**
+   * Returns an idle connection of the pool if there is a valid one, or opens a new connection otherwise.
+   * The connection is returned to the pool when it is closed.
+   */
+  public Connection getConnection() throws SQLException {
+    while (true) {
+      IdleConnection candidate;
+      synchronized (this) {
+        candidate = idle.pollLast();
+        borrowed++;
+      }
+      if (candidate == null) {
+        break;
+      }
+      if (isValid(candidate.connection)) {
+        return new PooledConnection(candidate.connection);
+      }
+      closeQuietly(candidate.connection);
+      synchronized (this) {
+        borrowed--;
+      }
+    }
+
+    try {
+      Connection connection = driver.connect(url, properties);
+      if (connection == null) {
+        throw new SQLException(String.format("JDBC driver %s does not accept the connection string %s.",
+                                             driver.getClass().getName(), url));
+      }
+      return new PooledConnection(connection);
+    } catch (SQLException | RuntimeException e) {
+      synchronized (this) {
+        borrowed--;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Closes the connections that have been idle longer than the idle timeout, and removes the pools that don't
+   * have any connections left.
+   */
+  @VisibleForTesting
+  static void evictIdleConnections(long nowNanos) {
+    synchronized (POOLS) {
+      Iterator<ConnectionPool> iterator = POOLS.values().iterator();
+      while (iterator.hasNext()) {
+        ConnectionPool pool = iterator.next();
+        if (pool.evict(nowNanos)) {
+          iterator.remove();
+        }
+      }
+      if (POOLS.isEmpty() && evictor != null) {
+        // release the thread, so that the class loader of the plugin is not kept when it is no longer used
+        evictor.shutdown();
+        evictor = null;
+      }
+    }
+  }
+
+  /**
+   * Returns the class loader of the JDBC driver, which can be used to access driver specific APIs.
+   */
+  public ClassLoader getDriverClassLoader() {
+    return driver.getClass().getClassLoader();
+  }
+
+  @VisibleForTesting
+  synchronized int getIdleCount() {
+    return idle.size();
+  }
+
+  /**
+   * Closes the idle connections that have timed out.
+   *
+   * @return whether the pool has no connections left
+   */
+  private boolean evict(long nowNanos) {
+    List<Connection> expired = new ArrayList<>();
+    boolean empty;
+    synchronized (this) {
+      // the oldest connections are first
+      while (!idle.isEmpty() && nowNanos - idle.peekFirst().idleSinceNanos >= idleTimeoutNanos) {
+        expired.add(idle.pollFirst().connection);
+      }
+      empty = idle.isEmpty() && borrowed == 0;
+      removed = empty;
+    }
+    for (Connection connection : expired) {
+      closeQuietly(connection);
+    }
+    if (!expired.isEmpty()) {
+      LOG.debug("Closed {} idle connections to {}.", expired.size(), url);
+    }
+    return empty;
+  }
+
+  private void release(Connection connection, boolean reusable) {
+    synchronized (this) {
+      borrowed--;
+      if (reusable && !removed && idle.size() < maxIdle) {
+        idle.addLast(new IdleConnection(connection, System.nanoTime()));
+        return;
+      }
+    }
+    closeQuietly(connection);
+  }
+
+  private static boolean isValid(Connection connection) {
+    try {
+      return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException | AbstractMethodError e) {
+      // drivers that don't implement validation can only be checked for being closed
+      try {
+        return !connection.isClosed();
+      } catch (SQLException ex) {
+        return false;
+      }
+    }
+  }
+
+  private void closeQuietly(Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      LOG.debug("Failed to close connection to {}.", url, e);
+    }
+  }
+
+  private static Driver createDriver(ClassLoader classLoader, String driverClassName) throws SQLException {
+    try {
+      @SuppressWarnings("unchecked")
+      Class<? extends Driver> driverClass = (Class<? extends Driver>) classLoader.loadClass(driverClassName);
+      Driver driver = driverClass.newInstance();
+      // De-register the default driver that gets registered when driver class is loaded.
+      DBUtils.deregisterAllDrivers(driverClass);
+      return driver;
+    } catch (ReflectiveOperationException e) {
+      throw new SQLException(String.format("Unable to load JDBC driver class %s.", driverClassName), e);
+    }
+  }
+
+  /**
+   * A connection in the pool, and the time it was returned to the pool.
+   */
+  private static final class IdleConnection {
+    private final Connection connection;
+    private final long idleSinceNanos;
+
+    private IdleConnection(Connection connection, long idleSinceNanos) {
+      this.connection = connection;
+      this.idleSinceNanos = idleSinceNanos;
+    }
+  }
+
+  /**
+   * A connection borrowed from the pool, which is returned to the pool instead of being closed. The session settings
+   * it changes are remembered with their value before the change, so that they can be restored when it is returned.
+   */
+  private final class PooledConnection extends ForwardingConnection {
+    private boolean closed;
+    private Boolean autoCommit;
+    private Boolean readOnly;
+    private Integer transactionIsolation;
+    private boolean catalogChanged;
+    private String catalog;
+    private boolean schemaChanged;
+    private String schema;
+
+    private PooledConnection(Connection delegate) {
+      super(delegate);
+    }
+
+    @Override
+    protected Connection getDelegate() throws SQLException {
+      if (closed) {
+        // the connection may be in use by another user of the pool
+        throw new SQLException("Connection is closed.", "08003");
+      }
+      return super.getDelegate();
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+      Connection connection = getDelegate();
+      if (this.autoCommit == null) {
+        this.autoCommit = connection.getAutoCommit();
+      }
+      connection.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+      Connection connection = getDelegate();
+      if (this.readOnly == null) {
+        this.readOnly = connection.isReadOnly();
+      }
+      connection.setReadOnly(readOnly);
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+      Connection connection = getDelegate();
+      if (transactionIsolation == null) {
+        transactionIsolation = connection.getTransactionIsolation();
+      }
+      connection.setTransactionIsolation(level);
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+      Connection connection = getDelegate();
+      if (!catalogChanged) {
+        this.catalog = connection.getCatalog();
+        catalogChanged = true;
+      }
+      connection.setCatalog(catalog);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+      Connection connection = getDelegate();
+      if (!schemaChanged) {
+        this.schema = connection.getSchema();
+        schemaChanged = true;
+      }
+      connection.setSchema(schema);
+    }
+
+    @Override
+    public void close() throws SQLException {
+      if (!closed) {
+        Connection connection = getDelegate();
+        closed = true;
+        release(connection, reset(connection));
+      }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+      return closed || super.isClosed();
+    }
+
+    /**
+     * Rolls back uncommitted changes and restores the session settings changed through this connection.
+     *
+     * @return whether the connection can be reused
+     */
+    private boolean reset(Connection connection) {
+      try {
+        if (connection.isClosed()) {
+          return false;
+        }
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+        }
+        if (readOnly != null) {
+          connection.setReadOnly(readOnly);
+        }
+        if (transactionIsolation != null) {
+          connection.setTransactionIsolation(transactionIsolation);
+        }
+        if (catalogChanged) {
+          connection.setCatalog(catalog);
+        }
+        if (schemaChanged) {
+          connection.setSchema(schema);
+        }
+        // restored last, since enabling auto-commit commits the current transaction
+        if (autoCommit != null) {
+          connection.setAutoCommit(autoCommit);
+        }
+        return true;
+      } catch (SQLException | RuntimeException | AbstractMethodError e) {
+        LOG.debug("Unable to reset connection to {}. Closing it.", url, e);
+        return false;
+      }
+    }
+  }
+}
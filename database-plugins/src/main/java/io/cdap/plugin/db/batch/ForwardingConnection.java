@@ -46,7 +46,12 @@ public abstract class ForwardingConnection implements Connection {
     this.delegate = delegate;
   }
 
-  protected Connection getDelegate() {
+  /**
+   * Returns the connection that methods are delegated to.
+   *
+   * @throws SQLException if the connection can no longer be used
+   */
+  protected Connection getDelegate() throws SQLException {
     return delegate;
   }
 
@@ -262,12 +267,12 @@ public abstract class ForwardingConnection implements Connection {
 
   @Override
   public void setClientInfo(String name, String value) throws SQLClientInfoException {
-    getDelegate().setClientInfo(name, value);
+    getClientInfoDelegate().setClientInfo(name, value);
   }
 
   @Override
   public void setClientInfo(Properties properties) throws SQLClientInfoException {
-    getDelegate().setClientInfo(properties);
+    getClientInfoDelegate().setClientInfo(properties);
   }
 
   @Override
@@ -324,4 +329,14 @@ public abstract class ForwardingConnection implements Connection {
   public boolean isWrapperFor(Class<?> iface) throws SQLException {
     return getDelegate().isWrapperFor(iface);
   }
+
+  private Connection getClientInfoDelegate() throws SQLClientInfoException {
+    try {
+      return getDelegate();
+    } catch (SQLClientInfoException e) {
+      throw e;
+    } catch (SQLException e) {
+      throw new SQLClientInfoException(e.getMessage(), e.getSQLState(), e.getErrorCode(), null, e);
+    }
+  }
 }
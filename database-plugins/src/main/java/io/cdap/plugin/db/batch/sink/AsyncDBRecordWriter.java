@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.plugin.DataSizeReporter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormatCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * {@link RecordWriter} that writes records to the database from background threads, so that the task can keep
+ * producing records while earlier batches are sent to the database.
+ *
+ * Records are collected into batches, which are handed to the writer threads through a bounded queue. When all the
+ * writer threads are busy and the queue is full, writing a record blocks until a batch has been taken. Each writer
+ * thread has its own connection, which is committed every commit interval batches if a commit interval is set, and
+ * otherwise only when the writer is closed, once all the writer threads have finished successfully.
+ * If a writer thread fails, the other threads stop, the error is thrown by the next call to
+ * {@link #write(DBWritable, Object)} or {@link #close(TaskAttemptContext)}, and all uncommitted rows are rolled back.
+ * Since the threads use separate transactions, rows written by different threads should not conflict with each other,
+ * otherwise a thread may wait on locks that are only released when the writer is closed.
+ *
+ * The transactions of the threads are committed one after the other, so unlike a single writer, this writer is not
+ * atomic: if a commit fails, the rows of the threads that were committed before it remain in the table, and may be
+ * written again if the task is retried.
+ *
+ * Records are written after {@link #write(DBWritable, Object)} returns, so they must not be modified by the caller
+ * afterwards.
+ *
+ * @param <K> - Key passed to this class to be written
+ * @param <V> - Value passed to this class to be written. The value is ignored.
+ */
+public class AsyncDBRecordWriter<K extends DBWritable, V> extends RecordWriter<K, V> {
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncDBRecordWriter.class);
+  // how often threads that wait on the queue check whether another thread failed
+  private static final long WAIT_MILLIS = 100;
+
+  private final int batchSize;
+  private final int commitInterval;
+  private final BlockingQueue<List<K>> queue;
+  // marks the end of the input for one writer thread
+  private final List<K> endOfInput;
+  private final List<Writer> writers;
+  private final AtomicReference<Throwable> failure;
+  private final AtomicLong batches;
+  private final AtomicLong batchRows;
+  private final AtomicLong flushNanos;
+  private final AtomicLong commits;
+  private final AtomicLong committedBytes;
+  private List<K> batch;
+
+  /**
+   * Creates the writer and starts its writer threads.
+   *
+   * @param connectionSupplier supplier of the connection for each writer thread
+   * @param query the query used to write a record
+   * @param threads the number of writer threads
+   * @param batchSize the number of records in a batch
+   * @param commitInterval the number of batches after which a writer thread commits, or 0 to only commit on close
+   * @throws SQLException if the statement for a writer thread could not be prepared
+   */
+  public AsyncDBRecordWriter(Supplier<Connection> connectionSupplier, String query,
+                             int threads, int batchSize, int commitInterval) throws SQLException {
+    this.batchSize = batchSize;
+    this.commitInterval = commitInterval;
+    this.queue = new ArrayBlockingQueue<>(threads);
+    this.endOfInput = new ArrayList<>(0);
+    this.writers = new ArrayList<>(threads);
+    this.failure = new AtomicReference<>();
+    this.batches = new AtomicLong();
+    this.batchRows = new AtomicLong();
+    this.flushNanos = new AtomicLong();
+    this.commits = new AtomicLong();
+    this.committedBytes = new AtomicLong();
+    this.batch = new ArrayList<>(batchSize);
+
+    try {
+      for (int i = 0; i < threads; i++) {
+        Connection connection = connectionSupplier.get();
+        try {
+          writers.add(new Writer(i, connection, connection.prepareStatement(query)));
+        } catch (SQLException e) {
+          connection.close();
+          throw e;
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      try {
+        closeWriters();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    for (Writer writer : writers) {
+      writer.start();
+    }
+  }
+
+  @Override
+  public void write(K key, V value) throws IOException, InterruptedException {
+    checkFailure();
+    batch.add(key);
+    if (batch.size() >= batchSize) {
+      enqueue(batch);
+      batch = new ArrayList<>(batchSize);
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+    try {
+      try {
+        if (!batch.isEmpty()) {
+          enqueue(batch);
+        }
+        for (int i = 0; i < writers.size(); i++) {
+          enqueue(endOfInput);
+        }
+      } catch (IOException | InterruptedException e) {
+        // make sure the writer threads stop without taking the remaining batches
+        failure.compareAndSet(null, e);
+        throw e;
+      } finally {
+        joinWriters();
+      }
+      checkFailure();
+      for (Writer writer : writers) {
+        writer.commit();
+      }
+    } catch (SQLException e) {
+      rollbackWriters();
+      throw new IOException(e);
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      rollbackWriters();
+      throw e;
+    } finally {
+      context.getCounter(ETLDBOutputFormat.Counters.BATCHES).increment(batches.get());
+      context.getCounter(ETLDBOutputFormat.Counters.BATCH_ROWS).increment(batchRows.get());
+      context.getCounter(ETLDBOutputFormat.Counters.FLUSH_MILLIS)
+        .increment(TimeUnit.NANOSECONDS.toMillis(flushNanos.get()));
+      context.getCounter(ETLDBOutputFormat.Counters.COMMITS).increment(commits.get());
+      context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN).increment(committedBytes.get());
+      closeWriters();
+    }
+  }
+
+  private void enqueue(List<K> batch) throws IOException, InterruptedException {
+    while (!queue.offer(batch, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+      checkFailure();
+    }
+  }
+
+  private void joinWriters() throws InterruptedException {
+    try {
+      for (Writer writer : writers) {
+        writer.join();
+      }
+    } catch (InterruptedException e) {
+      failure.compareAndSet(null, e);
+      throw e;
+    }
+  }
+
+  private void rollbackWriters() {
+    for (Writer writer : writers) {
+      writer.rollback();
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable t = failure.get();
+    if (t != null) {
+      throw new IOException("Failed to write records to the database.", t);
+    }
+  }
+
+  private void closeWriters() throws IOException {
+    SQLException error = null;
+    for (Writer writer : writers) {
+      try {
+        writer.statement.close();
+        writer.connection.close();
+      } catch (SQLException e) {
+        if (error == null) {
+          error = e;
+        } else {
+          error.addSuppressed(e);
+        }
+      }
+    }
+    if (error != null) {
+      throw new IOException(error);
+    }
+  }
+
+  /**
+   * Thread that writes batches from the queue with its own connection.
+   */
+  private final class Writer extends Thread {
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private int uncommittedBatches;
+    private long uncommittedBytes;
+
+    private Writer(int id, Connection connection, PreparedStatement statement) {
+      super("db-record-writer-" + id);
+      setDaemon(true);
+      this.connection = connection;
+      this.statement = statement;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (failure.get() == null) {
+          List<K> next = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+          if (next == endOfInput) {
+            return;
+          }
+          if (next != null && failure.get() == null) {
+            writeBatch(next);
+          }
+        }
+      } catch (Throwable t) {
+        LOG.error("Failed to write records to the database in thread {}.", getName(), t);
+        failure.compareAndSet(null, t);
+      }
+    }
+
+    private void writeBatch(List<K> records) throws SQLException {
+      for (K record : records) {
+        record.write(statement);
+        statement.addBatch();
+        if (record instanceof DataSizeReporter) {
+          uncommittedBytes += ((DataSizeReporter) record).getBytesWritten();
+        }
+      }
+      long start = System.nanoTime();
+      statement.executeBatch();
+      flushNanos.addAndGet(System.nanoTime() - start);
+      batches.incrementAndGet();
+      batchRows.addAndGet(records.size());
+      uncommittedBatches++;
+      if (commitInterval > 0 && uncommittedBatches >= commitInterval) {
+        commit();
+      }
+    }
+
+    private void commit() throws SQLException {
+      if (uncommittedBatches == 0) {
+        return;
+      }
+      connection.commit();
+      commits.incrementAndGet();
+      committedBytes.addAndGet(uncommittedBytes);
+      uncommittedBatches = 0;
+      uncommittedBytes = 0;
+    }
+
+    private void rollback() {
+      try {
+        connection.rollback();
+      } catch (SQLException e) {
+        LOG.warn("Failed to roll back the connection of thread {}.", getName(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormatCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * {@link RecordWriter} that writes batches of {@link DBRecord DBRecords} with a bulk load mechanism of the database
+ * instead of one INSERT statement per record.
+ *
+ * Batches are loaded every batch size records, and committed like the batches of the regular writer: every commit
+ * interval batches if a commit interval is set, and otherwise when the writer is closed. If loading or committing a
+ * batch fails, the uncommitted rows are rolled back.
+ *
+ * @param <K> - Key passed to this class to be written, which must be a {@link DBRecord}
+ * @param <V> - Value passed to this class to be written. The value is ignored.
+ */
+public abstract class BulkLoadRecordWriter<K extends DBWritable, V> extends RecordWriter<K, V> {
+  private static final Logger LOG = LoggerFactory.getLogger(BulkLoadRecordWriter.class);
+
+  protected final Connection connection;
+  private final int batchSize;
+  private final int commitInterval;
+  private final TaskAttemptContext context;
+  private final List<DBRecord> rows;
+  private int uncommittedBatches;
+  private long uncommittedBytes;
+
+  protected BulkLoadRecordWriter(Connection connection, int batchSize, int commitInterval,
+                                 TaskAttemptContext context) {
+    this.connection = connection;
+    this.batchSize = batchSize;
+    this.commitInterval = commitInterval;
+    this.context = context;
+    this.rows = new ArrayList<>(batchSize);
+  }
+
+  /**
+   * Creates a bulk load writer for the database of the given connection URL. PostgreSQL databases are loaded with
+   * COPY, MySQL databases with LOAD DATA LOCAL INFILE, and other databases with INSERT statements that have several
+   * rows of values. Databases that don't support such statements, like Oracle and Phoenix, are not supported.
+   *
+   * @param connection the connection to write to, which is closed when the writer is closed
+   * @param url the connection URL
+   * @param driverClassLoader the class loader of the JDBC driver, used to access driver specific APIs
+   * @param tableName the table to write to
+   * @param columns the columns to write, in the order of the fields of the records
+   * @param batchSize the number of records in a batch
+   * @param commitInterval the number of batches after which the transaction is committed, or 0 to only commit
+   *                       when the writer is closed
+   * @param context the context of the task
+   * @return the writer, or null if bulk loading is not supported for the database
+   */
+  @Nullable
+  public static <K extends DBWritable, V> BulkLoadRecordWriter<K, V> create(Connection connection, String url,
+                                                                           ClassLoader driverClassLoader,
+                                                                           String tableName, String[] columns,
+                                                                           int batchSize, int commitInterval,
+                                                                           TaskAttemptContext context) {
+    try {
+      if (url.startsWith("jdbc:postgresql:")) {
+        LOG.debug("PostgreSQL jdbc connection detected. Loading rows with COPY.");
+        return new PostgresCopyRecordWriter<>(connection, driverClassLoader, tableName, columns,
+                                              batchSize, commitInterval, context);
+      }
+      if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+        LOG.debug("MySQL jdbc connection detected. Loading rows with LOAD DATA LOCAL INFILE.");
+        return new MySQLLoadDataRecordWriter<>(connection, tableName, columns, batchSize, commitInterval, context);
+      }
+    } catch (SQLException e) {
+      LOG.warn("Bulk load is not supported by the JDBC driver for {}. Using INSERT statements with several rows " +
+                 "instead.", url, e);
+    }
+    if (url.startsWith("jdbc:oracle:") || url.startsWith("jdbc:phoenix")) {
+      return null;
+    }
+    return new MultiRowInsertRecordWriter<>(connection, tableName, columns, batchSize, commitInterval, context);
+  }
+
+  /**
+   * Loads a batch of records.
+   *
+   * @return the number of bytes that were written
+   */
+  protected abstract long load(List<DBRecord> records) throws SQLException;
+
+  /**
+   * Releases the resources of the writer, before its connection is closed.
+   */
+  protected void closeStatements() throws SQLException {
+    // no-op by default
+  }
+
+  @Override
+  public void write(K key, V value) throws IOException {
+    if (!(key instanceof DBRecord)) {
+      throw new IOException(String.format("Bulk load can only write records of type %s, but found %s.",
+                                          DBRecord.class.getName(), key.getClass().getName()));
+    }
+    rows.add((DBRecord) key);
+    if (rows.size() < batchSize) {
+      return;
+    }
+    try {
+      loadBatch();
+      if (commitInterval > 0 && uncommittedBatches >= commitInterval) {
+        commit();
+      }
+    } catch (SQLException | RuntimeException e) {
+      rollback();
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    try {
+      if (!rows.isEmpty()) {
+        loadBatch();
+      }
+      if (uncommittedBatches > 0) {
+        commit();
+      }
+    } catch (SQLException | RuntimeException e) {
+      rollback();
+      throw new IOException(e);
+    } finally {
+      try {
+        closeStatements();
+        connection.close();
+      } catch (SQLException ex) {
+        throw new IOException(ex);
+      }
+    }
+  }
+
+  private void loadBatch() throws SQLException {
+    long start = System.nanoTime();
+    uncommittedBytes += load(rows);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    LOG.trace("Loaded batch of {} rows in {} ms.", rows.size(), elapsedMillis);
+    context.getCounter(ETLDBOutputFormat.Counters.BATCHES).increment(1);
+    context.getCounter(ETLDBOutputFormat.Counters.BATCH_ROWS).increment(rows.size());
+    context.getCounter(ETLDBOutputFormat.Counters.FLUSH_MILLIS).increment(elapsedMillis);
+    rows.clear();
+    uncommittedBatches++;
+  }
+
+  private void commit() throws SQLException {
+    connection.commit();
+    context.getCounter(ETLDBOutputFormat.Counters.COMMITS).increment(1);
+    context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN).increment(uncommittedBytes);
+    uncommittedBatches = 0;
+    uncommittedBytes = 0;
+  }
+
+  private void rollback() {
+    try {
+      connection.rollback();
+    } catch (SQLException ex) {
+      LOG.warn("Failed to roll back the connection.", ex);
+    }
+  }
+}
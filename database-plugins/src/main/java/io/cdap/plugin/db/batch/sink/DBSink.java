@@ -40,6 +40,7 @@ import io.cdap.plugin.DBConfig;
 import io.cdap.plugin.DBManager;
 import io.cdap.plugin.DBRecord;
 import io.cdap.plugin.DBUtils;
+import io.cdap.plugin.DBWritePlan;
 import io.cdap.plugin.FieldCase;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.ReferenceBatchSink;
@@ -55,12 +56,15 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -79,6 +83,11 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   private Class<? extends Driver> driverClass;
   private int [] columnTypes;
   private List<String> columns;
+  // input schema of the last record, and the plan for writing its columns
+  private Schema inputSchema;
+  private DBWritePlan writePlan;
+  // set in prepareRun if rows are upserted through a staging table
+  private String stagingTableName;
 
   public DBSink(DBSinkConfig dbSinkConfig) {
     super(new ReferencePluginConfig(dbSinkConfig.referenceName));
@@ -94,11 +103,16 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
     super.configurePipeline(pipelineConfigurer);
     FailureCollector collector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
+    dbSinkConfig.validate(collector);
     dbManager.validateJDBCPluginPipeline(pipelineConfigurer, getJDBCPluginId(), collector);
   }
 
   @Override
   public void prepareRun(BatchSinkContext context) {
+    FailureCollector collector = context.getFailureCollector();
+    dbSinkConfig.validate(collector);
+    collector.getOrThrowException();
+
     LOG.debug("tableName = {}; pluginType = {}; pluginName = {}; connectionString = {}; columns = {}; " +
                 "transaction isolation level: {}",
               dbSinkConfig.tableName, dbSinkConfig.jdbcPluginType, dbSinkConfig.jdbcPluginName,
@@ -113,15 +127,48 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
         "Table %s does not exist. Please check that the 'tableName' property " +
           "has been set correctly, and that the connection string %s points to a valid database.",
         dbSinkConfig.tableName, dbSinkConfig.connectionString);
+      if (dbSinkConfig.isUpsert()) {
+        createStagingTable();
+      }
+      String outputTableName = stagingTableName == null ? dbSinkConfig.tableName : stagingTableName;
+      context.addOutput(Output.of(dbSinkConfig.referenceName,
+                                  new DBOutputFormatProvider(dbSinkConfig, driverClass, outputTableName)));
+
+      Schema schema = context.getInputSchema();
+      if (schema != null && schema.getFields() != null) {
+        recordLineage(context, dbSinkConfig.referenceName, schema,
+                      schema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
+      }
+    } catch (RuntimeException e) {
+      // the run finish callback is not called if the run fails to prepare, so the staging table is dropped here
+      if (stagingTableName != null) {
+        try {
+          dropStagingTable();
+        } catch (SQLException ex) {
+          e.addSuppressed(ex);
+        }
+      }
+      throw e;
     } finally {
       DBUtils.cleanup(driverClass);
     }
-    context.addOutput(Output.of(dbSinkConfig.referenceName, new DBOutputFormatProvider(dbSinkConfig, driverClass)));
+  }
 
-    Schema schema = context.getInputSchema();
-    if (schema != null && schema.getFields() != null) {
-      recordLineage(context, dbSinkConfig.referenceName, schema,
-                    schema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSinkContext context) {
+    super.onRunFinish(succeeded, context);
+    if (stagingTableName == null) {
+      return;
+    }
+    Class<? extends Driver> driverClass = context.loadPluginClass(getJDBCPluginId());
+    try {
+      dbManager.ensureJDBCDriverIsAvailable(driverClass);
+      mergeStagingTable(succeeded);
+    } catch (IllegalAccessException | InstantiationException | SQLException e) {
+      throw new RuntimeException(String.format("Failed to upsert rows from staging table %s into table %s.",
+                                               stagingTableName, dbSinkConfig.tableName), e);
+    } finally {
+      DBUtils.cleanup(driverClass);
     }
   }
 
@@ -134,20 +181,24 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
 
   @Override
   public void transform(StructuredRecord input, Emitter<KeyValue<DBRecord, NullWritable>> emitter) throws Exception {
-    // Create StructuredRecord that only has the columns in this.columns
-    List<Schema.Field> outputFields = new ArrayList<>();
-    for (String column : columns) {
-      Schema.Field field = input.getSchema().getField(column);
-      Preconditions.checkNotNull(field, "Missing schema field for column '%s'", column);
-      outputFields.add(field);
+    // the output schema and the way its fields are written only change when the input schema changes
+    if (writePlan == null || !input.getSchema().equals(inputSchema)) {
+      // Create StructuredRecord that only has the columns in this.columns
+      List<Schema.Field> outputFields = new ArrayList<>();
+      for (String column : columns) {
+        Schema.Field field = input.getSchema().getField(column);
+        Preconditions.checkNotNull(field, "Missing schema field for column '%s'", column);
+        outputFields.add(field);
+      }
+      writePlan = DBWritePlan.create(Schema.recordOf(input.getSchema().getRecordName(), outputFields), columnTypes);
+      inputSchema = input.getSchema();
     }
-    StructuredRecord.Builder output = StructuredRecord.builder(
-      Schema.recordOf(input.getSchema().getRecordName(), outputFields));
+    StructuredRecord.Builder output = StructuredRecord.builder(writePlan.getSchema());
     for (String column : columns) {
       output.set(column, input.get(column));
     }
 
-    emitter.emit(new KeyValue<DBRecord, NullWritable>(new DBRecord(output.build(), columnTypes), null));
+    emitter.emit(new KeyValue<DBRecord, NullWritable>(new DBRecord(output.build(), writePlan), null));
   }
 
   @Override
@@ -159,6 +210,80 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   @VisibleForTesting
   void setColumns(List<String> columns) {
     this.columns = ImmutableList.copyOf(columns);
+    this.writePlan = null;
+  }
+
+  /**
+   * Creates an empty staging table with the columns of the target table. The staging table gets a random suffix,
+   * so that concurrent runs and stages that write to the same table don't share it.
+   */
+  private void createStagingTable() {
+    MergeDialect dialect = MergeDialect.of(dbSinkConfig.connectionString);
+    String suffix = "stage_" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    String tableName = MergeDialect.getStagingTableName(dbSinkConfig.tableName, suffix);
+    String query = dialect.getCreateStagingTableQuery(dbSinkConfig.tableName, tableName, dbSinkConfig.getColumns());
+    LOG.debug("Creating staging table {} with query {}", tableName, query);
+    try (Connection connection = DriverManager.getConnection(dbSinkConfig.connectionString,
+                                                             dbSinkConfig.getConnectionArguments());
+         Statement statement = connection.createStatement()) {
+      statement.execute(query);
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(String.format("Failed to create staging table %s for table %s.",
+                                               tableName, dbSinkConfig.tableName), e);
+    }
+    stagingTableName = tableName;
+  }
+
+  /**
+   * Merges the rows of the staging table into the target table if the run succeeded, and drops the staging table.
+   * The merge is a single statement, so either all or none of the rows are upserted.
+   */
+  private void mergeStagingTable(boolean succeeded) throws SQLException {
+    MergeDialect dialect = MergeDialect.of(dbSinkConfig.connectionString);
+    try (Connection connection = DriverManager.getConnection(dbSinkConfig.connectionString,
+                                                             dbSinkConfig.getConnectionArguments());
+         Statement statement = connection.createStatement()) {
+      try {
+        if (succeeded) {
+          String query = dialect.getMergeQuery(dbSinkConfig.tableName, stagingTableName,
+                                               dbSinkConfig.getColumns(), dbSinkConfig.getKeyColumns());
+          LOG.debug("Merging staging table {} with query {}", stagingTableName, query);
+          connection.setAutoCommit(false);
+          try {
+            int rows = statement.executeUpdate(query);
+            connection.commit();
+            LOG.info("Upserted {} rows into table {}.", rows, dbSinkConfig.tableName);
+          } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+          } finally {
+            connection.setAutoCommit(true);
+          }
+        }
+      } finally {
+        try {
+          statement.execute(dialect.getDropStagingTableQuery(stagingTableName));
+        } catch (SQLException e) {
+          LOG.warn("Failed to drop staging table {}. It has to be dropped manually.", stagingTableName, e);
+        }
+      }
+    }
+  }
+
+  private void dropStagingTable() throws SQLException {
+    MergeDialect dialect = MergeDialect.of(dbSinkConfig.connectionString);
+    try (Connection connection = DriverManager.getConnection(dbSinkConfig.connectionString,
+                                                             dbSinkConfig.getConnectionArguments());
+         Statement statement = connection.createStatement()) {
+      statement.execute(dialect.getDropStagingTableQuery(stagingTableName));
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    }
+    stagingTableName = null;
   }
 
   private void setResultSetMetadata() throws Exception {
@@ -189,7 +314,7 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
       }
     }
 
-    columns = ImmutableList.copyOf(Splitter.on(",").omitEmptyStrings().trimResults().split(dbSinkConfig.columns));
+    columns = dbSinkConfig.getColumns();
     columnTypes = new int[columns.size()];
     for (int i = 0; i < columnTypes.length; i++) {
       String name = columns.get(i);
@@ -213,6 +338,14 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
     public static final String COLUMNS = "columns";
     public static final String TABLE_NAME = "tableName";
     public static final String TRANSACTION_ISOLATION_LEVEL = "transactionIsolationLevel";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String COMMIT_INTERVAL = "commitInterval";
+    public static final String WRITER_THREADS = "writerThreads";
+    public static final String BULK_LOAD = "bulkLoad";
+    public static final String OPERATION = "operation";
+    public static final String KEY_COLUMNS = "keyColumns";
+    public static final String OPERATION_INSERT = "insert";
+    public static final String OPERATION_UPSERT = "upsert";
 
     @Name(COLUMNS)
     @Description("Comma-separated list of columns in the specified table to export to.")
@@ -232,15 +365,144 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
       "and this setting is set to true. For drivers like that, this should be set to TRANSACTION_NONE.")
     @Macro
     public String transactionIsolationLevel;
+
+    @Nullable
+    @Name(BATCH_SIZE)
+    @Description("The number of rows to send to the database in a single batch. Larger batches need fewer round " +
+      "trips to the database, with the tradeoff of higher memory usage. Defaults to 1000.")
+    @Macro
+    public Integer batchSize;
+
+    @Nullable
+    @Name(COMMIT_INTERVAL)
+    @Description("The number of batches after which the transaction is committed. If not specified, the " +
+      "transaction is only committed once all the rows of a task have been written, so that a failed task does " +
+      "not leave any of its rows in the table. If specified, the rows committed before a task fails remain in " +
+      "the table, and may be written again if the task is retried. This has no effect if auto-commit is enabled.")
+    @Macro
+    public Integer commitInterval;
+
+    @Nullable
+    @Name(WRITER_THREADS)
+    @Description("The number of threads that write batches to the database, each with its own connection. If set, " +
+      "records are written in the background while the next batch is prepared, and each thread commits its own " +
+      "transaction. The transactions are committed one after the other, so a task that fails while committing may " +
+      "leave the rows of some threads in the table. If not specified, batches are written by the thread that " +
+      "processes the records. Cannot be used with bulk load.")
+    @Macro
+    public Integer writerThreads;
+
+    @Nullable
+    @Name(BULK_LOAD)
+    @Description("Whether to write batches with the bulk load mechanism of the database instead of one INSERT " +
+      "statement per row. PostgreSQL tables are loaded with COPY, MySQL tables with LOAD DATA LOCAL INFILE, which " +
+      "requires the 'allowLoadLocalInfile=true' connection argument, and other databases with INSERT statements " +
+      "that insert several rows. Oracle and Phoenix are not supported, and are written as usual. Cannot be used " +
+      "with writer threads. Defaults to false.")
+    @Macro
+    public Boolean bulkLoad;
+
+    @Nullable
+    @Name(OPERATION)
+    @Description("The operation used to write rows to the table, either 'insert' or 'upsert'. When upserting, each " +
+      "run writes its rows to a new staging table, which is merged into the table with a single statement once " +
+      "the run succeeds, and dropped afterwards. Rows with the same key columns as an existing row replace it. " +
+      "If several rows have the same key columns, only one of them is merged. Defaults to 'insert'.")
+    @Macro
+    public String operation;
+
+    @Nullable
+    @Name(KEY_COLUMNS)
+    @Description("Comma-separated list of columns that identify a row, used to match rows when upserting. " +
+      "The columns must be part of the columns to write, and have a primary key or unique constraint for " +
+      "PostgreSQL and MySQL. Required if the operation is 'upsert'.")
+    @Macro
+    public String keyColumns;
+
+    public int getBatchSize() {
+      return batchSize == null ? ETLDBOutputFormat.DEFAULT_BATCH_SIZE : batchSize;
+    }
+
+    public boolean isBulkLoad() {
+      return bulkLoad != null && bulkLoad;
+    }
+
+    /**
+     * Returns whether rows are upserted through a staging table. Phoenix writes rows with UPSERT statements
+     * already, so its rows are written to the table directly.
+     */
+    public boolean isUpsert() {
+      return OPERATION_UPSERT.equalsIgnoreCase(operation) && !connectionString.startsWith("jdbc:phoenix");
+    }
+
+    public List<String> getColumns() {
+      return ImmutableList.copyOf(Splitter.on(",").omitEmptyStrings().trimResults().split(columns));
+    }
+
+    public List<String> getKeyColumns() {
+      return keyColumns == null ? Collections.<String>emptyList() :
+        ImmutableList.copyOf(Splitter.on(",").omitEmptyStrings().trimResults().split(keyColumns));
+    }
+
+    private void validate(FailureCollector collector) {
+      if (!containsMacro(BATCH_SIZE) && batchSize != null && batchSize < 1) {
+        collector.addFailure("Batch Size must be a positive number.", null).withConfigProperty(BATCH_SIZE);
+      }
+      if (!containsMacro(COMMIT_INTERVAL) && commitInterval != null && commitInterval < 1) {
+        collector.addFailure("Commit Interval must be a positive number.", null)
+          .withConfigProperty(COMMIT_INTERVAL);
+      }
+      if (!containsMacro(WRITER_THREADS) && writerThreads != null && writerThreads < 1) {
+        collector.addFailure("Writer Threads must be a positive number.", null).withConfigProperty(WRITER_THREADS);
+      }
+      if (!containsMacro(WRITER_THREADS) && !containsMacro(BULK_LOAD) && writerThreads != null && isBulkLoad()) {
+        collector.addFailure("Writer Threads cannot be used with bulk load.",
+                             "Remove Writer Threads or disable Bulk Load.")
+          .withConfigProperty(WRITER_THREADS).withConfigProperty(BULK_LOAD);
+      }
+      if (!containsMacro(OPERATION) && operation != null) {
+        validateOperation(collector);
+      }
+    }
+
+    private void validateOperation(FailureCollector collector) {
+      if (!OPERATION_INSERT.equalsIgnoreCase(operation) && !OPERATION_UPSERT.equalsIgnoreCase(operation)) {
+        collector.addFailure(String.format("Invalid operation '%s'.", operation),
+                             String.format("Set the operation to '%s' or '%s'.", OPERATION_INSERT, OPERATION_UPSERT))
+          .withConfigProperty(OPERATION);
+      } else if (OPERATION_UPSERT.equalsIgnoreCase(operation) && !containsMacro(KEY_COLUMNS)) {
+        List<String> keys = getKeyColumns();
+        if (keys.isEmpty()) {
+          collector.addFailure("Key Columns must be specified for upserts.", null).withConfigProperty(KEY_COLUMNS);
+        } else if (!containsMacro(COLUMNS)) {
+          List<String> columnList = getColumns();
+          for (String key : keys) {
+            if (columnList.stream().noneMatch(key::equalsIgnoreCase)) {
+              collector.addFailure(String.format("Key column '%s' is not one of the columns to write.", key),
+                                   "Add the column to the columns or remove it from the key columns.")
+                .withConfigProperty(KEY_COLUMNS);
+            }
+          }
+        }
+      }
+    }
   }
 
   private static class DBOutputFormatProvider implements OutputFormatProvider {
     private final Map<String, String> conf;
 
-    DBOutputFormatProvider(DBSinkConfig dbSinkConfig, Class<? extends Driver> driverClass) {
+    DBOutputFormatProvider(DBSinkConfig dbSinkConfig, Class<? extends Driver> driverClass, String tableName) {
       this.conf = new HashMap<>();
 
       conf.put(ETLDBOutputFormat.AUTO_COMMIT_ENABLED, String.valueOf(dbSinkConfig.getEnableAutoCommit()));
+      conf.put(ETLDBOutputFormat.BATCH_SIZE, String.valueOf(dbSinkConfig.getBatchSize()));
+      if (dbSinkConfig.commitInterval != null) {
+        conf.put(ETLDBOutputFormat.COMMIT_INTERVAL, String.valueOf(dbSinkConfig.commitInterval));
+      }
+      conf.put(ETLDBOutputFormat.BULK_LOAD, String.valueOf(dbSinkConfig.isBulkLoad()));
+      if (dbSinkConfig.writerThreads != null) {
+        conf.put(ETLDBOutputFormat.WRITER_THREADS, String.valueOf(dbSinkConfig.writerThreads));
+      }
       if (dbSinkConfig.transactionIsolationLevel != null) {
         conf.put(TransactionIsolationLevel.CONF_KEY, dbSinkConfig.transactionIsolationLevel);
       }
@@ -255,7 +517,7 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
       if (dbSinkConfig.password != null) {
         conf.put(DBConfiguration.PASSWORD_PROPERTY, dbSinkConfig.password);
       }
-      conf.put(DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, dbSinkConfig.tableName);
+      conf.put(DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, tableName);
       conf.put(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY, dbSinkConfig.columns);
     }
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Encodes records as tab separated lines, in the text format read by PostgreSQL 'COPY ... FROM STDIN' and by MySQL
+ * 'LOAD DATA' with its default field and line terminators. Nulls are written as '\N', and backslashes, tabs, line
+ * breaks and NUL characters in values are escaped with a backslash.
+ *
+ * Bytes are written as hexadecimal digits after a configurable prefix, since neither format can contain raw binary.
+ * Dates, times and timestamps are written the same way the JDBC driver receives them from
+ * {@link io.cdap.plugin.DBRecord}, so timestamps are in the time zone of the JVM.
+ *
+ * The encoder keeps its buffer between batches, and is not thread safe.
+ */
+final class DelimitedTextEncoder {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final String bytesPrefix;
+  private final StringBuilder text;
+  private ByteBuffer encoded;
+
+  /**
+   * @param bytesPrefix the text to write before the hexadecimal digits of a bytes value
+   */
+  DelimitedTextEncoder(String bytesPrefix) {
+    this.bytesPrefix = bytesPrefix;
+    this.text = new StringBuilder();
+  }
+
+  /**
+   * Removes all the encoded records.
+   */
+  void reset() {
+    text.setLength(0);
+    encoded = null;
+  }
+
+  /**
+   * Encodes a record as a line.
+   */
+  void encode(StructuredRecord record) {
+    List<Schema.Field> fields = record.getSchema().getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        text.append('\t');
+      }
+      Schema.Field field = fields.get(i);
+      if (record.get(field.getName()) == null) {
+        text.append("\\N");
+      } else {
+        encodeValue(record, field);
+      }
+    }
+    text.append('\n');
+  }
+
+  /**
+   * @return a stream of the UTF-8 bytes of the records encoded since the last reset
+   */
+  InputStream getInputStream() {
+    if (encoded == null) {
+      encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+    }
+    return new ByteArrayInputStream(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+  }
+
+  /**
+   * @return the number of bytes of the records encoded since the last reset
+   */
+  int size() {
+    getInputStream();
+    return encoded.remaining();
+  }
+
+  private void encodeValue(StructuredRecord record, Schema.Field field) {
+    String name = field.getName();
+    Schema schema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          text.append(record.getDate(name));
+          return;
+        case TIME_MILLIS:
+        case TIME_MICROS:
+          text.append(record.getTime(name));
+          return;
+        case TIMESTAMP_MILLIS:
+        case TIMESTAMP_MICROS:
+          text.append(Timestamp.from(record.getTimestamp(name).toInstant()));
+          return;
+        case DECIMAL:
+          text.append(record.getDecimal(name).toPlainString());
+          return;
+      }
+    }
+
+    Object value = record.get(name);
+    switch (schema.getType()) {
+      case BOOLEAN:
+        text.append((Boolean) value ? '1' : '0');
+        break;
+      case BYTES:
+        byte[] bytes = value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : (byte[]) value;
+        text.append(bytesPrefix);
+        for (byte b : bytes) {
+          text.append(HEX[(b >> 4) & 0x0f]).append(HEX[b & 0x0f]);
+        }
+        break;
+      case STRING:
+        escape(value.toString());
+        break;
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        // numbers don't contain characters that need to be escaped
+        text.append(value);
+        break;
+      default:
+        throw new IllegalArgumentException(
+          String.format("Only simple types are supported (boolean, int, long, float, double, string, bytes) " +
+                          "for writing a DBRecord, but found '%s' as the type for column '%s'.",
+                        schema.getType(), name));
+    }
+  }
+
+  private void escape(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          text.append("\\\\");
+          break;
+        case '\t':
+          text.append("\\t");
+          break;
+        case '\n':
+          text.append("\\n");
+          break;
+        case '\r':
+          text.append("\\r");
+          break;
+        case '\0':
+          text.append("\\0");
+          break;
+        default:
+          text.append(c);
+      }
+    }
+  }
+}
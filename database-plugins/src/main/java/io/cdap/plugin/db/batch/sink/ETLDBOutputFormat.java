@@ -18,10 +18,8 @@ package io.cdap.plugin.db.batch.sink;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
-import io.cdap.plugin.ConnectionConfig;
-import io.cdap.plugin.DBUtils;
 import io.cdap.plugin.DataSizeReporter;
-import io.cdap.plugin.JDBCDriverShim;
+import io.cdap.plugin.db.batch.ConnectionPool;
 import io.cdap.plugin.db.batch.NoOpCommitConnection;
 import io.cdap.plugin.db.batch.TransactionIsolationLevel;
 import org.apache.hadoop.conf.Configuration;
@@ -37,26 +35,47 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.Driver;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class that extends {@link DBOutputFormat} to load the database driver class correctly.
  *
+ * Rows are sent to the database with {@link PreparedStatement#executeBatch()} every {@link #BATCH_SIZE} rows, so
+ * that the driver does not buffer all the rows of a task. If {@link #COMMIT_INTERVAL} is set, the transaction is
+ * committed after that many batches, otherwise it is only committed when the writer is closed. If the task fails,
+ * the rows since the last commit are rolled back, but rows in earlier commits remain in the table.
+ * If {@link #WRITER_THREADS} is set, batches are written by an {@link AsyncDBRecordWriter} with that many threads.
+ * Otherwise, if {@link #BULK_LOAD} is enabled, batches are written with a {@link BulkLoadRecordWriter} for the
+ * database.
+ * Connections are borrowed from the {@link ConnectionPool} and returned to it when the writer is closed.
+ *
  * @param <K> - Key passed to this class to be written
  * @param <V> - Value passed to this class to be written. The value is ignored.
  *
  */
 public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<K, V> {
   public static final String AUTO_COMMIT_ENABLED = "io.cdap.hydrator.db.output.autocommit.enabled";
+  public static final String BATCH_SIZE = "io.cdap.hydrator.db.output.batch.size";
+  public static final String COMMIT_INTERVAL = "io.cdap.hydrator.db.output.commit.interval";
+  public static final String WRITER_THREADS = "io.cdap.hydrator.db.output.writer.threads";
+  public static final String BULK_LOAD = "io.cdap.hydrator.db.output.bulk.load";
+  public static final int DEFAULT_BATCH_SIZE = 1000;
 
   private static final Logger LOG = LoggerFactory.getLogger(ETLDBOutputFormat.class);
+
+  /**
+   * Counters for the batches written to the database. The number of rows per batch is BATCH_ROWS / BATCHES.
+   */
+  public enum Counters {
+    BATCHES,
+    BATCH_ROWS,
+    FLUSH_MILLIS,
+    COMMITS
+  }
+
   private Configuration conf;
-  private Driver driver;
-  private JDBCDriverShim driverShim;
 
   @Override
   public RecordWriter<K, V> getRecordWriter(TaskAttemptContext context) throws IOException {
@@ -70,31 +89,54 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
     }
 
     try {
+      String query = constructQuery(tableName, fieldNames);
+      int batchSize = conf.getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE);
+      int commitInterval = conf.getInt(COMMIT_INTERVAL, 0);
+      int writerThreads = conf.getInt(WRITER_THREADS, 0);
+      if (writerThreads > 0) {
+        return new AsyncDBRecordWriter<>(() -> getConnection(conf), query, writerThreads, batchSize, commitInterval);
+      }
+
       Connection connection = getConnection(conf);
-      PreparedStatement statement = connection.prepareStatement(constructQuery(tableName, fieldNames));
+      if (conf.getBoolean(BULK_LOAD, false)) {
+        String url = conf.get(DBConfiguration.URL_PROPERTY);
+        String[] columns = new String[fieldNames.length];
+        for (int i = 0; i < columns.length; i++) {
+          columns[i] = fieldNames[i].trim();
+        }
+        RecordWriter<K, V> bulkWriter = BulkLoadRecordWriter.create(connection, url,
+                                                                    ConnectionPool.get(conf).getDriverClassLoader(),
+                                                                    tableName, columns, batchSize, commitInterval,
+                                                                    context);
+        if (bulkWriter != null) {
+          return bulkWriter;
+        }
+        LOG.info("Bulk load is not supported for {}. Writing rows with batched INSERT statements.", url);
+      }
+      PreparedStatement statement = connection.prepareStatement(query);
       return new DBRecordWriter(connection, statement) {
 
-        private boolean emptyData = true;
         private long bytesWritten = 0;
+        // rows added to the current batch, and batches executed since the last commit
+        private int batchRows = 0;
+        private int uncommittedBatches = 0;
 
-        //Implementation of the close method below is the exact implementation in DBOutputFormat except that
-        //we check if there is any data to be written and if not, we skip executeBatch call.
+        //Implementation of the close method below is based on the implementation in DBOutputFormat except that
+        //we check if there is any data to be written and if not, we skip executeBatch and commit calls.
         //There might be reducers that don't receive any data and thus this check is necessary to prevent
         //empty data to be committed (since some Databases doesn't support that).
         @Override
         public void close(TaskAttemptContext context) throws IOException {
           try {
-            if (!emptyData) {
-              getStatement().executeBatch();
-              getConnection().commit();
+            if (batchRows > 0) {
+              executeBatch();
+            }
+            if (uncommittedBatches > 0) {
+              commit();
               context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN).increment(bytesWritten);
             }
           } catch (SQLException e) {
-            try {
-              getConnection().rollback();
-            } catch (SQLException ex) {
-              LOG.warn(StringUtils.stringifyException(ex));
-            }
+            rollback();
             throw new IOException(e);
           } finally {
             try {
@@ -104,12 +146,6 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
               throw new IOException(ex);
             }
           }
-
-          try {
-            DriverManager.deregisterDriver(driverShim);
-          } catch (SQLException e) {
-            throw new IOException(e);
-          }
         }
 
         @Override
@@ -121,7 +157,47 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
           if (value instanceof DataSizeReporter) {
             bytesWritten += ((DataSizeReporter) value).getBytesWritten();
           }
-          emptyData = false;
+          batchRows++;
+          if (batchRows < batchSize) {
+            return;
+          }
+          try {
+            executeBatch();
+            if (commitInterval > 0 && uncommittedBatches >= commitInterval) {
+              commit();
+              context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN).increment(bytesWritten);
+              bytesWritten = 0;
+            }
+          } catch (SQLException e) {
+            rollback();
+            throw new IOException(e);
+          }
+        }
+
+        private void executeBatch() throws SQLException {
+          long start = System.nanoTime();
+          getStatement().executeBatch();
+          long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+          LOG.trace("Executed batch of {} rows in {} ms.", batchRows, elapsedMillis);
+          context.getCounter(Counters.BATCHES).increment(1);
+          context.getCounter(Counters.BATCH_ROWS).increment(batchRows);
+          context.getCounter(Counters.FLUSH_MILLIS).increment(elapsedMillis);
+          batchRows = 0;
+          uncommittedBatches++;
+        }
+
+        private void commit() throws SQLException {
+          getConnection().commit();
+          context.getCounter(Counters.COMMITS).increment(1);
+          uncommittedBatches = 0;
+        }
+
+        private void rollback() {
+          try {
+            getConnection().rollback();
+          } catch (SQLException ex) {
+            LOG.warn(StringUtils.stringifyException(ex));
+          }
         }
       };
     } catch (Exception ex) {
@@ -132,37 +208,14 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
   private Connection getConnection(Configuration conf) {
     Connection connection;
     try {
-      String url = conf.get(DBConfiguration.URL_PROPERTY);
-      try {
-        // throws SQLException if no suitable driver is found
-        DriverManager.getDriver(url);
-      } catch (SQLException e) {
-        if (driverShim == null) {
-          if (driver == null) {
-            ClassLoader classLoader = conf.getClassLoader();
-            @SuppressWarnings("unchecked")
-            Class<? extends Driver> driverClass =
-              (Class<? extends Driver>) classLoader.loadClass(conf.get(DBConfiguration.DRIVER_CLASS_PROPERTY));
-            driver = driverClass.newInstance();
-
-            // De-register the default driver that gets registered when driver class is loaded.
-            DBUtils.deregisterAllDrivers(driverClass);
-          }
-
-          driverShim = new JDBCDriverShim(driver);
-          DriverManager.registerDriver(driverShim);
-          LOG.debug("Registered JDBC driver via shim {}. Actual Driver {}.", driverShim, driver);
-        }
-      }
-
-      Properties properties =
-        ConnectionConfig.getConnectionArguments(conf.get(DBUtils.CONNECTION_ARGUMENTS),
-                                                conf.get(DBConfiguration.USERNAME_PROPERTY),
-                                                conf.get(DBConfiguration.PASSWORD_PROPERTY));
-      connection = DriverManager.getConnection(url, properties);
+      connection = ConnectionPool.get(conf).getConnection();
 
       boolean autoCommitEnabled = conf.getBoolean(AUTO_COMMIT_ENABLED, false);
       if (autoCommitEnabled) {
+        // a pooled connection may have been used without auto-commit by another stage
+        if (!connection.getAutoCommit()) {
+          connection.setAutoCommit(true);
+        }
         // hack to work around jdbc drivers like the hive driver that throw exceptions on commit
         connection = new NoOpCommitConnection(connection);
       } else {
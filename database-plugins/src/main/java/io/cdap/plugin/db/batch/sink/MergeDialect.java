@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * SQL statements used to upsert rows through a staging table, in the dialect of a database. The staging table is
+ * created empty with the columns of the target table, loaded like a regular table, and then merged into the target
+ * table with a single statement.
+ *
+ * The staging table can contain several rows with the same key, either because the input does, or because a task
+ * that committed some of its rows was retried. Since MERGE and INSERT ... ON CONFLICT fail if a target row is
+ * affected twice, the rows of the staging table are deduplicated by key before they are merged.
+ */
+enum MergeDialect {
+  POSTGRESQL {
+    @Override
+    String getMergeQuery(String tableName, String stagingTableName, List<String> columns, List<String> keys) {
+      List<String> updates = getNonKeyColumns(columns, keys).stream()
+        .map(column -> String.format("%s = EXCLUDED.%s", column, column))
+        .collect(Collectors.toList());
+      return String.format("INSERT INTO %s (%s) SELECT %s FROM %s src ON CONFLICT (%s) %s",
+                           tableName, String.join(", ", columns), String.join(", ", columns),
+                           getMergeSource(stagingTableName, columns, keys), String.join(", ", keys),
+                           updates.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + String.join(", ", updates));
+    }
+  },
+  MYSQL {
+    /**
+     * MySQL does not support MERGE. Rows are matched on any primary key or unique index of the table,
+     * which must be the key columns. Rows of the staging table with the same key update the same row one after
+     * the other, so they don't need to be deduplicated.
+     */
+    @Override
+    String getMergeQuery(String tableName, String stagingTableName, List<String> columns, List<String> keys) {
+      List<String> nonKeyColumns = getNonKeyColumns(columns, keys);
+      // a key column is assigned to itself if there is nothing else to update, which keeps the existing row
+      List<String> updates = (nonKeyColumns.isEmpty() ? keys.subList(0, 1) : nonKeyColumns).stream()
+        .map(column -> String.format("%s = VALUES(%s)", column, column))
+        .collect(Collectors.toList());
+      return String.format("INSERT INTO %s (%s) SELECT %s FROM %s ON DUPLICATE KEY UPDATE %s",
+                           tableName, String.join(", ", columns), String.join(", ", columns), stagingTableName,
+                           String.join(", ", updates));
+    }
+  },
+  SQLSERVER {
+    @Override
+    String getCreateStagingTableQuery(String tableName, String stagingTableName, List<String> columns) {
+      return String.format("SELECT %s INTO %s FROM %s WHERE 1 = 0",
+                           String.join(", ", columns), stagingTableName, tableName);
+    }
+
+    @Override
+    String getMergeQuery(String tableName, String stagingTableName, List<String> columns, List<String> keys) {
+      // SQL Server requires MERGE statements to be terminated with a semicolon
+      return super.getMergeQuery(tableName, stagingTableName, columns, keys) + ";";
+    }
+  },
+  HSQLDB {
+    @Override
+    String getCreateStagingTableQuery(String tableName, String stagingTableName, List<String> columns) {
+      return getCreateTableWithNoDataQuery(tableName, stagingTableName, columns);
+    }
+
+    /**
+     * HSQLDB does not support partitioned window functions, so only rows that are entirely the same, such as those
+     * written again by a retried task, are deduplicated.
+     */
+    @Override
+    String getMergeSource(String stagingTableName, List<String> columns, List<String> keys) {
+      return String.format("(SELECT DISTINCT %s FROM %s)", String.join(", ", columns), stagingTableName);
+    }
+  },
+  DB2 {
+    @Override
+    String getCreateStagingTableQuery(String tableName, String stagingTableName, List<String> columns) {
+      return getCreateTableWithNoDataQuery(tableName, stagingTableName, columns);
+    }
+  },
+  STANDARD;
+
+  private static final String ROW_NUMBER_COLUMN = "staging_row_number";
+
+  /**
+   * Returns the dialect for the given connection string. Databases that are not known use standard SQL, which
+   * is supported by Oracle among others.
+   */
+  static MergeDialect of(String connectionString) {
+    if (connectionString.startsWith("jdbc:postgresql:")) {
+      return POSTGRESQL;
+    }
+    if (connectionString.startsWith("jdbc:mysql:") || connectionString.startsWith("jdbc:mariadb:")) {
+      return MYSQL;
+    }
+    if (connectionString.startsWith("jdbc:sqlserver:") || connectionString.startsWith("jdbc:jtds:sqlserver:")) {
+      return SQLSERVER;
+    }
+    if (connectionString.startsWith("jdbc:hsqldb:")) {
+      return HSQLDB;
+    }
+    if (connectionString.startsWith("jdbc:db2:")) {
+      return DB2;
+    }
+    return STANDARD;
+  }
+
+  /**
+   * Returns the name of the staging table for the given table. The suffix is added to the table name, inside the
+   * quotes if the table name is quoted.
+   */
+  static String getStagingTableName(String tableName, String suffix) {
+    char last = tableName.charAt(tableName.length() - 1);
+    if (last == '"' || last == '`' || last == ']') {
+      return tableName.substring(0, tableName.length() - 1) + "_" + suffix + last;
+    }
+    return tableName + "_" + suffix;
+  }
+
+  /**
+   * Returns the statement that creates an empty staging table with the given columns of the target table.
+   */
+  String getCreateStagingTableQuery(String tableName, String stagingTableName, List<String> columns) {
+    return String.format("CREATE TABLE %s AS SELECT %s FROM %s WHERE 1 = 0",
+                         stagingTableName, String.join(", ", columns), tableName);
+  }
+
+  /**
+   * Returns the statement that inserts the rows of the staging table into the target table, updating the existing
+   * rows that have the same key instead.
+   */
+  String getMergeQuery(String tableName, String stagingTableName, List<String> columns, List<String> keys) {
+    String condition = keys.stream()
+      .map(key -> String.format("tgt.%s = src.%s", key, key))
+      .collect(Collectors.joining(" AND "));
+    List<String> updates = getNonKeyColumns(columns, keys).stream()
+      .map(column -> String.format("tgt.%s = src.%s", column, column))
+      .collect(Collectors.toList());
+    String values = columns.stream().map(column -> "src." + column).collect(Collectors.joining(", "));
+
+    StringBuilder query = new StringBuilder()
+      .append(String.format("MERGE INTO %s tgt USING %s src ON (%s)", tableName,
+                            getMergeSource(stagingTableName, columns, keys), condition));
+    if (!updates.isEmpty()) {
+      query.append(" WHEN MATCHED THEN UPDATE SET ").append(String.join(", ", updates));
+    }
+    query.append(String.format(" WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s)", String.join(", ", columns), values));
+    return query.toString();
+  }
+
+  /**
+   * Returns the subquery that selects one row per key from the staging table. The staging table has no column that
+   * orders its rows, so if several rows have the same key, which one is kept is undefined.
+   */
+  String getMergeSource(String stagingTableName, List<String> columns, List<String> keys) {
+    String columnList = String.join(", ", columns);
+    String keyList = String.join(", ", keys);
+    return String.format("(SELECT %s FROM (SELECT %s, ROW_NUMBER() OVER (PARTITION BY %s ORDER BY %s) AS %s " +
+                           "FROM %s) ranked WHERE %s = 1)",
+                         columnList, columnList, keyList, keyList, ROW_NUMBER_COLUMN, stagingTableName,
+                         ROW_NUMBER_COLUMN);
+  }
+
+  String getDropStagingTableQuery(String stagingTableName) {
+    return "DROP TABLE " + stagingTableName;
+  }
+
+  private static String getCreateTableWithNoDataQuery(String tableName, String stagingTableName,
+                                                      List<String> columns) {
+    return String.format("CREATE TABLE %s AS (SELECT %s FROM %s) WITH NO DATA",
+                         stagingTableName, String.join(", ", columns), tableName);
+  }
+
+  private static List<String> getNonKeyColumns(List<String> columns, List<String> keys) {
+    List<String> nonKeyColumns = new ArrayList<>();
+    for (String column : columns) {
+      if (keys.stream().noneMatch(column::equalsIgnoreCase)) {
+        nonKeyColumns.add(column);
+      }
+    }
+    return nonKeyColumns;
+  }
+}
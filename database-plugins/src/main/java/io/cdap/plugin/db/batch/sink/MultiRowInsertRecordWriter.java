@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads batches with 'INSERT INTO table (columns) VALUES (...), (...)' statements that each insert several rows,
+ * which works with most databases that don't have a dedicated bulk load mechanism.
+ *
+ * @param <K> - Key passed to this class to be written, which must be a {@link DBRecord}
+ * @param <V> - Value passed to this class to be written. The value is ignored.
+ */
+class MultiRowInsertRecordWriter<K extends DBWritable, V> extends BulkLoadRecordWriter<K, V> {
+  // databases limit the number of parameters in a statement, for example to 2100 in SQL Server
+  private static final int MAX_PARAMETERS = 2000;
+
+  private final String tableName;
+  private final String[] columns;
+  private final int rowsPerStatement;
+  // statements by number of rows. Apart from the full statement, these are only needed for the end of a batch.
+  private final Map<Integer, PreparedStatement> statements;
+
+  MultiRowInsertRecordWriter(Connection connection, String tableName, String[] columns,
+                             int batchSize, int commitInterval, TaskAttemptContext context) {
+    super(connection, batchSize, commitInterval, context);
+    this.tableName = tableName;
+    this.columns = columns;
+    this.rowsPerStatement = Math.max(1, Math.min(batchSize, MAX_PARAMETERS / columns.length));
+    this.statements = new HashMap<>();
+  }
+
+  @Override
+  protected long load(List<DBRecord> records) throws SQLException {
+    long bytesWritten = 0;
+    int start = 0;
+    if (records.size() >= rowsPerStatement) {
+      PreparedStatement statement = getStatement(rowsPerStatement);
+      for (; start + rowsPerStatement <= records.size(); start += rowsPerStatement) {
+        bytesWritten += bind(statement, records, start, rowsPerStatement);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+    int remaining = records.size() - start;
+    if (remaining > 0) {
+      PreparedStatement statement = getStatement(remaining);
+      bytesWritten += bind(statement, records, start, remaining);
+      statement.executeUpdate();
+    }
+    return bytesWritten;
+  }
+
+  @Override
+  protected void closeStatements() throws SQLException {
+    SQLException error = null;
+    for (PreparedStatement statement : statements.values()) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        if (error == null) {
+          error = e;
+        } else {
+          error.addSuppressed(e);
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  private long bind(PreparedStatement statement, List<DBRecord> records, int start, int count) throws SQLException {
+    long bytesWritten = 0;
+    for (int i = 0; i < count; i++) {
+      DBRecord record = records.get(start + i);
+      long before = record.getBytesWritten();
+      record.write(statement, i * columns.length);
+      bytesWritten += record.getBytesWritten() - before;
+    }
+    return bytesWritten;
+  }
+
+  private PreparedStatement getStatement(int rows) throws SQLException {
+    PreparedStatement statement = statements.get(rows);
+    if (statement == null) {
+      statement = connection.prepareStatement(getQuery(rows));
+      statements.put(rows, statement);
+    }
+    return statement;
+  }
+
+  private String getQuery(int rows) {
+    StringBuilder row = new StringBuilder("(");
+    for (int i = 0; i < columns.length; i++) {
+      row.append(i == 0 ? "?" : ", ?");
+    }
+    row.append(')');
+
+    StringBuilder query = new StringBuilder("INSERT INTO ").append(tableName)
+      .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        query.append(", ");
+      }
+      query.append(row);
+    }
+    return query.toString();
+  }
+}
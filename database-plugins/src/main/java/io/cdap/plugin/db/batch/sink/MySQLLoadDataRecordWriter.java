@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads batches into a MySQL table with 'LOAD DATA LOCAL INFILE', reading the rows from memory with the
+ * setLocalInfileInputStream method of the MySQL Connector/J statement. The driver is only available through the
+ * class loader of the JDBC plugin, so the method is called through reflection. The connection must allow local
+ * infile, which is enabled with the 'allowLoadLocalInfile=true' connection argument.
+ *
+ * @param <K> - Key passed to this class to be written, which must be a {@link DBRecord}
+ * @param <V> - Value passed to this class to be written. The value is ignored.
+ */
+class MySQLLoadDataRecordWriter<K extends DBWritable, V> extends BulkLoadRecordWriter<K, V> {
+  private final String tableName;
+  private final String[] columns;
+  private final Statement statement;
+  private final Method setInputStream;
+  private final DelimitedTextEncoder encoder = new DelimitedTextEncoder("");
+  // the query depends on which columns are bytes, so it is created for the schema of the first record
+  private String loadQuery;
+
+  MySQLLoadDataRecordWriter(Connection connection, String tableName, String[] columns,
+                            int batchSize, int commitInterval, TaskAttemptContext context) throws SQLException {
+    super(connection, batchSize, commitInterval, context);
+    this.tableName = tableName;
+    this.columns = columns;
+    this.statement = connection.createStatement();
+    try {
+      this.setInputStream = statement.getClass().getMethod("setLocalInfileInputStream", InputStream.class);
+    } catch (NoSuchMethodException e) {
+      statement.close();
+      throw new SQLException("Unable to load data from memory with the MySQL JDBC driver.", e);
+    }
+  }
+
+  @Override
+  protected long load(List<DBRecord> records) throws SQLException {
+    if (loadQuery == null) {
+      loadQuery = getLoadQuery(records.get(0).getRecord().getSchema());
+    }
+    encoder.reset();
+    for (DBRecord record : records) {
+      encoder.encode(record.getRecord());
+    }
+    try {
+      setInputStream.invoke(statement, encoder.getInputStream());
+    } catch (InvocationTargetException | IllegalAccessException e) {
+      throw new SQLException("Unable to load data from memory with the MySQL JDBC driver.", e);
+    }
+    statement.execute(loadQuery);
+    return encoder.size();
+  }
+
+  @Override
+  protected void closeStatements() throws SQLException {
+    statement.close();
+  }
+
+  /**
+   * Bytes are written in hexadecimal, so they are read into variables and converted with UNHEX.
+   */
+  private String getLoadQuery(Schema schema) {
+    List<String> targets = new ArrayList<>();
+    List<String> assignments = new ArrayList<>();
+    List<Schema.Field> fields = schema.getFields();
+    for (int i = 0; i < columns.length; i++) {
+      Schema fieldSchema = fields.get(i).getSchema();
+      fieldSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+      if (fieldSchema.getType() == Schema.Type.BYTES && fieldSchema.getLogicalType() == null) {
+        String variable = "@bytes" + i;
+        targets.add(variable);
+        assignments.add(String.format("%s = UNHEX(%s)", columns[i], variable));
+      } else {
+        targets.add(columns[i]);
+      }
+    }
+    String query = String.format("LOAD DATA LOCAL INFILE 'stream' INTO TABLE %s CHARACTER SET utf8mb4 " +
+                                   "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (%s)",
+                                 tableName, String.join(", ", targets));
+    return assignments.isEmpty() ? query : query + " SET " + String.join(", ", assignments);
+  }
+}
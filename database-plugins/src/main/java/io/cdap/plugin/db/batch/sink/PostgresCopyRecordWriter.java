@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Loads batches into a PostgreSQL table with 'COPY ... FROM STDIN', using the CopyManager of the PostgreSQL JDBC
+ * driver. The driver is only available through the class loader of the JDBC plugin, so its API is called
+ * through reflection.
+ *
+ * @param <K> - Key passed to this class to be written, which must be a {@link DBRecord}
+ * @param <V> - Value passed to this class to be written. The value is ignored.
+ */
+class PostgresCopyRecordWriter<K extends DBWritable, V> extends BulkLoadRecordWriter<K, V> {
+  private final String copyQuery;
+  private final Object copyManager;
+  private final Method copyIn;
+  // bytea values are read from hex format, in which the value starts with '\x'. The backslash has to be escaped.
+  private final DelimitedTextEncoder encoder = new DelimitedTextEncoder("\\\\x");
+
+  PostgresCopyRecordWriter(Connection connection, ClassLoader driverClassLoader, String tableName, String[] columns,
+                           int batchSize, int commitInterval, TaskAttemptContext context) throws SQLException {
+    super(connection, batchSize, commitInterval, context);
+    this.copyQuery = String.format("COPY %s (%s) FROM STDIN", tableName, String.join(", ", columns));
+    try {
+      Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection", true, driverClassLoader);
+      Object pgConnection = connection.unwrap(pgConnectionClass);
+      this.copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+      this.copyIn = copyManager.getClass().getMethod("copyIn", String.class, InputStream.class);
+    } catch (ReflectiveOperationException e) {
+      throw new SQLException("Unable to access the CopyManager of the PostgreSQL JDBC driver.", e);
+    }
+  }
+
+  @Override
+  protected long load(List<DBRecord> records) throws SQLException {
+    encoder.reset();
+    for (DBRecord record : records) {
+      encoder.encode(record.getRecord());
+    }
+    try {
+      copyIn.invoke(copyManager, copyQuery, encoder.getInputStream());
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      throw new SQLException(String.format("Failed to copy rows with '%s'.", copyQuery), cause);
+    } catch (IllegalAccessException e) {
+      throw new SQLException(String.format("Failed to copy rows with '%s'.", copyQuery), e);
+    }
+    return encoder.size();
+  }
+}
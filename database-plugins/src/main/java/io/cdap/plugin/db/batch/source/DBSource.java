@@ -22,10 +22,13 @@ import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.batch.Input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.DatasetProperties;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.api.dataset.lib.KeyValueTable;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
@@ -53,12 +56,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.Properties;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -83,6 +91,8 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
   private final DBSourceConfig sourceConfig;
   private final DBManager dbManager;
   private Class<? extends Driver> driverClass;
+  // the high-water mark of this run, which is stored once the run succeeds
+  private String highWaterMark;
 
   public DBSource(DBSourceConfig sourceConfig) {
     super(new ReferencePluginConfig(sourceConfig.referenceName));
@@ -97,6 +107,10 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     sourceConfig.validate(collector);
     Class<? extends Driver> driverClass = dbManager.validateJDBCPluginPipeline(pipelineConfigurer, getJDBCPluginId(),
                                                                                collector);
+    if (!sourceConfig.containsMacro(DBSourceConfig.STATE_TABLE_NAME) &&
+      !Strings.isNullOrEmpty(sourceConfig.stateTableName)) {
+      pipelineConfigurer.createDataset(sourceConfig.stateTableName, KeyValueTable.class.getName());
+    }
     // throw exception before deriving schema from database. This is because database schema is derived using import
     // query and its possible that validation failed for import query.
     collector.getOrThrowException();
@@ -118,7 +132,7 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
   }
 
   @Override
-  public void prepareRun(BatchSourceContext context) {
+  public void prepareRun(BatchSourceContext context) throws Exception {
     FailureCollector collector = context.getFailureCollector();
     sourceConfig.validate(collector);
     collector.getOrThrowException();
@@ -139,8 +153,16 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
       DBConfiguration.configureDB(hConf, driverClass.getName(), sourceConfig.connectionString,
                                   sourceConfig.user, sourceConfig.password);
     }
-    DataDrivenETLDBInputFormat.setInput(hConf, DBRecord.class,
-                                        sourceConfig.getImportQuery(), sourceConfig.getBoundingQuery(),
+    String importQuery = sourceConfig.getImportQuery();
+    String boundingQuery = sourceConfig.getBoundingQuery();
+    if (sourceConfig.isIncremental()) {
+      String condition = getIncrementalCondition(context, driverClass);
+      if (boundingQuery != null) {
+        boundingQuery = getIncrementalBoundingQuery(boundingQuery, importQuery, condition);
+      }
+      importQuery = importQuery.replace("$CONDITIONS", condition + " AND $CONDITIONS");
+    }
+    DataDrivenETLDBInputFormat.setInput(hConf, DBRecord.class, importQuery, boundingQuery,
                                         sourceConfig.getEnableAutoCommit());
     if (sourceConfig.transactionIsolationLevel != null) {
       hConf.set(TransactionIsolationLevel.CONF_KEY, sourceConfig.transactionIsolationLevel);
@@ -149,11 +171,14 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
       hConf.set(DBUtils.CONNECTION_ARGUMENTS, sourceConfig.connectionArguments);
     }
     if (sourceConfig.numSplits == null || sourceConfig.numSplits != 1) {
-      if (!sourceConfig.getImportQuery().contains("$CONDITIONS")) {
+      if (!importQuery.contains("$CONDITIONS")) {
         throw new IllegalArgumentException(String.format("Import Query %s must contain the string '$CONDITIONS'.",
                                                          sourceConfig.importQuery));
       }
       hConf.set(DBConfiguration.INPUT_ORDER_BY_PROPERTY, sourceConfig.splitBy);
+    } else if (sourceConfig.readersPerSplit != null && sourceConfig.readersPerSplit > 1) {
+      // the single split is divided into sub-ranges of the split-by field
+      hConf.set(DBConfiguration.INPUT_ORDER_BY_PROPERTY, sourceConfig.splitBy);
     }
     if (sourceConfig.numSplits != null) {
       hConf.setInt(MRJobConfig.NUM_MAPS, sourceConfig.numSplits);
@@ -170,12 +195,29 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     if (sourceConfig.fetchSize != null) {
       hConf.setInt(DBUtils.FETCH_SIZE, sourceConfig.fetchSize);
     }
+    if (sourceConfig.splitStrategy != null) {
+      hConf.set(DataDrivenETLDBInputFormat.SPLIT_STRATEGY, sourceConfig.splitStrategy);
+    }
+    if (sourceConfig.readersPerSplit != null) {
+      hConf.setInt(DataDrivenETLDBInputFormat.READERS_PER_SPLIT, sourceConfig.readersPerSplit);
+    }
     context.setInput(Input.of(sourceConfig.referenceName,
                               new SourceInputFormatProvider(DataDrivenETLDBInputFormat.class, hConf)));
 
     emitLineage(context);
   }
 
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    // the mark only advances if all the rows up to it were read successfully
+    if (succeeded && highWaterMark != null) {
+      KeyValueTable stateTable = context.getDataset(sourceConfig.stateTableName);
+      stateTable.write(sourceConfig.referenceName, highWaterMark);
+      LOG.debug("Advanced the high-water mark of column {} to {}.", sourceConfig.incrementalColumn, highWaterMark);
+    }
+  }
+
   @Override
   public void initialize(BatchRuntimeContext context) throws Exception {
     super.initialize(context);
@@ -197,6 +239,111 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     }
   }
 
+  /**
+   * Returns the condition that selects the rows of the import query with an incremental column value above the
+   * high-water mark of the last successful run, and at most the current maximum. The current maximum becomes the
+   * new high-water mark once the run succeeds.
+   */
+  private String getIncrementalCondition(BatchSourceContext context, Class<? extends Driver> driverClass)
+    throws Exception {
+    if (!context.datasetExists(sourceConfig.stateTableName)) {
+      context.createDataset(sourceConfig.stateTableName, KeyValueTable.class.getName(), DatasetProperties.EMPTY);
+    }
+    KeyValueTable stateTable = context.getDataset(sourceConfig.stateTableName);
+    byte[] lastMark = stateTable.read(sourceConfig.referenceName);
+
+    String column = sourceConfig.incrementalColumn;
+    String newRows = lastMark == null ? "(1 = 1)" : String.format("(%s > %s)", column, Bytes.toString(lastMark));
+    DriverCleanup driverCleanup = loadPluginClassAndGetDriver(driverClass);
+    try (Connection connection = getConnection();
+         Statement statement = connection.createStatement();
+         // the column is selected from the import query, in which it is not qualified with the table name
+         ResultSet resultSet = statement.executeQuery(
+           String.format("SELECT MAX(%s) FROM (%s) mark_query", column.substring(column.lastIndexOf('.') + 1),
+                         sourceConfig.getImportQuery().replace("$CONDITIONS", newRows)))) {
+      resultSet.next();
+      highWaterMark = toLiteral(resultSet, 1);
+    } finally {
+      driverCleanup.destroy();
+    }
+
+    if (highWaterMark == null) {
+      // there are no new rows, so the mark stays where it is
+      LOG.info("No rows with {} above the high-water mark {}.", column, Bytes.toString(lastMark));
+      return "(1 = 0)";
+    }
+    LOG.info("Reading rows with {} above the high-water mark {} and up to {}.", column,
+             lastMark == null ? null : Bytes.toString(lastMark), highWaterMark);
+    return lastMark == null ? String.format("(%s <= %s)", column, highWaterMark) :
+      String.format("(%s > %s AND %s <= %s)", column, Bytes.toString(lastMark), column, highWaterMark);
+  }
+
+  /**
+   * Returns the bounding query restricted to the rows selected by the incremental condition. The '$CONDITIONS'
+   * string of the bounding query is replaced with the condition. A bounding query without it can't be restricted,
+   * so the bounds of the split-by field are computed from the new rows of the import query instead, otherwise the
+   * splits would cover the whole table and most of them would be empty.
+   */
+  private String getIncrementalBoundingQuery(String boundingQuery, String importQuery, String condition) {
+    if (boundingQuery.contains("$CONDITIONS")) {
+      return boundingQuery.replace("$CONDITIONS", condition);
+    }
+    // the column is selected from the import query, in which it is not qualified with the table name
+    String splitBy = sourceConfig.splitBy.substring(sourceConfig.splitBy.lastIndexOf('.') + 1);
+    LOG.info("Bounding Query {} does not contain '$CONDITIONS'. Computing the bounds of {} from the import query.",
+             boundingQuery, splitBy);
+    return String.format("SELECT MIN(%s), MAX(%s) FROM (%s) bounding_query", splitBy, splitBy,
+                         importQuery.replace("$CONDITIONS", condition));
+  }
+
+  /**
+   * Returns the SQL literal for a value of the result set, or null if the value is null. Dates and times are
+   * written with the JDBC escape syntax, which the driver translates into a literal of its database, so that
+   * they don't depend on implicit casts from strings.
+   *
+   * @throws IllegalArgumentException if the type of the value is not supported for incremental reads
+   */
+  @VisibleForTesting
+  @Nullable
+  static String toLiteral(ResultSet resultSet, int index) throws SQLException {
+    int type = resultSet.getMetaData().getColumnType(index);
+    switch (type) {
+      case Types.DATE:
+        Date date = resultSet.getDate(index);
+        return date == null ? null : String.format("{d '%s'}", date);
+      case Types.TIME:
+        Time time = resultSet.getTime(index);
+        return time == null ? null : String.format("{t '%s'}", time);
+      case Types.TIMESTAMP:
+        Timestamp timestamp = resultSet.getTimestamp(index);
+        return timestamp == null ? null : String.format("{ts '%s'}", timestamp);
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        String string = resultSet.getString(index);
+        return string == null ? null : "'" + string.replace("'", "''") + "'";
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        BigDecimal number = resultSet.getBigDecimal(index);
+        return number == null ? null : number.toPlainString();
+      default:
+        throw new IllegalArgumentException(String.format(
+          "Incremental column '%s' has SQL type '%s', which is not supported. The column must have a numeric, " +
+            "character, date, time or timestamp type.",
+          resultSet.getMetaData().getColumnName(index), resultSet.getMetaData().getColumnTypeName(index)));
+    }
+  }
+
   private String getJDBCPluginId() {
     return String.format("%s.%s.%s", "source", sourceConfig.jdbcPluginType, sourceConfig.jdbcPluginName);
   }
@@ -268,6 +415,10 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     public static final String PATTERN_TO_REPLACE = "patternToReplace";
     public static final String REPLACE_WITH = "replaceWith";
     public static final String FETCH_SIZE = "fetchSize";
+    public static final String INCREMENTAL_COLUMN = "incrementalColumn";
+    public static final String STATE_TABLE_NAME = "stateTableName";
+    public static final String SPLIT_STRATEGY = "splitStrategy";
+    public static final String READERS_PER_SPLIT = "readersPerSplit";
 
     @Name(IMPORT_QUERY)
     @Description("The SELECT query to use to import data from the specified table. " +
@@ -335,6 +486,49 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
                   "with the tradeoff of higher memory usage.")
     Integer fetchSize;
 
+    @Nullable
+    @Name(SPLIT_STRATEGY)
+    @Macro
+    @Description("How the range of the split-by field is divided into splits, either 'uniform' or 'quantile'. " +
+      "Uniform splits cover ranges of equal width between the values returned by the bounding query. Quantile " +
+      "splits cover about the same number of rows each, which balances the splits if the values are skewed. " +
+      "Computing them scans and sorts the split-by field of all the rows of the import query, which can take about " +
+      "as long as reading a large table, so they should only be used if the values are skewed enough to be worth " +
+      "it. Quantile splits are only supported for numeric, date, time and timestamp fields. Defaults to 'uniform'.")
+    String splitStrategy;
+
+    @Nullable
+    @Name(READERS_PER_SPLIT)
+    @Macro
+    @Description("The number of connections each split is read with. If greater than one, each split is divided " +
+      "into that many ranges of the split-by field, which are read concurrently by the task that reads the split. " +
+      "This increases the read throughput when there are fewer tasks than the database can serve concurrent " +
+      "queries, at the cost of a query for the range of each split. Requires the split-by field and the " +
+      "'$CONDITIONS' string in the import query, even if numSplits is set to one. Defaults to 1.")
+    Integer readersPerSplit;
+
+    @Nullable
+    @Name(INCREMENTAL_COLUMN)
+    @Macro
+    @Description("Column with monotonically increasing values, such as an id or a last update time, used to only " +
+      "read the rows added or updated since the last successful run. Each run reads the rows with a value above " +
+      "the high-water mark of the last successful run and at most the maximum value when the run starts, which " +
+      "becomes the new high-water mark once the run succeeds. The first run reads all the rows up to the maximum. " +
+      "The column must be one of the columns selected by the import query, and must have a numeric, character, " +
+      "date, time or timestamp type.")
+    String incrementalColumn;
+
+    @Nullable
+    @Name(STATE_TABLE_NAME)
+    @Macro
+    @Description("Name of the dataset that stores the high-water mark of the incremental column, keyed by the " +
+      "reference name. The dataset is created if it does not exist. Required if the incremental column is set.")
+    String stateTableName;
+
+    private boolean isIncremental() {
+      return !Strings.isNullOrEmpty(incrementalColumn);
+    }
+
     @Nullable
     private String getImportQuery() {
       return cleanQuery(importQuery);
@@ -386,6 +580,50 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
           .withConfigProperty(REPLACE_WITH).withConfigProperty(PATTERN_TO_REPLACE);
       }
 
+      if (!containsMacro(SPLIT_STRATEGY) && splitStrategy != null &&
+        !DataDrivenETLDBInputFormat.SPLIT_STRATEGY_UNIFORM.equalsIgnoreCase(splitStrategy) &&
+        !DataDrivenETLDBInputFormat.SPLIT_STRATEGY_QUANTILE.equalsIgnoreCase(splitStrategy)) {
+        collector.addFailure(String.format("Invalid split strategy '%s'.", splitStrategy),
+                             String.format("Split strategy must be '%s' or '%s'.",
+                                           DataDrivenETLDBInputFormat.SPLIT_STRATEGY_UNIFORM,
+                                           DataDrivenETLDBInputFormat.SPLIT_STRATEGY_QUANTILE))
+          .withConfigProperty(SPLIT_STRATEGY);
+      }
+
+      if (!containsMacro(READERS_PER_SPLIT) && readersPerSplit != null) {
+        if (readersPerSplit < 1) {
+          collector.addFailure("Invalid number of readers per split.",
+                               "Number of readers per split must be a positive integer.")
+            .withConfigProperty(READERS_PER_SPLIT);
+        } else if (readersPerSplit > 1 && hasOneSplit) {
+          // these are already required if there is more than one split
+          if (!containsMacro(SPLIT_BY) && Strings.isNullOrEmpty(splitBy)) {
+            collector.addFailure("Split-By Field Name must be specified to read a split with several readers.",
+                                 null).withConfigProperty(SPLIT_BY).withConfigProperty(READERS_PER_SPLIT);
+          }
+          if (!containsMacro(IMPORT_QUERY) && !Strings.isNullOrEmpty(importQuery) &&
+            !getImportQuery().contains("$CONDITIONS")) {
+            collector.addFailure("Invalid Import Query.", String.format(
+              "Import Query %s must contain the string '$CONDITIONS' to read a split with several readers.",
+              importQuery))
+              .withConfigProperty(IMPORT_QUERY).withConfigProperty(READERS_PER_SPLIT);
+          }
+        }
+      }
+
+      if (!containsMacro(INCREMENTAL_COLUMN) && isIncremental()) {
+        if (!containsMacro(STATE_TABLE_NAME) && Strings.isNullOrEmpty(stateTableName)) {
+          collector.addFailure("State Table Name must be specified for incremental reads.", null)
+            .withConfigProperty(STATE_TABLE_NAME).withConfigProperty(INCREMENTAL_COLUMN);
+        }
+        if (!containsMacro(IMPORT_QUERY) && !Strings.isNullOrEmpty(importQuery) &&
+          !getImportQuery().contains("$CONDITIONS")) {
+          collector.addFailure("Invalid Import Query.", String.format(
+            "Import Query %s must contain the string '$CONDITIONS' for incremental reads.", importQuery))
+            .withConfigProperty(IMPORT_QUERY).withConfigProperty(INCREMENTAL_COLUMN);
+        }
+      }
+
       if (!containsMacro(FETCH_SIZE) && fetchSize != null && fetchSize <= 0) {
         collector.addFailure("Invalid fetch size.", "Fetch size must be a positive integer.")
           .withConfigProperty(FETCH_SIZE);
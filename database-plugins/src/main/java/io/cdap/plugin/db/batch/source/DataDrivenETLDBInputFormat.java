@@ -16,18 +16,22 @@
 
 package io.cdap.plugin.db.batch.source;
 
+import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
-import io.cdap.plugin.ConnectionConfig;
+import io.cdap.plugin.DBRecord;
 import io.cdap.plugin.DBUtils;
-import io.cdap.plugin.JDBCDriverShim;
+import io.cdap.plugin.db.batch.ConnectionPool;
 import io.cdap.plugin.db.batch.NoOpCommitConnection;
 import io.cdap.plugin.db.batch.TransactionIsolationLevel;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
 import org.apache.hadoop.mapreduce.lib.db.DBInputFormat;
+import org.apache.hadoop.mapreduce.lib.db.DBSplitter;
 import org.apache.hadoop.mapreduce.lib.db.DBWritable;
 import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
 import org.slf4j.Logger;
@@ -35,20 +39,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.Driver;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Class that extends {@link DBInputFormat} to load the database driver class correctly.
  */
 public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
   public static final String AUTO_COMMIT_ENABLED = "io.cdap.hydrator.db.autocommit.enabled";
+  public static final String SPLIT_STRATEGY = "io.cdap.hydrator.db.split.strategy";
+  public static final String SPLIT_STRATEGY_UNIFORM = "uniform";
+  public static final String SPLIT_STRATEGY_QUANTILE = "quantile";
+  public static final String READERS_PER_SPLIT = "io.cdap.hydrator.db.split.readers";
 
   private static final Logger LOG = LoggerFactory.getLogger(DataDrivenETLDBInputFormat.class);
-  private Driver driver;
-  private JDBCDriverShim driverShim;
 
   static void setInput(Configuration conf,
                        Class<? extends DBWritable> inputClass,
@@ -67,36 +75,15 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
     if (this.connection == null) {
       Configuration conf = getConf();
       try {
-        String url = conf.get(DBConfiguration.URL_PROPERTY);
-        try {
-          // throws SQLException if no suitable driver is found
-          DriverManager.getDriver(url);
-        } catch (SQLException e) {
-          if (driverShim == null) {
-            if (driver == null) {
-              ClassLoader classLoader = conf.getClassLoader();
-              @SuppressWarnings("unchecked")
-              Class<? extends Driver> driverClass =
-                (Class<? extends Driver>) classLoader.loadClass(conf.get(DBConfiguration.DRIVER_CLASS_PROPERTY));
-              driver = driverClass.newInstance();
-
-              // De-register the default driver that gets registered when driver class is loaded.
-              DBUtils.deregisterAllDrivers(driverClass);
-            }
-            driverShim = new JDBCDriverShim(driver);
-            DriverManager.registerDriver(driverShim);
-            LOG.debug("Registered JDBC driver via shim {}. Actual Driver {}.", driverShim, driver);
-          }
-        }
-
-        Properties properties =
-          ConnectionConfig.getConnectionArguments(conf.get(DBUtils.CONNECTION_ARGUMENTS),
-                                                  conf.get(DBConfiguration.USERNAME_PROPERTY),
-                                                  conf.get(DBConfiguration.PASSWORD_PROPERTY));
-        connection = DriverManager.getConnection(url, properties);
+        // closing the connection returns it to the pool, so that the next split read in this JVM can reuse it
+        connection = ConnectionPool.get(conf).getConnection();
 
         boolean autoCommitEnabled = conf.getBoolean(AUTO_COMMIT_ENABLED, false);
         if (autoCommitEnabled) {
+          // a pooled connection may have been used without auto-commit by another stage
+          if (!this.connection.getAutoCommit()) {
+            this.connection.setAutoCommit(true);
+          }
           // hack to work around jdbc drivers like the hive driver that throw exceptions on commit
           this.connection = new NoOpCommitConnection(this.connection);
         } else {
@@ -117,6 +104,17 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
     return this.connection;
   }
 
+  @Override
+  protected DBSplitter getSplitter(int sqlDataType) {
+    DBSplitter splitter = super.getSplitter(sqlDataType);
+    Configuration conf = getConf();
+    if (SPLIT_STRATEGY_QUANTILE.equalsIgnoreCase(conf.get(SPLIT_STRATEGY)) &&
+      QuantileSplitter.isSupported(sqlDataType)) {
+      return new QuantileSplitter(getConnection(), conf.get(DBConfiguration.INPUT_QUERY), sqlDataType, splitter);
+    }
+    return splitter;
+  }
+
   // versions > HDP-2.3.4 started using createConnection instead of getConnection,
   // this is added for compatibility, more information at (HYDRATOR-791)
   public Connection createConnection() {
@@ -124,7 +122,107 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   protected RecordReader createDBRecordReader(DBInputSplit split, Configuration conf) throws IOException {
+    int numReaders = conf.getInt(READERS_PER_SPLIT, 1);
+    List<DBInputSplit> subSplits = numReaders > 1 ? getSubSplits(split, numReaders) : Collections.emptyList();
+    if (subSplits.size() <= 1) {
+      return createSplitRecordReader(split, conf);
+    }
+
+    // the first sub-range is read with the connection of this input format, and the others with connections of
+    // their own, which are closed by their record readers
+    List<RecordReader<LongWritable, DBRecord>> readers = new ArrayList<>();
+    try {
+      readers.add(createSplitRecordReader(subSplits.get(0), conf));
+      for (DBInputSplit subSplit : subSplits.subList(1, subSplits.size())) {
+        DataDrivenETLDBInputFormat format = new DataDrivenETLDBInputFormat();
+        format.setConf(conf);
+        try {
+          readers.add(format.createSplitRecordReader(subSplit, conf));
+        } catch (IOException | RuntimeException e) {
+          format.closeConnection();
+          throw e;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      for (RecordReader<LongWritable, DBRecord> reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException ex) {
+          e.addSuppressed(ex);
+        }
+      }
+      throw e;
+    }
+    LOG.debug("Reading split {} in {} sub-ranges.", split, subSplits.size());
+    return new ParallelDBRecordReader(readers, subSplits);
+  }
+
+  /**
+   * Divides a split into sub-ranges of the split-by column. The sub-ranges are computed with the splitter for the
+   * type of the column, from the minimum and maximum values of the column in the split. None of the sub-ranges
+   * contain the rows where the column is NULL, so if the clauses of the split don't restrict the column, as with the
+   * '1=1' split of a single split read, those rows are read by an additional 'IS NULL' sub-split.
+   *
+   * @return the sub-ranges, or a single split if the split cannot be divided
+   */
+  private List<DBInputSplit> getSubSplits(DBInputSplit split, int numReaders) throws IOException {
+    DBConfiguration dbConf = getDBConf();
+    String splitBy = dbConf.getInputOrderBy();
+    String inputQuery = dbConf.getInputQuery();
+    if (!(split instanceof DataDrivenDBInputSplit) || Strings.isNullOrEmpty(splitBy) || inputQuery == null ||
+      !inputQuery.contains(SUBSTITUTE_TOKEN)) {
+      LOG.debug("Split {} cannot be divided without a split-by column and an import query with {}.",
+                split, SUBSTITUTE_TOKEN);
+      return Collections.singletonList(split);
+    }
+
+    DataDrivenDBInputSplit dataSplit = (DataDrivenDBInputSplit) split;
+    // the column is selected from the import query, in which it is not qualified with the table name
+    String column = splitBy.substring(splitBy.lastIndexOf('.') + 1);
+    String conditions = String.format("( %s ) AND ( %s )", dataSplit.getLowerClause(), dataSplit.getUpperClause());
+    String query = String.format("SELECT MIN(%s), MAX(%s) FROM (%s) sub_split_bounds", column, column,
+                                 inputQuery.replace(SUBSTITUTE_TOKEN, conditions));
+    Connection connection = getConnection();
+    try {
+      List<DBInputSplit> subSplits = new ArrayList<>();
+      try (Statement statement = connection.createStatement();
+           ResultSet results = statement.executeQuery(query)) {
+        results.next();
+        DBSplitter splitter = super.getSplitter(results.getMetaData().getColumnType(1));
+        // if the column is NULL in every row of the split, there are no ranges to divide the split into
+        if (splitter == null || results.getObject(1) == null) {
+          return Collections.singletonList(split);
+        }
+        Configuration subConf = new Configuration(getConf());
+        subConf.setInt(MRJobConfig.NUM_MAPS, numReaders);
+        for (InputSplit inputSplit : splitter.split(subConf, results, splitBy)) {
+          DataDrivenDBInputSplit subSplit = (DataDrivenDBInputSplit) inputSplit;
+          // the sub-ranges are also limited to the split, in case the splitter rounds their boundaries
+          subSplits.add(new DataDrivenDBInputSplit(
+            String.format("( %s ) AND ( %s )", dataSplit.getLowerClause(), subSplit.getLowerClause()),
+            String.format("( %s ) AND ( %s )", dataSplit.getUpperClause(), subSplit.getUpperClause())));
+        }
+        if (!dataSplit.getLowerClause().contains(splitBy) && !dataSplit.getUpperClause().contains(splitBy)) {
+          String isNull = splitBy + " IS NULL";
+          subSplits.add(new DataDrivenDBInputSplit(
+            String.format("( %s ) AND ( %s )", dataSplit.getLowerClause(), isNull),
+            String.format("( %s ) AND ( %s )", dataSplit.getUpperClause(), isNull)));
+        }
+      }
+      // end the transaction of the query, so the first sub-range is read in a new one
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+      return subSplits;
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to compute the sub-ranges of split %s with query '%s'.",
+                                          split, query), e);
+    }
+  }
+
+  private RecordReader createSplitRecordReader(DBInputSplit split, Configuration conf) throws IOException {
     final RecordReader dbRecordReader = super.createDBRecordReader(split, conf);
     return new RecordReader() {
       @Override
@@ -155,22 +253,7 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
       @Override
       public void close() throws IOException {
         dbRecordReader.close();
-        try {
-          DriverManager.deregisterDriver(driverShim);
-        } catch (SQLException e) {
-          throw new IOException(e);
-        }
       }
     };
   }
-
-  @Override
-  protected void closeConnection() {
-    super.closeConnection();
-    try {
-      DriverManager.deregisterDriver(driverShim);
-    } catch (SQLException e) {
-      throw Throwables.propagate(e);
-    }
-  }
 }
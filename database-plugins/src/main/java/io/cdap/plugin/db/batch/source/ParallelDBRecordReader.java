@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.source;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecordReader} that reads the sub-ranges of a split concurrently, each with its own record reader and
+ * connection, and returns the records in the order they are read.
+ *
+ * Each sub-range is read by a thread that puts the records in a bounded queue, so that at most
+ * {@link #QUEUE_CAPACITY_PER_READER} records per sub-range are kept in memory if the records are processed more
+ * slowly than they are read.
+ */
+final class ParallelDBRecordReader extends RecordReader<LongWritable, DBRecord> {
+  static final int QUEUE_CAPACITY_PER_READER = 1000;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelDBRecordReader.class);
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+  // put in the queue by a thread once its sub-range has been read
+  private static final Object END = new Object();
+
+  private final List<RecordReader<LongWritable, DBRecord>> readers;
+  private final List<? extends InputSplit> splits;
+  // records read by the threads, the exceptions they failed with and END markers
+  private final BlockingQueue<Object> queue;
+  private final LongWritable key;
+  private ExecutorService executor;
+  private volatile boolean closed;
+  private int remaining;
+  private long pos;
+  private DBRecord value;
+
+  ParallelDBRecordReader(List<RecordReader<LongWritable, DBRecord>> readers, List<? extends InputSplit> splits) {
+    this.readers = readers;
+    this.splits = splits;
+    this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_READER * readers.size());
+    this.key = new LongWritable();
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+    for (int i = 0; i < readers.size(); i++) {
+      readers.get(i).initialize(splits.get(i), context);
+    }
+    remaining = readers.size();
+    executor = Executors.newFixedThreadPool(
+      readers.size(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("db-split-reader-%d").build());
+    for (RecordReader<LongWritable, DBRecord> reader : readers) {
+      executor.execute(() -> read(reader));
+    }
+    // the threads terminate once their sub-ranges have been read
+    executor.shutdown();
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    while (remaining > 0) {
+      Object item = queue.take();
+      if (item == END) {
+        remaining--;
+      } else if (item instanceof Exception) {
+        throw new IOException("Failed to read a sub-range of the split.", (Exception) item);
+      } else {
+        key.set(pos++);
+        value = new DBRecord((StructuredRecord) item);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public DBRecord getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() {
+    return (readers.size() - remaining) / (float) readers.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    if (executor != null) {
+      // interrupts the threads that are waiting for space in the queue
+      executor.shutdownNow();
+      try {
+        if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+          LOG.warn("Sub-ranges of the split are still being read after {} seconds. Closing their connections.",
+                   CLOSE_TIMEOUT_SECONDS);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    IOException failure = null;
+    for (RecordReader<LongWritable, DBRecord> reader : readers) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void read(RecordReader<LongWritable, DBRecord> reader) {
+    try {
+      while (!closed && reader.nextKeyValue()) {
+        // the reader reuses its value, but the record is created for each row
+        queue.put(reader.getCurrentValue().getRecord());
+      }
+      queue.put(END);
+    } catch (InterruptedException e) {
+      // the record reader has been closed
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      try {
+        queue.put(e);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
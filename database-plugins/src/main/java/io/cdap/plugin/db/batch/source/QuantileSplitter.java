@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.source;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.lib.db.DBSplitter;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DBSplitter} that places the split boundaries at quantiles of the split-by column, so that each split reads
+ * about the same number of rows even if the values are not evenly distributed between the minimum and maximum.
+ *
+ * The quantiles are computed by the database with the NTILE window function. If the database doesn't support it,
+ * the values of the column are sampled instead, which reads the column of all the rows of the import query.
+ * Either way, computing the splits scans the whole import query, and NTILE also sorts it, so on large tables
+ * planning can take about as long as reading. This is why the strategy is opt-in. The time it took is logged, as a
+ * warning if it took longer than a minute.
+ * Splits use the same conditions as the uniform splitters, so rows with a null split-by value are only read if the
+ * minimum or maximum is null, in which case the uniform splitter is used.
+ */
+class QuantileSplitter implements DBSplitter {
+  // number of values kept when sampling the column, which bounds the memory used to compute the quantiles
+  static final int SAMPLE_SIZE = 10000;
+  // planning time above which computing the quantiles is logged as a warning
+  private static final long SLOW_PLANNING_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private static final Logger LOG = LoggerFactory.getLogger(QuantileSplitter.class);
+  // values are read as BigDecimal, Date, Time or Timestamp, which are all comparable to values of the same type
+  @SuppressWarnings("unchecked")
+  private static final Comparator<Object> ORDER = (a, b) -> ((Comparable<Object>) a).compareTo(b);
+
+  private final Connection connection;
+  private final String importQuery;
+  private final int sqlDataType;
+  private final DBSplitter uniformSplitter;
+
+  QuantileSplitter(Connection connection, String importQuery, int sqlDataType, DBSplitter uniformSplitter) {
+    this.connection = connection;
+    this.importQuery = importQuery;
+    this.sqlDataType = sqlDataType;
+    this.uniformSplitter = uniformSplitter;
+  }
+
+  /**
+   * Returns whether quantile boundaries can be computed for columns of the given SQL type.
+   */
+  static boolean isSupported(int sqlDataType) {
+    switch (sqlDataType) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+      case Types.DATE:
+      case Types.TIME:
+      case Types.TIMESTAMP:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public List<InputSplit> split(Configuration conf, ResultSet results, String colName) throws SQLException {
+    Object minValue = getValue(results, 1);
+    Object maxValue = getValue(results, 2);
+    if (minValue == null || maxValue == null) {
+      return uniformSplitter.split(conf, results, colName);
+    }
+
+    int numSplits = conf.getInt(MRJobConfig.NUM_MAPS, 1);
+    long start = System.nanoTime();
+    List<Object> quantiles = getQuantiles(colName, numSplits);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    if (elapsedMillis > SLOW_PLANNING_MILLIS) {
+      LOG.warn("Computing the quantiles of column {} scanned all the rows of the import query and took {} ms. " +
+                 "Use the uniform split strategy if this is longer than the imbalance of uniform splits costs.",
+               colName, elapsedMillis);
+    } else {
+      LOG.info("Computed the quantiles of column {} in {} ms.", colName, elapsedMillis);
+    }
+    // split points are the distinct quantiles strictly between the minimum and the maximum
+    List<Object> points = new ArrayList<>();
+    points.add(minValue);
+    for (Object quantile : quantiles) {
+      if (ORDER.compare(quantile, points.get(points.size() - 1)) > 0 && ORDER.compare(quantile, maxValue) < 0) {
+        points.add(quantile);
+      }
+    }
+
+    List<InputSplit> splits = new ArrayList<>();
+    for (int i = 0; i < points.size(); i++) {
+      String lowerClause = String.format("%s >= %s", colName, toLiteral(points.get(i)));
+      String upperClause = i == points.size() - 1 ?
+        String.format("%s <= %s", colName, toLiteral(maxValue)) :
+        String.format("%s < %s", colName, toLiteral(points.get(i + 1)));
+      splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(lowerClause, upperClause));
+    }
+    LOG.debug("Generated {} splits on column {} from {} quantiles.", splits.size(), colName, quantiles.size());
+    return splits;
+  }
+
+  /**
+   * Returns the sorted lower bounds of the given number of buckets with equal numbers of rows.
+   */
+  private List<Object> getQuantiles(String colName, int numSplits) throws SQLException {
+    // the column is selected from the import query, in which it is not qualified with the table name
+    String column = colName.substring(colName.lastIndexOf('.') + 1);
+    String query = String.format("(%s) split_query", importQuery.replace("$CONDITIONS", "(1 = 1)"));
+
+    String ntileQuery = String.format(
+      "SELECT MIN(split_value) FROM (SELECT %s AS split_value, NTILE(%d) OVER (ORDER BY %s) AS split_bucket " +
+        "FROM %s WHERE %s IS NOT NULL) split_buckets GROUP BY split_bucket",
+      column, numSplits, column, query, column);
+    List<Object> quantiles = new ArrayList<>();
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(ntileQuery)) {
+      while (resultSet.next()) {
+        quantiles.add(getValue(resultSet, 1));
+      }
+      quantiles.sort(ORDER);
+      return quantiles;
+    } catch (SQLException e) {
+      LOG.debug("Unable to compute quantiles with query '{}'. Sampling the values of column {} instead.",
+                ntileQuery, column, e);
+      // some databases abort the transaction after an error
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+      }
+    }
+
+    List<Object> sample = sample(String.format("SELECT %s FROM %s WHERE %s IS NOT NULL", column, query, column));
+    sample.sort(ORDER);
+    for (int i = 0; i < numSplits && !sample.isEmpty(); i++) {
+      quantiles.add(sample.get(i * sample.size() / numSplits));
+    }
+    return quantiles;
+  }
+
+  /**
+   * Returns a uniform random sample of the values returned by the query, using reservoir sampling.
+   */
+  private List<Object> sample(String query) throws SQLException {
+    List<Object> sample = new ArrayList<>();
+    Random random = new Random(0);
+    long count = 0;
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(query)) {
+      while (resultSet.next()) {
+        count++;
+        if (sample.size() < SAMPLE_SIZE) {
+          sample.add(getValue(resultSet, 1));
+        } else {
+          long index = (long) (random.nextDouble() * count);
+          if (index < SAMPLE_SIZE) {
+            sample.set((int) index, getValue(resultSet, 1));
+          }
+        }
+      }
+    }
+    LOG.debug("Sampled {} of {} values with query '{}'.", sample.size(), count, query);
+    return sample;
+  }
+
+  private Object getValue(ResultSet resultSet, int index) throws SQLException {
+    switch (sqlDataType) {
+      case Types.DATE:
+        return resultSet.getDate(index);
+      case Types.TIME:
+        return resultSet.getTime(index);
+      case Types.TIMESTAMP:
+        return resultSet.getTimestamp(index);
+      default:
+        return resultSet.getBigDecimal(index);
+    }
+  }
+
+  /**
+   * Returns the SQL literal for a value, formatted like the boundaries of the uniform splitters.
+   */
+  private String toLiteral(Object value) {
+    switch (sqlDataType) {
+      case Types.DATE:
+      case Types.TIME:
+      case Types.TIMESTAMP:
+        return "'" + value + "'";
+      default:
+        return ((BigDecimal) value).toPlainString();
+    }
+  }
+}
@@ -18,18 +18,32 @@ package io.cdap.plugin;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.hsqldb.jdbc.JDBCDriver;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Properties;
 import javax.sql.rowset.serial.SerialBlob;
 
 public class DBRecordTest {
@@ -123,4 +137,98 @@ public class DBRecordTest {
     Mockito.verify(statement, Mockito.times(1)).setBoolean(12, expectedBoolean);
     Mockito.verify(statement, Mockito.times(1)).setNull(13, Types.VARCHAR);
   }
+
+  @Test
+  public void testDBRecordRead() throws Exception {
+    Configuration conf = new Configuration();
+    conf.set(DBUtils.PATTERN_TO_REPLACE, "_");
+    conf.set(DBUtils.REPLACE_WITH, "");
+
+    try (Connection conn = new JDBCDriver().connect("jdbc:hsqldb:mem:dbrecordtest", new Properties());
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE READ_TEST (ID INTEGER NOT NULL, USER_NAME VARCHAR(20), " +
+                     "SCORE DECIMAL(10, 2), CREATED DATE, SMALL SMALLINT)");
+      stmt.execute("INSERT INTO READ_TEST VALUES (1, 'alice', 12.50, '2020-01-02', 7)");
+      stmt.execute("INSERT INTO READ_TEST VALUES (2, NULL, NULL, NULL, NULL)");
+
+      try (ResultSet resultSet = stmt.executeQuery("SELECT * FROM READ_TEST ORDER BY ID")) {
+        DBRecord dbRecord = new DBRecord();
+        dbRecord.setConf(conf);
+
+        Assert.assertTrue(resultSet.next());
+        dbRecord.readFields(resultSet);
+        StructuredRecord first = dbRecord.getRecord();
+        Assert.assertEquals(1, (int) first.get("ID"));
+        Assert.assertEquals("alice", first.get("USERNAME"));
+        Assert.assertEquals(new BigDecimal("12.50"), first.getDecimal("SCORE"));
+        Assert.assertEquals(LocalDate.of(2020, 1, 2), first.getDate("CREATED"));
+        Assert.assertEquals(7, (int) first.get("SMALL"));
+
+        Assert.assertTrue(resultSet.next());
+        dbRecord.readFields(resultSet);
+        StructuredRecord second = dbRecord.getRecord();
+        // the schema is only computed once for the result set
+        Assert.assertSame(first.getSchema(), second.getSchema());
+        Assert.assertEquals(2, (int) second.get("ID"));
+        Assert.assertNull(second.get("USERNAME"));
+        Assert.assertNull(second.get("SCORE"));
+        Assert.assertNull(second.get("CREATED"));
+        Assert.assertNull(second.get("SMALL"));
+      }
+    }
+  }
+
+  @Test
+  public void testDBRecordWriteWithPlan() throws Exception {
+    Schema schema = Schema.recordOf(
+      "foo",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("score", Schema.decimalOf(4, 2)),
+      Schema.Field.of("created", Schema.of(Schema.LogicalType.DATE)));
+    DBWritePlan plan = DBWritePlan.create(schema, new int[]{Types.SMALLINT, Types.VARCHAR, Types.DECIMAL,
+      Types.DATE});
+
+    StructuredRecord first = StructuredRecord.builder(schema)
+      .set("id", 1)
+      .set("name", "alice")
+      .setDecimal("score", new BigDecimal("12.50"))
+      .setDate("created", LocalDate.of(2020, 1, 2))
+      .build();
+    StructuredRecord second = StructuredRecord.builder(schema)
+      .set("id", 2)
+      .setDecimal("score", new BigDecimal("-0.25"))
+      .setDate("created", LocalDate.of(1969, 12, 31))
+      .build();
+
+    PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+    new DBRecord(first, plan).write(statement);
+    Mockito.verify(statement).setShort(1, (short) 1);
+    Mockito.verify(statement).setString(2, "alice");
+    Mockito.verify(statement).setBigDecimal(3, new BigDecimal("12.50"));
+    Mockito.verify(statement).setDate(4, Date.valueOf(LocalDate.of(2020, 1, 2)));
+
+    // the same plan writes the parameters of the next record after the ones of the first record
+    new DBRecord(second, plan).write(statement, 4);
+    Mockito.verify(statement).setShort(5, (short) 2);
+    Mockito.verify(statement).setNull(6, Types.VARCHAR);
+    Mockito.verify(statement).setBigDecimal(7, new BigDecimal("-0.25"));
+    Mockito.verify(statement).setDate(8, Date.valueOf(LocalDate.of(1969, 12, 31)));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new DBRecord(second, plan).write(new DataOutputStream(bytes));
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    // null fields are skipped
+    Assert.assertEquals(2, in.readInt());
+    byte[] unscaled = new BigDecimal("-0.25").unscaledValue().toByteArray();
+    Assert.assertArrayEquals(unscaled, readBytes(in, unscaled.length));
+    Assert.assertEquals(LocalDate.of(1969, 12, 31).toEpochDay(), in.readInt());
+    Assert.assertEquals(-1, in.read());
+  }
+
+  private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
 }
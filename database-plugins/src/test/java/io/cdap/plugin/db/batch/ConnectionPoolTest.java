@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ConnectionPool}.
+ */
+public class ConnectionPoolTest {
+
+  @Test
+  public void testConnectionReuse() throws SQLException {
+    ConnectionPool pool = ConnectionPool.get(getConf("reuse", 2));
+    Assert.assertSame(pool, ConnectionPool.get(getConf("reuse", 2)));
+
+    Connection connection = pool.getConnection();
+    JDBCConnection physical = connection.unwrap(JDBCConnection.class);
+    connection.close();
+    Assert.assertTrue(connection.isClosed());
+    Assert.assertFalse(physical.isClosed());
+    Assert.assertEquals(1, pool.getIdleCount());
+
+    try (Connection reused = pool.getConnection()) {
+      Assert.assertSame(physical, reused.unwrap(JDBCConnection.class));
+      Assert.assertEquals(0, pool.getIdleCount());
+    }
+  }
+
+  @Test
+  public void testUncommittedChangesRolledBack() throws SQLException {
+    ConnectionPool pool = ConnectionPool.get(getConf("rollback", 2));
+    try (Connection connection = pool.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE ROLLBACK_TEST (ID INT)");
+    }
+    try (Connection connection = pool.getConnection();
+         Statement statement = connection.createStatement()) {
+      connection.setAutoCommit(false);
+      statement.execute("INSERT INTO ROLLBACK_TEST VALUES (1)");
+    }
+    try (Connection connection = pool.getConnection();
+         Statement statement = connection.createStatement()) {
+      connection.setAutoCommit(true);
+      Assert.assertFalse(statement.executeQuery("SELECT ID FROM ROLLBACK_TEST").next());
+    }
+  }
+
+  @Test
+  public void testSessionSettingsRestored() throws SQLException {
+    ConnectionPool pool = ConnectionPool.get(getConf("session", 2));
+    boolean autoCommit;
+    boolean readOnly;
+    int isolation;
+    try (Connection connection = pool.getConnection()) {
+      autoCommit = connection.getAutoCommit();
+      readOnly = connection.isReadOnly();
+      isolation = connection.getTransactionIsolation();
+      connection.setAutoCommit(!autoCommit);
+      connection.setReadOnly(!readOnly);
+      connection.setTransactionIsolation(isolation == Connection.TRANSACTION_SERIALIZABLE ?
+                                           Connection.TRANSACTION_READ_COMMITTED :
+                                           Connection.TRANSACTION_SERIALIZABLE);
+    }
+    try (Connection connection = pool.getConnection()) {
+      Assert.assertEquals(autoCommit, connection.getAutoCommit());
+      Assert.assertEquals(readOnly, connection.isReadOnly());
+      Assert.assertEquals(isolation, connection.getTransactionIsolation());
+    }
+  }
+
+  @Test
+  public void testReturnedConnectionCannotBeUsed() throws SQLException {
+    ConnectionPool pool = ConnectionPool.get(getConf("returned", 2));
+    Connection connection = pool.getConnection();
+    connection.close();
+    // closing it again has no effect
+    connection.close();
+    try {
+      connection.createStatement();
+      Assert.fail("Using a connection that was returned to the pool should fail.");
+    } catch (SQLException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testMaxIdle() throws SQLException {
+    ConnectionPool pool = ConnectionPool.get(getConf("maxidle", 2));
+    List<Connection> connections = new ArrayList<>();
+    List<JDBCConnection> physical = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Connection connection = pool.getConnection();
+      connections.add(connection);
+      physical.add(connection.unwrap(JDBCConnection.class));
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+    Assert.assertEquals(2, pool.getIdleCount());
+    // the connection returned once the pool was full is closed
+    Assert.assertFalse(physical.get(0).isClosed());
+    Assert.assertFalse(physical.get(1).isClosed());
+    Assert.assertTrue(physical.get(2).isClosed());
+  }
+
+  @Test
+  public void testEviction() throws SQLException {
+    ConnectionPool pool = ConnectionPool.get(getConf("eviction", 2));
+    Connection borrowed = pool.getConnection();
+    Connection connection = pool.getConnection();
+    JDBCConnection physical = connection.unwrap(JDBCConnection.class);
+    connection.close();
+
+    ConnectionPool.evictIdleConnections(System.nanoTime() + TimeUnit.HOURS.toNanos(1));
+    Assert.assertEquals(0, pool.getIdleCount());
+    Assert.assertTrue(physical.isClosed());
+    // the pool is kept while a connection is borrowed
+    Assert.assertSame(pool, ConnectionPool.get(getConf("eviction", 2)));
+
+    borrowed.close();
+    ConnectionPool.evictIdleConnections(System.nanoTime() + TimeUnit.HOURS.toNanos(1));
+    Assert.assertNotSame(pool, ConnectionPool.get(getConf("eviction", 2)));
+  }
+
+  private static Configuration getConf(String database, int maxIdle) {
+    Configuration conf = new Configuration(false);
+    conf.set(DBConfiguration.DRIVER_CLASS_PROPERTY, JDBCDriver.class.getName());
+    conf.set(DBConfiguration.URL_PROPERTY, "jdbc:hsqldb:mem:connectionpooltest" + database);
+    conf.set(DBConfiguration.USERNAME_PROPERTY, "SA");
+    conf.setInt(ConnectionPool.MAX_IDLE, maxIdle);
+    return conf;
+  }
+}
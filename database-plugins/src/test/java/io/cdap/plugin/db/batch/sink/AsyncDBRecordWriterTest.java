@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import com.google.common.base.Throwables;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Tests for {@link AsyncDBRecordWriter}.
+ */
+public class AsyncDBRecordWriterTest {
+  private static final String URL = "jdbc:hsqldb:mem:asyncwritertest";
+  private static final Schema SCHEMA = Schema.recordOf("record",
+                                                       Schema.Field.of("ID", Schema.of(Schema.Type.INT)),
+                                                       Schema.Field.of("NAME", Schema.of(Schema.Type.STRING)));
+  private static final int[] COLUMN_TYPES = { Types.INTEGER, Types.VARCHAR };
+  private static final String QUERY = "INSERT INTO ASYNC_OUTPUT (ID, NAME) VALUES (?, ?)";
+
+  private final Supplier<Connection> connectionSupplier = () -> {
+    try {
+      Connection connection = getConnection();
+      connection.setAutoCommit(false);
+      return connection;
+    } catch (SQLException e) {
+      throw Throwables.propagate(e);
+    }
+  };
+
+  @Before
+  public void createTable() throws SQLException {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      // writer threads insert concurrently, which would block on table locks in the default transaction mode
+      stmt.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+      stmt.execute("DROP TABLE ASYNC_OUTPUT IF EXISTS");
+      stmt.execute("CREATE TABLE ASYNC_OUTPUT (ID INTEGER PRIMARY KEY, NAME VARCHAR(20))");
+    }
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    AsyncDBRecordWriter<DBRecord, NullWritable> writer =
+      new AsyncDBRecordWriter<>(connectionSupplier, QUERY, 2, 3, 0);
+    for (int i = 0; i < 10; i++) {
+      writer.write(record(i, "name" + i), NullWritable.get());
+    }
+    writer.close(Mockito.mock(TaskAttemptContext.class, Mockito.RETURNS_MOCKS));
+    Assert.assertEquals(10, countRows());
+  }
+
+  @Test
+  public void testFailureRollsBack() throws Exception {
+    AsyncDBRecordWriter<DBRecord, NullWritable> writer =
+      new AsyncDBRecordWriter<>(connectionSupplier, QUERY, 2, 3, 0);
+    IOException failure = null;
+    try {
+      for (int i = 0; i < 10; i++) {
+        // a name that is too long for the column fails one of the batches
+        writer.write(record(i, i == 5 ? "a name that is longer than twenty characters" : "name" + i),
+                     NullWritable.get());
+      }
+    } catch (IOException e) {
+      failure = e;
+    }
+    try {
+      writer.close(Mockito.mock(TaskAttemptContext.class, Mockito.RETURNS_MOCKS));
+    } catch (IOException e) {
+      failure = e;
+    }
+    Assert.assertNotNull("Expected the long name to fail the writer", failure);
+    Assert.assertEquals(0, countRows());
+  }
+
+  private static DBRecord record(int id, String name) {
+    return new DBRecord(StructuredRecord.builder(SCHEMA).set("ID", id).set("NAME", name).build(), COLUMN_TYPES);
+  }
+
+  private static int countRows() throws SQLException {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery("SELECT COUNT(*) FROM ASYNC_OUTPUT")) {
+      Assert.assertTrue(resultSet.next());
+      return resultSet.getInt(1);
+    }
+  }
+
+  private static Connection getConnection() throws SQLException {
+    return new JDBCDriver().connect(URL, new Properties());
+  }
+}
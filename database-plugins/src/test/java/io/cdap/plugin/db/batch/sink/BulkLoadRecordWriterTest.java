@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+
+/**
+ * Tests for {@link BulkLoadRecordWriter} and {@link DelimitedTextEncoder}.
+ */
+public class BulkLoadRecordWriterTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("ID", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("NAME", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("ACTIVE", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("DATA", Schema.nullableOf(Schema.of(Schema.Type.BYTES))));
+  private static final int[] COLUMN_TYPES = { Types.INTEGER, Types.VARCHAR, Types.BOOLEAN, Types.VARBINARY };
+
+  @Test
+  public void testEncoder() throws Exception {
+    DelimitedTextEncoder encoder = new DelimitedTextEncoder("\\\\x");
+    encoder.encode(StructuredRecord.builder(SCHEMA)
+                     .set("ID", 1)
+                     .set("NAME", "a\tb\\c\nd")
+                     .set("ACTIVE", true)
+                     .set("DATA", new byte[] { 0x01, (byte) 0xab })
+                     .build());
+    encoder.encode(StructuredRecord.builder(SCHEMA).set("ID", 2).set("ACTIVE", false).build());
+
+    String expected = "1\ta\\tb\\\\c\\nd\t1\t\\\\x01ab\n" +
+      "2\t\\N\t0\t\\N\n";
+    Assert.assertEquals(expected, new String(ByteStreams.toByteArray(encoder.getInputStream()),
+                                             StandardCharsets.UTF_8));
+    Assert.assertEquals(expected.length(), encoder.size());
+
+    encoder.reset();
+    Assert.assertEquals(0, encoder.size());
+  }
+
+  @Test
+  public void testMultiRowInsert() throws Exception {
+    String url = "jdbc:hsqldb:mem:bulkloadtest";
+    try (Connection conn = new JDBCDriver().connect(url, new Properties());
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE BULK_OUTPUT (ID INTEGER, NAME VARCHAR(20), ACTIVE BOOLEAN, DATA VARBINARY(10))");
+    }
+
+    Connection connection = new JDBCDriver().connect(url, new Properties());
+    connection.setAutoCommit(false);
+    RecordWriter<DBRecord, NullWritable> writer =
+      BulkLoadRecordWriter.create(connection, url, getClass().getClassLoader(), "BULK_OUTPUT",
+                                  new String[] { "ID", "NAME", "ACTIVE", "DATA" }, 4, 0,
+                                  Mockito.mock(TaskAttemptContext.class, Mockito.RETURNS_MOCKS));
+    Assert.assertTrue(writer instanceof MultiRowInsertRecordWriter);
+    for (int i = 0; i < 10; i++) {
+      StructuredRecord record = StructuredRecord.builder(SCHEMA)
+        .set("ID", i)
+        .set("NAME", i % 2 == 0 ? "name" + i : null)
+        .set("ACTIVE", i % 2 == 0)
+        .set("DATA", new byte[] { (byte) i })
+        .build();
+      writer.write(new DBRecord(record, COLUMN_TYPES), NullWritable.get());
+    }
+    writer.close(Mockito.mock(TaskAttemptContext.class, Mockito.RETURNS_MOCKS));
+
+    try (Connection conn = new JDBCDriver().connect(url, new Properties());
+         Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery("SELECT ID, NAME, ACTIVE, DATA FROM BULK_OUTPUT ORDER BY ID")) {
+      for (int i = 0; i < 10; i++) {
+        Assert.assertTrue(resultSet.next());
+        Assert.assertEquals(i, resultSet.getInt(1));
+        Assert.assertEquals(i % 2 == 0 ? "name" + i : null, resultSet.getString(2));
+        Assert.assertEquals(i % 2 == 0, resultSet.getBoolean(3));
+        Assert.assertArrayEquals(new byte[] { (byte) i }, resultSet.getBytes(4));
+      }
+      Assert.assertFalse(resultSet.next());
+    }
+  }
+}
@@ -131,6 +131,157 @@ public class DBSinkTestRun extends DatabasePluginTestBase {
     runETLOnce(appManager);
   }
 
+  @Test
+  public void testBatchSizeAndCommitInterval() throws Exception {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE BATCHED_OUTPUT (ID INTEGER, NAME VARCHAR(20))");
+    }
+
+    String inputDatasetName = "input-dbsinkbatchtest";
+    ETLPlugin sourceConfig = MockSource.getPlugin(inputDatasetName);
+    ETLPlugin sinkConfig = new ETLPlugin(
+      "Database",
+      BatchSink.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSink.DBSinkConfig.TABLE_NAME, "BATCHED_OUTPUT")
+        .put(DBSink.DBSinkConfig.COLUMNS, "ID, NAME")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBTestBatchedSink")
+        // the 5 input rows are written in several batches and commits, with a partial last batch
+        .put(DBSink.DBSinkConfig.BATCH_SIZE, "2")
+        .put(DBSink.DBSinkConfig.COMMIT_INTERVAL, "2")
+        .build(),
+      null
+    );
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testBatchSizeAndCommitInterval");
+
+    Schema schema = Schema.recordOf("dbRecord",
+                                    Schema.Field.of("ID", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("NAME", Schema.of(Schema.Type.STRING)));
+    List<StructuredRecord> inputRecords = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      inputRecords.add(StructuredRecord.builder(schema).set("ID", i).set("NAME", "user" + i).build());
+    }
+    DataSetManager<Table> inputManager = getDataset(inputDatasetName);
+    MockSource.writeInput(inputManager, inputRecords);
+    runETLOnce(appManager);
+
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery("SELECT COUNT(*), COUNT(DISTINCT ID) FROM BATCHED_OUTPUT")) {
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(5, resultSet.getInt(1));
+      Assert.assertEquals(5, resultSet.getInt(2));
+    }
+  }
+
+  @Test
+  public void testUpsert() throws Exception {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE UPSERT_OUTPUT (ID INTEGER PRIMARY KEY, NAME VARCHAR(20))");
+      stmt.execute("INSERT INTO UPSERT_OUTPUT VALUES (1, 'old1'), (3, 'old3')");
+    }
+
+    String inputDatasetName = "input-dbsinkupserttest";
+    ETLPlugin sourceConfig = MockSource.getPlugin(inputDatasetName);
+    ETLPlugin sinkConfig = new ETLPlugin(
+      "Database",
+      BatchSink.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSink.DBSinkConfig.TABLE_NAME, "UPSERT_OUTPUT")
+        .put(DBSink.DBSinkConfig.COLUMNS, "ID, NAME")
+        .put(DBSink.DBSinkConfig.OPERATION, DBSink.DBSinkConfig.OPERATION_UPSERT)
+        .put(DBSink.DBSinkConfig.KEY_COLUMNS, "ID")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBTestUpsert")
+        .build(),
+      null
+    );
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testUpsert");
+
+    Schema schema = Schema.recordOf("dbRecord",
+                                    Schema.Field.of("ID", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("NAME", Schema.of(Schema.Type.STRING)));
+    List<StructuredRecord> inputRecords = new ArrayList<>();
+    for (int i = 1; i <= 2; i++) {
+      inputRecords.add(StructuredRecord.builder(schema).set("ID", i).set("NAME", "new" + i).build());
+    }
+    DataSetManager<Table> inputManager = getDataset(inputDatasetName);
+    MockSource.writeInput(inputManager, inputRecords);
+    runETLOnce(appManager);
+
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      try (ResultSet resultSet = stmt.executeQuery("SELECT ID, NAME FROM UPSERT_OUTPUT ORDER BY ID")) {
+        Assert.assertTrue(resultSet.next());
+        Assert.assertEquals("new1", resultSet.getString("NAME"));
+        Assert.assertTrue(resultSet.next());
+        Assert.assertEquals("new2", resultSet.getString("NAME"));
+        Assert.assertTrue(resultSet.next());
+        Assert.assertEquals("old3", resultSet.getString("NAME"));
+        Assert.assertFalse(resultSet.next());
+      }
+      // the staging table is dropped once the rows are merged
+      try (ResultSet resultSet = conn.getMetaData().getTables(null, null, "UPSERT_OUTPUT_%", null)) {
+        Assert.assertFalse(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testUpsertWithDuplicateRows() throws Exception {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE UPSERT_DUPLICATES (ID INTEGER PRIMARY KEY, NAME VARCHAR(20))");
+      stmt.execute("INSERT INTO UPSERT_DUPLICATES VALUES (1, 'old1')");
+    }
+
+    String inputDatasetName = "input-dbsinkupsertduplicatestest";
+    ETLPlugin sourceConfig = MockSource.getPlugin(inputDatasetName);
+    ETLPlugin sinkConfig = new ETLPlugin(
+      "Database",
+      BatchSink.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSink.DBSinkConfig.TABLE_NAME, "UPSERT_DUPLICATES")
+        .put(DBSink.DBSinkConfig.COLUMNS, "ID, NAME")
+        .put(DBSink.DBSinkConfig.OPERATION, DBSink.DBSinkConfig.OPERATION_UPSERT)
+        .put(DBSink.DBSinkConfig.KEY_COLUMNS, "ID")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBTestUpsertDuplicates")
+        .build(),
+      null
+    );
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testUpsertWithDuplicateRows");
+
+    // the same rows are written twice, as they would be by a task that is retried after committing them
+    Schema schema = Schema.recordOf("dbRecord",
+                                    Schema.Field.of("ID", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("NAME", Schema.of(Schema.Type.STRING)));
+    List<StructuredRecord> inputRecords = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      inputRecords.add(StructuredRecord.builder(schema).set("ID", 1).set("NAME", "new1").build());
+      inputRecords.add(StructuredRecord.builder(schema).set("ID", 2).set("NAME", "new2").build());
+    }
+    DataSetManager<Table> inputManager = getDataset(inputDatasetName);
+    MockSource.writeInput(inputManager, inputRecords);
+    runETLOnce(appManager);
+
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery("SELECT ID, NAME FROM UPSERT_DUPLICATES ORDER BY ID")) {
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals("new1", resultSet.getString("NAME"));
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals("new2", resultSet.getString("NAME"));
+      Assert.assertFalse(resultSet.next());
+    }
+  }
+
   private void createInputData(String inputDatasetName) throws Exception {
     // add some data to the input table
     DataSetManager<Table> inputManager = getDataset(inputDatasetName);
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests for {@link MergeDialect}.
+ */
+public class MergeDialectTest {
+  private static final List<String> COLUMNS = ImmutableList.of("id", "name", "score");
+  private static final List<String> KEYS = ImmutableList.of("id");
+  private static final String SOURCE = "(SELECT id, name, score FROM (SELECT id, name, score, ROW_NUMBER() OVER " +
+    "(PARTITION BY id ORDER BY id) AS staging_row_number FROM users_stage) ranked WHERE staging_row_number = 1)";
+
+  @Test
+  public void testDialect() {
+    Assert.assertEquals(MergeDialect.POSTGRESQL, MergeDialect.of("jdbc:postgresql://localhost:5432/prod"));
+    Assert.assertEquals(MergeDialect.MYSQL, MergeDialect.of("jdbc:mysql://localhost:3306/prod"));
+    Assert.assertEquals(MergeDialect.SQLSERVER, MergeDialect.of("jdbc:sqlserver://localhost;databaseName=prod"));
+    Assert.assertEquals(MergeDialect.HSQLDB, MergeDialect.of("jdbc:hsqldb:hsql://localhost/prod"));
+    Assert.assertEquals(MergeDialect.STANDARD, MergeDialect.of("jdbc:oracle:thin:@localhost:1521:prod"));
+  }
+
+  @Test
+  public void testStagingTableName() {
+    Assert.assertEquals("users_stage", MergeDialect.getStagingTableName("users", "stage"));
+    Assert.assertEquals("prod.users_stage", MergeDialect.getStagingTableName("prod.users", "stage"));
+    Assert.assertEquals("\"USERS_stage\"", MergeDialect.getStagingTableName("\"USERS\"", "stage"));
+    Assert.assertEquals("[users_stage]", MergeDialect.getStagingTableName("[users]", "stage"));
+  }
+
+  @Test
+  public void testCreateStagingTableQuery() {
+    Assert.assertEquals("CREATE TABLE users_stage AS SELECT id, name, score FROM users WHERE 1 = 0",
+                        MergeDialect.STANDARD.getCreateStagingTableQuery("users", "users_stage", COLUMNS));
+    Assert.assertEquals("SELECT id, name, score INTO users_stage FROM users WHERE 1 = 0",
+                        MergeDialect.SQLSERVER.getCreateStagingTableQuery("users", "users_stage", COLUMNS));
+    Assert.assertEquals("CREATE TABLE users_stage AS (SELECT id, name, score FROM users) WITH NO DATA",
+                        MergeDialect.HSQLDB.getCreateStagingTableQuery("users", "users_stage", COLUMNS));
+  }
+
+  @Test
+  public void testMergeQuery() {
+    Assert.assertEquals("MERGE INTO users tgt USING " + SOURCE + " src ON (tgt.id = src.id) " +
+                          "WHEN MATCHED THEN UPDATE SET tgt.name = src.name, tgt.score = src.score " +
+                          "WHEN NOT MATCHED THEN INSERT (id, name, score) VALUES (src.id, src.name, src.score)",
+                        MergeDialect.STANDARD.getMergeQuery("users", "users_stage", COLUMNS, KEYS));
+    Assert.assertTrue(MergeDialect.SQLSERVER.getMergeQuery("users", "users_stage", COLUMNS, KEYS).endsWith(";"));
+    Assert.assertEquals("INSERT INTO users (id, name, score) SELECT id, name, score FROM " + SOURCE + " src " +
+                          "ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, score = EXCLUDED.score",
+                        MergeDialect.POSTGRESQL.getMergeQuery("users", "users_stage", COLUMNS, KEYS));
+    Assert.assertEquals("INSERT INTO users (id, name, score) SELECT id, name, score FROM users_stage " +
+                          "ON DUPLICATE KEY UPDATE name = VALUES(name), score = VALUES(score)",
+                        MergeDialect.MYSQL.getMergeQuery("users", "users_stage", COLUMNS, KEYS));
+    Assert.assertTrue(MergeDialect.HSQLDB.getMergeQuery("users", "users_stage", COLUMNS, KEYS).startsWith(
+      "MERGE INTO users tgt USING (SELECT DISTINCT id, name, score FROM users_stage) src"));
+  }
+
+  @Test
+  public void testMergeQueryWithOnlyKeyColumns() {
+    List<String> columns = ImmutableList.of("id");
+    String source = "(SELECT id FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY id ORDER BY id) " +
+      "AS staging_row_number FROM users_stage) ranked WHERE staging_row_number = 1)";
+    Assert.assertEquals("MERGE INTO users tgt USING " + source + " src ON (tgt.id = src.id) " +
+                          "WHEN NOT MATCHED THEN INSERT (id) VALUES (src.id)",
+                        MergeDialect.STANDARD.getMergeQuery("users", "users_stage", columns, KEYS));
+    Assert.assertEquals("INSERT INTO users (id) SELECT id FROM " + source + " src ON CONFLICT (id) DO NOTHING",
+                        MergeDialect.POSTGRESQL.getMergeQuery("users", "users_stage", columns, KEYS));
+    Assert.assertEquals("INSERT INTO users (id) SELECT id FROM users_stage ON DUPLICATE KEY UPDATE id = VALUES(id)",
+                        MergeDialect.MYSQL.getMergeQuery("users", "users_stage", columns, KEYS));
+  }
+}
@@ -17,19 +17,23 @@
 package io.cdap.plugin.db.batch.source;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.dataset.table.Table;
+import io.cdap.cdap.datapipeline.SmartWorkflow;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.mock.batch.MockSink;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
+import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.artifact.AppRequest;
 import io.cdap.cdap.proto.id.ApplicationId;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.test.ApplicationManager;
 import io.cdap.cdap.test.DataSetManager;
+import io.cdap.cdap.test.WorkflowManager;
 import io.cdap.plugin.ConnectionConfig;
 import io.cdap.plugin.DBConfig;
 import io.cdap.plugin.DatabasePluginTestBase;
@@ -40,7 +44,9 @@ import org.junit.Test;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.nio.ByteBuffer;
+import java.sql.Connection;
 import java.sql.Date;
+import java.sql.Statement;
 import java.sql.Time;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -49,8 +55,11 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test for ETL using databases.
@@ -184,6 +193,175 @@ public class DBSourceTestRun extends DatabasePluginTestBase {
     Assert.assertEquals(CLOB_DATA, row2.get("CLOB_COL"));
   }
 
+  @Test
+  public void testIncrementalRead() throws Exception {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE INCREMENTAL (ID INTEGER, NAME VARCHAR(20))");
+      stmt.execute("INSERT INTO INCREMENTAL VALUES (1, 'user1'), (2, 'user2'), (3, 'user3')");
+    }
+    ETLPlugin sourceConfig = new ETLPlugin(
+      "Database",
+      BatchSource.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSource.DBSourceConfig.IMPORT_QUERY, "SELECT ID, NAME FROM INCREMENTAL WHERE $CONDITIONS")
+        .put(DBSource.DBSourceConfig.BOUNDING_QUERY, "SELECT MIN(ID), MAX(ID) FROM INCREMENTAL WHERE $CONDITIONS")
+        .put(DBSource.DBSourceConfig.SPLIT_BY, "ID")
+        .put(DBSource.DBSourceConfig.INCREMENTAL_COLUMN, "ID")
+        .put(DBSource.DBSourceConfig.STATE_TABLE_NAME, "incrementalState")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBIncrementalTest")
+        .build(),
+      null
+    );
+    String outputDatasetName = "output-incrementaltest";
+    ETLPlugin sinkConfig = MockSink.getPlugin(outputDatasetName);
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testIncrementalRead");
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Assert.assertEquals(3, MockSink.readOutput(outputManager).size());
+
+    // the second run only reads the rows added since the first run, and the sink keeps the rows of both runs
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("INSERT INTO INCREMENTAL VALUES (4, 'user4'), (5, 'user5')");
+    }
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 2, 5, TimeUnit.MINUTES);
+    outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> outputRecords = MockSink.readOutput(outputManager);
+    Assert.assertEquals(5, outputRecords.size());
+    Set<Integer> ids = new HashSet<>();
+    for (StructuredRecord record : outputRecords) {
+      ids.add(record.<Integer>get("ID"));
+    }
+    Assert.assertEquals(ImmutableSet.of(1, 2, 3, 4, 5), ids);
+  }
+
+  @Test
+  public void testIncrementalReadWithTimestampColumn() throws Exception {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE INCREMENTAL_TS (ID INTEGER, UPDATED TIMESTAMP)");
+      stmt.execute("INSERT INTO INCREMENTAL_TS VALUES (1, TIMESTAMP '2020-01-01 00:00:00'), " +
+                     "(2, TIMESTAMP '2020-01-02 00:00:00.5'), (3, TIMESTAMP '2020-01-03 00:00:00')");
+    }
+    // the bounding query doesn't contain $CONDITIONS, so the splits are bounded by the new rows instead
+    ETLPlugin sourceConfig = new ETLPlugin(
+      "Database",
+      BatchSource.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSource.DBSourceConfig.IMPORT_QUERY, "SELECT ID, UPDATED FROM INCREMENTAL_TS WHERE $CONDITIONS")
+        .put(DBSource.DBSourceConfig.BOUNDING_QUERY, "SELECT MIN(ID), MAX(ID) FROM INCREMENTAL_TS")
+        .put(DBSource.DBSourceConfig.SPLIT_BY, "ID")
+        .put(DBSource.DBSourceConfig.NUM_SPLITS, "2")
+        .put(DBSource.DBSourceConfig.INCREMENTAL_COLUMN, "UPDATED")
+        .put(DBSource.DBSourceConfig.STATE_TABLE_NAME, "incrementalTimestampState")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBIncrementalTimestampTest")
+        .build(),
+      null
+    );
+    String outputDatasetName = "output-incrementaltimestamptest";
+    ETLPlugin sinkConfig = MockSink.getPlugin(outputDatasetName);
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testIncrementalReadWithTimestamp");
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Assert.assertEquals(3, MockSink.readOutput(outputManager).size());
+
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("INSERT INTO INCREMENTAL_TS VALUES (4, TIMESTAMP '2020-01-04 00:00:00')");
+    }
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 2, 5, TimeUnit.MINUTES);
+    outputManager = getDataset(outputDatasetName);
+    Set<Integer> ids = new HashSet<>();
+    for (StructuredRecord record : MockSink.readOutput(outputManager)) {
+      ids.add(record.<Integer>get("ID"));
+    }
+    Assert.assertEquals(ImmutableSet.of(1, 2, 3, 4), ids);
+    Assert.assertEquals(4, MockSink.readOutput(outputManager).size());
+  }
+
+  @Test
+  public void testParallelSplitReaders() throws Exception {
+    ETLPlugin sourceConfig = new ETLPlugin(
+      "Database",
+      BatchSource.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSource.DBSourceConfig.IMPORT_QUERY, "SELECT ID, NAME FROM \"my_table\" WHERE $CONDITIONS")
+        .put(DBSource.DBSourceConfig.SPLIT_BY, "ID")
+        .put(DBSource.DBSourceConfig.NUM_SPLITS, "1")
+        .put(DBSource.DBSourceConfig.READERS_PER_SPLIT, "3")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBParallelReadersTest")
+        .build(),
+      null
+    );
+    String outputDatasetName = "output-parallelreaderstest";
+    ETLPlugin sinkConfig = MockSink.getPlugin(outputDatasetName);
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testParallelSplitReaders");
+    runETLOnce(appManager);
+
+    // the single split is read in sub-ranges, which together contain each row once
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> outputRecords = MockSink.readOutput(outputManager);
+    Assert.assertEquals(5, outputRecords.size());
+    Set<Integer> ids = new HashSet<>();
+    for (StructuredRecord record : outputRecords) {
+      ids.add(record.<Integer>get("ID"));
+    }
+    Assert.assertEquals(ImmutableSet.of(1, 2, 3, 4, 5), ids);
+  }
+
+  @Test
+  public void testParallelSplitReadersWithNullSplitByValues() throws Exception {
+    try (Connection conn = getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE NULL_SPLIT_BY (ID INTEGER, NAME VARCHAR(20))");
+      stmt.execute("INSERT INTO NULL_SPLIT_BY VALUES (1, 'user1'), (NULL, 'user2'), (3, 'user3'), (NULL, 'user4'), " +
+                     "(5, 'user5')");
+    }
+    ETLPlugin sourceConfig = new ETLPlugin(
+      "Database",
+      BatchSource.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put(DBConfig.CONNECTION_STRING, getConnectionURL())
+        .put(DBSource.DBSourceConfig.IMPORT_QUERY, "SELECT ID, NAME FROM NULL_SPLIT_BY WHERE $CONDITIONS")
+        .put(DBSource.DBSourceConfig.SPLIT_BY, "ID")
+        .put(DBSource.DBSourceConfig.NUM_SPLITS, "1")
+        .put(DBSource.DBSourceConfig.READERS_PER_SPLIT, "3")
+        .put(DBConfig.JDBC_PLUGIN_NAME, "hypersql")
+        .put(Constants.Reference.REFERENCE_NAME, "DBParallelReadersNullTest")
+        .build(),
+      null
+    );
+    String outputDatasetName = "output-parallelreadersnulltest";
+    ETLPlugin sinkConfig = MockSink.getPlugin(outputDatasetName);
+    ApplicationManager appManager = deployETL(sourceConfig, sinkConfig, "testParallelSplitReadersWithNull");
+    runETLOnce(appManager);
+
+    // the rows with a NULL split-by value are read by their own sub-split
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> outputRecords = MockSink.readOutput(outputManager);
+    Assert.assertEquals(5, outputRecords.size());
+    Set<String> names = new HashSet<>();
+    for (StructuredRecord record : outputRecords) {
+      names.add(record.get("NAME"));
+    }
+    Assert.assertEquals(ImmutableSet.of("user1", "user2", "user3", "user4", "user5"), names);
+  }
+
   @Test
   public void testBackwardCompatibilityForSQLDataTypes() throws Exception {
     String importQuery = "SELECT ID, NAME, DECIMAL_INT, DECIMAL_COL, DECIMAL_LONG, NUMERIC_INT, NUMERIC_COL," +
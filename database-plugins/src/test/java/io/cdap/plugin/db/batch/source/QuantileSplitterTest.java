@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.source;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.apache.hadoop.mapreduce.lib.db.IntegerSplitter;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tests for {@link QuantileSplitter}.
+ */
+public class QuantileSplitterTest {
+  private static final String IMPORT_QUERY = "SELECT ID, CREATED FROM SKEWED WHERE $CONDITIONS";
+  private static final int ROWS = 1000;
+  private static final int SPLITS = 4;
+
+  private static Connection connection;
+
+  @BeforeClass
+  public static void setup() throws SQLException {
+    connection = new JDBCDriver().connect("jdbc:hsqldb:mem:quantilesplittertest", new Properties());
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE SKEWED (ID BIGINT, CREATED TIMESTAMP)");
+    }
+    // a few sparse values at the start of the range, and most of the rows in a small range at the end
+    long start = Timestamp.valueOf("2020-01-01 00:00:00").getTime();
+    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO SKEWED VALUES (?, ?)")) {
+      for (int i = 0; i < ROWS; i++) {
+        long value = i < 10 ? i * 10000L : 100000L + i;
+        statement.setLong(1, value);
+        statement.setTimestamp(2, new Timestamp(start + value * 1000));
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE SKEWED");
+    }
+    connection.close();
+  }
+
+  @Test
+  public void testNumericSplits() throws SQLException {
+    assertBalanced(getSplits("ID", Types.BIGINT));
+  }
+
+  @Test
+  public void testTimestampSplits() throws SQLException {
+    assertBalanced(getSplits("CREATED", Types.TIMESTAMP));
+  }
+
+  @Test
+  public void testSingleValue() throws SQLException {
+    Configuration conf = new Configuration(false);
+    conf.setInt(MRJobConfig.NUM_MAPS, SPLITS);
+    QuantileSplitter splitter = new QuantileSplitter(connection, "SELECT ID FROM SKEWED WHERE ID = 0 AND $CONDITIONS",
+                                                     Types.BIGINT, new IntegerSplitter());
+    try (Statement statement = connection.createStatement();
+         ResultSet results = statement.executeQuery("SELECT MIN(ID), MAX(ID) FROM SKEWED WHERE ID = 0")) {
+      results.next();
+      List<InputSplit> splits = splitter.split(conf, results, "ID");
+      Assert.assertEquals(1, splits.size());
+      Assert.assertEquals(1, count(splits.get(0)));
+    }
+  }
+
+  private List<InputSplit> getSplits(String column, int sqlDataType) throws SQLException {
+    Configuration conf = new Configuration(false);
+    conf.setInt(MRJobConfig.NUM_MAPS, SPLITS);
+    QuantileSplitter splitter = new QuantileSplitter(connection, IMPORT_QUERY, sqlDataType, new IntegerSplitter());
+    try (Statement statement = connection.createStatement();
+         ResultSet results = statement.executeQuery(String.format("SELECT MIN(%s), MAX(%s) FROM SKEWED",
+                                                                  column, column))) {
+      results.next();
+      return splitter.split(conf, results, column);
+    }
+  }
+
+  private void assertBalanced(List<InputSplit> splits) throws SQLException {
+    Assert.assertEquals(SPLITS, splits.size());
+    int total = 0;
+    for (InputSplit split : splits) {
+      int count = count(split);
+      Assert.assertTrue(String.format("Split %s has %d rows", split, count),
+                        Math.abs(count - ROWS / SPLITS) <= ROWS / SPLITS / 10);
+      total += count;
+    }
+    Assert.assertEquals(ROWS, total);
+  }
+
+  private int count(InputSplit split) throws SQLException {
+    DataDrivenDBInputFormat.DataDrivenDBInputSplit dbSplit = (DataDrivenDBInputFormat.DataDrivenDBInputSplit) split;
+    String query = String.format("SELECT COUNT(*) FROM SKEWED WHERE %s AND %s",
+                                 dbSplit.getLowerClause(), dbSplit.getUpperClause());
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(query)) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+}
@@ -61,6 +61,11 @@ public class AvroToStructuredTransformer extends RecordConverter<GenericRecord,
     return builder;
   }
 
+  @Override
+  protected String getRecordName(GenericRecord record) {
+    return record.getSchema().getName();
+  }
+
   public Schema convertSchema(org.apache.avro.Schema schema) throws IOException {
     int hashCode = schema.hashCode();
     Schema structuredSchema;
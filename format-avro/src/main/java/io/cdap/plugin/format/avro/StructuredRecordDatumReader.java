@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.avro;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * {@link DatumReader} that decodes avro binary directly into StructuredRecords, without building a GenericRecord.
+ *
+ * The reader schema is derived from the schema of the StructuredRecords, and is compiled once per file schema into a
+ * plan of value readers. When the file was written with a different schema, the data is resolved against the reader
+ * schema by a {@link ResolvingDecoder} that is created once and reused for every record. Fields of the schema that
+ * are not in the file, such as the path field, are left unset.
+ */
+public class StructuredRecordDatumReader implements DatumReader<StructuredRecord.Builder> {
+  private final Schema schema;
+  private final String pathField;
+  private final Utf8 scratch = new Utf8();
+  private ResolvingDecoder resolver;
+  private RecordReader root;
+
+  /**
+   * @param schema the schema of records to read, or null to use the schema of the file
+   * @param pathField the field that holds the file path, which is never read from the file
+   */
+  public StructuredRecordDatumReader(@Nullable Schema schema, @Nullable String pathField) {
+    this.schema = schema;
+    this.pathField = pathField;
+  }
+
+  @Override
+  public void setSchema(org.apache.avro.Schema fileSchema) {
+    if (schema == null) {
+      resolver = null;
+      root = new RecordReader(fileSchema, fromFileSchema(fileSchema));
+      return;
+    }
+
+    org.apache.avro.Schema readSchema = getReadSchema(fileSchema);
+    try {
+      resolver = readSchema.equals(fileSchema) ? null :
+        DecoderFactory.get().resolvingDecoder(fileSchema, readSchema, null);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(
+        String.format("The file schema '%s' cannot be read with schema '%s': %s", fileSchema, schema, e.getMessage()),
+        e);
+    }
+    root = new RecordReader(readSchema, schema);
+  }
+
+  @Override
+  public StructuredRecord.Builder read(StructuredRecord.Builder reuse, Decoder in) throws IOException {
+    if (resolver == null) {
+      return root.readBuilder(in);
+    }
+    resolver.configure(in);
+    StructuredRecord.Builder builder = root.readBuilder(resolver);
+    resolver.drain();
+    return builder;
+  }
+
+  /**
+   * Converts the file schema into a record schema, with the path field added if there is one.
+   */
+  private Schema fromFileSchema(org.apache.avro.Schema fileSchema) {
+    Schema schemaWithoutPath;
+    try {
+      schemaWithoutPath = Schema.parseJson(fileSchema.toString());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to convert avro schema: " + e.getMessage(), e);
+    }
+    if (pathField == null) {
+      return schemaWithoutPath;
+    }
+    List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields().size() + 1);
+    fields.addAll(schemaWithoutPath.getFields());
+    fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
+    return Schema.recordOf(schemaWithoutPath.getRecordName(), fields);
+  }
+
+  /**
+   * Returns the avro schema to read the file with, which contains the fields of the record schema that exist in the
+   * file, other than the path field.
+   */
+  private org.apache.avro.Schema getReadSchema(org.apache.avro.Schema fileSchema) {
+    List<Schema.Field> fields = new ArrayList<>(schema.getFields().size());
+    for (Schema.Field field : schema.getFields()) {
+      if (!field.getName().equals(pathField) && fileSchema.getField(field.getName()) != null) {
+        fields.add(field);
+      }
+    }
+    Schema readSchema = Schema.recordOf(schema.getRecordName(), fields);
+    return new org.apache.avro.Schema.Parser().parse(readSchema.toString());
+  }
+
+  private ValueReader createReader(org.apache.avro.Schema avroSchema, Schema fieldSchema) {
+    switch (avroSchema.getType()) {
+      case NULL:
+        return in -> {
+          in.readNull();
+          return null;
+        };
+      case BOOLEAN:
+        return Decoder::readBoolean;
+      case INT:
+        return Decoder::readInt;
+      case LONG:
+        return Decoder::readLong;
+      case FLOAT:
+        return Decoder::readFloat;
+      case DOUBLE:
+        return Decoder::readDouble;
+      case STRING:
+        return in -> in.readString(scratch).toString();
+      case BYTES:
+        // a new buffer for each value, since the record keeps a reference to it
+        return in -> in.readBytes(null);
+      case FIXED:
+        int size = avroSchema.getFixedSize();
+        return in -> {
+          byte[] bytes = new byte[size];
+          in.readFixed(bytes);
+          return ByteBuffer.wrap(bytes);
+        };
+      case ENUM:
+        List<String> symbols = avroSchema.getEnumSymbols();
+        return in -> symbols.get(in.readEnum());
+      case RECORD:
+        RecordReader recordReader = new RecordReader(avroSchema, fieldSchema);
+        return in -> recordReader.readBuilder(in).build();
+      case ARRAY:
+        return createArrayReader(avroSchema, fieldSchema);
+      case MAP:
+        return createMapReader(avroSchema, fieldSchema);
+      case UNION:
+        List<org.apache.avro.Schema> branches = avroSchema.getTypes();
+        ValueReader[] readers = new ValueReader[branches.size()];
+        for (int i = 0; i < readers.length; i++) {
+          readers[i] = createReader(branches.get(i), getBranchSchema(fieldSchema, i));
+        }
+        return in -> readers[in.readIndex()].read(in);
+      default:
+        throw new IllegalArgumentException(String.format("Avro type '%s' is not supported.", avroSchema.getType()));
+    }
+  }
+
+  private ValueReader createArrayReader(org.apache.avro.Schema avroSchema, Schema fieldSchema) {
+    ValueReader elementReader = createReader(avroSchema.getElementType(), fieldSchema.getComponentSchema());
+    return in -> {
+      long count = in.readArrayStart();
+      List<Object> list = new ArrayList<>((int) count);
+      while (count > 0) {
+        for (long i = 0; i < count; i++) {
+          list.add(elementReader.read(in));
+        }
+        count = in.arrayNext();
+      }
+      return list;
+    };
+  }
+
+  private ValueReader createMapReader(org.apache.avro.Schema avroSchema, Schema fieldSchema) {
+    ValueReader valueReader = createReader(avroSchema.getValueType(), fieldSchema.getMapSchema().getValue());
+    return in -> {
+      long count = in.readMapStart();
+      Map<String, Object> map = new HashMap<>((int) count * 4 / 3 + 1);
+      while (count > 0) {
+        for (long i = 0; i < count; i++) {
+          String key = in.readString(scratch).toString();
+          map.put(key, valueReader.read(in));
+        }
+        count = in.mapNext();
+      }
+      return map;
+    };
+  }
+
+  /**
+   * Returns the branch of a union, or the schema itself if the record schema has a plain type where the avro schema
+   * has a union. The avro reader schema is derived from the record schema, so this only happens when the schema of
+   * the file is used.
+   */
+  private static Schema getBranchSchema(Schema schema, int index) {
+    return schema.getType() == Schema.Type.UNION ? schema.getUnionSchema(index) : schema;
+  }
+
+  /**
+   * Reads a value of an avro schema.
+   */
+  private interface ValueReader {
+    Object read(Decoder in) throws IOException;
+  }
+
+  /**
+   * Reads the fields of a record into a builder for the record schema.
+   */
+  private final class RecordReader {
+    private final Schema schema;
+    private final String[] fieldNames;
+    private final ValueReader[] fieldReaders;
+
+    private RecordReader(org.apache.avro.Schema avroSchema, Schema schema) {
+      Schema recordSchema = schema.isNullable() ? schema.getNonNullable() : schema;
+      this.schema = recordSchema;
+      List<org.apache.avro.Schema.Field> fields = avroSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      this.fieldReaders = new ValueReader[fields.size()];
+      for (org.apache.avro.Schema.Field field : fields) {
+        Schema.Field recordField = recordSchema.getField(field.name());
+        if (recordField == null) {
+          throw new IllegalArgumentException(
+            String.format("Field '%s' is not in the schema of record '%s'.", field.name(),
+                          recordSchema.getRecordName()));
+        }
+        fieldNames[field.pos()] = field.name();
+        fieldReaders[field.pos()] = createReader(field.schema(), recordField.getSchema());
+      }
+    }
+
+    private StructuredRecord.Builder readBuilder(Decoder in) throws IOException {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      if (in instanceof ResolvingDecoder) {
+        // the fields of the file can be in a different order than those of the reader schema
+        for (org.apache.avro.Schema.Field field : ((ResolvingDecoder) in).readFieldOrder()) {
+          builder.set(fieldNames[field.pos()], fieldReaders[field.pos()].read(in));
+        }
+      } else {
+        for (int i = 0; i < fieldReaders.length; i++) {
+          builder.set(fieldNames[i], fieldReaders[i].read(in));
+        }
+      }
+      return builder;
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.avro;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.common.SchemaPlanCache;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * {@link DatumWriter} that encodes StructuredRecords directly into avro binary, without building a GenericRecord.
+ *
+ * The encoding of each avro type is compiled once into a plan of value writers. Each record schema is matched with
+ * the avro schema once, and the result is kept in a bounded {@link SchemaPlanCache}, so that writing a record only
+ * looks up the values of its fields.
+ */
+public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord> {
+  private final Map<Schema, RecordWriter> recordWriters = new HashMap<>();
+  private RecordWriter root;
+
+  public StructuredRecordDatumWriter() {
+    // the schema is set by the DataFileWriter
+  }
+
+  public StructuredRecordDatumWriter(Schema schema) {
+    setSchema(schema);
+  }
+
+  @Override
+  public void setSchema(Schema schema) {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new IllegalArgumentException(String.format("The avro schema must be a record, but is '%s'.", schema));
+    }
+    recordWriters.clear();
+    root = getRecordWriter(schema);
+  }
+
+  @Override
+  public void write(StructuredRecord record, Encoder out) throws IOException {
+    root.write(record, out);
+  }
+
+  private RecordWriter getRecordWriter(Schema schema) {
+    RecordWriter writer = recordWriters.get(schema);
+    if (writer == null) {
+      // registered before the field writers are created, in case the schema is recursive
+      writer = new RecordWriter(schema);
+      recordWriters.put(schema, writer);
+      writer.init();
+    }
+    return writer;
+  }
+
+  private ValueWriter createWriter(Schema schema) {
+    switch (schema.getType()) {
+      case NULL:
+        return (value, out) -> out.writeNull();
+      case BOOLEAN:
+        return (value, out) -> out.writeBoolean((Boolean) value);
+      case INT:
+        return (value, out) -> out.writeInt(((Number) value).intValue());
+      case LONG:
+        return (value, out) -> out.writeLong(((Number) value).longValue());
+      case FLOAT:
+        return (value, out) -> out.writeFloat(((Number) value).floatValue());
+      case DOUBLE:
+        return (value, out) -> out.writeDouble(((Number) value).doubleValue());
+      case STRING:
+        return (value, out) -> out.writeString(value.toString());
+      case BYTES:
+        return (value, out) -> {
+          if (value instanceof ByteBuffer) {
+            out.writeBytes((ByteBuffer) value);
+          } else {
+            out.writeBytes((byte[]) value);
+          }
+        };
+      case FIXED:
+        return (value, out) -> {
+          if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.writeFixed(bytes);
+          } else {
+            out.writeFixed((byte[]) value);
+          }
+        };
+      case ENUM:
+        return (value, out) -> {
+          int ordinal = schema.getEnumOrdinal(value.toString());
+          out.writeEnum(ordinal);
+        };
+      case RECORD:
+        RecordWriter recordWriter = getRecordWriter(schema);
+        return (value, out) -> recordWriter.write((StructuredRecord) value, out);
+      case ARRAY:
+        ValueWriter elementWriter = createWriter(schema.getElementType());
+        return (value, out) -> writeArray(value, elementWriter, out);
+      case MAP:
+        ValueWriter mapValueWriter = createWriter(schema.getValueType());
+        return (value, out) -> {
+          Map<?, ?> map = (Map<?, ?>) value;
+          out.writeMapStart();
+          out.setItemCount(map.size());
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            out.startItem();
+            out.writeString(entry.getKey().toString());
+            mapValueWriter.write(entry.getValue(), out);
+          }
+          out.writeMapEnd();
+        };
+      case UNION:
+        return createUnionWriter(schema);
+      default:
+        throw new IllegalArgumentException(String.format("Avro type '%s' is not supported.", schema.getType()));
+    }
+  }
+
+  private static void writeArray(Object value, ValueWriter elementWriter, Encoder out) throws IOException {
+    out.writeArrayStart();
+    if (value instanceof Collection) {
+      Collection<?> elements = (Collection<?>) value;
+      out.setItemCount(elements.size());
+      for (Object element : elements) {
+        out.startItem();
+        elementWriter.write(element, out);
+      }
+    } else {
+      int length = Array.getLength(value);
+      out.setItemCount(length);
+      for (int i = 0; i < length; i++) {
+        out.startItem();
+        elementWriter.write(Array.get(value, i), out);
+      }
+    }
+    out.writeArrayEnd();
+  }
+
+  private ValueWriter createUnionWriter(Schema schema) {
+    List<Schema> branches = schema.getTypes();
+    ValueWriter[] writers = new ValueWriter[branches.size()];
+    int nullIndex = -1;
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = createWriter(branches.get(i));
+      if (branches.get(i).getType() == Schema.Type.NULL) {
+        nullIndex = i;
+      }
+    }
+    // the common case of a nullable type doesn't need to look at the value to know its branch
+    if (nullIndex >= 0 && branches.size() == 2) {
+      int typeIndex = 1 - nullIndex;
+      int nullBranch = nullIndex;
+      ValueWriter typeWriter = writers[typeIndex];
+      return (value, out) -> {
+        if (value == null) {
+          out.writeIndex(nullBranch);
+          out.writeNull();
+        } else {
+          out.writeIndex(typeIndex);
+          typeWriter.write(value, out);
+        }
+      };
+    }
+    return (value, out) -> {
+      int index = resolveUnion(branches, value);
+      out.writeIndex(index);
+      writers[index].write(value, out);
+    };
+  }
+
+  /**
+   * Returns the index of the first branch of a union whose type matches the java type of a value.
+   */
+  private static int resolveUnion(List<Schema> branches, @Nullable Object value) {
+    for (int i = 0; i < branches.size(); i++) {
+      if (matches(branches.get(i), value)) {
+        return i;
+      }
+    }
+    throw new AvroTypeException(String.format("Value '%s' does not match any type of union %s.", value, branches));
+  }
+
+  private static boolean matches(Schema schema, @Nullable Object value) {
+    switch (schema.getType()) {
+      case NULL:
+        return value == null;
+      case BOOLEAN:
+        return value instanceof Boolean;
+      case INT:
+        return value instanceof Integer;
+      case LONG:
+        return value instanceof Long;
+      case FLOAT:
+        return value instanceof Float;
+      case DOUBLE:
+        return value instanceof Double;
+      case STRING:
+        return value instanceof CharSequence;
+      case ENUM:
+        return value != null && schema.hasEnumSymbol(value.toString());
+      case BYTES:
+      case FIXED:
+        return value instanceof ByteBuffer || value instanceof byte[];
+      case RECORD:
+        return value instanceof StructuredRecord &&
+          schema.getName().equals(((StructuredRecord) value).getSchema().getRecordName());
+      case ARRAY:
+        return value instanceof Collection || value != null && value.getClass().isArray();
+      case MAP:
+        return value instanceof Map;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Writes a value with an avro schema.
+   */
+  private interface ValueWriter {
+    void write(@Nullable Object value, Encoder out) throws IOException;
+  }
+
+  /**
+   * Writes the fields of a record in the order of the avro schema.
+   */
+  private final class RecordWriter {
+    private final Schema schema;
+    private final SchemaPlanCache<Boolean> validatedSchemas = new SchemaPlanCache<>(this::validate);
+    private String[] fieldNames;
+    private ValueWriter[] fieldWriters;
+
+    private RecordWriter(Schema schema) {
+      this.schema = schema;
+    }
+
+    private void init() {
+      List<Schema.Field> fields = schema.getFields();
+      fieldNames = new String[fields.size()];
+      fieldWriters = new ValueWriter[fields.size()];
+      for (int i = 0; i < fieldNames.length; i++) {
+        Schema.Field field = fields.get(i);
+        fieldNames[i] = field.name();
+        fieldWriters[i] = createWriter(field.schema());
+      }
+    }
+
+    private void write(StructuredRecord record, Encoder out) throws IOException {
+      validatedSchemas.get(record.getSchema());
+      for (int i = 0; i < fieldWriters.length; i++) {
+        try {
+          fieldWriters[i].write(record.get(fieldNames[i]), out);
+        } catch (ClassCastException | NullPointerException | AvroTypeException e) {
+          throw new IllegalArgumentException(
+            String.format("Error writing field '%s': %s", fieldNames[i], e.getMessage()), e);
+        }
+      }
+    }
+
+    /**
+     * Checks that a record schema has all the fields of the avro schema.
+     */
+    private Boolean validate(io.cdap.cdap.api.data.schema.Schema recordSchema) {
+      for (String fieldName : fieldNames) {
+        if (recordSchema.getField(fieldName) == null) {
+          throw new IllegalArgumentException("Input record does not contain the " + fieldName + " field.");
+        }
+      }
+      return Boolean.TRUE;
+    }
+  }
+}
@@ -66,6 +66,11 @@ public class StructuredToAvroTransformer extends RecordConverter<StructuredRecor
     return recordBuilder.build();
   }
 
+  @Override
+  protected String getRecordName(StructuredRecord record) {
+    return record.getSchema().getRecordName();
+  }
+
   @Override
   protected Object convertBytes(Object field) {
     if (field instanceof ByteBuffer) {
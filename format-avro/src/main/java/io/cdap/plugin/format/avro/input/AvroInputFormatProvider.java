@@ -66,14 +66,6 @@ public class AvroInputFormatProvider extends PathTrackingInputFormatProvider<Avr
     return CombineAvroInputFormat.class.getName();
   }
 
-  @Override
-  protected void addFormatProperties(Map<String, String> properties) {
-    Schema schema = conf.getSchema();
-    if (schema != null) {
-      properties.put("avro.schema.input.key", schema.toString());
-    }
-  }
-
   /**
    * Common config for Avro format
    */
@@ -18,11 +18,11 @@ package io.cdap.plugin.format.avro.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import io.cdap.plugin.format.avro.StructuredRecordDatumReader;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.mapred.AvroKey;
-import org.apache.avro.mapreduce.AvroKeyInputFormat;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.FileReader;
+import org.apache.avro.mapred.FsInput;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -30,8 +30,6 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -44,36 +42,41 @@ public class PathTrackingAvroInputFormat extends PathTrackingInputFormat {
     FileSplit split, TaskAttemptContext context,
     @Nullable String pathField, @Nullable Schema schema) throws IOException, InterruptedException {
 
-    RecordReader<AvroKey<GenericRecord>, NullWritable> delegate = (new AvroKeyInputFormat<GenericRecord>())
-      .createRecordReader(split, context);
-    return new AvroRecordReader(delegate, schema, pathField);
+    return new AvroRecordReader(new StructuredRecordDatumReader(schema, pathField));
   }
 
   /**
-   * Transforms GenericRecords into StructuredRecord.
+   * Reads the avro blocks of a split, decoding each datum directly into a StructuredRecord.
    */
   static class AvroRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
-    private final RecordReader<AvroKey<GenericRecord>, NullWritable> delegate;
-    private final AvroToStructuredTransformer recordTransformer;
-    private final String pathField;
-    private Schema schema;
+    private final StructuredRecordDatumReader datumReader;
+    private FileReader<StructuredRecord.Builder> fileReader;
+    private StructuredRecord.Builder current;
+    private long start;
+    private long end;
 
-    AvroRecordReader(RecordReader<AvroKey<GenericRecord>, NullWritable> delegate, @Nullable Schema schema,
-                     @Nullable String pathField) {
-      this.delegate = delegate;
-      this.schema = schema;
-      this.pathField = pathField;
-      this.recordTransformer = new AvroToStructuredTransformer();
+    AvroRecordReader(StructuredRecordDatumReader datumReader) {
+      this.datumReader = datumReader;
     }
 
     @Override
     public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
-      delegate.initialize(split, context);
+      FileSplit fileSplit = (FileSplit) split;
+      fileReader = DataFileReader.openReader(new FsInput(fileSplit.getPath(), context.getConfiguration()),
+                                             datumReader);
+      // a split starts at the first sync marker after its start, and ends at the first sync marker past its end
+      fileReader.sync(fileSplit.getStart());
+      start = fileReader.tell();
+      end = fileSplit.getStart() + fileSplit.getLength();
     }
 
     @Override
     public boolean nextKeyValue() throws IOException, InterruptedException {
-      return delegate.nextKeyValue();
+      if (!fileReader.hasNext() || fileReader.pastSync(end)) {
+        return false;
+      }
+      current = fileReader.next();
+      return true;
     }
 
     @Override
@@ -83,32 +86,22 @@ public class PathTrackingAvroInputFormat extends PathTrackingInputFormat {
 
     @Override
     public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
-      GenericRecord genericRecord = delegate.getCurrentKey().datum();
-      // if schema is null, but we're still able to read, that means the file contains the schema information
-      // set the schema based on the schema of the record
-      if (schema == null) {
-        if (pathField == null) {
-          schema = Schema.parseJson(genericRecord.getSchema().toString());
-        } else {
-          // if there is a path field, add the path as a field in the schema
-          Schema schemaWithoutPath = Schema.parseJson(genericRecord.getSchema().toString());
-          List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields().size() + 1);
-          fields.addAll(schemaWithoutPath.getFields());
-          fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
-          schema = Schema.recordOf(schemaWithoutPath.getRecordName(), fields);
-        }
-      }
-      return recordTransformer.transform(genericRecord, schema, pathField);
+      return current;
     }
 
     @Override
     public float getProgress() throws IOException, InterruptedException {
-      return delegate.getProgress();
+      if (end == start) {
+        return 0.0f;
+      }
+      return Math.min(1.0f, (fileReader.tell() - start) / (float) (end - start));
     }
 
     @Override
     public void close() throws IOException {
-      delegate.close();
+      if (fileReader != null) {
+        fileReader.close();
+      }
     }
   }
 }
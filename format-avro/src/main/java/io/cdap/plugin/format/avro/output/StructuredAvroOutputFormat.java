@@ -17,44 +17,49 @@
 package io.cdap.plugin.format.avro.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
-import io.cdap.plugin.format.output.DelegatingOutputFormat;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.mapred.AvroKey;
-import org.apache.avro.mapreduce.AvroKeyOutputFormat;
-import org.apache.hadoop.conf.Configuration;
+import io.cdap.plugin.format.avro.StructuredRecordDatumWriter;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.mapreduce.AvroOutputFormatBase;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 import java.io.IOException;
-import java.util.function.Function;
 
 /**
- * Converts StructuredRecord into GenericRecord before delegating to AvroKeyOutputFormat.
+ * Writes StructuredRecords into avro files, encoding them directly with a {@link StructuredRecordDatumWriter}.
  */
-public class StructuredAvroOutputFormat extends DelegatingOutputFormat<AvroKey<GenericRecord>, NullWritable> {
+public class StructuredAvroOutputFormat extends AvroOutputFormatBase<NullWritable, StructuredRecord> {
 
   @Override
-  protected OutputFormat<AvroKey<GenericRecord>, NullWritable> createDelegate() {
-    return new AvroKeyOutputFormat<>();
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
+    throws IOException {
+    Schema schema = new Schema.Parser().parse(context.getConfiguration().get(AvroOutputFormatProvider.SCHEMA_KEY));
+    DataFileWriter<StructuredRecord> fileWriter = new DataFileWriter<>(new StructuredRecordDatumWriter(schema));
+    fileWriter.setCodec(getCompressionCodec(context));
+    fileWriter.create(schema, getAvroFileOutputStream(context));
+    return new StructuredAvroRecordWriter(fileWriter);
   }
 
-  @Override
-  protected Function<StructuredRecord, KeyValue<AvroKey<GenericRecord>, NullWritable>> getConversion(
-    TaskAttemptContext context) throws IOException {
-
-    Configuration hConf = context.getConfiguration();
-    Schema schema = Schema.parseJson(hConf.get(AvroOutputFormatProvider.SCHEMA_KEY));
-    StructuredToAvroTransformer transformer = new StructuredToAvroTransformer(schema);
-    return record -> {
-      try {
-        return new KeyValue<>(new AvroKey<>(transformer.transform(record)), NullWritable.get());
-      } catch (IOException e) {
-        throw new RuntimeException("Unable to transform structured record into a generic record", e);
-      }
-    };
+  /**
+   * Appends each record to an avro data file.
+   */
+  private static class StructuredAvroRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+    private final DataFileWriter<StructuredRecord> fileWriter;
+
+    private StructuredAvroRecordWriter(DataFileWriter<StructuredRecord> fileWriter) {
+      this.fileWriter = fileWriter;
+    }
+
+    @Override
+    public void write(NullWritable key, StructuredRecord record) throws IOException {
+      fileWriter.append(record);
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      fileWriter.close();
+    }
   }
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.avro;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link StructuredRecordDatumWriter} and {@link StructuredRecordDatumReader}.
+ */
+public class StructuredRecordDatumTest {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Schema addressSchema = Schema.recordOf("address", Schema.Field.of("street", Schema.of(Schema.Type.STRING)));
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("count", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("ratio", Schema.of(Schema.Type.FLOAT)),
+      Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)),
+      Schema.Field.of("active", Schema.of(Schema.Type.BOOLEAN)),
+      Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("nickname", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("email", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("counts", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))),
+      Schema.Field.of("payload", Schema.of(Schema.Type.BYTES)),
+      Schema.Field.of("price", Schema.decimalOf(10, 2)),
+      Schema.Field.of("created", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)),
+      Schema.Field.of("birth", Schema.of(Schema.LogicalType.DATE)),
+      Schema.Field.of("address", Schema.nullableOf(addressSchema)));
+
+    Map<String, Integer> counts = new HashMap<>();
+    counts.put("a", 1);
+    counts.put("b", 2);
+    byte[] payload = new byte[] {0, 1, 2, 3};
+    ZonedDateTime created = ZonedDateTime.of(2020, 1, 2, 3, 4, 5, 6000, ZoneOffset.UTC);
+    StructuredRecord input = StructuredRecord.builder(schema)
+      .set("id", 1)
+      .set("count", 2L)
+      .set("ratio", 0.5f)
+      .set("score", 1.5d)
+      .set("active", true)
+      .set("name", "user1")
+      .set("email", "user1@example.com")
+      .set("tags", Arrays.asList("x", "y"))
+      .set("counts", counts)
+      .set("payload", payload)
+      .setDecimal("price", new BigDecimal("12.34"))
+      .setTimestamp("created", created)
+      .setDate("birth", LocalDate.of(1990, 5, 6))
+      .set("address", StructuredRecord.builder(addressSchema).set("street", "main").build())
+      .build();
+
+    org.apache.avro.Schema avroSchema = toAvro(schema);
+    StructuredRecord output = read(avroSchema, schema, null, write(avroSchema, input)).build();
+
+    Assert.assertEquals(1, (int) output.<Integer>get("id"));
+    Assert.assertEquals(2L, (long) output.<Long>get("count"));
+    Assert.assertEquals(0.5f, output.<Float>get("ratio"), 0f);
+    Assert.assertEquals(1.5d, output.<Double>get("score"), 0d);
+    Assert.assertTrue(output.<Boolean>get("active"));
+    Assert.assertEquals("user1", output.get("name"));
+    Assert.assertNull(output.get("nickname"));
+    Assert.assertEquals("user1@example.com", output.get("email"));
+    Assert.assertEquals(Arrays.asList("x", "y"), output.get("tags"));
+    Assert.assertEquals(counts, output.get("counts"));
+    Assert.assertEquals(ByteBuffer.wrap(payload), output.get("payload"));
+    Assert.assertEquals(new BigDecimal("12.34"), output.getDecimal("price"));
+    Assert.assertEquals(created, output.getTimestamp("created"));
+    Assert.assertEquals(LocalDate.of(1990, 5, 6), output.getDate("birth"));
+    Assert.assertEquals("main", output.<StructuredRecord>get("address").get("street"));
+  }
+
+  @Test
+  public void testUnion() throws IOException {
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("value", Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING),
+                                              Schema.of(Schema.Type.NULL))));
+    org.apache.avro.Schema avroSchema = toAvro(schema);
+
+    for (Object value : Arrays.asList(5, "five", null)) {
+      StructuredRecord input = StructuredRecord.builder(schema).set("value", value).build();
+      StructuredRecord output = read(avroSchema, schema, null, write(avroSchema, input)).build();
+      Assert.assertEquals(value, output.get("value"));
+    }
+  }
+
+  @Test
+  public void testEnum() throws IOException {
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"record\",\"fields\":[" +
+        "{\"name\":\"color\",\"type\":{\"type\":\"enum\",\"name\":\"color\",\"symbols\":[\"RED\",\"GREEN\"]}}]}");
+    Schema schema = Schema.recordOf("record", Schema.Field.of("color", Schema.enumWith("RED", "GREEN")));
+    StructuredRecord input = StructuredRecord.builder(schema).set("color", "GREEN").build();
+    byte[] bytes = write(avroSchema, input);
+
+    GenericRecord generic = new GenericDatumReader<GenericRecord>(avroSchema)
+      .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    Assert.assertEquals("GREEN", generic.get("color").toString());
+
+    // the schema of the records is derived from the file schema
+    StructuredRecord output = read(avroSchema, null, null, bytes).build();
+    Assert.assertEquals("GREEN", output.get("color"));
+  }
+
+  @Test
+  public void testFixed() throws IOException {
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"record\",\"fields\":[" +
+        "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"hash\",\"size\":4}}," +
+        "{\"name\":\"body\",\"type\":{\"type\":\"fixed\",\"name\":\"body\",\"size\":2}}]}");
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("hash", Schema.of(Schema.Type.BYTES)),
+                                    Schema.Field.of("body", Schema.of(Schema.Type.BYTES)));
+    StructuredRecord input = StructuredRecord.builder(schema)
+      .set("hash", new byte[] {1, 2, 3, 4})
+      .set("body", ByteBuffer.wrap(new byte[] {5, 6}))
+      .build();
+
+    GenericRecord generic = new GenericDatumReader<GenericRecord>(avroSchema)
+      .read(null, DecoderFactory.get().binaryDecoder(write(avroSchema, input), null));
+    Assert.assertArrayEquals(new byte[] {1, 2, 3, 4}, ((GenericData.Fixed) generic.get("hash")).bytes());
+    Assert.assertArrayEquals(new byte[] {5, 6}, ((GenericData.Fixed) generic.get("body")).bytes());
+  }
+
+  @Test
+  public void testSchemaResolution() throws IOException {
+    Schema fileSchema = Schema.recordOf("record",
+                                        Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                        Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                        Schema.Field.of("extra", Schema.of(Schema.Type.LONG)));
+    StructuredRecord input = StructuredRecord.builder(fileSchema)
+      .set("id", 1)
+      .set("name", "user1")
+      .set("extra", 10L)
+      .build();
+    org.apache.avro.Schema avroSchema = toAvro(fileSchema);
+    byte[] bytes = write(avroSchema, input);
+
+    // fields are reordered, promoted, dropped, and missing from the file
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("missing", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("path", Schema.of(Schema.Type.STRING)));
+    StructuredRecord output = read(avroSchema, schema, "path", bytes).set("path", "/data/file.avro").build();
+    Assert.assertEquals(schema, output.getSchema());
+    Assert.assertEquals("user1", output.get("name"));
+    Assert.assertEquals(1L, (long) output.<Long>get("id"));
+    Assert.assertNull(output.get("missing"));
+    Assert.assertEquals("/data/file.avro", output.get("path"));
+  }
+
+  @Test
+  public void testReadWithFileSchema() throws IOException {
+    Schema fileSchema = Schema.recordOf("record",
+                                        Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                        Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StructuredRecord input = StructuredRecord.builder(fileSchema).set("id", 1).set("name", "user1").build();
+    org.apache.avro.Schema avroSchema = toAvro(fileSchema);
+
+    StructuredRecord output = read(avroSchema, null, "path", write(avroSchema, input))
+      .set("path", "/data/file.avro")
+      .build();
+    Assert.assertNotNull(output.getSchema().getField("path"));
+    Assert.assertEquals(1, (int) output.<Integer>get("id"));
+    Assert.assertEquals("user1", output.get("name"));
+  }
+
+  @Test
+  public void testWriteRecordsWithEqualSchemas() throws IOException {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    org.apache.avro.Schema avroSchema = toAvro(schema);
+    StructuredRecordDatumWriter writer = new StructuredRecordDatumWriter(avroSchema);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    // records with equal schemas that are different instances, as they are after deserialization
+    for (int i = 0; i < 100; i++) {
+      Schema copy = Schema.parseJson(schema.toString());
+      writer.write(StructuredRecord.builder(copy).set("id", i).build(), encoder);
+    }
+    encoder.flush();
+
+    StructuredRecordDatumReader reader = new StructuredRecordDatumReader(schema, null);
+    reader.setSchema(avroSchema);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(i, (int) reader.read(null, decoder).build().<Integer>get("id"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteMissingField() throws IOException {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+    Schema recordSchema = Schema.recordOf("record", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    write(toAvro(schema), StructuredRecord.builder(recordSchema).set("id", 1).build());
+  }
+
+  private static org.apache.avro.Schema toAvro(Schema schema) {
+    return new org.apache.avro.Schema.Parser().parse(schema.toString());
+  }
+
+  private static byte[] write(org.apache.avro.Schema avroSchema, StructuredRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new StructuredRecordDatumWriter(avroSchema).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static StructuredRecord.Builder read(org.apache.avro.Schema fileSchema, @Nullable Schema schema,
+                                               @Nullable String pathField, byte[] bytes) throws IOException {
+    StructuredRecordDatumReader reader = new StructuredRecordDatumReader(schema, pathField);
+    reader.setSchema(fileSchema);
+    return reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+}
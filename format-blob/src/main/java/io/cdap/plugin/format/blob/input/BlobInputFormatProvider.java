@@ -18,10 +18,12 @@ package io.cdap.plugin.format.blob.input;
 
 import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
@@ -30,10 +32,14 @@ import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
- * Reads the entire contents of a File into a single record
+ * Reads the entire contents of a File into a single record, or into a record for each fixed size chunk of the file
  */
 @Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
 @Name(BlobInputFormatProvider.NAME)
@@ -43,7 +49,7 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
   static final String DESC = "Plugin for reading files in blob format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, BlobInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", BlobConfig.BLOB_FIELDS);
 
   public BlobInputFormatProvider(BlobConfig conf) {
     super(conf);
@@ -54,6 +60,13 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     return PathTrackingBlobInputFormat.class.getName();
   }
 
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    if (conf.isChunked()) {
+      properties.put(PathTrackingBlobInputFormat.CHUNK_SIZE, String.valueOf(conf.chunkSize));
+    }
+  }
+
   @Override
   public void validate() {
     if (conf.containsMacro("schema")) {
@@ -74,9 +87,9 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     }
 
     // blob must contain 'body' as type 'bytes'.
-    // it can optionally contain a path field of type 'string'
+    // it can optionally contain a path field of type 'string', and chunk fields of type 'long'
     int numExpectedFields = pathField == null ? 1 : 2;
-    int numFields = schema.getFields().size();
+    int numFields = schema.getFields().size() - conf.getChunkFields(schema).size();
     if (numFields > numExpectedFields) {
       int numExtra = numFields - numExpectedFields;
       if (pathField == null) {
@@ -122,12 +135,34 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
       }
     }
 
+    if (!conf.containsMacro(BlobConfig.NAME_CHUNK_SIZE) && conf.chunkSize != null &&
+      (conf.chunkSize <= 0 || conf.chunkSize > Integer.MAX_VALUE)) {
+      collector.addFailure(String.format("Invalid chunk size %d.", conf.chunkSize),
+                           String.format("Set a chunk size between 1 and %d bytes.", Integer.MAX_VALUE))
+        .withConfigProperty(BlobConfig.NAME_CHUNK_SIZE);
+    }
+
+    // when reading chunks, it can contain the offset and sequence number of the chunk as type 'long'
+    List<String> chunkFields = conf.getChunkFields(schema);
+    for (String chunkField : chunkFields) {
+      Schema fieldSchema = schema.getField(chunkField).getSchema();
+      Schema nonNullableSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+      if (nonNullableSchema.getType() != Schema.Type.LONG) {
+        collector.addFailure(
+          String.format("Field '%s' is of unexpected type '%s'.", chunkField, nonNullableSchema.getDisplayName()),
+          "Change type to 'long'.").withOutputSchemaField(chunkField);
+      }
+    }
+
     // blob must contain 'body' as type 'bytes'.
     // it can optionally contain a path field of type 'string'
     int numExpectedFields = pathField == null ? 1 : 2;
-    int numFields = schema.getFields().size();
+    int numFields = schema.getFields().size() - chunkFields.size();
     if (numFields > numExpectedFields) {
       for (Schema.Field field : schema.getFields()) {
+        if (chunkFields.contains(field.getName())) {
+          continue;
+        }
         if (pathField == null) {
           if (!field.getName().equals(BlobConfig.NAME_BODY)) {
             collector.addFailure("The schema for the 'blob' format must only contain the 'body' field.",
@@ -150,8 +185,50 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
    * Config for blob format. Overrides getSchema method to return the default schema if it is not provided.
    */
   public static class BlobConfig extends PathTrackingConfig {
+    public static final Map<String, PluginPropertyField> BLOB_FIELDS;
     static final String NAME_SCHEMA = "schema";
     static final String NAME_BODY = "body";
+    static final String NAME_OFFSET = "offset";
+    static final String NAME_SEQUENCE = "sequence";
+    static final String NAME_CHUNK_SIZE = "chunkSize";
+    private static final String CHUNK_SIZE_DESC = "Size in bytes of the chunks to read files in. " +
+      "If set, each chunk of a file is read into a separate record, which can contain the 'offset' of the chunk " +
+      "in the file and its 'sequence' number as fields of type long. Files are split on chunk boundaries. " +
+      "The body of a chunk is a ByteBuffer, which is memory mapped for local files. " +
+      "If not set, each file is read into a single record with a byte array body.";
+
+    static {
+      Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
+      fields.put(NAME_CHUNK_SIZE, new PluginPropertyField(NAME_CHUNK_SIZE, CHUNK_SIZE_DESC, "long", false, true));
+      BLOB_FIELDS = Collections.unmodifiableMap(fields);
+    }
+
+    @Macro
+    @Nullable
+    @Description(CHUNK_SIZE_DESC)
+    private Long chunkSize;
+
+    /**
+     * Returns whether files are read in chunks.
+     */
+    boolean isChunked() {
+      return !containsMacro(NAME_CHUNK_SIZE) && chunkSize != null && chunkSize > 0;
+    }
+
+    /**
+     * Returns the chunk fields that are in the given schema, which are only set when files are read in chunks.
+     */
+    List<String> getChunkFields(Schema schema) {
+      List<String> chunkFields = new ArrayList<>(2);
+      if (isChunked()) {
+        for (String name : new String[] { NAME_OFFSET, NAME_SEQUENCE }) {
+          if (schema.getField(name) != null) {
+            chunkFields.add(name);
+          }
+        }
+      }
+      return chunkFields;
+    }
 
     /**
      * Return the configured schema, or the default schema if none was given. Should never be called if the
@@ -175,6 +252,10 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     private Schema getDefaultSchema() {
       List<Schema.Field> fields = new ArrayList<>();
       fields.add(Schema.Field.of(NAME_BODY, Schema.of(Schema.Type.BYTES)));
+      if (isChunked()) {
+        fields.add(Schema.Field.of(NAME_OFFSET, Schema.of(Schema.Type.LONG)));
+        fields.add(Schema.Field.of(NAME_SEQUENCE, Schema.of(Schema.Type.LONG)));
+      }
       if (pathField != null && !pathField.isEmpty()) {
         fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
       }
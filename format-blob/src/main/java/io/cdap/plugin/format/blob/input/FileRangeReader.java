@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.blob.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads ranges of bytes from a file as ByteBuffers, for reading files in chunks. Files on the local filesystem are
+ * memory mapped, and their ranges are returned as read only buffers that are not copied into the heap. Files on other
+ * filesystems are read into byte arrays that are wrapped in a buffer, so that callers get the same type wherever the
+ * file is.
+ */
+abstract class FileRangeReader implements Closeable {
+
+  /**
+   * Opens a reader for the given file.
+   */
+  static FileRangeReader open(Path path, Configuration conf) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    if (fs instanceof LocalFileSystem) {
+      return new MappedFileRangeReader(((LocalFileSystem) fs).pathToFile(path));
+    }
+    if (fs instanceof RawLocalFileSystem) {
+      return new MappedFileRangeReader(((RawLocalFileSystem) fs).pathToFile(path));
+    }
+    return new StreamFileRangeReader(fs, path);
+  }
+
+  /**
+   * Returns the length of the file.
+   */
+  abstract long getLength() throws IOException;
+
+  /**
+   * Returns the bytes in the given range of the file.
+   */
+  abstract ByteBuffer read(long offset, int length) throws IOException;
+
+  /**
+   * Maps ranges of a local file into memory.
+   */
+  private static final class MappedFileRangeReader extends FileRangeReader {
+    private final FileChannel channel;
+
+    private MappedFileRangeReader(File file) throws IOException {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    @Override
+    long getLength() throws IOException {
+      return channel.size();
+    }
+
+    @Override
+    ByteBuffer read(long offset, int length) throws IOException {
+      // the mapping stays valid after the channel is closed, until the buffer is garbage collected
+      return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads ranges of a file on any filesystem with positioned reads.
+   */
+  private static final class StreamFileRangeReader extends FileRangeReader {
+    private final FileSystem fs;
+    private final Path path;
+    private final FSDataInputStream input;
+
+    private StreamFileRangeReader(FileSystem fs, Path path) throws IOException {
+      this.fs = fs;
+      this.path = path;
+      this.input = fs.open(path);
+    }
+
+    @Override
+    long getLength() throws IOException {
+      return fs.getFileStatus(path).getLen();
+    }
+
+    @Override
+    ByteBuffer read(long offset, int length) throws IOException {
+      byte[] bytes = new byte[length];
+      input.readFully(offset, bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+}
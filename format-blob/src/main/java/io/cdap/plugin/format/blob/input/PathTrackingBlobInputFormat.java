@@ -36,9 +36,11 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 /**
- * Blob input format
+ * Blob input format. Reads each file into a single record with a byte array body, or into records of fixed size
+ * chunks with a ByteBuffer body if a chunk size is configured. Chunks of local files are memory mapped.
  */
 public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
+  static final String CHUNK_SIZE = "blob.chunk.size";
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
@@ -48,8 +50,8 @@ public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
 
   @Override
   protected boolean isSplitable(JobContext context, Path filename) {
-    // Blobs should not be splitable.
-    return false;
+    // Blobs should not be splitable, unless they are read in chunks.
+    return context.getConfiguration().getLong(CHUNK_SIZE, 0L) > 0;
   }
 
   @Override
@@ -57,59 +59,120 @@ public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
                                                                                     TaskAttemptContext context,
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema) {
-    if (split.getLength() > Integer.MAX_VALUE) {
-      throw new IllegalArgumentException("Blob format cannot be used with files larger than 2GB");
+    long chunkSize = context.getConfiguration().getLong(CHUNK_SIZE, 0L);
+    if (chunkSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Blob format cannot be used with chunks larger than 2GB");
     }
-    return new RecordReader<NullWritable, StructuredRecord.Builder>() {
-      boolean hasNext;
-      byte[] val;
-
-      @Override
-      public void initialize(InputSplit split, TaskAttemptContext context) {
-        hasNext = true;
-        val = null;
+    if (chunkSize <= 0 && split.getLength() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Blob format cannot be used with files larger than 2GB, " +
+                                           "unless they are read in chunks");
+    }
+    return new BlobRecordReader(schema, (int) chunkSize);
+  }
+
+  /**
+   * Reads a whole file into a byte array, or the chunks that start in a split into ByteBuffers.
+   */
+  static class BlobRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+    private final Schema schema;
+    private final int chunkSize;
+    private final boolean hasOffset;
+    private final boolean hasSequence;
+    private Path path;
+    private FileSystem fs;
+    private FileRangeReader reader;
+    private long fileLength;
+    private long start;
+    private long end;
+    private long offset;
+    private Object val;
+    private long valOffset;
+
+    BlobRecordReader(Schema schema, int chunkSize) {
+      this.schema = schema;
+      this.chunkSize = chunkSize;
+      this.hasOffset = schema.getField(BlobInputFormatProvider.BlobConfig.NAME_OFFSET) != null;
+      this.hasSequence = schema.getField(BlobInputFormatProvider.BlobConfig.NAME_SEQUENCE) != null;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      FileSplit fileSplit = (FileSplit) split;
+      val = null;
+      if (fileSplit.getLength() == 0) {
+        start = end = offset = 0;
+        return;
       }
 
-      @Override
-      public boolean nextKeyValue() throws IOException {
-        if (!hasNext) {
-          return false;
-        }
-        hasNext = false;
-        if (split.getLength() == 0) {
-          return false;
-        }
+      if (chunkSize <= 0) {
+        path = fileSplit.getPath();
+        fs = path.getFileSystem(context.getConfiguration());
+        start = offset = 0;
+        end = fileLength = fileSplit.getLength();
+        return;
+      }
+      reader = FileRangeReader.open(fileSplit.getPath(), context.getConfiguration());
+      // a split reads the chunks that start in it, even if they end in the next split
+      fileLength = reader.getLength();
+      start = fileSplit.getStart();
+      offset = (start + chunkSize - 1) / chunkSize * chunkSize;
+      end = Math.min(start + fileSplit.getLength(), fileLength);
+    }
 
-        Path path = split.getPath();
-        FileSystem fs = path.getFileSystem(context.getConfiguration());
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      if (offset >= end) {
+        return false;
+      }
+      if (chunkSize <= 0) {
+        // the whole file is read into a byte array
+        byte[] bytes = new byte[(int) fileLength];
         try (FSDataInputStream input = fs.open(path)) {
-          val = new byte[(int) split.getLength()];
-          ByteStreams.readFully(input, val);
+          ByteStreams.readFully(input, bytes);
         }
+        val = bytes;
+        valOffset = offset;
+        offset = end;
         return true;
       }
+      int length = (int) Math.min(chunkSize, fileLength - offset);
+      val = reader.read(offset, length);
+      valOffset = offset;
+      offset += length;
+      return true;
+    }
 
-      @Override
-      public NullWritable getCurrentKey() {
-        return NullWritable.get();
-      }
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
 
-      @Override
-      public StructuredRecord.Builder getCurrentValue() {
-        String fieldName = schema.getFields().iterator().next().getName();
-        return StructuredRecord.builder(schema).set(fieldName, val);
+    @Override
+    public StructuredRecord.Builder getCurrentValue() {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+        .set(BlobInputFormatProvider.BlobConfig.NAME_BODY, val);
+      if (hasOffset) {
+        builder.set(BlobInputFormatProvider.BlobConfig.NAME_OFFSET, valOffset);
+      }
+      if (hasSequence) {
+        builder.set(BlobInputFormatProvider.BlobConfig.NAME_SEQUENCE, chunkSize <= 0 ? 0L : valOffset / chunkSize);
       }
+      return builder;
+    }
 
-      @Override
-      public float getProgress() {
+    @Override
+    public float getProgress() {
+      if (end == start) {
         return 0.0f;
       }
+      return Math.min(1.0f, (offset - start) / (float) (end - start));
+    }
 
-      @Override
-      public void close() {
-        // no-op
+    @Override
+    public void close() throws IOException {
+      if (reader != null) {
+        reader.close();
       }
-    };
-
+    }
   }
 }
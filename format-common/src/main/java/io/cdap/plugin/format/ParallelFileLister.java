@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.InvalidInputException;
+import org.apache.hadoop.mapreduce.security.TokenCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Lists the input files of a job the same way as {@link FileInputFormat#listStatus(JobContext)}, except that
+ * directories are listed by multiple threads, and that a {@link RegexPathFilter} is applied to the FileStatus
+ * returned by the listing, without looking up the status of each path again.
+ */
+public final class ParallelFileLister {
+  public static final int DEFAULT_NUM_THREADS = 1;
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelFileLister.class);
+  private static final String NUM_THREADS = "path.listing.num.threads";
+  private static final PathFilter HIDDEN_FILE_FILTER = path -> {
+    String name = path.getName();
+    return !name.startsWith("_") && !name.startsWith(".");
+  };
+
+  private final Configuration conf;
+  private final boolean recursive;
+  private final PathFilter filter;
+  private final int numThreads;
+
+  private ParallelFileLister(Configuration conf, boolean recursive, @Nullable PathFilter filter, int numThreads) {
+    this.conf = conf;
+    this.recursive = recursive;
+    this.filter = filter;
+    this.numThreads = numThreads;
+  }
+
+  public static void configure(Configuration conf, int numThreads) {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("The number of listing threads must be at least 1.");
+    }
+    conf.setInt(NUM_THREADS, numThreads);
+  }
+
+  /**
+   * Lists the files of the input paths of a job, using the input path filter of the job.
+   *
+   * @param job the job to list the input files of
+   * @return the status of each input file
+   * @throws IOException if an input path does not exist or could not be listed
+   */
+  public static List<FileStatus> listStatus(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    Path[] dirs = FileInputFormat.getInputPaths(job);
+    if (dirs.length == 0) {
+      throw new IOException("No input paths specified in job");
+    }
+    TokenCache.obtainTokensForNamenodes(job.getCredentials(), dirs, conf);
+
+    ParallelFileLister lister = new ParallelFileLister(conf, FileInputFormat.getInputDirRecursive(job),
+                                                       FileInputFormat.getInputPathFilter(job),
+                                                       conf.getInt(NUM_THREADS, DEFAULT_NUM_THREADS));
+    long start = System.nanoTime();
+    List<FileStatus> files = lister.list(dirs);
+    LOG.info("Listed {} input files in {} ms using {} threads.", files.size(),
+             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lister.numThreads);
+    return files;
+  }
+
+  private List<FileStatus> list(Path[] dirs) throws IOException {
+    List<FileStatus> result = new ArrayList<>();
+    List<IOException> errors = new ArrayList<>();
+    ExecutorService executor = numThreads == 1 ? MoreExecutors.sameThreadExecutor() :
+      Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+        .setNameFormat("file-lister-%d").setDaemon(true).build());
+    CompletionService<List<FileStatus>> completionService = new ExecutorCompletionService<>(executor);
+    int pending = 0;
+    try {
+      for (Path dir : dirs) {
+        FileSystem fs = dir.getFileSystem(conf);
+        FileStatus[] matches = fs.globStatus(dir, HIDDEN_FILE_FILTER);
+        if (matches == null) {
+          errors.add(new IOException("Input path does not exist: " + dir));
+        } else if (matches.length == 0) {
+          errors.add(new IOException("Input Pattern " + dir + " matches 0 files"));
+        } else {
+          for (FileStatus match : matches) {
+            if (!accept(match)) {
+              continue;
+            }
+            if (match.isDirectory()) {
+              completionService.submit(() -> listDirectory(fs, match.getPath()));
+              pending++;
+            } else {
+              result.add(match);
+            }
+          }
+        }
+      }
+
+      while (pending > 0) {
+        List<FileStatus> children = completionService.take().get();
+        pending--;
+        for (FileStatus child : children) {
+          if (recursive && child.isDirectory()) {
+            FileSystem fs = child.getPath().getFileSystem(conf);
+            completionService.submit(() -> listDirectory(fs, child.getPath()));
+            pending++;
+          } else {
+            result.add(child);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while listing input files.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to list input files.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (!errors.isEmpty()) {
+      throw new InvalidInputException(errors);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the accepted children of a directory. Their status includes their block locations if the filesystem
+   * supports it, so that they don't have to be looked up again when computing splits.
+   */
+  private List<FileStatus> listDirectory(FileSystem fs, Path dir) throws IOException {
+    List<FileStatus> children = new ArrayList<>();
+    RemoteIterator<? extends FileStatus> iterator = fs.listLocatedStatus(dir);
+    while (iterator.hasNext()) {
+      FileStatus child = iterator.next();
+      if (HIDDEN_FILE_FILTER.accept(child.getPath()) && accept(child)) {
+        children.add(child);
+      }
+    }
+    return children;
+  }
+
+  private boolean accept(FileStatus status) {
+    if (filter == null) {
+      return true;
+    }
+    if (filter instanceof RegexPathFilter) {
+      return ((RegexPathFilter) filter).accept(status);
+    }
+    return filter.accept(status.getPath());
+  }
+}
@@ -18,15 +18,19 @@ package io.cdap.plugin.format;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.regex.Pattern;
 
 /**
  * A PathFilter that only allows files whose name matches a specific regex.
+ *
+ * Listings that already have the {@link FileStatus} of each path, such as the {@link ParallelFileLister}, should use
+ * {@link #accept(FileStatus)}, which does not need to look up whether the path is a directory.
  */
 public class RegexPathFilter extends Configured implements PathFilter {
   private static final String REGEX = "path.filter.regex";
@@ -36,21 +40,31 @@ public class RegexPathFilter extends Configured implements PathFilter {
     conf.set(REGEX, regex.pattern());
   }
 
+  /**
+   * Accepts directories, so that they can be listed, and files whose path matches the regex.
+   */
+  public boolean accept(FileStatus status) {
+    return status.isDirectory() || matches(status.getPath());
+  }
+
+  /**
+   * Accepts a path without its status, which has to be looked up to know whether the path is a directory.
+   */
   @Override
   public boolean accept(Path path) {
     try {
-      FileSystem fileSystem = path.getFileSystem(getConf());
-      if (fileSystem.isDirectory(path)) {
-        return true;
-      } else if (fileSystem.isFile(path)) {
-        return pattern == null || pattern.matcher(path.toUri().getPath()).matches();
-      }
+      return accept(path.getFileSystem(getConf()).getFileStatus(path));
+    } catch (FileNotFoundException e) {
       return false;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  private boolean matches(Path path) {
+    return pattern == null || pattern.matcher(path.toUri().getPath()).matches();
+  }
+
   @Override
   public void setConf(Configuration conf) {
     super.setConf(conf);
@@ -18,15 +18,19 @@ package io.cdap.plugin.format.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.ParallelFileLister;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
 import java.io.IOException;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -69,6 +73,15 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     return new TrackingRecordReader(delegate, pathField, path);
   }
 
+  /**
+   * Lists the input files with a {@link ParallelFileLister}, which lists directories in parallel and filters paths
+   * without looking up their status again.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return ParallelFileLister.listStatus(job);
+  }
+
   protected abstract RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(
     FileSplit split, TaskAttemptContext context,
     @Nullable String pathField, @Nullable Schema schema) throws IOException, InterruptedException;
@@ -36,6 +36,7 @@ import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.ParallelFileLister;
 import io.cdap.plugin.format.RegexPathFilter;
 import io.cdap.plugin.format.input.EmptyInputFormat;
 import org.apache.hadoop.conf.Configuration;
@@ -164,6 +165,7 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
       FileInputFormat.setInputPathFilter(job, RegexPathFilter.class);
     }
     FileInputFormat.setInputDirRecursive(job, config.shouldReadRecursively());
+    ParallelFileLister.configure(conf, config.getListingThreads());
 
     Schema schema = config.getSchema();
     LineageRecorder lineageRecorder = new LineageRecorder(context, config.getReferenceName());
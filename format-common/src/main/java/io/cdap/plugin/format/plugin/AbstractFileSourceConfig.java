@@ -25,6 +25,7 @@ import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.ParallelFileLister;
 
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
@@ -38,6 +39,7 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
   public static final String NAME_FORMAT = "format";
   public static final String NAME_SCHEMA = "schema";
   public static final String NAME_DELIMITER = "delimiter";
+  public static final String NAME_LISTING_THREADS = "listingThreads";
   
   @Description("Name be used to uniquely identify this source for lineage, annotating metadata, etc.")
   private String referenceName;
@@ -74,6 +76,14 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
   @Description("Whether to recursively read directories within the input directory. The default is false.")
   private Boolean recursive;
 
+  @Name(NAME_LISTING_THREADS)
+  @Macro
+  @Nullable
+  @Description("Number of threads used to list the files in the input directories. Listing directories in " +
+    "parallel reduces the time to plan the splits of inputs that have many directories, such as when reading " +
+    "recursively. The default value is 1.")
+  private Integer listingThreads;
+
   @Name(PATH_FIELD)
   @Macro
   @Nullable
@@ -107,6 +117,38 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
                  "'delimited'. Default value is false.")
   private Boolean skipHeader;
 
+  @Macro
+  @Nullable
+  @Description("Whether to treat content between double quotes as a value, as in RFC 4180. Supported formats are " +
+                 "'csv', 'tsv', 'delimited'. A quoted value can contain the delimiter, line breaks and doubled " +
+                 "quotes, which are read as a single quote. Files are not split when this is enabled. " +
+                 "Default value is false.")
+  private Boolean enableQuotedValues;
+
+  @Macro
+  @Nullable
+  @Description("Whether each file contains a single json array of records, instead of one json record per line. " +
+                 "The array and its records can span any number of lines. Supported formats are 'json'. " +
+                 "Files are not split when this is enabled. Default value is false.")
+  private Boolean jsonArray;
+
+  @Macro
+  @Nullable
+  @Description("Filter on the values of the columns, such as \"country IN ('US', 'CA') AND age >= 18\". " +
+                 "Supported formats are 'parquet'. Unlike SQL, !=, NOT IN and NOT of = or IN keep the rows whose " +
+                 "column is null. Row groups whose column statistics show that none of their rows match are not " +
+                 "read. Requires a schema.")
+  private String filter;
+
+  @Macro
+  @Nullable
+  @Description("Size in bytes of the chunks to read files in. Supported formats are 'blob'. If set, each chunk of " +
+                 "a file is read into a separate record that can contain the 'offset' and 'sequence' number of the " +
+                 "chunk, and files are split on chunk boundaries. The body of a chunk is a ByteBuffer, which is " +
+                 "memory mapped for local files. If not set, each file is read into a single record with a byte " +
+                 "array body.")
+  private Long chunkSize;
+
   // this is a hidden property that only exists for wrangler's parse-as-csv that uses the header as the schema
   // when this is true and the format is text, the header will be the first record returned by every record reader
   @Nullable
@@ -118,6 +160,7 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     maxSplitSize = 128L * 1024 * 1024;
     ignoreNonExistingFolders = false;
     recursive = false;
+    listingThreads = ParallelFileLister.DEFAULT_NUM_THREADS;
     filenameOnly = false;
     copyHeader = false;
   }
@@ -134,6 +177,10 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     } catch (IllegalArgumentException e) {
       collector.addFailure(e.getMessage(), null).withConfigProperty(NAME_SCHEMA).withStacktrace(e.getStackTrace());
     }
+    if (!containsMacro(NAME_LISTING_THREADS) && listingThreads != null && listingThreads < 1) {
+      collector.addFailure(String.format("Invalid number of listing threads %d.", listingThreads),
+                           "Set it to a number greater than 0.").withConfigProperty(NAME_LISTING_THREADS);
+    }
 
     // if failure collector has not collected any errors, that would mean either validation has succeeded or config
     // is using deprecated validate method without collector. In that case, call deprecated validate method.
@@ -184,6 +231,11 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     return recursive;
   }
 
+  @Override
+  public int getListingThreads() {
+    return listingThreads == null ? ParallelFileLister.DEFAULT_NUM_THREADS : listingThreads;
+  }
+
   @Nullable
   @Override
   public String getPathField() {
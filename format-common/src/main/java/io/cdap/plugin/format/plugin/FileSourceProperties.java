@@ -19,6 +19,7 @@ package io.cdap.plugin.format.plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.ParallelFileLister;
 
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
@@ -104,6 +105,13 @@ public interface FileSourceProperties {
    */
   boolean shouldReadRecursively();
 
+  /**
+   * Get the number of threads used to list the input files.
+   */
+  default int getListingThreads() {
+    return ParallelFileLister.DEFAULT_NUM_THREADS;
+  }
+
   /**
    * The output field to place the file path that the record was read from, if path tracking should be done.
    */
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.InvalidInputException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for {@link ParallelFileLister}.
+ */
+public class ParallelFileListerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File root;
+
+  @Before
+  public void setUp() throws IOException {
+    // root/a.csv, root/b.txt, root/_SUCCESS, root/.hidden/h.csv, root/x/c.csv, root/x/y/d.csv, root/x/y/z/e.txt
+    root = temporaryFolder.newFolder("input");
+    createFile(root, "a.csv");
+    createFile(root, "b.txt");
+    createFile(root, "_SUCCESS");
+    createFile(new File(root, ".hidden"), "h.csv");
+    createFile(new File(root, "x"), "c.csv");
+    createFile(new File(root, "x/y"), "d.csv");
+    createFile(new File(root, "x/y/z"), "e.txt");
+  }
+
+  @Test
+  public void testListRecursive() throws IOException {
+    Job job = createJob(1, root.getPath());
+    FileInputFormat.setInputDirRecursive(job, true);
+
+    Assert.assertEquals(names("a.csv", "b.txt", "c.csv", "d.csv", "e.txt"), listNames(job));
+  }
+
+  @Test
+  public void testListNonRecursive() throws IOException {
+    Job job = createJob(1, root.getPath());
+
+    // without recursion, directories are returned like files, as FileInputFormat does
+    Assert.assertEquals(names("a.csv", "b.txt", "x"), listNames(job));
+  }
+
+  @Test
+  public void testListWithRegexFilter() throws IOException {
+    Job job = createJob(1, root.getPath());
+    FileInputFormat.setInputDirRecursive(job, true);
+    FileInputFormat.setInputPathFilter(job, RegexPathFilter.class);
+    RegexPathFilter.configure(job.getConfiguration(), Pattern.compile(".*\\.csv"));
+
+    Assert.assertEquals(names("a.csv", "c.csv", "d.csv"), listNames(job));
+  }
+
+  @Test
+  public void testListWithMultipleThreads() throws IOException {
+    // enough directories that several of them are listed at the same time
+    for (int i = 0; i < 20; i++) {
+      File dir = new File(root, "dir" + i);
+      createFile(dir, "f" + i + ".csv");
+      createFile(new File(dir, "sub"), "g" + i + ".csv");
+    }
+    Job job = createJob(4, root.getPath(), new File(root, "x").getPath());
+    FileInputFormat.setInputDirRecursive(job, true);
+
+    Set<String> expected = names("a.csv", "b.txt", "c.csv", "d.csv", "e.txt", "c.csv", "d.csv", "e.txt");
+    for (int i = 0; i < 20; i++) {
+      expected.add("f" + i + ".csv");
+      expected.add("g" + i + ".csv");
+    }
+    List<FileStatus> files = ParallelFileLister.listStatus(job);
+    Assert.assertEquals(expected, toNames(files));
+    // the files under x are listed once for each input path
+    Assert.assertEquals(20 * 2 + 5 + 3, files.size());
+  }
+
+  @Test
+  public void testListGlob() throws IOException {
+    Job job = createJob(2, new File(root, "x").getPath() + "/*/*.csv", new File(root, "*.txt").getPath());
+
+    Assert.assertEquals(names("d.csv", "b.txt"), listNames(job));
+  }
+
+  @Test
+  public void testMissingPath() throws IOException {
+    Job job = createJob(2, root.getPath(), new File(root, "missing").getPath());
+
+    try {
+      ParallelFileLister.listStatus(job);
+      Assert.fail("Expected the listing to fail for a path that does not exist");
+    } catch (InvalidInputException e) {
+      Assert.assertEquals(1, e.getProblems().size());
+      Assert.assertTrue(e.getMessage().contains("Input path does not exist"));
+    }
+  }
+
+  @Test
+  public void testEmptyGlob() throws IOException {
+    Job job = createJob(2, new File(root, "*.json").getPath());
+
+    try {
+      ParallelFileLister.listStatus(job);
+      Assert.fail("Expected the listing to fail for a glob that does not match any file");
+    } catch (InvalidInputException e) {
+      Assert.assertEquals(1, e.getProblems().size());
+      Assert.assertTrue(e.getMessage().contains("matches 0 files"));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNoInputPaths() throws IOException {
+    ParallelFileLister.listStatus(Job.getInstance(new Configuration()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumThreads() {
+    ParallelFileLister.configure(new Configuration(), 0);
+  }
+
+  private static Job createJob(int numThreads, String... paths) throws IOException {
+    Job job = Job.getInstance(new Configuration());
+    ParallelFileLister.configure(job.getConfiguration(), numThreads);
+    Path[] inputPaths = new Path[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      inputPaths[i] = new Path(paths[i]);
+    }
+    FileInputFormat.setInputPaths(job, inputPaths);
+    return job;
+  }
+
+  private static Set<String> listNames(Job job) throws IOException {
+    List<FileStatus> files = ParallelFileLister.listStatus(job);
+    Set<String> names = toNames(files);
+    Assert.assertEquals(names.size(), files.size());
+    return names;
+  }
+
+  private static Set<String> toNames(List<FileStatus> files) {
+    Set<String> names = new HashSet<>();
+    for (FileStatus file : files) {
+      names.add(file.getPath().getName());
+    }
+    return names;
+  }
+
+  private static Set<String> names(String... names) {
+    Set<String> set = new HashSet<>();
+    for (String name : names) {
+      set.add(name);
+    }
+    return set;
+  }
+
+  private static void createFile(File dir, String name) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Failed to create directory " + dir);
+    }
+    if (!new File(dir, name).createNewFile()) {
+      throw new IOException("Failed to create file " + name + " in " + dir);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for {@link RegexPathFilter}.
+ */
+public class RegexPathFilterTest {
+
+  @ClassRule
+  public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testAcceptFileStatus() {
+    RegexPathFilter filter = createFilter(".*/data/[a-z]+\\.csv");
+
+    Assert.assertTrue(filter.accept(fileStatus("/input/data/users.csv", false)));
+    Assert.assertFalse(filter.accept(fileStatus("/input/data/users.txt", false)));
+    Assert.assertFalse(filter.accept(fileStatus("/input/other/users.csv", false)));
+    // directories are accepted whatever their path, so that the files in them can be listed
+    Assert.assertTrue(filter.accept(fileStatus("/input/other", true)));
+  }
+
+  @Test
+  public void testAcceptFileStatusWithoutRegex() {
+    RegexPathFilter filter = new RegexPathFilter();
+    filter.setConf(new Configuration());
+
+    Assert.assertTrue(filter.accept(fileStatus("/input/data/users.txt", false)));
+    Assert.assertTrue(filter.accept(fileStatus("/input/data", true)));
+  }
+
+  @Test
+  public void testAcceptPath() throws Exception {
+    File dir = temporaryFolder.newFolder("other");
+    File matching = new File(dir, "users.csv");
+    File notMatching = new File(dir, "users.txt");
+    Assert.assertTrue(matching.createNewFile());
+    Assert.assertTrue(notMatching.createNewFile());
+    RegexPathFilter filter = createFilter(".*\\.csv");
+
+    Assert.assertTrue(filter.accept(new Path(matching.toURI())));
+    Assert.assertFalse(filter.accept(new Path(notMatching.toURI())));
+    Assert.assertTrue(filter.accept(new Path(dir.toURI())));
+    // a path that doesn't exist is not accepted, even if it matches
+    Assert.assertFalse(filter.accept(new Path(new File(dir, "missing.csv").toURI())));
+  }
+
+  private static RegexPathFilter createFilter(String regex) {
+    Configuration conf = new Configuration();
+    RegexPathFilter.configure(conf, Pattern.compile(regex));
+    RegexPathFilter filter = new RegexPathFilter();
+    filter.setConf(conf);
+    return filter;
+  }
+
+  private static FileStatus fileStatus(String path, boolean isDirectory) {
+    return new FileStatus(isDirectory ? 0L : 10L, isDirectory, 1, 128L, 0L, new Path("file://" + path));
+  }
+}
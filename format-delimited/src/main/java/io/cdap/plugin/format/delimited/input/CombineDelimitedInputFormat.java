@@ -19,6 +19,7 @@ package io.cdap.plugin.format.delimited.input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -43,6 +44,13 @@ public class CombineDelimitedInputFormat extends CombineFileInputFormat<NullWrit
                                               CombineDelimitedInputFormat.super::getSplits);
   }
 
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    // a quoted value can contain line breaks, so a split could start in the middle of a record
+    return !context.getConfiguration().getBoolean(PathTrackingDelimitedInputFormat.ENABLE_QUOTED_VALUES, false) &&
+      super.isSplitable(context, file);
+  }
+
   /**
    * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
    */
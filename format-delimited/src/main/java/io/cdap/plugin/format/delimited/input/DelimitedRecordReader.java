@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the lines of a delimited file into records, parsing the UTF-8 bytes of each line directly.
+ *
+ * Fields are found by comparing the bytes of the line with the bytes of the delimiter, and converted with a converter
+ * that is resolved once for each field of the schema. Integer, long and boolean values are parsed from the bytes,
+ * and only the values of the other types are decoded into strings. Empty values are read as null.
+ *
+ * If quoted values are enabled, a value that starts with a double quote ends at the next double quote that is not
+ * doubled, as in RFC 4180. The value can contain the delimiter, line breaks and doubled quotes, which are read as a
+ * single quote. Line breaks in quoted values are read as '\n'. A record with a line break in a quoted value spans
+ * several lines of the file, so files are not split when quoted values are enabled.
+ */
+final class DelimitedRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private static final byte QUOTE = '"';
+  private static final byte[] LINE_BREAK = {'\n'};
+
+  private final RecordReader<LongWritable, Text> delegate;
+  private final Schema schema;
+  private final byte[] delimiter;
+  private final boolean quotedValues;
+  private final boolean skipHeader;
+  private final String[] fieldNames;
+  private final FieldConverter[] converters;
+  // record that spans several lines
+  private final Text multiLineRecord;
+  // start and end of each value of the current record, and whether it contains doubled quotes
+  private int[] valueStarts;
+  private int[] valueEnds;
+  private boolean[] valueEscaped;
+  private int numValues;
+  // value of a quoted field without the doubled quotes
+  private byte[] unescaped;
+  private StructuredRecord.Builder value;
+
+  DelimitedRecordReader(RecordReader<LongWritable, Text> delegate, Schema schema, String delimiter,
+                        boolean quotedValues, boolean skipHeader) {
+    if (delimiter == null || delimiter.isEmpty()) {
+      throw new IllegalArgumentException("The delimiter must not be empty.");
+    }
+    this.delegate = delegate;
+    this.schema = schema;
+    this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+    this.quotedValues = quotedValues;
+    this.skipHeader = skipHeader;
+
+    List<Schema.Field> fields = schema.getFields();
+    this.fieldNames = new String[fields.size()];
+    this.converters = new FieldConverter[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      fieldNames[i] = field.getName();
+      converters[i] = getConverter(field.getSchema().isNullable() ? field.getSchema().getNonNullable() :
+                                     field.getSchema());
+    }
+    this.multiLineRecord = new Text();
+    this.valueStarts = new int[fields.size() + 1];
+    this.valueEnds = new int[fields.size() + 1];
+    this.valueEscaped = new boolean[fields.size() + 1];
+    this.unescaped = new byte[0];
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+    delegate.initialize(split, context);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    while (delegate.nextKeyValue()) {
+      boolean header = skipHeader && delegate.getCurrentKey().get() == 0L;
+      Text record = delegate.getCurrentValue();
+      if (!split(record.getBytes(), record.getLength())) {
+        // a quoted value continues on the next lines
+        multiLineRecord.set(record);
+        do {
+          if (!delegate.nextKeyValue()) {
+            throw new IOException("Found a quoted value that is not closed at the end of the file.");
+          }
+          multiLineRecord.append(LINE_BREAK, 0, LINE_BREAK.length);
+          Text line = delegate.getCurrentValue();
+          multiLineRecord.append(line.getBytes(), 0, line.getLength());
+        } while (!split(multiLineRecord.getBytes(), multiLineRecord.getLength()));
+        record = multiLineRecord;
+      }
+      // skip to next if the current record is header
+      if (header) {
+        continue;
+      }
+      value = convert(record.getBytes());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    return delegate.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  /**
+   * Finds the values of a record.
+   *
+   * @return false if the record ends in a quoted value, which continues on the next line
+   */
+  private boolean split(byte[] bytes, int length) throws IOException {
+    numValues = 0;
+    int pos = 0;
+    while (true) {
+      int end;
+      int next;
+      if (quotedValues && pos < length && bytes[pos] == QUOTE) {
+        int start = pos + 1;
+        boolean escaped = false;
+        end = start;
+        while (true) {
+          if (end >= length) {
+            return false;
+          }
+          if (bytes[end] == QUOTE) {
+            if (end + 1 < length && bytes[end + 1] == QUOTE) {
+              escaped = true;
+              end += 2;
+              continue;
+            }
+            break;
+          }
+          end++;
+        }
+        next = end + 1;
+        if (next < length && !isDelimiter(bytes, next, length)) {
+          throw new IOException(String.format("Found '%s' after the closing quote of value %d instead of the " +
+                                                "delimiter.", (char) bytes[next], numValues + 1));
+        }
+        addValue(start, end, escaped);
+      } else {
+        end = indexOfDelimiter(bytes, pos, length);
+        next = end;
+        addValue(pos, end, false);
+      }
+      if (next >= length) {
+        return true;
+      }
+      pos = next + delimiter.length;
+    }
+  }
+
+  private void addValue(int start, int end, boolean escaped) {
+    if (numValues == valueStarts.length) {
+      valueStarts = Arrays.copyOf(valueStarts, numValues * 2);
+      valueEnds = Arrays.copyOf(valueEnds, numValues * 2);
+      valueEscaped = Arrays.copyOf(valueEscaped, numValues * 2);
+    }
+    valueStarts[numValues] = start;
+    valueEnds[numValues] = end;
+    valueEscaped[numValues] = escaped;
+    numValues++;
+  }
+
+  private StructuredRecord.Builder convert(byte[] bytes) throws IOException {
+    if (numValues > fieldNames.length) {
+      int numSchemaFields = fieldNames.length;
+      String message = String.format("Found a row with %d fields when the schema only contains %d field%s.",
+                                     numValues, numSchemaFields, numSchemaFields == 1 ? "" : "s");
+      // special error handling for the case when the user most likely set the schema to delimited
+      // when they meant to use 'text'.
+      Schema.Field bodyField = schema.getField("body");
+      if (bodyField != null) {
+        Schema bodySchema = bodyField.getSchema();
+        bodySchema = bodySchema.isNullable() ? bodySchema.getNonNullable() : bodySchema;
+        if (bodySchema.getType() == Schema.Type.STRING) {
+          throw new IOException(message + " Did you mean to use the 'text' format?");
+        }
+      }
+      throw new IOException(message + " Check that the schema contains the right number of fields.");
+    }
+
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < numValues; i++) {
+      int start = valueStarts[i];
+      int end = valueEnds[i];
+      if (start == end) {
+        builder.set(fieldNames[i], null);
+      } else if (valueEscaped[i]) {
+        int length = unescape(bytes, start, end);
+        converters[i].set(builder, fieldNames[i], unescaped, 0, length);
+      } else {
+        converters[i].set(builder, fieldNames[i], bytes, start, end);
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * Copies a quoted value to {@link #unescaped}, replacing doubled quotes with a single quote.
+   *
+   * @return the length of the value
+   */
+  private int unescape(byte[] bytes, int start, int end) {
+    if (unescaped.length < end - start) {
+      unescaped = new byte[end - start];
+    }
+    int length = 0;
+    for (int i = start; i < end; i++) {
+      unescaped[length++] = bytes[i];
+      if (bytes[i] == QUOTE) {
+        // skip the second quote
+        i++;
+      }
+    }
+    return length;
+  }
+
+  private int indexOfDelimiter(byte[] bytes, int from, int length) {
+    if (delimiter.length == 1) {
+      byte first = delimiter[0];
+      for (int i = from; i < length; i++) {
+        if (bytes[i] == first) {
+          return i;
+        }
+      }
+      return length;
+    }
+    for (int i = from; i <= length - delimiter.length; i++) {
+      if (isDelimiter(bytes, i, length)) {
+        return i;
+      }
+    }
+    return length;
+  }
+
+  private boolean isDelimiter(byte[] bytes, int pos, int length) {
+    if (pos + delimiter.length > length) {
+      return false;
+    }
+    for (int i = 0; i < delimiter.length; i++) {
+      if (bytes[pos + i] != delimiter[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static FieldConverter getConverter(Schema fieldSchema) {
+    if (fieldSchema.getLogicalType() != null) {
+      return (builder, name, bytes, start, end) -> builder.convertAndSet(name, toString(bytes, start, end));
+    }
+    switch (fieldSchema.getType()) {
+      case STRING:
+        return (builder, name, bytes, start, end) -> builder.set(name, toString(bytes, start, end));
+      case INT:
+        return (builder, name, bytes, start, end) -> builder.set(name, parseInt(bytes, start, end));
+      case LONG:
+        return (builder, name, bytes, start, end) -> builder.set(name, parseLong(bytes, start, end));
+      case BOOLEAN:
+        // same as Boolean.parseBoolean
+        return (builder, name, bytes, start, end) ->
+          builder.set(name, end - start == 4 && (bytes[start] | 0x20) == 't' && (bytes[start + 1] | 0x20) == 'r' &&
+            (bytes[start + 2] | 0x20) == 'u' && (bytes[start + 3] | 0x20) == 'e');
+      case FLOAT:
+        return (builder, name, bytes, start, end) -> builder.set(name, Float.parseFloat(toString(bytes, start, end)));
+      case DOUBLE:
+        return (builder, name, bytes, start, end) ->
+          builder.set(name, Double.parseDouble(toString(bytes, start, end)));
+      default:
+        return (builder, name, bytes, start, end) -> builder.convertAndSet(name, toString(bytes, start, end));
+    }
+  }
+
+  private static String toString(byte[] bytes, int start, int end) {
+    return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses an int from ASCII digits, falling back to {@link Integer#parseInt(String)} for values that may overflow
+   * or contain other characters, so that the same values are accepted and the same exceptions are thrown.
+   */
+  private static int parseInt(byte[] bytes, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (bytes[i] == '-' || bytes[i] == '+') {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    // 9 digits can't overflow an int
+    if (i == end || end - i > 9) {
+      return Integer.parseInt(toString(bytes, start, end));
+    }
+    int value = 0;
+    for (; i < end; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return Integer.parseInt(toString(bytes, start, end));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a long from ASCII digits, falling back to {@link Long#parseLong(String)} for values that may overflow
+   * or contain other characters, so that the same values are accepted and the same exceptions are thrown.
+   */
+  private static long parseLong(byte[] bytes, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (bytes[i] == '-' || bytes[i] == '+') {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    // 18 digits can't overflow a long
+    if (i == end || end - i > 18) {
+      return Long.parseLong(toString(bytes, start, end));
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.parseLong(toString(bytes, start, end));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Converts the bytes of a non-empty value and sets it in a record.
+   */
+  private interface FieldConverter {
+    void set(StructuredRecord.Builder builder, String name, byte[] bytes, int start, int end);
+  }
+}
@@ -19,6 +19,7 @@ package io.cdap.plugin.format.json.input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -43,6 +44,13 @@ public class CombineJsonInputFormat extends CombineFileInputFormat<NullWritable,
                                               CombineJsonInputFormat.super::getSplits);
   }
 
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    // a json array can only be read from the start of the file
+    return !context.getConfiguration().getBoolean(PathTrackingJsonInputFormat.JSON_ARRAY, false) &&
+      super.isSplitable(context, file);
+  }
+
   /**
    * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
    */
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the objects of a file that contains a single json array, which can span any number of lines.
+ * The file must be read in a single split, since the array can't be read from an arbitrary offset.
+ */
+final class JsonArrayRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final JsonRecordDecoder decoder;
+  private FSDataInputStream fileIn;
+  private JsonReader reader;
+  private Path path;
+  private long length;
+  private boolean done;
+  private StructuredRecord.Builder value;
+
+  JsonArrayRecordReader(JsonRecordDecoder decoder) {
+    this.decoder = decoder;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    Configuration conf = context.getConfiguration();
+    path = fileSplit.getPath();
+    length = fileSplit.getLength();
+    // an empty file doesn't contain an array
+    done = length == 0;
+    if (done) {
+      return;
+    }
+
+    fileIn = path.getFileSystem(conf).open(path);
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+    InputStream input = codec == null ? fileIn : codec.createInputStream(fileIn);
+    reader = new JsonReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    try {
+      reader.beginArray();
+    } catch (IllegalStateException e) {
+      throw new IOException(String.format("File '%s' does not contain a json array.", path), e);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (done) {
+      return false;
+    }
+    if (!reader.hasNext()) {
+      reader.endArray();
+      done = true;
+      return false;
+    }
+    try {
+      value = decoder.decode(reader);
+    } catch (IllegalStateException | NumberFormatException e) {
+      throw new IOException(String.format("Unable to read a record of the json array in file '%s'.", path), e);
+    }
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    if (done) {
+      return 1.0f;
+    }
+    // for compressed files, this is the position in the compressed data
+    return Math.min(1.0f, fileIn.getPos() / (float) length);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      // closes the file as well
+      reader.close();
+    } else if (fileIn != null) {
+      fileIn.close();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Config for the json format.
+ */
+public class JsonConfig extends PathTrackingConfig {
+  public static final Map<String, PluginPropertyField> JSON_FIELDS;
+  private static final String JSON_ARRAY_DESC = "Whether each file contains a single json array of records, " +
+    "instead of one json record per line. The array and its records can span any number of lines. " +
+    "Files are not split when this is enabled. Default value is false.";
+
+  static {
+    Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
+    fields.put("jsonArray", new PluginPropertyField("jsonArray", JSON_ARRAY_DESC, "boolean", false, true));
+    JSON_FIELDS = Collections.unmodifiableMap(fields);
+  }
+
+  @Macro
+  @Nullable
+  @Description(JSON_ARRAY_DESC)
+  protected Boolean jsonArray;
+
+  public boolean getJsonArray() {
+    return jsonArray == null ? false : jsonArray;
+  }
+}
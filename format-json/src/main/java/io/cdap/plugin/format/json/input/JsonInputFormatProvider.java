@@ -27,20 +27,22 @@ import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
 import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
+import java.util.Map;
+
 /**
  * Reads json into StructuredRecords.
  */
 @Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
 @Name(JsonInputFormatProvider.NAME)
 @Description(JsonInputFormatProvider.DESC)
-public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<JsonConfig> {
   static final String NAME = "json";
   static final String DESC = "Plugin for reading files in json format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, JsonInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", JsonConfig.JSON_FIELDS);
 
-  public JsonInputFormatProvider(PathTrackingConfig conf) {
+  public JsonInputFormatProvider(JsonConfig conf) {
     super(conf);
   }
 
@@ -65,4 +67,9 @@ public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<Pat
         .withConfigProperty("schema");
     }
   }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    properties.put(PathTrackingJsonInputFormat.JSON_ARRAY, String.valueOf(conf.getJsonArray()));
+  }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes json objects into {@link StructuredRecord.Builder StructuredRecord.Builders} of a schema, reading the
+ * tokens of each object from a {@link JsonReader} and setting the fields of the builder as they are read.
+ *
+ * The decoder of each field is created once for the schema. Fields that are not in the schema are skipped without
+ * being decoded. Values of types that are rarely used in json, such as bytes, enums, unions and logical types,
+ * are decoded with {@link StructuredRecordStringConverter}, so that they are read the same way as before.
+ */
+final class JsonRecordDecoder {
+  private static final JsonParser JSON_PARSER = new JsonParser();
+  private static final String WRAPPER_RECORD = "JsonFieldWrapper";
+  private static final String WRAPPER_FIELD = "value";
+
+  private final Schema schema;
+  private final Map<String, FieldDecoder> fields;
+
+  /**
+   * Creates a decoder for records of the given schema.
+   *
+   * @param schema the schema of the records
+   * @param pathField the field that is set to the path of the file, which is not read from the json objects
+   */
+  JsonRecordDecoder(Schema schema, @Nullable String pathField) {
+    this(schema, pathField, new HashMap<>());
+  }
+
+  private JsonRecordDecoder(Schema schema, @Nullable String pathField, Map<String, JsonRecordDecoder> records) {
+    this.schema = schema;
+    this.fields = new HashMap<>();
+    // register the decoder before creating the field decoders, in case the schema is recursive
+    records.put(schema.getRecordName(), this);
+    for (Schema.Field field : schema.getFields()) {
+      if (!field.getName().equals(pathField)) {
+        fields.put(field.getName(), new FieldDecoder(field.getName(), createDecoder(field.getSchema(), records)));
+      }
+    }
+  }
+
+  /**
+   * Reads the next json object and sets the fields of a builder to its values.
+   *
+   * @param reader the reader to read the object from
+   * @return the builder for the record
+   * @throws IOException if the object could not be read or doesn't match the schema
+   */
+  StructuredRecord.Builder decode(JsonReader reader) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      FieldDecoder field = fields.get(reader.nextName());
+      if (field == null) {
+        reader.skipValue();
+      } else {
+        builder.set(field.name, field.decoder.decode(reader));
+      }
+    }
+    reader.endObject();
+    return builder;
+  }
+
+  private static ValueDecoder createDecoder(Schema schema, Map<String, JsonRecordDecoder> records) {
+    if (schema.isNullable()) {
+      ValueDecoder decoder = createDecoder(schema.getNonNullable(), records);
+      return reader -> {
+        if (reader.peek() == JsonToken.NULL) {
+          reader.nextNull();
+          return null;
+        }
+        return decoder.decode(reader);
+      };
+    }
+    if (schema.getLogicalType() != null) {
+      return createConverterDecoder(schema);
+    }
+
+    switch (schema.getType()) {
+      case NULL:
+        return reader -> {
+          reader.nextNull();
+          return null;
+        };
+      case BOOLEAN:
+        return JsonReader::nextBoolean;
+      case INT:
+        return JsonReader::nextInt;
+      case LONG:
+        return JsonReader::nextLong;
+      case FLOAT:
+        return reader -> (float) reader.nextDouble();
+      case DOUBLE:
+        return JsonReader::nextDouble;
+      case STRING:
+        return JsonReader::nextString;
+      case RECORD:
+        JsonRecordDecoder record = records.get(schema.getRecordName());
+        JsonRecordDecoder recordDecoder = record == null ? new JsonRecordDecoder(schema, null, records) : record;
+        return reader -> recordDecoder.decode(reader).build();
+      case ARRAY:
+        ValueDecoder componentDecoder = createDecoder(schema.getComponentSchema(), records);
+        return reader -> {
+          List<Object> values = new ArrayList<>();
+          reader.beginArray();
+          while (reader.hasNext()) {
+            values.add(componentDecoder.decode(reader));
+          }
+          reader.endArray();
+          return values;
+        };
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        if (mapSchema.getKey().getType() != Schema.Type.STRING) {
+          return createConverterDecoder(schema);
+        }
+        ValueDecoder valueDecoder = createDecoder(mapSchema.getValue(), records);
+        return reader -> {
+          Map<String, Object> values = new HashMap<>();
+          reader.beginObject();
+          while (reader.hasNext()) {
+            values.put(reader.nextName(), valueDecoder.decode(reader));
+          }
+          reader.endObject();
+          return values;
+        };
+      default:
+        return createConverterDecoder(schema);
+    }
+  }
+
+  /**
+   * Creates a decoder that reads the json value and converts it with {@link StructuredRecordStringConverter}.
+   */
+  private static ValueDecoder createConverterDecoder(Schema schema) {
+    Schema wrapperSchema = Schema.recordOf(WRAPPER_RECORD, Schema.Field.of(WRAPPER_FIELD, schema));
+    return reader -> {
+      JsonElement value = JSON_PARSER.parse(reader);
+      String json = "{\"" + WRAPPER_FIELD + "\":" + value + "}";
+      return StructuredRecordStringConverter.fromJsonString(json, wrapperSchema).get(WRAPPER_FIELD);
+    };
+  }
+
+  /**
+   * A field of the schema and the decoder for its values.
+   */
+  private static final class FieldDecoder {
+    private final String name;
+    private final ValueDecoder decoder;
+
+    private FieldDecoder(String name, ValueDecoder decoder) {
+      this.name = name;
+      this.decoder = decoder;
+    }
+  }
+
+  /**
+   * Reads a json value of a schema.
+   */
+  private interface ValueDecoder {
+    @Nullable
+    Object decode(JsonReader reader) throws IOException;
+  }
+}
@@ -16,58 +16,48 @@
 
 package io.cdap.plugin.format.json.input;
 
+import com.google.gson.stream.JsonReader;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.StringReader;
 import javax.annotation.Nullable;
 
 /**
  * Json format that tracks which file each record was read from.
  */
 public class PathTrackingJsonInputFormat extends PathTrackingInputFormat {
+  static final String JSON_ARRAY = "json_array";
 
-
-  private Schema getModifiedSchema(Schema schema, @Nullable String pathField) {
-    // if the path field is set, it might not be nullable
-    // if it's not nullable, decoding a string into a StructuredRecord will fail because a non-nullable
-    // field will have a null value.
-    // so in these cases, a modified schema is used where the path field is nullable
-    if (pathField == null) {
-      return schema;
-    }
-    List<Schema.Field> fieldCopies = new ArrayList<>(schema.getFields().size());
-    for (Schema.Field field : schema.getFields()) {
-      if (field.getName().equals(pathField) && !field.getSchema().isNullable()) {
-        fieldCopies.add(Schema.Field.of(field.getName(), Schema.nullableOf(field.getSchema())));
-      } else {
-        fieldCopies.add(field);
-      }
-    }
-    return Schema.recordOf(schema.getRecordName(), fieldCopies);
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    // a json array can only be read from the start of the file
+    return !context.getConfiguration().getBoolean(JSON_ARRAY, false) && super.isSplitable(context, file);
   }
 
-
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
                                                                                     TaskAttemptContext context,
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema) {
-    RecordReader<LongWritable, Text> delegate = (new TextInputFormat()).createRecordReader(split, context);
-    Schema modifiedSchema = getModifiedSchema(schema, pathField);
+    JsonRecordDecoder decoder = new JsonRecordDecoder(schema, pathField);
+    if (context.getConfiguration().getBoolean(JSON_ARRAY, false)) {
+      return new JsonArrayRecordReader(decoder);
+    }
 
+    RecordReader<LongWritable, Text> delegate = (new TextInputFormat()).createRecordReader(split, context);
     return new RecordReader<NullWritable, StructuredRecord.Builder>() {
 
       @Override
@@ -88,12 +78,11 @@ public class PathTrackingJsonInputFormat extends PathTrackingInputFormat {
       @Override
       public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
         String json = delegate.getCurrentValue().toString();
-        StructuredRecord record = StructuredRecordStringConverter.fromJsonString(json, modifiedSchema);
-        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-        for (Schema.Field field : schema.getFields()) {
-          builder.set(field.getName(), record.get(field.getName()));
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+          return decoder.decode(reader);
+        } catch (IllegalStateException | NumberFormatException e) {
+          throw new IOException(String.format("Unable to read a record from json '%s'.", json), e);
         }
-        return builder;
       }
 
       @Override
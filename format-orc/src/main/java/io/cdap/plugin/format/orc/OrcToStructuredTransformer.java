@@ -0,0 +1,406 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.UnionColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.TypeDescription;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Creates StructuredRecords from the rows of ORC {@link VectorizedRowBatch VectorizedRowBatches}.
+ *
+ * The converter of each field is created once for the file schema and the record schema. A batch is converted one
+ * column at a time, setting the value of the column on the builder of every row of the batch. Fields of the record
+ * schema that are not in the file are left null, and columns of the file that are not in the record schema are not
+ * read at all.
+ */
+public class OrcToStructuredTransformer {
+  private final Schema schema;
+  private final List<FieldConverter> fields;
+  private final boolean[] includedColumns;
+
+  /**
+   * Creates a transformer for the files of a schema.
+   *
+   * @param fileSchema the schema of the ORC file, which must be a struct
+   * @param schema the schema of the records
+   * @param skipField the field that is not read from the file, such as the path field
+   * @throws IllegalArgumentException if the schema of the file can't be read as the schema of the records
+   */
+  public OrcToStructuredTransformer(TypeDescription fileSchema, Schema schema, @Nullable String skipField) {
+    if (fileSchema.getCategory() != TypeDescription.Category.STRUCT) {
+      throw new IllegalArgumentException(String.format("The schema of the ORC file must be a struct, but is '%s'.",
+                                                       fileSchema));
+    }
+    this.schema = schema;
+    this.fields = new ArrayList<>();
+    this.includedColumns = new boolean[fileSchema.getMaximumId() + 1];
+    includedColumns[fileSchema.getId()] = true;
+
+    List<String> columnNames = fileSchema.getFieldNames();
+    for (Schema.Field field : schema.getFields()) {
+      int column = columnNames.indexOf(field.getName());
+      if (column < 0 || field.getName().equals(skipField)) {
+        continue;
+      }
+      TypeDescription columnType = fileSchema.getChildren().get(column);
+      fields.add(new FieldConverter(field.getName(), column, createConverter(columnType, field.getSchema())));
+      Arrays.fill(includedColumns, columnType.getId(), columnType.getMaximumId() + 1, true);
+    }
+  }
+
+  /**
+   * Returns the columns of the file that are in the record schema, indexed by column id, which is what
+   * {@link org.apache.orc.Reader.Options#include(boolean[])} expects.
+   */
+  public boolean[] getIncludedColumns() {
+    return includedColumns;
+  }
+
+  /**
+   * Converts the rows of a batch into builders for the records.
+   *
+   * @param batch the batch to convert
+   * @param builders the array to put the builder of each row of the batch in, which must be at least as long as
+   *                 the batch
+   */
+  public void transform(VectorizedRowBatch batch, StructuredRecord.Builder[] builders) {
+    for (int i = 0; i < batch.size; i++) {
+      builders[i] = StructuredRecord.builder(schema);
+    }
+    for (FieldConverter field : fields) {
+      ColumnVector vector = batch.cols[field.column];
+      for (int i = 0; i < batch.size; i++) {
+        int row = batch.selectedInUse ? batch.selected[i] : i;
+        builders[i].set(field.name, getValue(field.converter, vector, row));
+      }
+    }
+  }
+
+  /**
+   * Converts the schema of an ORC file into a record schema. Every field is nullable, since any ORC value can be null.
+   *
+   * @param fileSchema the schema of the ORC file, which must be a struct
+   * @return the record schema
+   * @throws IllegalArgumentException if the schema is not a struct
+   */
+  public static Schema convertSchema(TypeDescription fileSchema) {
+    if (fileSchema.getCategory() != TypeDescription.Category.STRUCT) {
+      throw new IllegalArgumentException(String.format("The schema of the ORC file must be a struct, but is '%s'.",
+                                                       fileSchema));
+    }
+    return convertStruct(fileSchema, "record");
+  }
+
+  private static Schema convertStruct(TypeDescription type, String name) {
+    List<Schema.Field> fields = new ArrayList<>();
+    List<String> fieldNames = type.getFieldNames();
+    for (int i = 0; i < fieldNames.size(); i++) {
+      fields.add(Schema.Field.of(fieldNames.get(i), nullableOf(convertType(type.getChildren().get(i)))));
+    }
+    return Schema.recordOf(name, fields);
+  }
+
+  private static Schema convertType(TypeDescription type) {
+    switch (type.getCategory()) {
+      case BOOLEAN:
+        return Schema.of(Schema.Type.BOOLEAN);
+      case BYTE:
+      case SHORT:
+      case INT:
+        return Schema.of(Schema.Type.INT);
+      case LONG:
+        return Schema.of(Schema.Type.LONG);
+      case FLOAT:
+        return Schema.of(Schema.Type.FLOAT);
+      case DOUBLE:
+        return Schema.of(Schema.Type.DOUBLE);
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+        return Schema.of(Schema.Type.STRING);
+      case BINARY:
+        return Schema.of(Schema.Type.BYTES);
+      case DATE:
+        return Schema.of(Schema.LogicalType.DATE);
+      case TIMESTAMP:
+        return Schema.of(Schema.LogicalType.TIMESTAMP_MICROS);
+      case DECIMAL:
+        return Schema.decimalOf(type.getPrecision(), type.getScale());
+      case LIST:
+        return Schema.arrayOf(nullableOf(convertType(type.getChildren().get(0))));
+      case MAP:
+        return Schema.mapOf(convertType(type.getChildren().get(0)),
+                            nullableOf(convertType(type.getChildren().get(1))));
+      case STRUCT:
+        // record names have to be unique within a schema
+        return convertStruct(type, "record" + type.getId());
+      case UNION:
+        List<Schema> members = new ArrayList<>();
+        for (TypeDescription child : type.getChildren()) {
+          members.add(convertType(child));
+        }
+        return Schema.unionOf(members);
+      default:
+        throw new IllegalArgumentException(String.format("ORC type '%s' is not supported.", type));
+    }
+  }
+
+  /**
+   * Makes a schema nullable, adding null to the types of a union rather than nesting the union in another union.
+   */
+  private static Schema nullableOf(Schema schema) {
+    if (schema.getType() != Schema.Type.UNION) {
+      return Schema.nullableOf(schema);
+    }
+    List<Schema> members = new ArrayList<>(schema.getUnionSchemas());
+    members.add(Schema.of(Schema.Type.NULL));
+    return Schema.unionOf(members);
+  }
+
+  @Nullable
+  private static Object getValue(ValueConverter converter, ColumnVector vector, int row) {
+    int index = vector.isRepeating ? 0 : row;
+    if (!vector.noNulls && vector.isNull[index]) {
+      return null;
+    }
+    return converter.convert(vector, index);
+  }
+
+  private static ValueConverter createConverter(TypeDescription type, Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    Schema.LogicalType logicalType = nonNullable.getLogicalType();
+    Schema.Type schemaType = nonNullable.getType();
+    switch (type.getCategory()) {
+      case BOOLEAN:
+        if (schemaType == Schema.Type.BOOLEAN) {
+          return (vector, row) -> ((LongColumnVector) vector).vector[row] != 0;
+        }
+        break;
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case DATE:
+        // numbers are widened to the type of the schema
+        switch (schemaType) {
+          case INT:
+            return (vector, row) -> (int) ((LongColumnVector) vector).vector[row];
+          case LONG:
+            return (vector, row) -> ((LongColumnVector) vector).vector[row];
+          case FLOAT:
+            return (vector, row) -> (float) ((LongColumnVector) vector).vector[row];
+          case DOUBLE:
+            return (vector, row) -> (double) ((LongColumnVector) vector).vector[row];
+          default:
+            break;
+        }
+        break;
+      case FLOAT:
+      case DOUBLE:
+        if (schemaType == Schema.Type.FLOAT) {
+          return (vector, row) -> (float) ((DoubleColumnVector) vector).vector[row];
+        }
+        if (schemaType == Schema.Type.DOUBLE) {
+          return (vector, row) -> ((DoubleColumnVector) vector).vector[row];
+        }
+        break;
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+      case BINARY:
+        if (schemaType == Schema.Type.STRING || schemaType == Schema.Type.ENUM) {
+          return (vector, row) -> {
+            BytesColumnVector bytes = (BytesColumnVector) vector;
+            return new String(bytes.vector[row], bytes.start[row], bytes.length[row], StandardCharsets.UTF_8);
+          };
+        }
+        if (schemaType == Schema.Type.BYTES) {
+          return (vector, row) -> {
+            BytesColumnVector bytes = (BytesColumnVector) vector;
+            return ByteBuffer.wrap(Arrays.copyOfRange(bytes.vector[row], bytes.start[row],
+                                                      bytes.start[row] + bytes.length[row]));
+          };
+        }
+        break;
+      case TIMESTAMP:
+        if (logicalType == Schema.LogicalType.TIMESTAMP_MILLIS) {
+          return (vector, row) -> ((TimestampColumnVector) vector).time[row];
+        }
+        if (schemaType == Schema.Type.LONG) {
+          // the milliseconds already contain the milliseconds of the nanoseconds
+          return (vector, row) -> {
+            TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+            return timestamps.time[row] * 1000 + timestamps.nanos[row] / 1000 % 1000;
+          };
+        }
+        break;
+      case DECIMAL:
+        if (logicalType == Schema.LogicalType.DECIMAL) {
+          int scale = nonNullable.getScale();
+          // the values of an ORC decimal have at most the scale of its type, so they can be rescaled without rounding
+          // to a scale that is at least as large
+          if (type.getScale() > scale) {
+            throw new IllegalArgumentException(
+              String.format("ORC type '%s' cannot be read as a decimal with scale %d, the scale must be at least %d.",
+                            type, scale, type.getScale()));
+          }
+          return (vector, row) -> {
+            BigDecimal value = ((DecimalColumnVector) vector).vector[row].getHiveDecimal().bigDecimalValue();
+            return ByteBuffer.wrap(value.setScale(scale).unscaledValue().toByteArray());
+          };
+        }
+        if (schemaType == Schema.Type.DOUBLE) {
+          return (vector, row) -> ((DecimalColumnVector) vector).vector[row].getHiveDecimal().doubleValue();
+        }
+        break;
+      case STRUCT:
+        if (schemaType == Schema.Type.RECORD) {
+          return createStructConverter(type, nonNullable);
+        }
+        break;
+      case LIST:
+        if (schemaType == Schema.Type.ARRAY) {
+          ValueConverter elementConverter = createConverter(type.getChildren().get(0),
+                                                            nonNullable.getComponentSchema());
+          return (vector, row) -> {
+            ListColumnVector list = (ListColumnVector) vector;
+            int offset = (int) list.offsets[row];
+            int length = (int) list.lengths[row];
+            List<Object> values = new ArrayList<>(length);
+            for (int i = offset; i < offset + length; i++) {
+              values.add(getValue(elementConverter, list.child, i));
+            }
+            return values;
+          };
+        }
+        break;
+      case MAP:
+        if (schemaType == Schema.Type.MAP) {
+          Map.Entry<Schema, Schema> mapSchema = nonNullable.getMapSchema();
+          ValueConverter keyConverter = createConverter(type.getChildren().get(0), mapSchema.getKey());
+          ValueConverter valueConverter = createConverter(type.getChildren().get(1), mapSchema.getValue());
+          return (vector, row) -> {
+            MapColumnVector map = (MapColumnVector) vector;
+            int offset = (int) map.offsets[row];
+            int length = (int) map.lengths[row];
+            Map<Object, Object> values = new HashMap<>();
+            for (int i = offset; i < offset + length; i++) {
+              values.put(getValue(keyConverter, map.keys, i), getValue(valueConverter, map.values, i));
+            }
+            return values;
+          };
+        }
+        break;
+      case UNION:
+        if (schemaType == Schema.Type.UNION) {
+          return createUnionConverter(type, nonNullable);
+        }
+        break;
+      default:
+        break;
+    }
+    throw new IllegalArgumentException(String.format("ORC type '%s' cannot be read as a '%s'.",
+                                                     type, logicalType == null ? schemaType : logicalType));
+  }
+
+  private static ValueConverter createStructConverter(TypeDescription type, Schema schema) {
+    List<String> fieldNames = type.getFieldNames();
+    List<FieldConverter> fields = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      int index = fieldNames.indexOf(field.getName());
+      if (index >= 0) {
+        fields.add(new FieldConverter(field.getName(), index,
+                                      createConverter(type.getChildren().get(index), field.getSchema())));
+      }
+    }
+    return (vector, row) -> {
+      StructColumnVector struct = (StructColumnVector) vector;
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (FieldConverter field : fields) {
+        builder.set(field.name, getValue(field.converter, struct.fields[field.column], row));
+      }
+      return builder.build();
+    };
+  }
+
+  private static ValueConverter createUnionConverter(TypeDescription type, Schema schema) {
+    List<Schema> members = new ArrayList<>();
+    for (Schema member : schema.getUnionSchemas()) {
+      if (member.getType() != Schema.Type.NULL) {
+        members.add(member);
+      }
+    }
+    List<TypeDescription> children = type.getChildren();
+    if (children.size() != members.size()) {
+      throw new IllegalArgumentException(String.format("ORC type '%s' cannot be read as a union of %d types.",
+                                                       type, members.size()));
+    }
+    ValueConverter[] converters = new ValueConverter[members.size()];
+    for (int i = 0; i < converters.length; i++) {
+      converters[i] = createConverter(children.get(i), members.get(i));
+    }
+    return (vector, row) -> {
+      UnionColumnVector union = (UnionColumnVector) vector;
+      int tag = union.tags[row];
+      return getValue(converters[tag], union.fields[tag], row);
+    };
+  }
+
+  /**
+   * Converts a value of a column vector.
+   */
+  private interface ValueConverter {
+    Object convert(ColumnVector vector, int row);
+  }
+
+  /**
+   * A field of the schema, the index of its column in the struct, and the converter for its values.
+   */
+  private static final class FieldConverter {
+    private final String name;
+    private final int column;
+    private final ValueConverter converter;
+
+    private FieldConverter(String name, int column, ValueConverter converter) {
+      this.name = name;
+      this.column = column;
+      this.converter = converter;
+    }
+  }
+}
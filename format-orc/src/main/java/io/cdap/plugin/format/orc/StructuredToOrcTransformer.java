@@ -19,109 +19,322 @@ package io.cdap.plugin.format.orc;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
-import io.cdap.plugin.common.HiveSchemaConverter;
-import io.cdap.plugin.common.RecordConverter;
-import org.apache.hadoop.io.BooleanWritable;
-import org.apache.hadoop.io.BytesWritable;
-import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.FloatWritable;
-import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.orc.TypeDescription;
-import org.apache.orc.mapred.OrcStruct;
 
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
- * Creates ORCStruct records from StructuredRecords
+ * Writes StructuredRecords into the rows of ORC {@link VectorizedRowBatch VectorizedRowBatches}.
+ *
+ * The writer of each column is resolved once for each record schema, so writing a record only sets the values of
+ * the column vectors, without creating an intermediate ORC record. Fields of the ORC schema that are not in the
+ * record schema are written as null.
  */
-public class StructuredToOrcTransformer extends RecordConverter<StructuredRecord, OrcStruct> {
-  private final Map<Schema, TypeDescription> schemaCache = new HashMap<>();
+public class StructuredToOrcTransformer {
+  private static final long NANOS_PER_MILLI = 1000000L;
 
-  public OrcStruct transform(StructuredRecord input) {
-    return transform(input, input.getSchema());
-  }
+  private final TypeDescription orcSchema;
+  private final Map<Schema, FieldWriter[]> writersCache = new HashMap<>();
+  private Schema lastSchema;
+  private FieldWriter[] lastWriters;
 
-  @Override
-  public OrcStruct transform(StructuredRecord input, Schema schema) {
-    List<Schema.Field> fields = input.getSchema().getFields();
-    OrcStruct orcRecord = parseOrcSchema(input.getSchema());
-    //populate ORC struct orcRecord object
-    for (int i = 0; i < fields.size(); i++) {
-      Schema.Field field = fields.get(i);
-      try {
-        WritableComparable writable = convertToWritable(field, input);
-        orcRecord.setFieldValue(fields.get(i).getName(), writable);
-      } catch (UnsupportedTypeException e) {
-        throw new IllegalArgumentException(String.format("%s is not a supported type", field.getName()), e);
-      }
+  /**
+   * Creates a transformer that writes records into batches of the given ORC schema.
+   *
+   * @param orcSchema the ORC schema of the batches, which must be a struct
+   */
+  public StructuredToOrcTransformer(TypeDescription orcSchema) {
+    if (orcSchema.getCategory() != TypeDescription.Category.STRUCT) {
+      throw new IllegalArgumentException(String.format("The ORC schema must be a struct, but is '%s'.", orcSchema));
     }
-    return orcRecord;
+    this.orcSchema = orcSchema;
   }
 
-  private OrcStruct parseOrcSchema(Schema inputSchema) {
-    OrcStruct orcRecord;
-    if (schemaCache.containsKey(inputSchema)) {
-      TypeDescription schema = schemaCache.get(inputSchema);
-      orcRecord = (OrcStruct) OrcStruct.createValue(schema);
-    } else {
-      StringBuilder builder = new StringBuilder();
-      try {
-        HiveSchemaConverter.appendType(builder, inputSchema);
-      } catch (UnsupportedTypeException e) {
-        throw new IllegalArgumentException(String.format("Not a valid Schema %s", inputSchema), e);
-      }
-      TypeDescription schema = TypeDescription.fromString(builder.toString());
-      orcRecord = (OrcStruct) OrcStruct.createValue(schema);
-      schemaCache.put(inputSchema, schema);
+  /**
+   * Writes a record into a row of a batch.
+   *
+   * @param record the record to write
+   * @param batch the batch to write the record into
+   * @param row the row of the batch to write the record into
+   * @throws IllegalArgumentException if the record can't be written with the ORC schema
+   */
+  public void transform(StructuredRecord record, VectorizedRowBatch batch, int row) {
+    Schema schema = record.getSchema();
+    // records almost always have the same schema, which is faster to compare by reference
+    if (schema != lastSchema) {
+      lastWriters = writersCache.computeIfAbsent(schema, s -> createFieldWriters(orcSchema, s));
+      lastSchema = schema;
+    }
+    for (int i = 0; i < lastWriters.length; i++) {
+      FieldWriter field = lastWriters[i];
+      write(field.writer, batch.cols[i], row, field.name == null ? null : record.get(field.name));
     }
-    return orcRecord;
   }
 
-  private WritableComparable convertToWritable(Schema.Field field, StructuredRecord input)
-    throws UnsupportedTypeException {
-    Object fieldVal = input.get(field.getName());
-    Schema fieldSchema = field.getSchema();
-    Schema.Type fieldType = fieldSchema.getType();
-    if (fieldSchema.isNullable()) {
-      if (fieldVal == null) {
-        return null;
+  /**
+   * Converts a record schema into an ORC schema. Nullable types are converted to the ORC type of their non-null type,
+   * since any ORC value can be null.
+   *
+   * Dates, timestamps and decimals are converted to the ORC type of their physical type, int, bigint and binary, as
+   * the Hive schema converter does, unless logical types are enabled. Then they are converted to the ORC date,
+   * timestamp and decimal types.
+   *
+   * @param schema the record schema
+   * @param logicalTypes whether to convert dates, timestamps and decimals to the corresponding ORC types
+   * @return the ORC schema
+   * @throws IllegalArgumentException if the schema contains a type that is not supported in ORC
+   */
+  public static TypeDescription convertSchema(Schema schema, boolean logicalTypes) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    Schema.LogicalType logicalType = nonNullable.getLogicalType();
+    if (logicalTypes && logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return TypeDescription.createDate();
+        case TIMESTAMP_MILLIS:
+        case TIMESTAMP_MICROS:
+          return TypeDescription.createTimestamp();
+        case DECIMAL:
+          return TypeDescription.createDecimal().withPrecision(nonNullable.getPrecision())
+            .withScale(nonNullable.getScale());
+        default:
+          // times are written as their physical type
+          break;
       }
-      fieldType = fieldSchema.getNonNullable().getType();
     }
-    switch (fieldType) {
-      case NULL:
-        return null;
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        return TypeDescription.createBoolean();
+      case INT:
+        return TypeDescription.createInt();
+      case LONG:
+        return TypeDescription.createLong();
+      case FLOAT:
+        return TypeDescription.createFloat();
+      case DOUBLE:
+        return TypeDescription.createDouble();
       case STRING:
-        return new Text((String) fieldVal);
       case ENUM:
-        return new Text(fieldVal.toString());
+        return TypeDescription.createString();
+      case BYTES:
+        return TypeDescription.createBinary();
+      case ARRAY:
+        return TypeDescription.createList(convertSchema(nonNullable.getComponentSchema(), logicalTypes));
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = nonNullable.getMapSchema();
+        return TypeDescription.createMap(convertSchema(mapSchema.getKey(), logicalTypes),
+                                         convertSchema(mapSchema.getValue(), logicalTypes));
+      case RECORD:
+        TypeDescription struct = TypeDescription.createStruct();
+        for (Schema.Field field : nonNullable.getFields()) {
+          struct.addField(field.getName(), convertSchema(field.getSchema(), logicalTypes));
+        }
+        return struct;
+      default:
+        throw new IllegalArgumentException(String.format("Type '%s' is currently not supported in ORC.",
+                                                         nonNullable.getType().name().toLowerCase()));
+    }
+  }
+
+  private static FieldWriter[] createFieldWriters(TypeDescription struct, Schema schema) {
+    List<String> fieldNames = struct.getFieldNames();
+    FieldWriter[] writers = new FieldWriter[fieldNames.size()];
+    for (int i = 0; i < writers.length; i++) {
+      Schema.Field field = schema.getField(fieldNames.get(i));
+      writers[i] = field == null ? new FieldWriter(null, (vector, row, value) -> { }) :
+        new FieldWriter(field.getName(), createWriter(struct.getChildren().get(i), field.getSchema()));
+    }
+    return writers;
+  }
+
+  private static void write(ColumnWriter writer, ColumnVector vector, int row, @Nullable Object value) {
+    if (value == null) {
+      vector.noNulls = false;
+      vector.isNull[row] = true;
+    } else {
+      // the row may have been partly written by a record that failed to transform
+      vector.isNull[row] = false;
+      writer.write(vector, row, value);
+    }
+  }
+
+  private static ColumnWriter createWriter(TypeDescription type, Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (type.getCategory()) {
       case BOOLEAN:
-        return new BooleanWritable((Boolean) fieldVal);
+        return (vector, row, value) -> ((LongColumnVector) vector).vector[row] = (Boolean) value ? 1 : 0;
+      case BYTE:
+      case SHORT:
       case INT:
-        return new IntWritable((Integer) fieldVal);
       case LONG:
-        return new LongWritable((Long) fieldVal);
+      case DATE:
+        return (vector, row, value) -> ((LongColumnVector) vector).vector[row] = ((Number) value).longValue();
       case FLOAT:
-        return new FloatWritable((Float) fieldVal);
       case DOUBLE:
-        return new DoubleWritable((Double) fieldVal);
-      case BYTES:
-        if (fieldVal instanceof byte[]) {
-          return new BytesWritable((byte[]) fieldVal);
-        } else {
-          return new BytesWritable(Bytes.getBytes((ByteBuffer) fieldVal));
+        return (vector, row, value) -> ((DoubleColumnVector) vector).vector[row] = ((Number) value).doubleValue();
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+        return (vector, row, value) -> {
+          // the bytes are only referenced by the vector until the batch is written, so they don't need to be copied
+          byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+          ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+        };
+      case BINARY:
+        return (vector, row, value) -> {
+          byte[] bytes = getBytes(value);
+          ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+        };
+      case TIMESTAMP:
+        return createTimestampWriter(nonNullable.getLogicalType() == Schema.LogicalType.TIMESTAMP_MILLIS);
+      case DECIMAL:
+        int scale = nonNullable.getLogicalType() == Schema.LogicalType.DECIMAL ?
+          nonNullable.getScale() : type.getScale();
+        return (vector, row, value) -> {
+          BigDecimal decimal = value instanceof BigDecimal ?
+            (BigDecimal) value : new BigDecimal(new BigInteger(getBytes(value)), scale);
+          ((DecimalColumnVector) vector).set(row, HiveDecimal.create(decimal));
+        };
+      case LIST:
+        if (nonNullable.getType() == Schema.Type.ARRAY) {
+          return createListWriter(type, nonNullable);
+        }
+        break;
+      case MAP:
+        if (nonNullable.getType() == Schema.Type.MAP) {
+          return createMapWriter(type, nonNullable);
         }
+        break;
+      case STRUCT:
+        if (nonNullable.getType() == Schema.Type.RECORD) {
+          FieldWriter[] fieldWriters = createFieldWriters(type, nonNullable);
+          return (vector, row, value) -> {
+            StructColumnVector struct = (StructColumnVector) vector;
+            StructuredRecord record = (StructuredRecord) value;
+            for (int i = 0; i < fieldWriters.length; i++) {
+              FieldWriter field = fieldWriters[i];
+              write(field.writer, struct.fields[i], row, field.name == null ? null : record.get(field.name));
+            }
+          };
+        }
+        break;
       default:
-        throw new UnsupportedTypeException(String.format("Type '%s' of field '%s' is currently not supported in ORC",
-                                                         fieldType.name(), field.getName()));
+        break;
+    }
+    throw new IllegalArgumentException(String.format("Type '%s' can't be written as ORC type '%s'.",
+                                                     nonNullable.getType().name().toLowerCase(), type));
+  }
+
+  private static ColumnWriter createTimestampWriter(boolean millis) {
+    return (vector, row, value) -> {
+      TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+      long time = (Long) value;
+      // the vector holds the milliseconds since the epoch, and the nanoseconds of the second
+      long timeMillis = millis ? time : Math.floorDiv(time, 1000L);
+      long nanos = millis ? Math.floorMod(time, 1000L) * NANOS_PER_MILLI : Math.floorMod(time, 1000000L) * 1000L;
+      timestamps.time[row] = timeMillis;
+      timestamps.nanos[row] = (int) nanos;
+    };
+  }
+
+  private static ColumnWriter createListWriter(TypeDescription type, Schema schema) {
+    ColumnWriter elementWriter = createWriter(type.getChildren().get(0), schema.getComponentSchema());
+    return (vector, row, value) -> {
+      ListColumnVector list = (ListColumnVector) vector;
+      List<?> elements = toList(value);
+      int offset = list.childCount;
+      list.childCount += elements.size();
+      list.child.ensureSize(list.childCount, offset > 0);
+      list.offsets[row] = offset;
+      list.lengths[row] = elements.size();
+      for (int i = 0; i < elements.size(); i++) {
+        write(elementWriter, list.child, offset + i, elements.get(i));
+      }
+    };
+  }
+
+  private static ColumnWriter createMapWriter(TypeDescription type, Schema schema) {
+    Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+    ColumnWriter keyWriter = createWriter(type.getChildren().get(0), mapSchema.getKey());
+    ColumnWriter valueWriter = createWriter(type.getChildren().get(1), mapSchema.getValue());
+    return (vector, row, value) -> {
+      MapColumnVector map = (MapColumnVector) vector;
+      Map<?, ?> entries = (Map<?, ?>) value;
+      int offset = map.childCount;
+      map.childCount += entries.size();
+      map.keys.ensureSize(map.childCount, offset > 0);
+      map.values.ensureSize(map.childCount, offset > 0);
+      map.offsets[row] = offset;
+      map.lengths[row] = entries.size();
+      int index = offset;
+      for (Map.Entry<?, ?> entry : entries.entrySet()) {
+        write(keyWriter, map.keys, index, entry.getKey());
+        write(valueWriter, map.values, index, entry.getValue());
+        index++;
+      }
+    };
+  }
+
+  private static byte[] getBytes(Object value) {
+    return value instanceof ByteBuffer ? Bytes.getBytes((ByteBuffer) value) : (byte[]) value;
+  }
+
+  /**
+   * Returns the elements of an array value, which can be a collection or a java array.
+   */
+  private static List<?> toList(Object value) {
+    if (value instanceof List) {
+      return (List<?>) value;
+    }
+    if (value instanceof Collection) {
+      return new ArrayList<>((Collection<?>) value);
     }
+    int length = Array.getLength(value);
+    List<Object> elements = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      elements.add(Array.get(value, i));
+    }
+    return elements;
+  }
+
+  /**
+   * Writes a non-null value into a row of a column vector.
+   */
+  private interface ColumnWriter {
+    void write(ColumnVector vector, int row, Object value);
   }
 
+  /**
+   * A field of the record schema and the writer for its column. The name is null if the column is not in the schema.
+   */
+  private static final class FieldWriter {
+    private final String name;
+    private final ColumnWriter writer;
+
+    private FieldWriter(@Nullable String name, ColumnWriter writer) {
+      this.name = name;
+      this.writer = writer;
+    }
+  }
 }
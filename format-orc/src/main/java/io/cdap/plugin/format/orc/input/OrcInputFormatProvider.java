@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.etl.api.validation.FormatContext;
+import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
+import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
+import io.cdap.plugin.format.orc.OrcToStructuredTransformer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Provides and sets up configuration for an ORC input format.
+ */
+@Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
+@Name(OrcInputFormatProvider.NAME)
+@Description(OrcInputFormatProvider.DESC)
+public class OrcInputFormatProvider extends PathTrackingInputFormatProvider<OrcInputFormatProvider.Conf> {
+  static final String NAME = "orc";
+  static final String DESC = "Plugin for reading files in orc format.";
+  public static final PluginClass PLUGIN_CLASS =
+    new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, OrcInputFormatProvider.class.getName(),
+                    "conf", PathTrackingConfig.FIELDS);
+
+  public OrcInputFormatProvider(OrcInputFormatProvider.Conf conf) {
+    super(conf);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return CombineOrcInputFormat.class.getName();
+  }
+
+  @Nullable
+  @Override
+  public Schema getSchema(FormatContext context) {
+    if (conf.containsMacro(PathTrackingConfig.NAME_SCHEMA) || !Strings.isNullOrEmpty(conf.schema)) {
+      return super.getSchema(context);
+    }
+    try {
+      return getDefaultSchema(context);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid schema: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Extract schema from file
+   *
+   * @param context {@link FormatContext}
+   * @return {@link Schema}
+   * @throws IOException raised when error occurs during schema extraction
+   */
+  public Schema getDefaultSchema(FormatContext context) throws IOException {
+    String filePath = conf.getProperties().getProperties().getOrDefault("path", null);
+    try {
+      Job job = JobUtils.createInstance();
+      Configuration hconf = job.getConfiguration();
+      // set entries here, before FileSystem is used
+      for (Map.Entry<String, String> entry : conf.getFileSystemProperties().entrySet()) {
+        hconf.set(entry.getKey(), entry.getValue());
+      }
+      Path file = conf.getFilePathForSchemaGeneration(filePath, NAME, hconf);
+      // the schema is in the footer of the file, so no rows are read
+      Reader reader = OrcFile.createReader(file, OrcFile.readerOptions(hconf));
+      return OrcToStructuredTransformer.convertSchema(reader.getSchema());
+    } catch (IOException | IllegalArgumentException e) {
+      context.getFailureCollector().addFailure("Schema error", e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Common config for ORC format
+   */
+  public static class Conf extends PathTrackingConfig {
+
+    @Macro
+    @Nullable
+    @Description(NAME_SCHEMA)
+    public String schema;
+
+  }
+}
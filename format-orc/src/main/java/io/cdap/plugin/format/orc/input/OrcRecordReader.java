@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.orc.OrcToStructuredTransformer;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.TypeDescription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the stripes of an ORC file split one {@link VectorizedRowBatch} at a time, only reading the columns of the
+ * schema, and converts each batch into StructuredRecords.
+ */
+final class OrcRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final String pathField;
+  private Schema schema;
+  private org.apache.orc.RecordReader rows;
+  private OrcToStructuredTransformer transformer;
+  private VectorizedRowBatch batch;
+  private StructuredRecord.Builder[] builders;
+  private int nextRow;
+  private StructuredRecord.Builder value;
+
+  OrcRecordReader(@Nullable Schema schema, @Nullable String pathField) {
+    this.schema = schema;
+    this.pathField = pathField;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    Reader reader = OrcFile.createReader(fileSplit.getPath(), OrcFile.readerOptions(context.getConfiguration()));
+    TypeDescription fileSchema = reader.getSchema();
+    if (schema == null) {
+      // without a schema, the records are read with the schema of the file
+      Schema schemaWithoutPath = OrcToStructuredTransformer.convertSchema(fileSchema);
+      List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields());
+      if (pathField != null) {
+        fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
+      }
+      schema = Schema.recordOf(schemaWithoutPath.getRecordName(), fields);
+    }
+    try {
+      transformer = new OrcToStructuredTransformer(fileSchema, schema, pathField);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(String.format("Unable to read ORC file '%s': %s", fileSplit.getPath(), e.getMessage()),
+                            e);
+    }
+    // only the stripes that start in the split are read
+    rows = reader.rows(reader.options()
+                         .range(fileSplit.getStart(), fileSplit.getLength())
+                         .include(transformer.getIncludedColumns()));
+    batch = fileSchema.createRowBatch();
+    builders = new StructuredRecord.Builder[batch.getMaxSize()];
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (nextRow >= batch.size) {
+      if (!rows.nextBatch(batch)) {
+        return false;
+      }
+      transformer.transform(batch, builders);
+      nextRow = 0;
+    }
+    value = builders[nextRow];
+    // the builder is handed over to the caller, so it is not kept in the batch
+    builders[nextRow++] = null;
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    return rows.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (rows != null) {
+      rows.close();
+    }
+  }
+}
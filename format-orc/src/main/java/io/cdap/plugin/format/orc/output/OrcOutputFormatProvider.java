@@ -20,12 +20,11 @@ import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
-import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
 import io.cdap.cdap.api.plugin.PluginClass;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.cdap.etl.api.validation.ValidatingOutputFormat;
-import io.cdap.plugin.common.HiveSchemaConverter;
+import io.cdap.plugin.format.orc.StructuredToOrcTransformer;
 import io.cdap.plugin.format.output.AbstractOutputFormatProvider;
 import org.apache.orc.CompressionKind;
 
@@ -64,7 +63,7 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
   @Override
   public Map<String, String> getOutputFormatConfiguration() {
     Map<String, String> configuration = new HashMap<>();
-    configuration.put("orc.mapred.output.schema", parseOrcSchema(conf.schema));
+    configuration.put("orc.mapred.output.schema", parseOrcSchema(conf.schema, conf.useLogicalTypes()));
 
     if (conf.compressionCodec != null && !conf.compressionCodec.equalsIgnoreCase("None")) {
       try {
@@ -102,6 +101,8 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     private static final String INDEX_STRIDE_DESC =
       "Number of rows between index entries. The value must be at least 1000.";
     private static final String INDEX_CREATE_DESC = "Whether to create inline indexes.";
+    private static final String LOGICAL_TYPES_DESC = "Whether to write dates, timestamps and decimals as ORC date, " +
+      "timestamp and decimal columns. By default they are written as int, bigint and binary columns.";
 
     @Macro
     @Description(SCHEMA_DESC)
@@ -131,18 +132,25 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     @Nullable
     @Description(INDEX_CREATE_DESC)
     private Boolean createIndex;
+
+    @Macro
+    @Nullable
+    @Description(LOGICAL_TYPES_DESC)
+    private Boolean writeLogicalTypes;
+
+    private boolean useLogicalTypes() {
+      return writeLogicalTypes != null && writeLogicalTypes;
+    }
   }
 
-  private static String parseOrcSchema(String configuredSchema) {
+  private static String parseOrcSchema(String configuredSchema, boolean logicalTypes) {
     try {
       io.cdap.cdap.api.data.schema.Schema schemaObj = io.cdap.cdap.api.data.schema.Schema.parseJson(configuredSchema);
-      StringBuilder builder = new StringBuilder();
-      HiveSchemaConverter.appendType(builder, schemaObj);
-      return builder.toString();
+      return StructuredToOrcTransformer.convertSchema(schemaObj, logicalTypes).toString();
     } catch (IOException e) {
       throw new IllegalArgumentException(String.format("%s is not a valid schema", configuredSchema), e);
-    } catch (UnsupportedTypeException e) {
-      throw new IllegalArgumentException(String.format("Could not create hive schema from %s", configuredSchema), e);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Could not create ORC schema from %s", configuredSchema), e);
     }
   }
 
@@ -157,6 +165,8 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     properties.put("indexStride", new PluginPropertyField("indexStride", Conf.INDEX_STRIDE_DESC, "long", false, true));
     properties.put("createIndex",
                    new PluginPropertyField("createIndex", Conf.INDEX_CREATE_DESC, "boolean", false, true));
+    properties.put("writeLogicalTypes",
+                   new PluginPropertyField("writeLogicalTypes", Conf.LOGICAL_TYPES_DESC, "boolean", false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, OrcOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
@@ -17,30 +17,30 @@
 package io.cdap.plugin.format.orc.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.plugin.format.orc.StructuredToOrcTransformer;
-import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.orc.mapred.OrcStruct;
-import org.apache.orc.mapreduce.OrcOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Writer;
+import org.apache.orc.mapred.OrcOutputFormat;
 
-import java.util.function.Function;
+import java.io.IOException;
 
 /**
- * Converts StructuredRecord into OrcStruct before delegating to OrcOutputFormat.
+ * Writes StructuredRecords into ORC files, buffering them in a VectorizedRowBatch that is added to the ORC writer
+ * whenever it is full.
  */
-public class StructuredOrcOutputFormat extends DelegatingOutputFormat<NullWritable, OrcStruct> {
+public class StructuredOrcOutputFormat extends FileOutputFormat<NullWritable, StructuredRecord> {
+  private static final String EXTENSION = ".orc";
 
   @Override
-  protected OutputFormat<NullWritable, OrcStruct> createDelegate() {
-    return new OrcOutputFormat<>();
-  }
-
-  @Override
-  protected Function<StructuredRecord, KeyValue<NullWritable, OrcStruct>> getConversion(TaskAttemptContext context) {
-    StructuredToOrcTransformer transformer = new StructuredToOrcTransformer();
-    return record -> new KeyValue<>(NullWritable.get(), transformer.transform(record));
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
+    throws IOException {
+    Path file = getDefaultWorkFile(context, EXTENSION);
+    // the options are read from the same configuration as the ORC output format, including the ORC schema
+    Writer writer = OrcFile.createWriter(file, OrcOutputFormat.buildOptions(context.getConfiguration()));
+    return new StructuredOrcRecordWriter(writer);
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.format.orc.StructuredToOrcTransformer;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.orc.Writer;
+
+import java.io.IOException;
+
+/**
+ * Writes StructuredRecords into the rows of a reusable {@link VectorizedRowBatch}, which is added to the ORC writer
+ * each time it is full.
+ */
+final class StructuredOrcRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+  private final Writer writer;
+  private final StructuredToOrcTransformer transformer;
+  private final VectorizedRowBatch batch;
+
+  StructuredOrcRecordWriter(Writer writer) {
+    this.writer = writer;
+    this.transformer = new StructuredToOrcTransformer(writer.getSchema());
+    // batches have VectorizedRowBatch.DEFAULT_SIZE rows
+    this.batch = writer.getSchema().createRowBatch();
+  }
+
+  @Override
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    // the row is only added to the batch once the record is transformed, so that a record that fails doesn't leave
+    // a partly written row in the batch
+    transformer.transform(record, batch, batch.size);
+    batch.size++;
+    if (batch.size == batch.getMaxSize()) {
+      flush();
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    if (batch.size > 0) {
+      flush();
+    }
+    writer.close();
+  }
+
+  private void flush() throws IOException {
+    writer.addRowBatch(batch);
+    batch.reset();
+  }
+}
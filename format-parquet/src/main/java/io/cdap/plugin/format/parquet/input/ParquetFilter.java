@@ -0,0 +1,380 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Parses a filter expression into a parquet {@link FilterPredicate}, which parquet uses to skip the row groups
+ * whose column statistics show that none of their rows match, and to skip the rows that don't match.
+ *
+ * A filter is made of predicates on top level columns of simple types, combined with AND, OR, NOT and parentheses.
+ * The predicates are comparisons with a literal (=, !=, <>, <, <=, >, >=), IN and NOT IN with a list of literals,
+ * and IS NULL and IS NOT NULL. For example:
+ *
+ * <pre>
+ *   country IN ('US', 'CA') AND (age >= 18 OR guardian IS NOT NULL)
+ * </pre>
+ *
+ * Literals are numbers, strings between single quotes, where a quote is escaped by doubling it, and true or false.
+ * Columns with a logical type are compared with the value of their physical type, for example the number of days
+ * since the epoch for a date. Keywords are case insensitive, and column names can be quoted with backticks.
+ *
+ * Unlike SQL, the predicates follow the null semantics of parquet: !=, <> and NOT IN, as well as NOT applied to
+ * = or IN, match the rows whose column is null. For example, country != 'US' keeps the rows without a country.
+ * Use AND country IS NOT NULL to exclude them.
+ */
+final class ParquetFilter {
+  private final String filter;
+  private final Schema schema;
+  private int pos;
+
+  private ParquetFilter(String filter, Schema schema) {
+    this.filter = filter;
+    this.schema = schema;
+  }
+
+  /**
+   * Parses a filter for records of the given schema.
+   *
+   * @param filter the filter expression
+   * @param schema the schema of the records that are read
+   * @return the predicate for the filter
+   * @throws IllegalArgumentException if the filter is invalid or doesn't match the schema
+   */
+  static FilterPredicate parse(String filter, Schema schema) {
+    ParquetFilter parser = new ParquetFilter(filter, schema);
+    FilterPredicate predicate = parser.parseOr();
+    parser.skipWhitespace();
+    if (parser.pos < filter.length()) {
+      throw parser.error("Unexpected '" + filter.substring(parser.pos) + "'");
+    }
+    return predicate;
+  }
+
+  private FilterPredicate parseOr() {
+    FilterPredicate predicate = parseAnd();
+    while (acceptKeyword("OR")) {
+      predicate = FilterApi.or(predicate, parseAnd());
+    }
+    return predicate;
+  }
+
+  private FilterPredicate parseAnd() {
+    FilterPredicate predicate = parseUnary();
+    while (acceptKeyword("AND")) {
+      predicate = FilterApi.and(predicate, parseUnary());
+    }
+    return predicate;
+  }
+
+  private FilterPredicate parseUnary() {
+    if (acceptKeyword("NOT")) {
+      return FilterApi.not(parseUnary());
+    }
+    if (accept("(")) {
+      FilterPredicate predicate = parseOr();
+      expect(")");
+      return predicate;
+    }
+    return parsePredicate();
+  }
+
+  private FilterPredicate parsePredicate() {
+    int columnPos = pos;
+    String name = parseIdentifier();
+    Column column = getColumn(name, columnPos);
+
+    if (acceptKeyword("IS")) {
+      boolean not = acceptKeyword("NOT");
+      expectKeyword("NULL");
+      return column.compare(not ? "!=" : "=", null, columnPos);
+    }
+    boolean not = acceptKeyword("NOT");
+    if (acceptKeyword("IN")) {
+      expect("(");
+      List<Comparable<?>> values = new ArrayList<>();
+      do {
+        values.add(parseValue(column));
+      } while (accept(","));
+      expect(")");
+      // parquet doesn't have an IN predicate, so it is expanded into comparisons with each value
+      FilterPredicate predicate = null;
+      for (Comparable<?> value : values) {
+        FilterPredicate valuePredicate = column.compare(not ? "!=" : "=", value, columnPos);
+        predicate = predicate == null ? valuePredicate :
+          not ? FilterApi.and(predicate, valuePredicate) : FilterApi.or(predicate, valuePredicate);
+      }
+      return predicate;
+    }
+    if (not) {
+      throw error("Expected IN after NOT");
+    }
+
+    String operator = parseOperator();
+    return column.compare(operator, parseValue(column), columnPos);
+  }
+
+  private Column getColumn(String name, int columnPos) {
+    Schema.Field field = schema.getField(name);
+    if (field == null) {
+      throw error(columnPos, String.format("Column '%s' is not in the schema", name));
+    }
+    Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    switch (fieldSchema.getType()) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BOOLEAN:
+      case STRING:
+        return new Column(name, fieldSchema);
+      default:
+        throw error(columnPos, String.format("Column '%s' is of type '%s', but only int, long, float, double, " +
+                                               "boolean and string columns can be filtered on",
+                                             name, fieldSchema.getType().name().toLowerCase()));
+    }
+  }
+
+  private Comparable<?> parseValue(Column column) {
+    skipWhitespace();
+    int valuePos = pos;
+    if (accept("'")) {
+      StringBuilder value = new StringBuilder();
+      while (true) {
+        if (pos >= filter.length()) {
+          throw error(valuePos, "Unterminated string");
+        }
+        char c = filter.charAt(pos++);
+        if (c == '\'') {
+          if (pos < filter.length() && filter.charAt(pos) == '\'') {
+            pos++;
+          } else {
+            break;
+          }
+        }
+        value.append(c);
+      }
+      if (column.schema.getType() != Schema.Type.STRING) {
+        throw error(valuePos, String.format("Column '%s' of type '%s' can't be compared with a string",
+                                            column.name, column.schema.getType().name().toLowerCase()));
+      }
+      return Binary.fromString(value.toString());
+    }
+
+    String literal = parseWord();
+    if (literal.isEmpty()) {
+      throw error("Expected a value");
+    }
+    try {
+      switch (column.schema.getType()) {
+        case INT:
+          return Integer.valueOf(literal);
+        case LONG:
+          return Long.valueOf(literal);
+        case FLOAT:
+          return Float.valueOf(literal);
+        case DOUBLE:
+          return Double.valueOf(literal);
+        case BOOLEAN:
+          if (literal.equalsIgnoreCase("true") || literal.equalsIgnoreCase("false")) {
+            return Boolean.valueOf(literal);
+          }
+          break;
+        default:
+          // strings have to be quoted
+          break;
+      }
+    } catch (NumberFormatException e) {
+      // handled below
+    }
+    throw error(valuePos, String.format("Invalid value '%s' for column '%s' of type '%s'", literal, column.name,
+                                        column.schema.getType().name().toLowerCase()));
+  }
+
+  private String parseIdentifier() {
+    skipWhitespace();
+    int start = pos;
+    if (accept("`")) {
+      int end = filter.indexOf('`', pos);
+      if (end < 0) {
+        throw error(start, "Unterminated column name");
+      }
+      pos = end + 1;
+      return filter.substring(start + 1, end);
+    }
+    String identifier = parseWord();
+    if (identifier.isEmpty()) {
+      throw error("Expected a column name");
+    }
+    return identifier;
+  }
+
+  private String parseOperator() {
+    skipWhitespace();
+    int start = pos;
+    while (pos < filter.length() && "=!<>".indexOf(filter.charAt(pos)) >= 0) {
+      pos++;
+    }
+    String operator = filter.substring(start, pos);
+    switch (operator) {
+      case "==":
+        return "=";
+      case "<>":
+        return "!=";
+      case "=":
+      case "!=":
+      case "<":
+      case "<=":
+      case ">":
+      case ">=":
+        return operator;
+      default:
+        throw error(start, "Expected a comparison operator, IN, or IS");
+    }
+  }
+
+  /**
+   * Returns the characters up to the next whitespace, parenthesis, comma, quote or operator.
+   */
+  private String parseWord() {
+    skipWhitespace();
+    int start = pos;
+    while (pos < filter.length() && !Character.isWhitespace(filter.charAt(pos)) &&
+      "(),'`=!<>".indexOf(filter.charAt(pos)) < 0) {
+      pos++;
+    }
+    return filter.substring(start, pos);
+  }
+
+  private boolean accept(String token) {
+    skipWhitespace();
+    if (filter.startsWith(token, pos)) {
+      pos += token.length();
+      return true;
+    }
+    return false;
+  }
+
+  private void expect(String token) {
+    if (!accept(token)) {
+      throw error("Expected '" + token + "'");
+    }
+  }
+
+  private boolean acceptKeyword(String keyword) {
+    skipWhitespace();
+    int end = pos + keyword.length();
+    if (filter.regionMatches(true, pos, keyword, 0, keyword.length()) &&
+      (end == filter.length() || !Character.isLetterOrDigit(filter.charAt(end)) && filter.charAt(end) != '_')) {
+      pos = end;
+      return true;
+    }
+    return false;
+  }
+
+  private void expectKeyword(String keyword) {
+    if (!acceptKeyword(keyword)) {
+      throw error("Expected " + keyword);
+    }
+  }
+
+  private void skipWhitespace() {
+    while (pos < filter.length() && Character.isWhitespace(filter.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return error(pos, message);
+  }
+
+  private IllegalArgumentException error(int errorPos, String message) {
+    return new IllegalArgumentException(String.format("Invalid filter '%s': %s at position %d.",
+                                                      filter, message, errorPos + 1));
+  }
+
+  /**
+   * A parquet column that can be compared with values of its type.
+   */
+  private final class Column {
+    private final String name;
+    private final Schema schema;
+
+    private Column(String name, Schema schema) {
+      this.name = name;
+      this.schema = schema;
+    }
+
+    /**
+     * Creates the predicate that compares the column with a value.
+     *
+     * @param operator one of =, !=, <, <=, > and >=
+     * @param value the value to compare with, which can only be null for = and !=
+     */
+    private FilterPredicate compare(String operator, @Nullable Comparable<?> value, int columnPos) {
+      switch (schema.getType()) {
+        case INT:
+          return compare(operator, FilterApi.intColumn(name), (Integer) value);
+        case LONG:
+          return compare(operator, FilterApi.longColumn(name), (Long) value);
+        case FLOAT:
+          return compare(operator, FilterApi.floatColumn(name), (Float) value);
+        case DOUBLE:
+          return compare(operator, FilterApi.doubleColumn(name), (Double) value);
+        case STRING:
+          return compare(operator, FilterApi.binaryColumn(name), (Binary) value);
+        default:
+          Operators.BooleanColumn column = FilterApi.booleanColumn(name);
+          if (operator.equals("=")) {
+            return FilterApi.eq(column, (Boolean) value);
+          }
+          if (operator.equals("!=")) {
+            return FilterApi.notEq(column, (Boolean) value);
+          }
+          throw error(columnPos, String.format("Column '%s' of type 'boolean' can only be compared with =, != and IN",
+                                               name));
+      }
+    }
+
+    private <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt> FilterPredicate compare(
+      String operator, C column, @Nullable T value) {
+      switch (operator) {
+        case "=":
+          return FilterApi.eq(column, value);
+        case "!=":
+          return FilterApi.notEq(column, value);
+        case "<":
+          return FilterApi.lt(column, value);
+        case "<=":
+          return FilterApi.ltEq(column, value);
+        case ">":
+          return FilterApi.gt(column, value);
+        default:
+          return FilterApi.gtEq(column, value);
+      }
+    }
+  }
+}
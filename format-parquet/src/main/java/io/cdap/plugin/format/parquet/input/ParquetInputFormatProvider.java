@@ -23,6 +23,7 @@ import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
 import io.cdap.plugin.common.batch.JobUtils;
@@ -33,9 +34,15 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.hadoop.ParquetInputFormat;
 import org.apache.parquet.hadoop.ParquetReader;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -50,7 +57,7 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
   static final String DESC = "Plugin for reading files in text format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, ParquetInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", Conf.PARQUET_FIELDS);
 
   public ParquetInputFormatProvider(ParquetInputFormatProvider.Conf conf) {
     super(conf);
@@ -63,9 +70,28 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
 
   @Override
   protected void addFormatProperties(Map<String, String> properties) {
-    Schema schema = conf.getSchema();
-    if (schema != null) {
-      properties.put("parquet.avro.read.schema", schema.toString());
+    if (!Strings.isNullOrEmpty(conf.filter)) {
+      // the predicate is set in the configuration, where parquet reads it from to skip row groups
+      Configuration hConf = new Configuration(false);
+      ParquetInputFormat.setFilterPredicate(hConf, conf.getFilterPredicate(conf.getSchema()));
+      for (Map.Entry<String, String> entry : hConf) {
+        properties.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  @Override
+  public void validate(FormatContext context) {
+    super.validate(context);
+    if (conf.containsMacro(Conf.NAME_FILTER) || Strings.isNullOrEmpty(conf.filter) ||
+      conf.containsMacro(PathTrackingConfig.NAME_SCHEMA)) {
+      return;
+    }
+    try {
+      // the schema read from the files is not available when the records are read, so the schema has to be set
+      conf.getFilterPredicate(conf.getSchema());
+    } catch (IllegalArgumentException e) {
+      context.getFailureCollector().addFailure(e.getMessage(), null).withConfigProperty(Conf.NAME_FILTER);
     }
   }
 
@@ -117,10 +143,46 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
    * Common config for Parquet format
    */
   public static class Conf extends PathTrackingConfig {
+    public static final Map<String, PluginPropertyField> PARQUET_FIELDS;
+    public static final String NAME_FILTER = "filter";
+    private static final String FILTER_DESC = "Filter on the values of the columns, such as " +
+      "\"country IN ('US', 'CA') AND age >= 18\". Supports comparisons with =, !=, <, <=, >, >=, IN, NOT IN, " +
+      "IS NULL and IS NOT NULL, combined with AND, OR, NOT and parentheses. Unlike SQL, !=, NOT IN and NOT of = " +
+      "or IN keep the rows whose column is null. Row groups whose column statistics show that none of their rows " +
+      "match are not read. Requires a schema.";
+
+    static {
+      Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
+      fields.put(NAME_FILTER, new PluginPropertyField(NAME_FILTER, FILTER_DESC, "string", false, true));
+      PARQUET_FIELDS = Collections.unmodifiableMap(fields);
+    }
 
     @Macro
     @Nullable
     @Description(NAME_SCHEMA)
     public String schema;
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    public String filter;
+
+    /**
+     * Parses the filter for records of the given schema.
+     *
+     * @throws IllegalArgumentException if the filter is invalid, or if there is no schema
+     */
+    FilterPredicate getFilterPredicate(@Nullable Schema schema) {
+      if (schema == null) {
+        throw new IllegalArgumentException("A schema is required to use a filter.");
+      }
+      if (getPathField() != null && schema.getField(getPathField()) != null) {
+        // the path field is not in the file, so it can't be filtered on
+        List<Schema.Field> fields = new ArrayList<>(schema.getFields());
+        fields.removeIf(field -> field.getName().equals(getPathField()));
+        schema = Schema.recordOf(schema.getRecordName(), fields);
+      }
+      return ParquetFilter.parse(filter, schema);
+    }
   }
 }
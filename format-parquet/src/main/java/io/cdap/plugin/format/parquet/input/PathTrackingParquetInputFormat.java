@@ -21,12 +21,22 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
-import org.apache.parquet.avro.AvroParquetInputFormat;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetInputFormat;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -37,6 +47,7 @@ import javax.annotation.Nullable;
  * Parquet format that tracks which file each record was read from.
  */
 public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
+  private static final Logger LOG = LoggerFactory.getLogger(PathTrackingParquetInputFormat.class);
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
@@ -44,13 +55,65 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema)
     throws IOException, InterruptedException {
-    RecordReader<Void, GenericRecord> delegate = (new AvroParquetInputFormat<GenericRecord>())
-      .createRecordReader(split, context);
-    return new ParquetRecordReader(delegate, schema, pathField);
+    FilterCompat.Filter filter = ParquetInputFormat.getFilter(context.getConfiguration());
+    if (schema == null) {
+      // without a schema, the records are read with the avro schema of the file
+      RecordReader<Void, GenericRecord> delegate =
+        new org.apache.parquet.hadoop.ParquetRecordReader<>(new AvroReadSupport<>(), filter);
+      return new ParquetRecordReader(delegate, pathField);
+    }
+    // the records are built directly from the columns of the schema, without going through avro records
+    RecordReader<Void, StructuredRecord.Builder> delegate =
+      new org.apache.parquet.hadoop.ParquetRecordReader<>(new StructuredReadSupport(schema, pathField), filter);
+    return new StructuredParquetRecordReader(delegate);
+  }
+
+  /**
+   * Reads the StructuredRecords materialized by parquet.
+   */
+  static class StructuredParquetRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+    private final RecordReader<Void, StructuredRecord.Builder> delegate;
+
+    StructuredParquetRecordReader(RecordReader<Void, StructuredRecord.Builder> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+      delegate.initialize(split, context);
+      if (split instanceof FileSplit && LOG.isDebugEnabled()) {
+        logRowGroups((FileSplit) split, context);
+      }
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      return delegate.nextKeyValue();
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
+      return delegate.getCurrentValue();
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      return delegate.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
   }
 
   /**
-   * Transforms GenericRecords into StructuredRecord.
+   * Transforms GenericRecords into StructuredRecord, with the schema of the file.
    */
   static class ParquetRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
     private final RecordReader<Void, GenericRecord> delegate;
@@ -58,10 +121,8 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
     private final String pathField;
     private Schema schema;
 
-    ParquetRecordReader(RecordReader<Void, GenericRecord> delegate, @Nullable Schema schema,
-                        @Nullable String pathField) {
+    ParquetRecordReader(RecordReader<Void, GenericRecord> delegate, @Nullable String pathField) {
       this.delegate = delegate;
-      this.schema = schema;
       this.pathField = pathField;
       this.recordTransformer = new AvroToStructuredTransformer();
     }
@@ -69,6 +130,9 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
     @Override
     public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
       delegate.initialize(split, context);
+      if (split instanceof FileSplit && LOG.isDebugEnabled()) {
+        logRowGroups((FileSplit) split, context);
+      }
     }
 
     @Override
@@ -84,8 +148,7 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
     @Override
     public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
       GenericRecord genericRecord = delegate.getCurrentValue();
-      // if schema is null, but we're still able to read, that means the file contains the schema information
-      // set the schema based on the schema of the record
+      // the schema is set from the schema of the first record, which is the schema of the file
       if (schema == null) {
         if (pathField == null) {
           schema = Schema.parseJson(genericRecord.getSchema().toString());
@@ -111,4 +174,23 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
       delegate.close();
     }
   }
+
+  /**
+   * Logs how many row groups of the split are skipped by the filter. Parquet doesn't expose the row groups it skipped
+   * or the footer it read, so the footer of the split is read again and filtered. This is only done at debug level.
+   */
+  private static void logRowGroups(FileSplit split, TaskAttemptContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    FilterCompat.Filter filter = ParquetInputFormat.getFilter(conf);
+    if (!(filter instanceof FilterCompat.FilterPredicateCompat)) {
+      return;
+    }
+    ParquetMetadata footer = ParquetFileReader.readFooter(
+      conf, split.getPath(), ParquetMetadataConverter.range(split.getStart(), split.getStart() + split.getLength()));
+    List<BlockMetaData> rowGroups = footer.getBlocks();
+    List<BlockMetaData> readRowGroups = RowGroupFilter.filterRowGroups(filter, rowGroups,
+                                                                       footer.getFileMetaData().getSchema());
+    LOG.debug("Skipped {} of the {} row groups of split {} with the filter.",
+              rowGroups.size() - readRowGroups.size(), rowGroups.size(), split);
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ReadSupport} that builds the records of a schema directly from the parquet columns, and only requests the
+ * columns of the file that are in the schema, so that the column chunks of the other columns are not read or decoded.
+ *
+ * The projection is made of the top level fields of the file schema whose names are in the schema. The parquet
+ * types of the file are kept, so the projection always matches the file, even if the schema contains fields
+ * that are not in the file, like the path field.
+ */
+final class StructuredReadSupport extends ReadSupport<StructuredRecord.Builder> {
+  private final Schema schema;
+  private final String pathField;
+
+  /**
+   * Creates a read support for records of the given schema.
+   *
+   * @param schema the schema of the records
+   * @param pathField the field that is set to the path of the file, which is not read from the file
+   */
+  StructuredReadSupport(Schema schema, @Nullable String pathField) {
+    this.schema = schema;
+    this.pathField = pathField;
+  }
+
+  @Override
+  public ReadContext init(InitContext context) {
+    MessageType fileSchema = context.getFileSchema();
+    List<Type> projectedFields = new ArrayList<>();
+    for (Type field : fileSchema.getFields()) {
+      if (schema.getField(field.getName()) != null && !field.getName().equals(pathField)) {
+        projectedFields.add(field);
+      }
+    }
+    // parquet can't read a projection without columns, since it needs a column to know the number of records
+    if (projectedFields.isEmpty() || projectedFields.size() == fileSchema.getFieldCount()) {
+      return new ReadContext(fileSchema);
+    }
+    return new ReadContext(new MessageType(fileSchema.getName(), projectedFields));
+  }
+
+  @Override
+  public RecordMaterializer<StructuredRecord.Builder> prepareForRead(Configuration configuration,
+                                                                     Map<String, String> keyValueMetaData,
+                                                                     MessageType fileSchema,
+                                                                     ReadContext readContext) {
+    return new StructuredRecordMaterializer(readContext.getRequestedSchema(), schema, pathField);
+  }
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.avro.NoOpConverter;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Materializes parquet records into {@link StructuredRecord.Builder StructuredRecord.Builders}, with a tree of
+ * converters that is created once from the parquet schema and the schema of the records. Values are set on the
+ * builders as parquet decodes them, without going through an avro record first.
+ *
+ * Values are read as the same java types as the avro converters read them: strings as {@link String}, bytes as
+ * {@link ByteBuffer}, and logical types as the values of their physical type, except that INT96 timestamps are read
+ * as microseconds since the epoch, and decimals stored as int32 or int64 are read as their unscaled bytes.
+ */
+final class StructuredRecordMaterializer extends RecordMaterializer<StructuredRecord.Builder> {
+  private static final int JULIAN_DAY_OF_EPOCH = 2440588;
+  private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+  private final RecordConverter root;
+
+  /**
+   * Creates a materializer for records of the given schema.
+   *
+   * @param parquetSchema the parquet schema of the columns that are read
+   * @param schema the schema of the records
+   * @param pathField the field that is set to the path of the file, which is not read from the file
+   */
+  StructuredRecordMaterializer(MessageType parquetSchema, Schema schema, @Nullable String pathField) {
+    this.root = new RecordConverter(parquetSchema, schema, pathField, null);
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentRecord() {
+    return root.builder;
+  }
+
+  @Override
+  public GroupConverter getRootConverter() {
+    return root;
+  }
+
+  private static Converter newConverter(Schema schema, Type type, ValueConsumer parent) {
+    // an optional parquet value that is not set is never passed to its converter, so it is left null
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    if (nonNullable.getType() == Schema.Type.UNION) {
+      return new UnionConverter(type, nonNullable, parent);
+    }
+    if (type.isPrimitive()) {
+      PrimitiveConverter converter = newPrimitiveConverter(nonNullable, type.asPrimitiveType(), parent);
+      if (converter != null) {
+        return converter;
+      }
+    } else {
+      switch (nonNullable.getType()) {
+        case RECORD:
+          return new RecordConverter(type.asGroupType(), nonNullable, null, parent);
+        case ARRAY:
+          return new ArrayConverter(type.asGroupType(), nonNullable, parent);
+        case MAP:
+          return new MapConverter(type.asGroupType(), nonNullable, parent);
+        default:
+          break;
+      }
+    }
+    throw new IllegalArgumentException(String.format("Parquet field '%s' of type '%s' cannot be read as a '%s'.",
+                                                     type.getName(), type, nonNullable.getType()));
+  }
+
+  @Nullable
+  private static PrimitiveConverter newPrimitiveConverter(Schema schema, PrimitiveType type, ValueConsumer parent) {
+    PrimitiveType.PrimitiveTypeName typeName = type.getPrimitiveTypeName();
+    if (typeName == PrimitiveType.PrimitiveTypeName.INT96) {
+      return newInt96Converter(schema, parent);
+    }
+    if (schema.getLogicalType() == Schema.LogicalType.DECIMAL &&
+      (typeName == PrimitiveType.PrimitiveTypeName.INT32 || typeName == PrimitiveType.PrimitiveTypeName.INT64)) {
+      // decimals are read as their unscaled bytes, whatever the physical type they are stored with
+      return new PrimitiveConverter() {
+        @Override
+        public void addInt(int value) {
+          addLong(value);
+        }
+
+        @Override
+        public void addLong(long value) {
+          parent.add(ByteBuffer.wrap(BigInteger.valueOf(value).toByteArray()));
+        }
+      };
+    }
+
+    // numbers are widened to the type of the schema, like the avro converters do
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return new PrimitiveConverter() {
+          @Override
+          public void addBoolean(boolean value) {
+            parent.add(value);
+          }
+        };
+      case INT:
+        return new PrimitiveConverter() {
+          @Override
+          public void addInt(int value) {
+            parent.add(value);
+          }
+        };
+      case LONG:
+        return new PrimitiveConverter() {
+          @Override
+          public void addInt(int value) {
+            parent.add((long) value);
+          }
+
+          @Override
+          public void addLong(long value) {
+            parent.add(value);
+          }
+        };
+      case FLOAT:
+        return new PrimitiveConverter() {
+          @Override
+          public void addInt(int value) {
+            parent.add((float) value);
+          }
+
+          @Override
+          public void addLong(long value) {
+            parent.add((float) value);
+          }
+
+          @Override
+          public void addFloat(float value) {
+            parent.add(value);
+          }
+        };
+      case DOUBLE:
+        return new PrimitiveConverter() {
+          @Override
+          public void addInt(int value) {
+            parent.add((double) value);
+          }
+
+          @Override
+          public void addLong(long value) {
+            parent.add((double) value);
+          }
+
+          @Override
+          public void addFloat(float value) {
+            parent.add((double) value);
+          }
+
+          @Override
+          public void addDouble(double value) {
+            parent.add(value);
+          }
+        };
+      case STRING:
+      case ENUM:
+        return new StringConverter(parent);
+      case BYTES:
+        return new PrimitiveConverter() {
+          @Override
+          public void addBinary(Binary value) {
+            parent.add(ByteBuffer.wrap(value.getBytes()));
+          }
+        };
+      default:
+        return null;
+    }
+  }
+
+  @Nullable
+  private static PrimitiveConverter newInt96Converter(Schema schema, ValueConsumer parent) {
+    if (schema.getType() == Schema.Type.BYTES) {
+      return new PrimitiveConverter() {
+        @Override
+        public void addBinary(Binary value) {
+          parent.add(ByteBuffer.wrap(value.getBytes()));
+        }
+      };
+    }
+    if (schema.getType() == Schema.Type.LONG) {
+      // INT96 timestamps are the nanoseconds of the day followed by the julian day, in little endian order
+      return new PrimitiveConverter() {
+        @Override
+        public void addBinary(Binary value) {
+          ByteBuffer buf = value.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+          long timeOfDayNanos = buf.getLong();
+          int julianDay = buf.getInt();
+          long seconds = (julianDay - JULIAN_DAY_OF_EPOCH) * SECONDS_PER_DAY;
+          parent.add(TimeUnit.SECONDS.toMicros(seconds) + TimeUnit.NANOSECONDS.toMicros(timeOfDayNanos));
+        }
+      };
+    }
+    return null;
+  }
+
+  /**
+   * Creates a converter that ignores the values of a parquet field that is not in the schema.
+   */
+  private static Converter newSkippingConverter(Type type) {
+    if (type.isPrimitive()) {
+      return NoOpConverter.INSTANCE;
+    }
+    GroupType groupType = type.asGroupType();
+    Converter[] converters = new Converter[groupType.getFieldCount()];
+    for (int i = 0; i < converters.length; i++) {
+      converters[i] = newSkippingConverter(groupType.getType(i));
+    }
+    return new GroupConverter() {
+      @Override
+      public Converter getConverter(int fieldIndex) {
+        return converters[fieldIndex];
+      }
+
+      @Override
+      public void start() {
+        // no-op
+      }
+
+      @Override
+      public void end() {
+        // no-op
+      }
+    };
+  }
+
+  /**
+   * Returns whether the repeated type of a parquet list is the element type, or a group that only wraps the element,
+   * following the backward compatibility rules of the parquet list format.
+   */
+  private static boolean isElementType(Type repeatedType, Schema elementSchema) {
+    if (repeatedType.isPrimitive() || repeatedType.asGroupType().getFieldCount() > 1) {
+      return true;
+    }
+    // a record element with a single field is written as the repeated group by the older avro writers
+    Schema nonNullable = elementSchema.isNullable() ? elementSchema.getNonNullable() : elementSchema;
+    return nonNullable.getType() == Schema.Type.RECORD && nonNullable.getFields().size() == 1 &&
+      nonNullable.getFields().get(0).getName().equals(repeatedType.asGroupType().getFieldName(0));
+  }
+
+  /**
+   * Receives the values read by a converter.
+   */
+  private interface ValueConsumer {
+    void add(@Nullable Object value);
+  }
+
+  /**
+   * Reads a parquet group into a record. The top level record is kept as a builder, so that the path field can be set.
+   */
+  private static final class RecordConverter extends GroupConverter {
+    private final Schema schema;
+    private final ValueConsumer parent;
+    private final Converter[] converters;
+    private StructuredRecord.Builder builder;
+
+    private RecordConverter(GroupType type, Schema schema, @Nullable String skipField,
+                            @Nullable ValueConsumer parent) {
+      this.schema = schema;
+      this.parent = parent;
+      this.converters = new Converter[type.getFieldCount()];
+      for (int i = 0; i < converters.length; i++) {
+        Type fieldType = type.getType(i);
+        Schema.Field field = schema.getField(fieldType.getName());
+        if (field == null || field.getName().equals(skipField)) {
+          converters[i] = newSkippingConverter(fieldType);
+        } else {
+          String name = field.getName();
+          converters[i] = newConverter(field.getSchema(), fieldType, value -> builder.set(name, value));
+        }
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converters[fieldIndex];
+    }
+
+    @Override
+    public void start() {
+      builder = StructuredRecord.builder(schema);
+    }
+
+    @Override
+    public void end() {
+      if (parent != null) {
+        parent.add(builder.build());
+      }
+    }
+  }
+
+  /**
+   * Reads a parquet list into a {@link List}.
+   */
+  private static final class ArrayConverter extends GroupConverter {
+    private final ValueConsumer parent;
+    private final Converter elementConverter;
+    private List<Object> values;
+
+    private ArrayConverter(GroupType type, Schema schema, ValueConsumer parent) {
+      this.parent = parent;
+      Type repeatedType = type.getType(0);
+      Schema elementSchema = schema.getComponentSchema();
+      if (isElementType(repeatedType, elementSchema)) {
+        this.elementConverter = newConverter(elementSchema, repeatedType, value -> values.add(value));
+      } else {
+        this.elementConverter = new ElementConverter(repeatedType.asGroupType(), elementSchema,
+                                                     value -> values.add(value));
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return elementConverter;
+    }
+
+    @Override
+    public void start() {
+      values = new ArrayList<>();
+    }
+
+    @Override
+    public void end() {
+      parent.add(values);
+    }
+  }
+
+  /**
+   * Reads the repeated group that wraps each element of a parquet list. An element that is not set is null.
+   */
+  private static final class ElementConverter extends GroupConverter {
+    private final ValueConsumer parent;
+    private final Converter converter;
+    private Object value;
+
+    private ElementConverter(GroupType type, Schema elementSchema, ValueConsumer parent) {
+      this.parent = parent;
+      this.converter = newConverter(elementSchema, type.getType(0), element -> value = element);
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converter;
+    }
+
+    @Override
+    public void start() {
+      value = null;
+    }
+
+    @Override
+    public void end() {
+      parent.add(value);
+    }
+  }
+
+  /**
+   * Reads a parquet map, which is a repeated group of keys and values, into a {@link Map}.
+   */
+  private static final class MapConverter extends GroupConverter {
+    private final ValueConsumer parent;
+    private final Converter entryConverter;
+    private Map<Object, Object> values;
+
+    private MapConverter(GroupType type, Schema schema, ValueConsumer parent) {
+      this.parent = parent;
+      Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+      this.entryConverter = new EntryConverter(type.getType(0).asGroupType(), mapSchema.getKey(),
+                                               mapSchema.getValue(), (key, value) -> values.put(key, value));
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return entryConverter;
+    }
+
+    @Override
+    public void start() {
+      values = new HashMap<>();
+    }
+
+    @Override
+    public void end() {
+      parent.add(values);
+    }
+  }
+
+  /**
+   * Reads a key and its value of a parquet map.
+   */
+  private static final class EntryConverter extends GroupConverter {
+    private final EntryConsumer parent;
+    private final Converter keyConverter;
+    private final Converter valueConverter;
+    private Object key;
+    private Object value;
+
+    private EntryConverter(GroupType type, Schema keySchema, Schema valueSchema, EntryConsumer parent) {
+      this.parent = parent;
+      this.keyConverter = newConverter(keySchema, type.getType(0), entryKey -> key = entryKey);
+      this.valueConverter = newConverter(valueSchema, type.getType(1), entryValue -> value = entryValue);
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return fieldIndex == 0 ? keyConverter : valueConverter;
+    }
+
+    @Override
+    public void start() {
+      key = null;
+      value = null;
+    }
+
+    @Override
+    public void end() {
+      parent.add(key, value);
+    }
+  }
+
+  /**
+   * Receives the entries read by an {@link EntryConverter}.
+   */
+  private interface EntryConsumer {
+    void add(Object key, @Nullable Object value);
+  }
+
+  /**
+   * Reads a union, which parquet stores as a group with an optional field for each type of the union that is not
+   * null, in the order of the union. At most one of the fields is set.
+   */
+  private static final class UnionConverter extends GroupConverter {
+    private final ValueConsumer parent;
+    private final Converter[] converters;
+    private Object value;
+
+    private UnionConverter(Type type, Schema schema, ValueConsumer parent) {
+      this.parent = parent;
+      List<Schema> memberSchemas = new ArrayList<>();
+      for (Schema memberSchema : schema.getUnionSchemas()) {
+        if (memberSchema.getType() != Schema.Type.NULL) {
+          memberSchemas.add(memberSchema);
+        }
+      }
+      if (type.isPrimitive() || type.asGroupType().getFieldCount() != memberSchemas.size()) {
+        throw new IllegalArgumentException(String.format("Parquet field '%s' of type '%s' cannot be read as a union " +
+                                                           "of %d types.", type.getName(), type, memberSchemas.size()));
+      }
+      GroupType groupType = type.asGroupType();
+      this.converters = new Converter[memberSchemas.size()];
+      for (int i = 0; i < converters.length; i++) {
+        converters[i] = newConverter(memberSchemas.get(i), groupType.getType(i), member -> value = member);
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converters[fieldIndex];
+    }
+
+    @Override
+    public void start() {
+      value = null;
+    }
+
+    @Override
+    public void end() {
+      parent.add(value);
+    }
+  }
+
+  /**
+   * Reads strings, decoding each entry of a dictionary only once for all the values that use it.
+   */
+  private static final class StringConverter extends PrimitiveConverter {
+    private final ValueConsumer parent;
+    private String[] dictionary;
+
+    private StringConverter(ValueConsumer parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public boolean hasDictionarySupport() {
+      return true;
+    }
+
+    @Override
+    public void setDictionary(Dictionary dictionary) {
+      this.dictionary = new String[dictionary.getMaxId() + 1];
+      for (int i = 0; i < this.dictionary.length; i++) {
+        this.dictionary[i] = dictionary.decodeToBinary(i).toStringUsingUTF8();
+      }
+    }
+
+    @Override
+    public void addValueFromDictionary(int dictionaryId) {
+      parent.add(dictionary[dictionaryId]);
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      parent.add(value.toStringUsingUTF8());
+    }
+  }
+}
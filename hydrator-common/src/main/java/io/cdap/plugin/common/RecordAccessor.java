@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads fields of records that share a schema. Field names, non-nullable field schemas and types are resolved once
+ * when the accessor is created, so that reading a field doesn't need to look up the schema field or unwrap its
+ * nullable union for every record.
+ *
+ * Fields are identified by their index in the schema, which is resolved once with {@link #indexOf(String)} or
+ * {@link #requireIndex(String)}. The index only selects the precomputed name and schema of the field: a
+ * {@link StructuredRecord} stores its values by field name, so the getters still read the value from the record
+ * by name.
+ *
+ * Accessors are immutable and can be shared. They are usually kept in a {@link SchemaPlanCache}, created with
+ * {@link #newCache()}, so that an accessor is only created once per input schema.
+ */
+public final class RecordAccessor {
+  private final Schema schema;
+  private final String[] names;
+  private final Schema[] fieldSchemas;
+  private final Schema.Type[] types;
+  private final boolean[] nullable;
+  private final Map<String, Integer> indices;
+
+  public RecordAccessor(Schema schema) {
+    List<Schema.Field> fields = schema.getFields();
+    if (fields == null) {
+      throw new IllegalArgumentException("Schema must be a record schema, but is of type " + schema.getType());
+    }
+    this.schema = schema;
+    this.names = new String[fields.size()];
+    this.fieldSchemas = new Schema[fields.size()];
+    this.types = new Schema.Type[fields.size()];
+    this.nullable = new boolean[fields.size()];
+    this.indices = new HashMap<>();
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      names[i] = field.getName();
+      nullable[i] = fieldSchema.isNullable();
+      fieldSchemas[i] = nullable[i] ? fieldSchema.getNonNullable() : fieldSchema;
+      types[i] = fieldSchemas[i].getType();
+      indices.put(names[i], i);
+    }
+  }
+
+  /**
+   * @return a cache that creates accessors for schemas the first time they are seen
+   */
+  public static SchemaPlanCache<RecordAccessor> newCache() {
+    return new SchemaPlanCache<>(RecordAccessor::new);
+  }
+
+  /**
+   * @return the record schema this accessor was created for
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * @return the number of fields in the schema
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Returns the index of the given field in the schema, or -1 if the schema does not contain the field.
+   */
+  public int indexOf(String name) {
+    Integer index = indices.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the index of the given field in the schema.
+   *
+   * @throws IllegalArgumentException if the schema does not contain the field
+   */
+  public int requireIndex(String name) {
+    Integer index = indices.get(name);
+    if (index == null) {
+      throw new IllegalArgumentException(String.format("Field '%s' does not exist in schema '%s'.",
+                                                       name, schema.getRecordName()));
+    }
+    return index;
+  }
+
+  public String getName(int index) {
+    return names[index];
+  }
+
+  /**
+   * @return the schema of the field at the given index, with any nullable union removed
+   */
+  public Schema getFieldSchema(int index) {
+    return fieldSchemas[index];
+  }
+
+  /**
+   * @return the type of the field at the given index, with any nullable union removed
+   */
+  public Schema.Type getType(int index) {
+    return types[index];
+  }
+
+  @Nullable
+  public Schema.LogicalType getLogicalType(int index) {
+    return fieldSchemas[index].getLogicalType();
+  }
+
+  public boolean isNullable(int index) {
+    return nullable[index];
+  }
+
+  /**
+   * Returns the value of the field at the given index of the schema, read from the record by the name of the field.
+   */
+  @Nullable
+  public <T> T get(StructuredRecord record, int index) {
+    return record.get(names[index]);
+  }
+
+  @Nullable
+  public String getString(StructuredRecord record, int index) {
+    Object value = record.get(names[index]);
+    return value == null ? null : value.toString();
+  }
+
+  @Nullable
+  public Boolean getBoolean(StructuredRecord record, int index) {
+    return record.get(names[index]);
+  }
+
+  @Nullable
+  public Integer getInt(StructuredRecord record, int index) {
+    Number value = record.get(names[index]);
+    if (value == null) {
+      return null;
+    }
+    return value instanceof Integer ? (Integer) value : Integer.valueOf(value.intValue());
+  }
+
+  @Nullable
+  public Long getLong(StructuredRecord record, int index) {
+    Number value = record.get(names[index]);
+    if (value == null) {
+      return null;
+    }
+    return value instanceof Long ? (Long) value : Long.valueOf(value.longValue());
+  }
+
+  @Nullable
+  public Float getFloat(StructuredRecord record, int index) {
+    Number value = record.get(names[index]);
+    if (value == null) {
+      return null;
+    }
+    return value instanceof Float ? (Float) value : Float.valueOf(value.floatValue());
+  }
+
+  @Nullable
+  public Double getDouble(StructuredRecord record, int index) {
+    Number value = record.get(names[index]);
+    if (value == null) {
+      return null;
+    }
+    return value instanceof Double ? (Double) value : Double.valueOf(value.doubleValue());
+  }
+
+  /**
+   * Returns the value of a bytes field as a byte array, copying it if it is stored as a {@link ByteBuffer}.
+   */
+  @Nullable
+  public byte[] getBytes(StructuredRecord record, int index) {
+    Object value = record.get(names[index]);
+    return value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : (byte[]) value;
+  }
+}
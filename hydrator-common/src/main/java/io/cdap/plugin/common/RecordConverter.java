@@ -23,71 +23,33 @@ import io.cdap.cdap.api.data.schema.Schema;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Converts an object with a schema into another type of object with the same schema.
  * For example, child implementations could convert a StructuredRecord to a GenericRecord and vice versa
  * as can be seen in AvroToStructuredTransformer and StructuredToAvroTransformer
  *
+ * The conversion of each schema is compiled once into a converter, so that converting a value does not go through
+ * the schema type for every value. Unions pick the branch to convert with based on the class of the value,
+ * which is only done once per value class.
+ *
  * @param <INPUT> type of input record
  * @param <OUTPUT> type of output record
  */
 public abstract class RecordConverter<INPUT, OUTPUT> {
+  private static final int MAX_CACHED_SCHEMAS = 256;
 
-  public abstract OUTPUT transform(INPUT record, Schema schema) throws IOException;
+  private final SchemaPlanCache<FieldConverter> converters =
+    new SchemaPlanCache<>(this::createConverter, MAX_CACHED_SCHEMAS);
 
-  private Object convertUnion(Object value, List<Schema> schemas) {
-    boolean isNullable = false;
-    for (Schema possibleSchema : schemas) {
-      if (possibleSchema.getType() == Schema.Type.NULL) {
-        isNullable = true;
-        if (value == null) {
-          return value;
-        }
-      } else {
-        try {
-          return convertField(value, possibleSchema);
-        } catch (Exception e) {
-          // if we couldn't convert, move to the next possibility
-        }
-      }
-    }
-    if (isNullable) {
-      return null;
-    }
-    throw new UnexpectedFormatException("unable to determine union type.");
-  }
-
-  private List<Object> convertArray(Object values, Schema elementSchema) throws IOException {
-    List<Object> output;
-    if (values instanceof Collection) {
-      Collection<Object> valuesList = (Collection<Object>) values;
-      output = new ArrayList<>(valuesList.size());
-      for (Object value : valuesList) {
-        output.add(convertField(value, elementSchema));
-      }
-    } else {
-      int length = Array.getLength(values);
-      output = Lists.newArrayListWithCapacity(length);
-      for (int i = 0; i < length; i++) {
-        output.add(convertField(Array.get(values, i), elementSchema));
-      }
-    }
-    return output;
-  }
-
-  private Map<Object, Object> convertMap(Map<Object, Object> map,
-                                         Schema keySchema, Schema valueSchema) throws IOException {
-    Map<Object, Object> converted = Maps.newHashMap();
-    for (Map.Entry<Object, Object> entry : map.entrySet()) {
-      converted.put(convertField(entry.getKey(), keySchema), convertField(entry.getValue(), valueSchema));
-    }
-    return converted;
-  }
+  public abstract OUTPUT transform(INPUT record, Schema schema) throws IOException;
 
   protected Object convertField(Object field, Schema.Field schemaField) throws IOException {
     try {
@@ -101,40 +63,234 @@ public abstract class RecordConverter<INPUT, OUTPUT> {
   }
 
   protected Object convertField(Object field, Schema fieldSchema) throws IOException {
-    Schema.Type fieldType = fieldSchema.getType();
-    if (fieldType == Schema.Type.UNION) {
-      return convertUnion(field, fieldSchema.getUnionSchemas());
-    }
-    if (field == null) {
-      throw new NullPointerException("Found a null value for a non-nullable field.");
+    return converters.get(fieldSchema).convert(field);
+  }
+
+  protected Object convertBytes(Object field) {
+    return field;
+  }
+
+  /**
+   * Returns the name of the schema of a record, which is used to choose between the record branches of a union.
+   * Returns null if it is not known, in which case the record branches are tried in order.
+   */
+  @Nullable
+  protected String getRecordName(INPUT record) {
+    return null;
+  }
+
+  private FieldConverter createConverter(Schema schema) {
+    if (schema.getType() == Schema.Type.UNION) {
+      return new UnionConverter(schema.getUnionSchemas());
     }
+    FieldConverter converter = createNonNullConverter(schema);
+    return value -> {
+      if (value == null) {
+        throw new NullPointerException("Found a null value for a non-nullable field.");
+      }
+      return converter.convert(value);
+    };
+  }
 
+  private FieldConverter createNonNullConverter(Schema schema) {
+    Schema.Type fieldType = schema.getType();
     switch (fieldType) {
       case RECORD:
-        return transform((INPUT) field, fieldSchema);
+        return value -> transform((INPUT) value, schema);
       case ARRAY:
-        return convertArray(field, fieldSchema.getComponentSchema());
+        return createArrayConverter(createConverter(schema.getComponentSchema()));
       case MAP:
-        Map.Entry<Schema, Schema> mapSchema = fieldSchema.getMapSchema();
-        return convertMap((Map<Object, Object>) field, mapSchema.getKey(), mapSchema.getValue());
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        return createMapConverter(createConverter(mapSchema.getKey()), createConverter(mapSchema.getValue()));
       case NULL:
-        return null;
+        return value -> null;
       case STRING:
-        return field.toString();
+        return Object::toString;
       case BYTES:
-        return convertBytes(field);
+        return this::convertBytes;
       case INT:
       case LONG:
       case FLOAT:
       case DOUBLE:
       case BOOLEAN:
-        return field;
+        return value -> value;
       default:
-        throw new UnexpectedFormatException("field type " + fieldType + " is not supported.");
+        return value -> {
+          throw new UnexpectedFormatException("field type " + fieldType + " is not supported.");
+        };
     }
   }
 
-  protected Object convertBytes(Object field) {
-    return field;
+  private static FieldConverter createArrayConverter(FieldConverter elementConverter) {
+    return values -> {
+      List<Object> output;
+      if (values instanceof Collection) {
+        Collection<Object> valuesList = (Collection<Object>) values;
+        output = new ArrayList<>(valuesList.size());
+        for (Object value : valuesList) {
+          output.add(elementConverter.convert(value));
+        }
+      } else {
+        int length = Array.getLength(values);
+        output = Lists.newArrayListWithCapacity(length);
+        for (int i = 0; i < length; i++) {
+          output.add(elementConverter.convert(Array.get(values, i)));
+        }
+      }
+      return output;
+    };
+  }
+
+  private static FieldConverter createMapConverter(FieldConverter keyConverter, FieldConverter valueConverter) {
+    return value -> {
+      Map<Object, Object> map = (Map<Object, Object>) value;
+      Map<Object, Object> converted = Maps.newHashMap();
+      for (Map.Entry<Object, Object> entry : map.entrySet()) {
+        converted.put(keyConverter.convert(entry.getKey()), valueConverter.convert(entry.getValue()));
+      }
+      return converted;
+    };
+  }
+
+  /**
+   * Returns whether values of the given class can be converted with the given schema type without relying on
+   * the conversion being lenient, such as a number being converted to a string.
+   */
+  private static boolean isInstance(Schema.Type type, Class<?> valueClass) {
+    switch (type) {
+      case BOOLEAN:
+        return valueClass == Boolean.class;
+      case INT:
+        return valueClass == Integer.class || valueClass == Short.class || valueClass == Byte.class;
+      case LONG:
+        return valueClass == Long.class;
+      case FLOAT:
+        return valueClass == Float.class;
+      case DOUBLE:
+        return valueClass == Double.class;
+      case STRING:
+        return CharSequence.class.isAssignableFrom(valueClass);
+      case BYTES:
+        return ByteBuffer.class.isAssignableFrom(valueClass) || valueClass == byte[].class;
+      case ARRAY:
+        return Collection.class.isAssignableFrom(valueClass) ||
+          (valueClass.isArray() && valueClass != byte[].class);
+      case MAP:
+        return Map.class.isAssignableFrom(valueClass);
+      case RECORD:
+        return !Number.class.isAssignableFrom(valueClass) && valueClass != Boolean.class &&
+          !CharSequence.class.isAssignableFrom(valueClass) && !ByteBuffer.class.isAssignableFrom(valueClass) &&
+          !Collection.class.isAssignableFrom(valueClass) && !Map.class.isAssignableFrom(valueClass) &&
+          !valueClass.isArray();
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Converts a value of a union with the branch that matches the class of the value. If no branch matches the
+   * class, every branch is tried in order, as the conversion of some types accepts values of other classes.
+   * If a nullable union cannot convert a value, the value is converted to null.
+   */
+  private final class UnionConverter implements FieldConverter {
+    private final List<Schema> schemas;
+    private final FieldConverter[] branchConverters;
+    private final Map<Class<?>, int[]> branchesByClass = new HashMap<>();
+    private final boolean isNullable;
+    private final int recordBranches;
+
+    private UnionConverter(List<Schema> schemas) {
+      this.schemas = schemas;
+      this.branchConverters = new FieldConverter[schemas.size()];
+      boolean hasNull = false;
+      int records = 0;
+      for (int i = 0; i < branchConverters.length; i++) {
+        Schema schema = schemas.get(i);
+        hasNull = hasNull || schema.getType() == Schema.Type.NULL;
+        records += schema.getType() == Schema.Type.RECORD ? 1 : 0;
+        branchConverters[i] = createConverter(schema);
+      }
+      this.isNullable = hasNull;
+      this.recordBranches = records;
+    }
+
+    @Override
+    public Object convert(@Nullable Object value) {
+      if (value == null) {
+        if (isNullable) {
+          return null;
+        }
+        throw new UnexpectedFormatException("unable to determine union type.");
+      }
+
+      int[] branches = branchesByClass.computeIfAbsent(value.getClass(), this::findBranches);
+      if (recordBranches > 1 && branches.length > 1 && isInstance(Schema.Type.RECORD, value.getClass())) {
+        Object converted = convertNamedRecord(value, branches);
+        if (converted != null) {
+          return converted;
+        }
+      }
+      for (int branch : branches) {
+        try {
+          return branchConverters[branch].convert(value);
+        } catch (Exception e) {
+          // if we couldn't convert, move to the next possibility
+        }
+      }
+      if (isNullable) {
+        return null;
+      }
+      throw new UnexpectedFormatException("unable to determine union type.");
+    }
+
+    /**
+     * Converts a record with the record branch of the same name, or returns null if there is no such branch.
+     */
+    @Nullable
+    private Object convertNamedRecord(Object value, int[] branches) {
+      String recordName = getRecordName((INPUT) value);
+      if (recordName == null) {
+        return null;
+      }
+      for (int branch : branches) {
+        Schema schema = schemas.get(branch);
+        if (schema.getType() == Schema.Type.RECORD && recordName.equals(schema.getRecordName())) {
+          try {
+            return branchConverters[branch].convert(value);
+          } catch (Exception e) {
+            // fall back to trying every branch
+            return null;
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the branches that values of the given class should be converted with, in the order to try them.
+     */
+    private int[] findBranches(Class<?> valueClass) {
+      List<Integer> matching = new ArrayList<>();
+      List<Integer> nonNull = new ArrayList<>();
+      for (int i = 0; i < schemas.size(); i++) {
+        Schema.Type type = schemas.get(i).getType();
+        if (type == Schema.Type.NULL) {
+          continue;
+        }
+        nonNull.add(i);
+        if (isInstance(type, valueClass)) {
+          matching.add(i);
+        }
+      }
+      List<Integer> branches = matching.isEmpty() ? nonNull : matching;
+      return branches.stream().mapToInt(Integer::intValue).toArray();
+    }
+  }
+
+  /**
+   * Converts a value with a compiled schema.
+   */
+  private interface FieldConverter {
+    Object convert(@Nullable Object value) throws IOException;
   }
 }
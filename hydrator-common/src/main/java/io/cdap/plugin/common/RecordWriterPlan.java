@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import javax.annotation.Nullable;
+
+/**
+ * Builds records of an output schema from records of an input schema, with the mapping between input and output
+ * fields resolved once instead of by looking up the input schema for every record. Values are still read and set
+ * by field name, since that is how a {@link StructuredRecord} stores them.
+ *
+ * By default, each output field is copied from the input field with the same name, and is left unset if the input
+ * schema does not have such a field. Fields that are computed instead of copied can be set by their index in the
+ * output schema on the builder returned from {@link #copy(StructuredRecord)}.
+ */
+public final class RecordWriterPlan {
+  private final RecordAccessor input;
+  private final RecordAccessor output;
+  // index of the input field that each output field is copied from, or -1 if it is not copied
+  private final int[] sources;
+
+  public RecordWriterPlan(Schema inputSchema, Schema outputSchema) {
+    this(new RecordAccessor(inputSchema), new RecordAccessor(outputSchema));
+  }
+
+  public RecordWriterPlan(RecordAccessor input, RecordAccessor output) {
+    this.input = input;
+    this.output = output;
+    this.sources = new int[output.size()];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = input.indexOf(output.getName(i));
+    }
+  }
+
+  public RecordAccessor getInput() {
+    return input;
+  }
+
+  public RecordAccessor getOutput() {
+    return output;
+  }
+
+  /**
+   * Prevents the output field at the given index from being copied from the input.
+   */
+  public RecordWriterPlan skip(int outputIndex) {
+    sources[outputIndex] = -1;
+    return this;
+  }
+
+  /**
+   * Returns a builder for the output schema with all copied fields set from the given record.
+   */
+  public StructuredRecord.Builder copy(StructuredRecord record) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(output.getSchema());
+    for (int i = 0; i < sources.length; i++) {
+      if (sources[i] >= 0) {
+        builder.set(output.getName(i), input.get(record, sources[i]));
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * Sets the output field at the given index on a builder returned by {@link #copy(StructuredRecord)}.
+   */
+  public void set(StructuredRecord.Builder builder, int outputIndex, @Nullable Object value) {
+    builder.set(output.getName(outputIndex), value);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caches plans that are compiled from a {@link Schema}, so that work that only depends on the schema of a record
+ * is done once per schema instead of once per record.
+ *
+ * Records flowing through a stage almost always share the same schema instance, so the most recently used plan is
+ * checked by identity before falling back to a lookup by schema equality. The cache is bounded and is cleared once
+ * it grows past its maximum size, which protects stages that see a new schema for every record.
+ *
+ * This class is not thread safe. Each plugin instance is expected to hold its own cache.
+ *
+ * @param <T> type of plan compiled from a schema
+ */
+public final class SchemaPlanCache<T> {
+  private static final int DEFAULT_MAX_SIZE = 64;
+
+  private final Function<Schema, T> compiler;
+  private final int maxSize;
+  private final Map<Schema, T> plans;
+  private Schema lastSchema;
+  private T lastPlan;
+
+  public SchemaPlanCache(Function<Schema, T> compiler) {
+    this(compiler, DEFAULT_MAX_SIZE);
+  }
+
+  public SchemaPlanCache(Function<Schema, T> compiler, int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Maximum cache size must be a positive number.");
+    }
+    this.compiler = compiler;
+    this.maxSize = maxSize;
+    this.plans = new HashMap<>();
+  }
+
+  /**
+   * Returns the plan for the given schema, compiling it if it has not been seen before.
+   *
+   * @param schema the schema to get the plan for
+   * @return the plan for the schema
+   */
+  public T get(Schema schema) {
+    if (schema == lastSchema) {
+      return lastPlan;
+    }
+    T plan = plans.get(schema);
+    if (plan == null) {
+      plan = compiler.apply(schema);
+      if (plans.size() >= maxSize) {
+        plans.clear();
+      }
+      plans.put(schema, plan);
+    }
+    lastSchema = schema;
+    lastPlan = plan;
+    return plan;
+  }
+
+  /**
+   * Returns the names of all fields in the given record schema, in schema order.
+   */
+  public static String[] getFieldNames(Schema schema) {
+    String[] names = new String[schema.getFields().size()];
+    int i = 0;
+    for (Schema.Field field : schema.getFields()) {
+      names[i++] = field.getName();
+    }
+    return names;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tests for {@link RecordAccessor} and {@link RecordWriterPlan}.
+ */
+public class RecordAccessorTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("data", Schema.of(Schema.Type.BYTES)));
+
+  @Test
+  public void testAccessor() {
+    RecordAccessor accessor = new RecordAccessor(SCHEMA);
+    Assert.assertEquals(4, accessor.size());
+    Assert.assertEquals(1, accessor.indexOf("name"));
+    Assert.assertEquals(-1, accessor.indexOf("missing"));
+    Assert.assertTrue(accessor.isNullable(1));
+    Assert.assertFalse(accessor.isNullable(0));
+    Assert.assertEquals(Schema.Type.STRING, accessor.getType(1));
+    Assert.assertEquals(Schema.of(Schema.Type.DOUBLE), accessor.getFieldSchema(2));
+
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 5L)
+      .set("name", "abc")
+      .set("data", ByteBuffer.wrap(Bytes.toBytes("xyz")))
+      .build();
+    Assert.assertEquals(Long.valueOf(5L), accessor.getLong(record, 0));
+    Assert.assertEquals("abc", accessor.getString(record, accessor.requireIndex("name")));
+    Assert.assertNull(accessor.getDouble(record, 2));
+    Assert.assertArrayEquals(Bytes.toBytes("xyz"), accessor.getBytes(record, 3));
+  }
+
+  @Test
+  public void testNullNumbers() {
+    Schema schema = Schema.recordOf(
+      "numbers",
+      Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("f", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+      Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+    RecordAccessor accessor = new RecordAccessor(schema);
+
+    StructuredRecord record = StructuredRecord.builder(schema).build();
+    Assert.assertNull(accessor.getInt(record, 0));
+    Assert.assertNull(accessor.getLong(record, 1));
+    Assert.assertNull(accessor.getFloat(record, 2));
+    Assert.assertNull(accessor.getDouble(record, 3));
+
+    // the getters also convert numbers of other types
+    record = StructuredRecord.builder(schema).set("i", 1).set("l", 2L).set("f", 3.5f).set("d", 4.5d).build();
+    Assert.assertEquals(Integer.valueOf(1), accessor.getInt(record, 0));
+    Assert.assertEquals(Long.valueOf(1L), accessor.getLong(record, 0));
+    Assert.assertEquals(Long.valueOf(2L), accessor.getLong(record, 1));
+    Assert.assertEquals(Float.valueOf(3.5f), accessor.getFloat(record, 2));
+    Assert.assertEquals(Double.valueOf(3.5d), accessor.getDouble(record, 2));
+    Assert.assertEquals(Double.valueOf(4.5d), accessor.getDouble(record, 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRequireMissingField() {
+    new RecordAccessor(SCHEMA).requireIndex("missing");
+  }
+
+  @Test
+  public void testWriterPlan() {
+    Schema outputSchema = Schema.recordOf(
+      "output",
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("extra", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    RecordWriterPlan plan = new RecordWriterPlan(SCHEMA, outputSchema);
+    // the id is converted instead of copied
+    plan.skip(1);
+
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 5L)
+      .set("name", "abc")
+      .set("data", Bytes.toBytes("xyz"))
+      .build();
+    StructuredRecord.Builder builder = plan.copy(record);
+    plan.set(builder, 1, String.valueOf(plan.getInput().getLong(record, 0)));
+    StructuredRecord output = builder.build();
+
+    Assert.assertEquals("abc", output.get("name"));
+    Assert.assertEquals("5", output.get("id"));
+    Assert.assertNull(output.get("extra"));
+  }
+}
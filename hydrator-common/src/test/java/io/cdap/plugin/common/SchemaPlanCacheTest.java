@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SchemaPlanCache}.
+ */
+public class SchemaPlanCacheTest {
+
+  private static Schema schema(String name) {
+    return Schema.recordOf(name,
+                           Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                           Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  }
+
+  @Test
+  public void testPlansCompiledOncePerSchema() {
+    AtomicInteger compilations = new AtomicInteger();
+    SchemaPlanCache<String[]> cache = new SchemaPlanCache<>(schema -> {
+      compilations.incrementAndGet();
+      return SchemaPlanCache.getFieldNames(schema);
+    });
+
+    Schema schema1 = schema("r1");
+    Schema schema2 = schema("r2");
+    Assert.assertArrayEquals(new String[] { "a", "b" }, cache.get(schema1));
+    Assert.assertSame(cache.get(schema1), cache.get(schema1));
+    cache.get(schema2);
+    // an equal schema that is a different instance should reuse the existing plan
+    cache.get(schema("r1"));
+    Assert.assertEquals(2, compilations.get());
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    AtomicInteger compilations = new AtomicInteger();
+    SchemaPlanCache<String[]> cache = new SchemaPlanCache<>(schema -> {
+      compilations.incrementAndGet();
+      return SchemaPlanCache.getFieldNames(schema);
+    }, 2);
+
+    cache.get(schema("r1"));
+    cache.get(schema("r2"));
+    cache.get(schema("r3"));
+    // the cache was cleared when r3 was added, so r1 must be compiled again
+    cache.get(schema("r1"));
+    Assert.assertEquals(4, compilations.get());
+  }
+}
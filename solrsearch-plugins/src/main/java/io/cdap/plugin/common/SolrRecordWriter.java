@@ -52,6 +52,9 @@ public class SolrRecordWriter extends RecordWriter<Text, Text> {
   private Configuration conf;
   private int batchSize;
   private Map<String, String> outputFieldMap;
+  private final Text lastKey = new Text();
+  private RecordAccessor accessor;
+  private String[] solrFieldNames;
 
   public SolrRecordWriter(TaskAttemptContext context) {
     conf = context.getConfiguration();
@@ -67,18 +70,23 @@ public class SolrRecordWriter extends RecordWriter<Text, Text> {
 
   @Override
   public void write(Text key, Text value) throws IOException {
-    String solrFieldName;
     SolrInputDocument document = new SolrInputDocument();
 
-    Schema inputSchema = GSON.fromJson(key.toString(), SCHEMA_TYPE);
-    StructuredRecord structuredRecord = StructuredRecordStringConverter.fromJsonString(value.toString(), inputSchema);
-    for (Schema.Field field : structuredRecord.getSchema().getFields()) {
-      solrFieldName = field.getName();
-      if (outputFieldMap.containsKey(solrFieldName)) {
-        document.addField(outputFieldMap.get(solrFieldName), structuredRecord.get(solrFieldName));
-      } else {
-        document.addField(solrFieldName, structuredRecord.get(solrFieldName));
+    // the key holds the schema of the record, which is almost always the same as for the previous record
+    if (!key.equals(lastKey)) {
+      Schema inputSchema = GSON.fromJson(key.toString(), SCHEMA_TYPE);
+      accessor = new RecordAccessor(inputSchema);
+      solrFieldNames = new String[accessor.size()];
+      for (int i = 0; i < solrFieldNames.length; i++) {
+        String fieldName = accessor.getName(i);
+        solrFieldNames[i] = outputFieldMap.containsKey(fieldName) ? outputFieldMap.get(fieldName) : fieldName;
       }
+      lastKey.set(key);
+    }
+    StructuredRecord structuredRecord = StructuredRecordStringConverter.fromJsonString(value.toString(),
+                                                                                       accessor.getSchema());
+    for (int i = 0; i < solrFieldNames.length; i++) {
+      document.addField(solrFieldNames[i], accessor.get(structuredRecord, i));
     }
     documentList.add(document);
     try {
@@ -19,7 +19,6 @@ package io.cdap.plugin;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
@@ -34,14 +33,18 @@ import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaPlanCache;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -73,8 +76,18 @@ public final class CSVFormatter extends Transform<StructuredRecord, StructuredRe
   // Output Schema associated with transform output.
   private Schema outSchema;
 
-  // List of fields specified in the schema.
-  private List<Field> fields;
+  // Name of the output field and whether it is of type bytes.
+  private String outField;
+  private boolean bytesOutput;
+
+  // Field names of each input schema, and a reusable array their values are copied to.
+  private SchemaPlanCache<String[]> fieldNames;
+  private Object[] fieldValues;
+
+  // Reusable buffers that every record is printed to, along with the printer writing to them.
+  private StringBuilder stringOut;
+  private ByteArrayOutputStream bytesOut;
+  private CSVPrinter printer;
 
   // Mapping from delimiter name to the character to be used as delimiter.
   private static final Map<String, String> delimMap = Maps.newHashMap();
@@ -135,7 +148,10 @@ public final class CSVFormatter extends Transform<StructuredRecord, StructuredRe
 
     try {
       outSchema = Schema.parseJson(config.schema);
-      fields = outSchema.getFields();
+      Field field = outSchema.getFields().get(0);
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      outField = field.getName();
+      bytesOutput = fieldSchema.getType() == Schema.Type.BYTES;
     } catch (IOException e) {
       throw new IllegalArgumentException("Format of schema specified is invalid. Please check the format.");
     }
@@ -175,23 +191,54 @@ public final class CSVFormatter extends Transform<StructuredRecord, StructuredRe
       default:
         throw new RuntimeException("Unknown format specified for CSV. Please check the format.");
     }
+
+    fieldNames = new SchemaPlanCache<>(SchemaPlanCache::getFieldNames);
+    fieldValues = new Object[0];
+    if (bytesOutput) {
+      // print straight to UTF-8 bytes, so that the output doesn't have to be encoded again downstream
+      bytesOut = new ByteArrayOutputStream();
+      printer = new CSVPrinter(new OutputStreamWriter(bytesOut, StandardCharsets.UTF_8), csvFileFormat);
+    } else {
+      stringOut = new StringBuilder();
+      printer = new CSVPrinter(stringOut, csvFileFormat);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    super.destroy();
+    if (printer != null) {
+      try {
+        printer.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close the CSV printer.", e);
+      }
+    }
   }
 
   @Override
   public void transform(StructuredRecord record, Emitter<StructuredRecord> emitter) throws Exception {
-    List<Object> values = Lists.newArrayList();
-    for (Schema.Field field : record.getSchema().getFields()) {
-      values.add(record.get(field.getName()));
+    String[] names = fieldNames.get(record.getSchema());
+    if (fieldValues.length != names.length) {
+      fieldValues = new Object[names.length];
+    }
+    for (int i = 0; i < names.length; i++) {
+      fieldValues[i] = record.get(names[i]);
     }
 
-    CSVPrinter printer = new CSVPrinter(new StringWriter(), csvFileFormat);
-    if (printer != null) {
-      printer.printRecord(values);
-      emitter.emit(StructuredRecord.builder(outSchema)
-                     .set(outSchema.getFields().get(0).getName(), printer.getOut().toString())
-                     .build());
-      printer.close();
+    printer.printRecord(fieldValues);
+    // don't hold on to the values of the record once it has been printed
+    Arrays.fill(fieldValues, null);
+    Object output;
+    if (bytesOutput) {
+      printer.flush();
+      output = bytesOut.toByteArray();
+      bytesOut.reset();
+    } else {
+      output = stringOut.toString();
+      stringOut.setLength(0);
     }
+    emitter.emit(StructuredRecord.builder(outSchema).set(outField, output).build());
   }
 
   /**
@@ -248,7 +295,7 @@ public final class CSVFormatter extends Transform<StructuredRecord, StructuredRe
         if (fields.size() > 1) {
           // Add a validation failure for each extra field considering first field is the correct field
           for (int i = 1; i < fields.size(); i++) {
-            collector.addFailure("Output schema must only contain single field of type 'string'.",
+            collector.addFailure("Output schema must only contain single field of type 'string' or 'bytes'.",
                                  String.format("Remove '%s' field.", fields.get(i).getName()))
               .withOutputSchemaField(fields.get(i).getName());
           }
@@ -257,10 +304,10 @@ public final class CSVFormatter extends Transform<StructuredRecord, StructuredRe
         Schema nonNullableSchema = fields.get(0).getSchema().isNullable() ?
           fields.get(0).getSchema().getNonNullable() : fields.get(0).getSchema();
 
-        if (nonNullableSchema.getType() != Schema.Type.STRING) {
+        if (nonNullableSchema.getType() != Schema.Type.STRING && nonNullableSchema.getType() != Schema.Type.BYTES) {
           collector.addFailure(String.format("Output field '%s' is of invalid type '%s'.",
                                              fields.get(0).getName(), nonNullableSchema.getDisplayName()),
-                               "Specify output field of type 'string'.")
+                               "Specify output field of type 'string' or 'bytes'.")
             .withOutputSchemaField(fields.get(0).getName(), null);
         }
       }
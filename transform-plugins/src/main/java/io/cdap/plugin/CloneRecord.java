@@ -29,10 +29,9 @@ import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaPlanCache;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 
-import java.util.List;
-
 /**
  * Clones Input Record 'n' number of times into output.
  */
@@ -41,6 +40,7 @@ import java.util.List;
 @Description("Clone input records 'n' number of times into output")
 public final class CloneRecord extends Transform<StructuredRecord, StructuredRecord> {
   private final Config config;
+  private SchemaPlanCache<String[]> fieldNames;
 
   // Required only for testing.
   public CloneRecord(Config config) {
@@ -71,15 +71,16 @@ public final class CloneRecord extends Transform<StructuredRecord, StructuredRec
   @Override
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
+    fieldNames = new SchemaPlanCache<>(SchemaPlanCache::getFieldNames);
   }
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    List<Schema.Field> fields = in.getSchema().getFields();
+    Schema schema = in.getSchema();
+    String[] names = fieldNames.get(schema);
     for (int i = 0; i < config.copies; ++i) {
-      StructuredRecord.Builder builder = StructuredRecord.builder(in.getSchema());
-      for (Schema.Field field : fields) {
-        String name = field.getName();
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (String name : names) {
         builder.set(name, in.get(name));
       }
       emitter.emit(builder.build());
@@ -30,6 +30,9 @@ import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
+import io.cdap.plugin.common.RecordAccessor;
+import io.cdap.plugin.common.RecordWriterPlan;
+import io.cdap.plugin.common.SchemaPlanCache;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 import org.apache.commons.codec.digest.DigestUtils;
 
@@ -38,6 +41,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -51,6 +55,8 @@ import javax.annotation.Nullable;
 public final class Hasher extends Transform<StructuredRecord, StructuredRecord> {
   private final Config config;
   private Set<String> fieldSet = new HashSet<>();
+  private Function<String, String> digester;
+  private SchemaPlanCache<HashPlan> plans;
 
   // For testing purpose only.
   public Hasher(Config config) {
@@ -95,46 +101,68 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
   @Override
   public void initialize(TransformContext context) throws Exception {
     fieldSet = config.getFields();
+    digester = getDigester(config.hash);
+    plans = new SchemaPlanCache<>(this::createPlan);
   }
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord.Builder builder = StructuredRecord.builder(in.getSchema());
-    
-    List<Schema.Field> fields = in.getSchema().getFields();
-    for (Schema.Field field : fields) {
-      String name = field.getName();
-      if (fieldSet.contains(name) && field.getSchema().getType() == Schema.Type.STRING) {
-        String value = in.get(name);
-        String digest = value;
-        switch(config.hash.toLowerCase()) {
-          case "md2":
-            digest = DigestUtils.md2Hex(value);
-            break;
-          case "md5":
-            digest = DigestUtils.md5Hex(value);
-            break;
-          case "sha1":
-            digest = DigestUtils.sha1Hex(value);
-            break;
-          case "sha256":
-            digest = DigestUtils.sha256Hex(value);
-            break;
-          case "sha384":
-            digest = DigestUtils.sha384Hex(value);
-            break;
-          case "sha512":
-            digest = DigestUtils.sha512Hex(value);
-            break;
-        }
-        builder.set(name, digest);
-      } else {
-        builder.set(name, in.get(name));
-      }
+    HashPlan plan = plans.get(in.getSchema());
+    StructuredRecord.Builder builder = plan.writer.copy(in);
+    for (int index : plan.hashedFields) {
+      String value = plan.writer.getInput().getString(in, index);
+      plan.writer.set(builder, index, digester.apply(value));
     }
     emitter.emit(builder.build());
   }
 
+  private HashPlan createPlan(Schema schema) {
+    RecordAccessor accessor = new RecordAccessor(schema);
+    RecordWriterPlan writer = new RecordWriterPlan(accessor, accessor);
+    List<Integer> hashedFields = new ArrayList<>();
+    for (int i = 0; i < accessor.size(); i++) {
+      // nullable fields are copied as is
+      if (fieldSet.contains(accessor.getName(i)) && !accessor.isNullable(i)
+        && accessor.getType(i) == Schema.Type.STRING) {
+        hashedFields.add(i);
+        writer.skip(i);
+      }
+    }
+    return new HashPlan(writer, hashedFields.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  private static Function<String, String> getDigester(@Nullable String hash) {
+    switch (hash == null ? "" : hash.toLowerCase()) {
+      case "md2":
+        return DigestUtils::md2Hex;
+      case "md5":
+        return DigestUtils::md5Hex;
+      case "sha1":
+        return DigestUtils::sha1Hex;
+      case "sha256":
+        return DigestUtils::sha256Hex;
+      case "sha384":
+        return DigestUtils::sha384Hex;
+      case "sha512":
+        return DigestUtils::sha512Hex;
+      default:
+        return Function.identity();
+    }
+  }
+
+  /**
+   * Fields to hash in an input schema, along with the plan to copy the remaining fields.
+   */
+  private static final class HashPlan {
+    private final RecordWriterPlan writer;
+    private final int[] hashedFields;
+
+    private HashPlan(RecordWriterPlan writer, int[] hashedFields) {
+      this.writer = writer;
+      this.hashedFields = hashedFields;
+    }
+  }
+
   /**
    * Hasher Plugin Config.
    */
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin;
 
+import com.google.gson.stream.JsonWriter;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -28,10 +29,16 @@ import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.cdap.format.io.JsonEncoder;
+import io.cdap.cdap.format.io.JsonStructuredRecordDatumWriter;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -41,6 +48,7 @@ import java.util.List;
 @Name("JSONFormatter")
 @Description("Writes JSON Object formatted records from the Structured record.")
 public final class JSONFormatter extends Transform<StructuredRecord, StructuredRecord> {
+  private final JsonStructuredRecordDatumWriter datumWriter = new JsonStructuredRecordDatumWriter();
   private final Config config;
   
   // Output schema specified during configuration.
@@ -50,6 +58,15 @@ public final class JSONFormatter extends Transform<StructuredRecord, StructuredR
   // Allows only BYTE or STRING fields. 
   private Schema.Type type;
 
+  // Name of the field in the output schema where the JSON would be written to.
+  private String outField;
+
+  // Reusable buffers that every record is written to. Bytes output is encoded as UTF-8 while it is written,
+  // so that downstream stages don't need to encode it again.
+  private StringWriter stringOut;
+  private ByteArrayOutputStream bytesOut;
+  private Writer writer;
+
   // Required only for testing.
   public JSONFormatter(Config config) {
     this.config = config;
@@ -68,12 +85,23 @@ public final class JSONFormatter extends Transform<StructuredRecord, StructuredR
     FailureCollector collector = getContext().getFailureCollector();
     try {
       outSchema = Schema.parseJson(config.schema);
-      type = outSchema.getFields().get(0).getSchema().getType();
+      Schema.Field field = outSchema.getFields().get(0);
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      type = fieldSchema.getType();
+      outField = field.getName();
     } catch (IOException e) {
       collector.addFailure("Invalid output schema.", "Output schema must be valid JSON.")
         .withConfigProperty(Config.SCHEMA);
       throw collector.getOrThrowException();
     }
+
+    if (type == Schema.Type.BYTES) {
+      bytesOut = new ByteArrayOutputStream();
+      writer = new OutputStreamWriter(bytesOut, StandardCharsets.UTF_8);
+    } else {
+      stringOut = new StringWriter();
+      writer = stringOut;
+    }
   }
 
   @Override
@@ -124,14 +152,19 @@ public final class JSONFormatter extends Transform<StructuredRecord, StructuredR
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
     StructuredRecord.Builder record = StructuredRecord.builder(outSchema);
     
-    // Convert the structured record to JSON.
-    String outputRecord = StructuredRecordStringConverter.toJsonString(input);
-    
+    // Stream the structured record as JSON into the reusable buffer. The JSON writer is not closed, since that
+    // would close the underlying buffer.
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    datumWriter.encode(input, new JsonEncoder(jsonWriter));
+    jsonWriter.flush();
+
     // Depending on the output field type emit it as string or bytes.
     if (type == Schema.Type.BYTES) {
-      record.set(outSchema.getFields().get(0).getName(), outputRecord.getBytes());
+      record.set(outField, bytesOut.toByteArray());
+      bytesOut.reset();
     } else if (type == Schema.Type.STRING) {
-      record.set(outSchema.getFields().get(0).getName(), outputRecord);
+      record.set(outField, stringOut.toString());
+      stringOut.getBuffer().setLength(0);
     }
     emitter.emit(record.build());
   }
@@ -29,12 +29,11 @@ import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaPlanCache;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Transforms records by normalizing the data.
@@ -44,15 +43,15 @@ import java.util.Map;
 @Name("Normalize")
 @Description("Convert wide rows and reducing data to it canonicalize form")
 public class Normalize extends Transform<StructuredRecord, StructuredRecord> {
-  private static final String NAME_KEY_SUFFIX = "_name";
-  private static final String VALUE_KEY_SUFFIX = "_value";
-
   private final NormalizeConfig config;
 
   private Schema outputSchema;
-  private Map<String, String> mappingFieldMap;
-  private Map<String, String> normalizeFieldMap;
+  private String[] mappingInputFields;
+  private String[] mappingOutputFields;
   private List<String> normalizeFieldList;
+  private List<String> normalizeNameFieldList;
+  private List<String> normalizeValueFieldList;
+  private SchemaPlanCache<NormalizePlan> plans;
 
   public Normalize(NormalizeConfig config) {
     this.config = config;
@@ -191,23 +190,27 @@ public class Normalize extends Transform<StructuredRecord, StructuredRecord> {
       return;
     }
 
-    mappingFieldMap = new HashMap<>();
     String[] fieldMappingArray = config.fieldMapping.split(",");
-    for (String fieldMapping : fieldMappingArray) {
-      String[] mappings = fieldMapping.split(":");
-      mappingFieldMap.put(mappings[0], mappings[1]);
+    mappingInputFields = new String[fieldMappingArray.length];
+    mappingOutputFields = new String[fieldMappingArray.length];
+    for (int i = 0; i < fieldMappingArray.length; i++) {
+      String[] mappings = fieldMappingArray[i].split(":");
+      mappingInputFields[i] = mappings[0];
+      mappingOutputFields[i] = mappings[1];
     }
 
-    normalizeFieldMap = new HashMap<>();
     normalizeFieldList = new ArrayList<>();
+    normalizeNameFieldList = new ArrayList<>();
+    normalizeValueFieldList = new ArrayList<>();
     String[] fieldNormalizingArray = config.fieldNormalizing.split(",");
 
     for (String fieldNormalizing : fieldNormalizingArray) {
       String[] fields = fieldNormalizing.split(":");
       normalizeFieldList.add(fields[0]);
-      normalizeFieldMap.put(fields[0] + NAME_KEY_SUFFIX, fields[1]);
-      normalizeFieldMap.put(fields[0] + VALUE_KEY_SUFFIX, fields[2]);
+      normalizeNameFieldList.add(fields[1]);
+      normalizeValueFieldList.add(fields[2]);
     }
+    plans = new SchemaPlanCache<>(NormalizePlan::new);
   }
 
   @Override
@@ -230,22 +233,62 @@ public class Normalize extends Transform<StructuredRecord, StructuredRecord> {
 
   @Override
   public void transform(StructuredRecord structuredRecord, Emitter<StructuredRecord> emitter) throws Exception {
-    for (String normalizeField : normalizeFieldList) {
-      if (structuredRecord.get(normalizeField) == null) {
+    NormalizePlan plan = plans.get(structuredRecord.getSchema());
+    String[] mappingValues = null;
+    for (int i = 0; i < plan.normalizeFields.length; i++) {
+      String normalizeField = plan.normalizeFields[i];
+      Object value = structuredRecord.get(normalizeField);
+      if (value == null) {
         continue;
       }
+      //Mapping field values are the same for every normalized record, so only convert them once
+      if (mappingValues == null) {
+        mappingValues = new String[mappingInputFields.length];
+        for (int j = 0; j < mappingInputFields.length; j++) {
+          mappingValues[j] = String.valueOf(structuredRecord.<Object>get(mappingInputFields[j]));
+        }
+      }
       StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-      String normalizeFieldValue = String.valueOf(structuredRecord.<Object>get(normalizeField));
       //Set normalize fields to the record
-      builder.set(normalizeFieldMap.get(normalizeField + NAME_KEY_SUFFIX), normalizeField)
-        .set(normalizeFieldMap.get(normalizeField + VALUE_KEY_SUFFIX), normalizeFieldValue);
+      builder.set(plan.nameFields[i], normalizeField)
+        .set(plan.valueFields[i], String.valueOf(value));
 
       //Set mapping fields to the record
-      mappingFieldMap.forEach((key, value) -> builder.set(value, String.valueOf(structuredRecord.<Object>get(key))));
+      for (int j = 0; j < mappingOutputFields.length; j++) {
+        builder.set(mappingOutputFields[j], mappingValues[j]);
+      }
       emitter.emit(builder.build());
     }
   }
 
+  /**
+   * Normalizing fields that are present in an input schema, along with the output fields they are written to.
+   */
+  private final class NormalizePlan {
+    private final String[] normalizeFields;
+    private final String[] nameFields;
+    private final String[] valueFields;
+
+    private NormalizePlan(Schema inputSchema) {
+      List<Integer> present = new ArrayList<>(normalizeFieldList.size());
+      for (int i = 0; i < normalizeFieldList.size(); i++) {
+        // fields that are not in the schema are always null, so they never produce output
+        if (inputSchema.getField(normalizeFieldList.get(i)) != null) {
+          present.add(i);
+        }
+      }
+      normalizeFields = new String[present.size()];
+      nameFields = new String[present.size()];
+      valueFields = new String[present.size()];
+      for (int i = 0; i < present.size(); i++) {
+        int index = present.get(i);
+        normalizeFields[i] = normalizeFieldList.get(index);
+        nameFields[i] = normalizeNameFieldList.get(index);
+        valueFields[i] = normalizeValueFieldList.get(index);
+      }
+    }
+  }
+
   /**
    * Configuration for the Normalize transform.
    */
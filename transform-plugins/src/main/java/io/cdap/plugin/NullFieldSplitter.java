@@ -30,6 +30,7 @@ import io.cdap.cdap.etl.api.MultiOutputPipelineConfigurer;
 import io.cdap.cdap.etl.api.MultiOutputStageConfigurer;
 import io.cdap.cdap.etl.api.SplitterTransform;
 import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaPlanCache;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -49,8 +50,7 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
   public static final String NULL_PORT = "null";
   public static final String NON_NULL_PORT = "nonnull";
   private final Conf conf;
-  // only used when input schema is variable
-  private Map<Schema, Schema> schemaMap;
+  private SchemaPlanCache<NonNullPlan> plans;
 
   public NullFieldSplitter(Conf conf) {
     this.conf = conf;
@@ -68,33 +68,26 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
 
   @Override
   public void initialize(TransformContext context) {
-    schemaMap = new HashMap<>();
+    plans = new SchemaPlanCache<>(schema -> new NonNullPlan(getNonNullSchema(schema, conf.field, null)));
     Schema inputSchema = context.getInputSchema();
     FailureCollector collector = context.getFailureCollector();
     if (inputSchema != null) {
-      Schema nonNullSchema = getNonNullSchema(context.getInputSchema(), conf.field, collector);
+      getNonNullSchema(inputSchema, conf.field, collector);
       collector.getOrThrowException();
-      schemaMap.put(inputSchema, nonNullSchema);
     }
   }
 
   @Override
   public void transform(StructuredRecord record, MultiOutputEmitter<StructuredRecord> emitter) {
-    Schema recordSchema = record.getSchema();
     Object val = record.get(conf.field);
     if (val == null) {
       emitter.emit(NULL_PORT, record);
     } else if (!conf.modifySchema) {
       emitter.emit(NON_NULL_PORT, record);
     } else {
-      Schema outputSchema = schemaMap.get(recordSchema);
-      if (outputSchema == null) {
-        outputSchema = getNonNullSchema(recordSchema, conf.field, null);
-        schemaMap.put(recordSchema, outputSchema);
-      }
-      StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-      for (Schema.Field recordField : record.getSchema().getFields()) {
-        String fieldName = recordField.getName();
+      NonNullPlan plan = plans.get(record.getSchema());
+      StructuredRecord.Builder builder = StructuredRecord.builder(plan.outputSchema);
+      for (String fieldName : plan.fieldNames) {
         builder.set(fieldName, record.get(fieldName));
       }
       emitter.emit(NON_NULL_PORT, builder.build());
@@ -150,6 +143,19 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     return Schema.recordOf(nullableSchema.getRecordName() + ".nonnull", fields);
   }
 
+  /**
+   * Non-null output schema for an input schema, along with the fields to copy into it.
+   */
+  private static final class NonNullPlan {
+    private final Schema outputSchema;
+    private final String[] fieldNames;
+
+    private NonNullPlan(Schema outputSchema) {
+      this.outputSchema = outputSchema;
+      this.fieldNames = SchemaPlanCache.getFieldNames(outputSchema);
+    }
+  }
+
   /**
    * Configuration for the plugin.
    */
@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import org.json.JSONObject;
+import org.json.XML;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts an XML string to a JSON string by reading StAX events and writing JSON tokens directly to a reusable
+ * buffer, without building a document tree. Memory used by the conversion, apart from the output, is proportional
+ * to the nesting depth of the document.
+ *
+ * The conversion follows the same conventions as {@link XML#toJSONObject(String)}: attributes become members of
+ * the element's object, text is converted with {@link XML#stringToValue(String)} and is stored under a 'content'
+ * member if the element also has attributes or child elements, and empty elements become empty strings.
+ * Since the document is not held in memory, members are written in document order, and repeated elements are only
+ * grouped into an array when they are adjacent siblings.
+ *
+ * This class is not thread safe.
+ */
+public final class StreamingXMLToJSONConverter {
+  private static final String CONTENT = "content";
+
+  private final XMLInputFactory inputFactory;
+  private final StringBuilder out;
+  // frames are reused across elements and documents, one per nesting level
+  private final List<Frame> frames;
+
+  public StreamingXMLToJSONConverter() {
+    inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    out = new StringBuilder();
+    frames = new ArrayList<>();
+  }
+
+  /**
+   * Converts the given XML string to a JSON string.
+   *
+   * @param xml the XML to convert
+   * @return the JSON string for the XML
+   * @throws XMLStreamException if the XML is not well formed
+   */
+  public String convert(String xml) throws XMLStreamException {
+    out.setLength(0);
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+    try {
+      int depth = 0;
+      // the document itself is an object with the root element as its only member
+      Frame current = frame(depth);
+      current.reset();
+      current.objectOpen = true;
+      out.append('{');
+
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            Frame parent = current;
+            startMember(parent, reader.getLocalName());
+            depth++;
+            current = frame(depth);
+            current.reset();
+            int attributeCount = reader.getAttributeCount();
+            if (attributeCount > 0) {
+              openObject(current);
+              for (int i = 0; i < attributeCount; i++) {
+                writeKey(current, reader.getAttributeLocalName(i));
+                writeValue(XML.stringToValue(reader.getAttributeValue(i)));
+              }
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+            if (depth > 0) {
+              String text = reader.getText().trim();
+              if (!text.isEmpty()) {
+                current.addContent(XML.stringToValue(text));
+              }
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            endElement(current);
+            depth--;
+            current = frame(depth);
+            break;
+          default:
+            // comments, processing instructions and whitespace outside of elements are dropped
+            break;
+        }
+      }
+
+      closeArray(current);
+      out.append('}');
+      return out.toString();
+    } finally {
+      reader.close();
+      // don't hold on to the values of the last document
+      for (Frame frame : frames) {
+        frame.reset();
+      }
+    }
+  }
+
+  private Frame frame(int depth) {
+    while (frames.size() <= depth) {
+      frames.add(new Frame());
+    }
+    return frames.get(depth);
+  }
+
+  /**
+   * Writes the key for a child element of the given parent, or continues an array if the previous sibling
+   * had the same name.
+   */
+  private void startMember(Frame parent, String name) {
+    openObject(parent);
+    if (name.equals(parent.lastChild)) {
+      if (!parent.inArray) {
+        // the previous sibling has the same name, so turn its value into the first element of an array
+        out.insert(parent.lastChildStart, '[');
+        parent.inArray = true;
+      }
+      out.append(',');
+    } else {
+      closeArray(parent);
+      writeKey(parent, name);
+      parent.lastChild = name;
+    }
+    parent.lastChildStart = out.length();
+  }
+
+  private void endElement(Frame frame) {
+    closeArray(frame);
+    if (frame.objectOpen) {
+      if (frame.content != null) {
+        writeKey(frame, CONTENT);
+        writeContent(frame.content);
+      }
+      out.append('}');
+    } else if (frame.content != null) {
+      writeContent(frame.content);
+    } else {
+      out.append("\"\"");
+    }
+  }
+
+  private void openObject(Frame frame) {
+    if (!frame.objectOpen) {
+      out.append('{');
+      frame.objectOpen = true;
+    }
+  }
+
+  private void closeArray(Frame frame) {
+    if (frame.inArray) {
+      out.append(']');
+      frame.inArray = false;
+    }
+  }
+
+  private void writeKey(Frame frame, String key) {
+    if (frame.hasMembers) {
+      out.append(',');
+    }
+    frame.hasMembers = true;
+    quote(key);
+    out.append(':');
+  }
+
+  private void writeContent(Object content) {
+    if (!(content instanceof List)) {
+      writeValue(content);
+      return;
+    }
+    out.append('[');
+    boolean first = true;
+    for (Object value : (List<?>) content) {
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      writeValue(value);
+    }
+    out.append(']');
+  }
+
+  private void writeValue(Object value) {
+    if (value instanceof String) {
+      quote((String) value);
+    } else {
+      out.append(JSONObject.valueToString(value));
+    }
+  }
+
+  /**
+   * Appends a quoted JSON string, escaped the same way as {@link JSONObject#quote(String)}.
+   */
+  private void quote(String string) {
+    out.append('"');
+    char previous = 0;
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch (c) {
+        case '\\':
+        case '"':
+          out.append('\\').append(c);
+          break;
+        case '/':
+          if (previous == '<') {
+            out.append('\\');
+          }
+          out.append(c);
+          break;
+        case '\b':
+          out.append("\\b");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\f':
+          out.append("\\f");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        default:
+          if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+            String hex = Integer.toHexString(c);
+            out.append("\\u");
+            for (int pad = hex.length(); pad < 4; pad++) {
+              out.append('0');
+            }
+            out.append(hex);
+          } else {
+            out.append(c);
+          }
+      }
+      previous = c;
+    }
+    out.append('"');
+  }
+
+  /**
+   * State of an element that is being converted.
+   */
+  private static final class Frame {
+    // whether the '{' for this element has been written, which happens once it has an attribute or child
+    private boolean objectOpen;
+    private boolean hasMembers;
+    // name of the previous child element, and where its value starts in the output
+    private String lastChild;
+    private int lastChildStart;
+    // whether the previous child is part of an array that has not been closed yet
+    private boolean inArray;
+    // text of the element, either a single value or a list of values if there were several pieces of text
+    private Object content;
+
+    private void reset() {
+      objectOpen = false;
+      hasMembers = false;
+      lastChild = null;
+      lastChildStart = 0;
+      inArray = false;
+      content = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addContent(Object value) {
+      if (content == null) {
+        content = value;
+      } else if (content instanceof List) {
+        ((List<Object>) content).add(value);
+      } else {
+        List<Object> values = new ArrayList<>();
+        values.add(content);
+        values.add(value);
+        content = values;
+      }
+    }
+  }
+}
@@ -29,10 +29,13 @@ import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.MultiOutputPipelineConfigurer;
 import io.cdap.cdap.etl.api.MultiOutputStageConfigurer;
 import io.cdap.cdap.etl.api.SplitterTransform;
+import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaPlanCache;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +52,7 @@ import javax.annotation.Nullable;
   "bool, int, long, float, double, or string).")
 public class UnionSplitter extends SplitterTransform<StructuredRecord, StructuredRecord> {
   private final Conf conf;
+  private SchemaPlanCache<UnionPlan> plans;
 
   public UnionSplitter(Conf conf) {
     this.conf = conf;
@@ -66,6 +70,11 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
                                                       conf.modifySchema, stageConfigurer.getFailureCollector()));
   }
 
+  @Override
+  public void initialize(TransformContext context) {
+    plans = new SchemaPlanCache<>(schema -> new UnionPlan(schema, conf.unionField, conf.modifySchema));
+  }
+
   @Override
   public void transform(StructuredRecord record, MultiOutputEmitter<StructuredRecord> emitter) {
     if (conf.unionField == null) {
@@ -73,39 +82,32 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    Schema.Field schemaField = record.getSchema().getField(conf.unionField);
-    if (schemaField == null) {
-      emitter.emitError(new InvalidEntry<>(100, String.format("Field '%s' does not exist.", conf.unionField), record));
-      return;
-    }
-
-    Schema fieldSchema = schemaField.getSchema();
-    if (fieldSchema.getType() != Schema.Type.UNION) {
-      emitter.emitError(new InvalidEntry<>(200, String.format("Field '%s' is not of type union, but is of type '%s'.",
-                                                              conf.unionField, fieldSchema.getType()), record));
+    UnionPlan plan = plans.get(record.getSchema());
+    if (plan.errorCode != 0) {
+      emitter.emitError(new InvalidEntry<>(plan.errorCode, plan.errorMessage, record));
       return;
     }
 
     Object val = record.get(conf.unionField);
-    Schema valSchema;
+    Schema.Type valType;
     if (val == null) {
-      valSchema = Schema.of(Schema.Type.NULL);
+      valType = Schema.Type.NULL;
     } else if (val instanceof Boolean) {
-      valSchema = Schema.of(Schema.Type.BOOLEAN);
+      valType = Schema.Type.BOOLEAN;
     } else if (val instanceof ByteBuffer || val instanceof byte[] || val instanceof Byte[]) {
-      valSchema = Schema.of(Schema.Type.BYTES);
+      valType = Schema.Type.BYTES;
     } else if (val instanceof Integer) {
-      valSchema = Schema.of(Schema.Type.INT);
+      valType = Schema.Type.INT;
     } else if (val instanceof Long) {
-      valSchema = Schema.of(Schema.Type.LONG);
+      valType = Schema.Type.LONG;
     } else if (val instanceof Float) {
-      valSchema = Schema.of(Schema.Type.FLOAT);
+      valType = Schema.Type.FLOAT;
     } else if (val instanceof Double) {
-      valSchema = Schema.of(Schema.Type.DOUBLE);
+      valType = Schema.Type.DOUBLE;
     } else if (val instanceof String) {
-      valSchema = Schema.of(Schema.Type.STRING);
+      valType = Schema.Type.STRING;
     } else if (val instanceof StructuredRecord) {
-      valSchema = ((StructuredRecord) val).getSchema();
+      valType = Schema.Type.RECORD;
     } else if (val.getClass().isEnum()) {
       emitter.emitError(
         new InvalidEntry<>(300, String.format("Field '%s' is an Enum, which is not supported.", conf.unionField),
@@ -129,41 +131,32 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    boolean foundSchema = false;
-    for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
-      // if the schema in the union matches the value's schema
-      if (unionSchema.equals(valSchema)) {
-        foundSchema = true;
-      }
-    }
-    if (!foundSchema) {
+    // if the schema in the union matches the value's schema
+    Schema valSchema = valType == Schema.Type.RECORD ? ((StructuredRecord) val).getSchema() : null;
+    UnionBranch branch = valSchema == null ? plan.simpleBranches.get(valType) : plan.recordBranches.get(valSchema);
+    if (branch == null) {
       emitter.emitError(
         new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
-                                              conf.unionField, valSchema), record));
+                                              conf.unionField, valSchema == null ? Schema.of(valType) : valSchema),
+                           record));
       return;
     }
 
-    Schema inputSchema = record.getSchema();
-    List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
-      if (fieldName.equals(conf.unionField)) {
-        fields.add(Schema.Field.of(fieldName, valSchema));
-      } else {
-        fields.add(inputSchemaField);
-      }
+    if (branch.outputSchema == record.getSchema()) {
+      // records are immutable, so there is no need to copy a record whose schema is left as is
+      emitter.emit(branch.port, record);
+      return;
     }
-
-    Schema.Type valType = valSchema.getType();
-    String port = valType == Schema.Type.RECORD ? valSchema.getRecordName() : valType.name().toLowerCase();
-    Schema outputSchema = conf.modifySchema ?
-      Schema.recordOf(inputSchema.getRecordName() + "." + port, fields) : inputSchema;
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
+    StructuredRecord.Builder builder = StructuredRecord.builder(branch.outputSchema);
+    for (String fieldName : plan.fieldNames) {
       builder.set(fieldName, record.get(fieldName));
     }
-    emitter.emit(port, builder.build());
+    emitter.emit(branch.port, builder.build());
+  }
+
+  private static String getPort(Schema schema) {
+    Schema.Type type = schema.getType();
+    return type == Schema.Type.RECORD ? schema.getRecordName() : type.name().toLowerCase();
   }
 
   @VisibleForTesting
@@ -212,7 +205,7 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
         break;
       }
 
-      String port = type == Schema.Type.RECORD ? schema.getRecordName() : type.name().toLowerCase();
+      String port = getPort(schema);
       outputFields.set(unionIndex, Schema.Field.of(unionField, modifySchema ? schema : unionSchema));
       outputPortSchemas.put(port, Schema.recordOf(inputSchema.getRecordName() + "." + port, outputFields));
     }
@@ -220,6 +213,72 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
     return outputPortSchemas;
   }
 
+  /**
+   * Output port and schema for one of the schemas in the union.
+   */
+  private static final class UnionBranch {
+    private final String port;
+    private final Schema outputSchema;
+
+    private UnionBranch(String port, Schema outputSchema) {
+      this.port = port;
+      this.outputSchema = outputSchema;
+    }
+  }
+
+  /**
+   * Everything about an input schema that is needed to route its records, computed once per schema.
+   */
+  private static final class UnionPlan {
+    private final Map<Schema.Type, UnionBranch> simpleBranches = new EnumMap<>(Schema.Type.class);
+    private final Map<Schema, UnionBranch> recordBranches = new HashMap<>();
+    private final String[] fieldNames;
+    private int errorCode;
+    private String errorMessage;
+
+    private UnionPlan(Schema inputSchema, String unionField, boolean modifySchema) {
+      this.fieldNames = SchemaPlanCache.getFieldNames(inputSchema);
+      Schema.Field schemaField = inputSchema.getField(unionField);
+      if (schemaField == null) {
+        errorCode = 100;
+        errorMessage = String.format("Field '%s' does not exist.", unionField);
+        return;
+      }
+
+      Schema fieldSchema = schemaField.getSchema();
+      if (fieldSchema.getType() != Schema.Type.UNION) {
+        errorCode = 200;
+        errorMessage = String.format("Field '%s' is not of type union, but is of type '%s'.",
+                                     unionField, fieldSchema.getType());
+        return;
+      }
+
+      for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
+        String port = getPort(unionSchema);
+        Schema outputSchema = inputSchema;
+        if (modifySchema) {
+          List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
+          for (Schema.Field inputSchemaField : inputSchema.getFields()) {
+            String fieldName = inputSchemaField.getName();
+            if (fieldName.equals(unionField)) {
+              fields.add(Schema.Field.of(fieldName, unionSchema));
+            } else {
+              fields.add(inputSchemaField);
+            }
+          }
+          outputSchema = Schema.recordOf(inputSchema.getRecordName() + "." + port, fields);
+        }
+
+        UnionBranch branch = new UnionBranch(port, outputSchema);
+        if (unionSchema.getType() == Schema.Type.RECORD) {
+          recordBranches.put(unionSchema, branch);
+        } else if (unionSchema.getLogicalType() == null) {
+          simpleBranches.put(unionSchema.getType(), branch);
+        }
+      }
+    }
+  }
+
   /**
    * Plugin conf
    */
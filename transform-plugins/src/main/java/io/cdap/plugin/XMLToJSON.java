@@ -32,13 +32,14 @@ import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.json.XML;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * A transform that parses an XML String field into a stringified JSON Object.
@@ -55,6 +56,7 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
     Schema.Field.of("json_str", Schema.of(Schema.Type.STRING))
   );
   private Schema outputSchema;
+  private StreamingXMLToJSONConverter streamingConverter;
 
 
   // Used only for testing.
@@ -92,6 +94,9 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
     generateOutputSchema();
+    if (config.isStreaming()) {
+      streamingConverter = new StreamingXMLToJSONConverter();
+    }
   }
 
   private void generateOutputSchema() {
@@ -134,10 +139,11 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
   
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
-    JSONObject jsonBody;
+    String jsonBody;
     try {
-      jsonBody = XML.toJSONObject((String) input.get(config.inputField));
-    } catch (JSONException e) {
+      String xml = input.get(config.inputField);
+      jsonBody = streamingConverter == null ? XML.toJSONObject(xml).toString() : streamingConverter.convert(xml);
+    } catch (JSONException | XMLStreamException e) {
       throw new Exception(String.format("Failed to convert XML to JSON. XML In: '%s'",
                                         (String) input.get(config.inputField)), e);
     }
@@ -158,7 +164,7 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
       }
     }
     // Finally add the transformed JSON string
-    builder.set(outputSchema.getField(config.outputField).getName(), jsonBody.toString());
+    builder.set(outputSchema.getField(config.outputField).getName(), jsonBody);
     emitter.emit(builder.build());
   }
 
@@ -181,6 +187,13 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
     @Description("Output schema")
     private String schema;
 
+    @Name("streaming")
+    @Description("Whether to convert the XML while it is being read, instead of first parsing it into an object. " +
+      "This uses much less memory for large documents, but members are written in document order and repeated " +
+      "elements are only combined into an array when they are next to each other. Defaults to false.")
+    @Nullable
+    private Boolean streaming;
+
     public Config(String inputField, String outputField) {
       this.inputField = inputField;
       this.outputField = outputField;
@@ -188,9 +201,18 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
     }
 
     public Config(String inputField, String outputField, String schema) {
+      this(inputField, outputField, schema, false);
+    }
+
+    public Config(String inputField, String outputField, String schema, Boolean streaming) {
       this.inputField = inputField;
       this.outputField = outputField;
       this.schema = schema;
+      this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+      return streaming != null && streaming;
     }
   }
 }
@@ -24,6 +24,8 @@ import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Tests the {@link CSVFormatter}.
  */
@@ -67,6 +69,32 @@ public class CSVFormatterTest {
     Assert.assertEquals("6|7|8|9|10\r\n", emitter.getEmitted().get(0).get("body"));
   }
 
+  @Test
+  public void testBytesOutput() throws Exception {
+    Schema output = Schema.recordOf("output", Schema.Field.of("body", Schema.of(Schema.Type.BYTES)));
+    CSVFormatter.Config config = new CSVFormatter.Config("DELIMITED", "COMMA", output.toString());
+    Transform<StructuredRecord, StructuredRecord> transform = new CSVFormatter(config);
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT1)
+                          .set("a", "1")
+                          .set("b", "2,3")
+                          .set("c", "\u00e9")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT1)
+                          .set("a", "6")
+                          .set("b", "7")
+                          .set("c", "8")
+                          .set("d", "9")
+                          .set("e", "10").build(), emitter);
+    Assert.assertArrayEquals("1,\"2,3\",\u00e9,4,5\r\n".getBytes(StandardCharsets.UTF_8),
+                             emitter.getEmitted().get(0).get("body"));
+    Assert.assertArrayEquals("6,7,8,9,10\r\n".getBytes(StandardCharsets.UTF_8),
+                             emitter.getEmitted().get(1).get("body"));
+  }
+
   @Test
   public void testSchemaValidation() {
     CSVFormatter.Config config = new CSVFormatter.Config("DELIMITED", "VBAR", OUTPUT.toString());
@@ -28,6 +28,8 @@ import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.xml.stream.XMLStreamException;
+
 /**
  * Tests {@link XMLToJSON}
  */
@@ -65,6 +67,43 @@ public class XMLToJSONConverterTest {
                         emitter.getEmitted().get(0).get("jsonevent"));
   }
 
+  @Test
+  public void testStreamingConversion() throws Exception {
+    XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", OUTPUT.toString(), true);
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLToJSON(config);
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("body",
+                               "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                                 "<CATALOG>" +
+                                 "  <PLANT>" +
+                                 "    <COMMON>Bloodroot</COMMON>" +
+                                 "    <BOTANICAL>Sanguinaria canadensis</BOTANICAL>" +
+                                 "  </PLANT>" +
+                                 "  <PLANT>" +
+                                 "    <COMMON>Columbine</COMMON>" +
+                                 "    <BOTANICAL>Aquilegia canadensis</BOTANICAL>" +
+                                 "  </PLANT>" +
+                                 "</CATALOG>")
+                          .build(), emitter);
+    Assert.assertEquals("{\"CATALOG\":" +
+                          "{\"PLANT\":" +
+                          "[{\"COMMON\":\"Bloodroot\",\"BOTANICAL\":\"Sanguinaria canadensis\"}," +
+                          "{\"COMMON\":\"Columbine\",\"BOTANICAL\":\"Aquilegia canadensis\"}]}}",
+                        emitter.getEmitted().get(0).get("jsonevent"));
+  }
+
+  @Test
+  public void testStreamingConverter() throws Exception {
+    StreamingXMLToJSONConverter converter = new StreamingXMLToJSONConverter();
+    Assert.assertEquals("{\"a\":{\"id\":1,\"b\":[true,\"x \\\"y\\\"\"],\"c\":\"\",\"content\":2.5}}",
+                        converter.convert("<a id=\"1\"><b>true</b><b>x \"y\"</b><c/>2.5</a>"));
+    // the converter is reused across documents
+    Assert.assertEquals("{\"a\":{\"b\":{\"c\":[1,2],\"d\":\"text\"}}}",
+                        converter.convert("<a><b><c>1</c><c>2</c><d>text</d></b></a>"));
+  }
+
   @Test
   public void testFailure() throws Exception {
     XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", OUTPUT.toString());
@@ -92,6 +131,11 @@ public class XMLToJSONConverterTest {
     }
   }
 
+  @Test(expected = XMLStreamException.class)
+  public void testStreamingFailure() throws Exception {
+    new StreamingXMLToJSONConverter().convert("<CATALOG><PLANT><COMMON>Bloodroot</COMMON></CATALOG>");
+  }
+
   @Test
   public void testInvalidInputField() throws Exception {
     XMLToJSON.Config config = new XMLToJSON.Config("does_not_exist", "jsonevent", OUTPUT.toString());